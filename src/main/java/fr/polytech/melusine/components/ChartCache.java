@@ -0,0 +1,196 @@
+package fr.polytech.melusine.components;
+
+import fr.polytech.melusine.configurations.ChartCacheProperties;
+import fr.polytech.melusine.models.charts.ChartInterval;
+import fr.polytech.melusine.models.enums.Category;
+import fr.polytech.melusine.models.events.OrderItemChange;
+import fr.polytech.melusine.models.events.OrderItemsStatusChangedEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Clock;
+import java.time.OffsetDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * Bounded cache of the closed hours of the charts, by chart, interval, hourly range and categories.
+ * <p>
+ * The range of a key ends before the current hour, which is read again on each request and merged by the chart
+ * service, so the status changes of the items created in the current hour do not invalidate anything. A chart is
+ * computed once for all the viewers asking for it at the same time, and kept until an item created in one of the hours
+ * of its range changes of status, or until it is evicted by the size. Nothing is kept while the rollups are rebuilt,
+ * their closed hours are still moving.
+ */
+@Slf4j
+@Component
+@EnableConfigurationProperties({ChartCacheProperties.class})
+public class ChartCache {
+
+    private static final String METRIC = "melusine.charts.cache";
+
+    private final ChartCacheProperties chartCacheProperties;
+    private final OrderRollups orderRollups;
+    private final Clock clock;
+    private final ConcurrentMap<Key, Entry> entries = new ConcurrentHashMap<>();
+    private final Queue<Entry> insertionOrder = new ConcurrentLinkedQueue<>();
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter evictions;
+    private final Counter invalidations;
+
+    public ChartCache(ChartCacheProperties chartCacheProperties, OrderRollups orderRollups, MeterRegistry meterRegistry,
+                      Clock clock) {
+        this.chartCacheProperties = chartCacheProperties;
+        this.orderRollups = orderRollups;
+        this.clock = clock;
+        this.hits = meterRegistry.counter(METRIC + ".gets", "result", "hit");
+        this.misses = meterRegistry.counter(METRIC + ".gets", "result", "miss");
+        this.evictions = meterRegistry.counter(METRIC + ".evictions");
+        this.invalidations = meterRegistry.counter(METRIC + ".invalidations");
+        meterRegistry.gaugeMapSize(METRIC + ".size", Set.of(), entries);
+    }
+
+    /**
+     * Return the cached rows of a chart, or compute them. A call made while the rows are being computed waits for
+     * them, an error is given to the waiting calls and is not kept. The rows are not kept while the rollups are being
+     * rebuilt.
+     *
+     * @param key      the chart and its range, whose dates are the start of an hour
+     * @param supplier the computation of the rows
+     * @return the rows
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T getOrCompute(Key key, Supplier<T> supplier) {
+        if (orderRollups.isBackfilling()) {
+            misses.increment();
+            return supplier.get();
+        }
+        Entry entry = new Entry(key);
+        Entry current = entries.putIfAbsent(key, entry);
+        if (Objects.nonNull(current)) {
+            hits.increment();
+            return (T) await(current);
+        }
+
+        misses.increment();
+        insertionOrder.add(entry);
+        evict();
+
+        try {
+            T rows = supplier.get();
+            entry.rows.complete(rows);
+            return rows;
+        } catch (RuntimeException e) {
+            remove(entry);
+            entry.rows.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    /**
+     * Remove the charts covering the hours of creation of the items, every status change moves them in the rollups,
+     * including the delivered or cancelled items put back in the pending queue.
+     */
+    @TransactionalEventListener
+    public void onOrderItemsStatusChanged(OrderItemsStatusChangedEvent event) {
+        invalidate(event.getChanges().stream()
+                .map(OrderItemChange::getCreatedAt)
+                .map(this::getHourStart)
+                .collect(Collectors.toSet()));
+    }
+
+    /**
+     * Remove the charts whose range covers one of the hours, the computations in progress are not kept either.
+     */
+    private void invalidate(Set<OffsetDateTime> hours) {
+        entries.values().stream()
+                .filter(entry -> hours.stream().anyMatch(entry.key::covers))
+                .forEach(entry -> {
+                    if (remove(entry)) {
+                        invalidations.increment();
+                    }
+                });
+    }
+
+    /**
+     * Remove the eldest charts above the maximum size.
+     */
+    private void evict() {
+        Entry eldest;
+        while (entries.size() > chartCacheProperties.getMaxSize() && Objects.nonNull(eldest = insertionOrder.peek())) {
+            if (remove(eldest)) {
+                evictions.increment();
+            }
+        }
+    }
+
+    private boolean remove(Entry entry) {
+        insertionOrder.remove(entry);
+        return entries.remove(entry.key, entry);
+    }
+
+    private Object await(Entry entry) {
+        try {
+            return entry.rows.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    private OffsetDateTime getHourStart(OffsetDateTime date) {
+        return date.atZoneSameInstant(clock.getZone()).toOffsetDateTime().truncatedTo(ChronoUnit.HOURS);
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    @Value
+    public static class Key {
+
+        String chart;
+
+        ChartInterval interval;
+
+        OffsetDateTime start;
+
+        OffsetDateTime end;
+
+        Set<Category> categories;
+
+        private boolean covers(OffsetDateTime hour) {
+            return !hour.isBefore(start) && !hour.isAfter(end);
+        }
+
+    }
+
+    private static final class Entry {
+
+        private final Key key;
+        private final CompletableFuture<Object> rows = new CompletableFuture<>();
+
+        private Entry(Key key) {
+            this.key = key;
+        }
+
+    }
+
+}
@@ -0,0 +1,116 @@
+package fr.polytech.melusine.components;
+
+import fr.polytech.melusine.configurations.IdempotencyProperties;
+import fr.polytech.melusine.models.dtos.responses.OrderResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+
+/**
+ * Bounded and time-expiring cache of the order responses by idempotency key.
+ */
+@Slf4j
+@Component
+@EnableConfigurationProperties({IdempotencyProperties.class})
+public class IdempotencyCache {
+
+    private final IdempotencyProperties idempotencyProperties;
+    private final Clock clock;
+    private final ConcurrentMap<String, Entry> entries = new ConcurrentHashMap<>();
+    private final Queue<Entry> insertionOrder = new ConcurrentLinkedQueue<>();
+
+    public IdempotencyCache(IdempotencyProperties idempotencyProperties, Clock clock) {
+        this.idempotencyProperties = idempotencyProperties;
+        this.clock = clock;
+    }
+
+    /**
+     * Return the response of the first call made with this key, or compute it.
+     * <p>
+     * A call made while the first one is still running waits for its response. If the first call fails, its error is
+     * given to the waiting calls and the key is forgotten so that it can be retried.
+     *
+     * @param key      the idempotency key
+     * @param supplier the computation of the response
+     * @return the response
+     */
+    public OrderResponse getOrCompute(String key, Supplier<OrderResponse> supplier) {
+        Instant now = clock.instant();
+        Entry entry = new Entry(key, now.plusSeconds(idempotencyProperties.getTimeToLive()));
+        Entry current = entries.compute(key, (k, existing) ->
+                Objects.nonNull(existing) && existing.expiresAt.isAfter(now) ? existing : entry);
+
+        if (current != entry) {
+            log.debug("Replay of the response for idempotency key : " + key);
+            return await(current);
+        }
+
+        insertionOrder.add(entry);
+        evict(now);
+
+        try {
+            OrderResponse response = supplier.get();
+            entry.response.complete(response);
+            return response;
+        } catch (RuntimeException e) {
+            entries.remove(key, entry);
+            entry.response.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    /**
+     * Remove the expired entries and the eldest ones above the maximum size.
+     */
+    private void evict(Instant now) {
+        Entry eldest;
+        while (Objects.nonNull(eldest = insertionOrder.peek())
+                && (entries.size() > idempotencyProperties.getMaxSize()
+                || !eldest.expiresAt.isAfter(now)
+                || entries.get(eldest.key) != eldest)) {
+            if (insertionOrder.remove(eldest)) {
+                entries.remove(eldest.key, eldest);
+            }
+        }
+    }
+
+    private OrderResponse await(Entry entry) {
+        try {
+            return entry.response.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    private static final class Entry {
+
+        private final String key;
+        private final Instant expiresAt;
+        private final CompletableFuture<OrderResponse> response = new CompletableFuture<>();
+
+        private Entry(String key, Instant expiresAt) {
+            this.key = key;
+            this.expiresAt = expiresAt;
+        }
+
+    }
+
+}
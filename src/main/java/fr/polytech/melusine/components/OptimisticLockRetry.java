@@ -0,0 +1,83 @@
+package fr.polytech.melusine.components;
+
+import fr.polytech.melusine.configurations.RetryProperties;
+import fr.polytech.melusine.exceptions.ConflictException;
+import fr.polytech.melusine.exceptions.errors.ConcurrencyError;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Run a read-modify-write of versioned entities in a transaction, again from the read when a concurrent update has
+ * changed the version in between.
+ * <p>
+ * The credit and stock changes do not go through it: they are conditional UPDATE statements that do not read the
+ * version first, so they cannot conflict.
+ */
+@Slf4j
+@Component
+@EnableConfigurationProperties({RetryProperties.class})
+public class OptimisticLockRetry {
+
+    private final RetryProperties retryProperties;
+    private final TransactionTemplate transactionTemplate;
+    private final AtomicLong attempts = new AtomicLong();
+    private final AtomicLong retries = new AtomicLong();
+
+    public OptimisticLockRetry(RetryProperties retryProperties, PlatformTransactionManager transactionManager) {
+        this.retryProperties = retryProperties;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Run the update, each attempt in its own transaction.
+     *
+     * @param entity the name of the updated entity, for the error
+     * @param id     the id of the updated entity, for the error
+     * @param update the read-modify-write
+     * @return the result of the update
+     */
+    public <T> T execute(String entity, String id, Supplier<T> update) {
+        long backoff = retryProperties.getBackoff();
+        for (int attempt = 1; ; attempt++) {
+            attempts.incrementAndGet();
+            try {
+                return transactionTemplate.execute(status -> update.get());
+            } catch (OptimisticLockingFailureException e) {
+                if (attempt >= retryProperties.getMaxAttempts()) {
+                    log.warn("Update of " + entity + " with ID : " + id + " given up after " + attempt + " attempts");
+                    throw new ConflictException(ConcurrencyError.CONCURRENT_UPDATE, entity, id);
+                }
+                retries.incrementAndGet();
+                log.debug("Concurrent update of " + entity + " with ID : " + id + ", attempt " + attempt + " retried");
+            }
+            sleep(ThreadLocalRandom.current().nextLong(backoff + 1));
+            backoff = Math.min(backoff * 2, retryProperties.getMaxBackoff());
+        }
+    }
+
+    private void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting to retry an update", e);
+        }
+    }
+
+    public long getAttempts() {
+        return attempts.get();
+    }
+
+    public long getRetries() {
+        return retries.get();
+    }
+
+}
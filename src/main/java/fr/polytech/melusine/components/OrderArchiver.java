@@ -0,0 +1,156 @@
+package fr.polytech.melusine.components;
+
+import fr.polytech.melusine.configurations.ArchiveProperties;
+import fr.polytech.melusine.models.enums.OrderStatus;
+import fr.polytech.melusine.repositories.ArchivedOrderItemRepository;
+import fr.polytech.melusine.repositories.ArchivedOrderRepository;
+import fr.polytech.melusine.repositories.OrderItemRepository;
+import fr.polytech.melusine.repositories.OrderRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import java.time.Clock;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+
+/**
+ * Move the orders older than the horizon, with their items, from the hot tables to the archive tables.
+ * <p>
+ * Only whole months are archived, so the archive never holds an order created after {@link #getBoundary()}: a read
+ * whose range starts after the boundary does not need the archive.
+ */
+@Slf4j
+@Component
+@EnableConfigurationProperties({ArchiveProperties.class})
+public class OrderArchiver {
+
+    private static final String MAX_PARTITION = "pmax";
+    private static final DateTimeFormatter PARTITION_NAME = DateTimeFormatter.ofPattern("'p'yyyyMM");
+    private static final List<String> TABLES = List.of("orders_archive", "order_items_archive");
+
+    private final ArchiveProperties archiveProperties;
+    private final OrderRepository orderRepository;
+    private final OrderItemRepository orderItemRepository;
+    private final ArchivedOrderRepository archivedOrderRepository;
+    private final ArchivedOrderItemRepository archivedOrderItemRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final Clock clock;
+
+    public OrderArchiver(ArchiveProperties archiveProperties, OrderRepository orderRepository,
+                         OrderItemRepository orderItemRepository, ArchivedOrderRepository archivedOrderRepository,
+                         ArchivedOrderItemRepository archivedOrderItemRepository, JdbcTemplate jdbcTemplate,
+                         PlatformTransactionManager transactionManager, Clock clock) {
+        this.archiveProperties = archiveProperties;
+        this.orderRepository = orderRepository;
+        this.orderItemRepository = orderItemRepository;
+        this.archivedOrderRepository = archivedOrderRepository;
+        this.archivedOrderItemRepository = archivedOrderItemRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.clock = clock;
+    }
+
+    @PostConstruct
+    public void createTables() {
+        if (!archiveProperties.isPartitioned()) {
+            return;
+        }
+        String partitions = " PARTITION BY RANGE COLUMNS(created_at) " +
+                "(PARTITION " + MAX_PARTITION + " VALUES LESS THAN (MAXVALUE))";
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS orders_archive (" +
+                "id VARCHAR(255) NOT NULL, client_name VARCHAR(255), user_id VARCHAR(255), total BIGINT NOT NULL, " +
+                "status VARCHAR(255), created_at DATETIME(6) NOT NULL, updated_at DATETIME(6) NOT NULL, " +
+                "PRIMARY KEY (id, created_at), KEY (user_id))" + partitions);
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS order_items_archive (" +
+                "id VARCHAR(255) NOT NULL, price BIGINT NOT NULL, product_id VARCHAR(255), order_id VARCHAR(255), " +
+                "product_name VARCHAR(255), category VARCHAR(255), ingredient_names VARCHAR(1000), status VARCHAR(255), created_at DATETIME(6) NOT NULL, updated_at DATETIME(6) NOT NULL, " +
+                "PRIMARY KEY (id, created_at), KEY (order_id))" + partitions);
+    }
+
+    /**
+     * Get the creation date before which the orders are archived: the first day of the month of the horizon.
+     *
+     * @return the boundary
+     */
+    public OffsetDateTime getBoundary() {
+        return OffsetDateTime.now(clock)
+                .minusMonths(archiveProperties.getHorizon())
+                .withDayOfMonth(1)
+                .truncatedTo(ChronoUnit.DAYS);
+    }
+
+    /**
+     * Tell whether a read from the date may find orders in the archive.
+     *
+     * @param start the start date of the read
+     * @return true when the archive must be read too
+     */
+    public boolean isArchiveNeeded(OffsetDateTime start) {
+        return start.isBefore(getBoundary());
+    }
+
+    @Scheduled(cron = "${melusine.archive.cron:0 0 4 * * *}")
+    public void archive() {
+        OffsetDateTime boundary = getBoundary();
+        log.info("Archive the orders created before : " + boundary);
+        if (archiveProperties.isPartitioned()) {
+            addPartitions(boundary);
+        }
+        long archived = 0;
+        int moved;
+        do {
+            moved = transactionTemplate.execute(status -> moveBatch(boundary));
+            archived += moved;
+        } while (moved == archiveProperties.getBatchSize());
+        log.info("End of the archive of " + archived + " orders");
+    }
+
+    private int moveBatch(OffsetDateTime boundary) {
+        List<String> ids = orderRepository.findIdsByCreatedAtBeforeAndStatusNot(boundary, OrderStatus.PENDING,
+                PageRequest.of(0, archiveProperties.getBatchSize()));
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        archivedOrderRepository.copyByIdIn(ids);
+        archivedOrderItemRepository.copyByOrderIdIn(ids);
+        orderItemRepository.deleteByOrderIdIn(ids);
+        orderRepository.deleteByIdIn(ids);
+        return ids.size();
+    }
+
+    /**
+     * Split the last partition of the archive tables so that each month up to the boundary has its own one. The months
+     * before the first partition stay in it, partitions can only be added after the last one.
+     */
+    private void addPartitions(OffsetDateTime boundary) {
+        LocalDate end = boundary.toLocalDate();
+        orderRepository.findMinCreatedAt().ifPresent(oldest -> TABLES.forEach(table -> {
+            LocalDate month = oldest.toLocalDate().withDayOfMonth(1);
+            List<String> partitions = jdbcTemplate.queryForList("SELECT partition_name FROM information_schema.partitions " +
+                    "WHERE table_schema = DATABASE() AND table_name = ? ORDER BY partition_ordinal_position", String.class, table);
+            if (partitions.size() > 1) {
+                String last = partitions.get(partitions.size() - 2);
+                LocalDate next = LocalDate.parse(last.substring(1) + "01", DateTimeFormatter.BASIC_ISO_DATE).plusMonths(1);
+                month = month.isAfter(next) ? month : next;
+            }
+            for (; month.isBefore(end); month = month.plusMonths(1)) {
+                log.info("Add the partition " + month.format(PARTITION_NAME) + " to " + table);
+                jdbcTemplate.execute("ALTER TABLE " + table + " REORGANIZE PARTITION " + MAX_PARTITION + " INTO (" +
+                        "PARTITION " + month.format(PARTITION_NAME) + " VALUES LESS THAN ('" + month.plusMonths(1) + "'), " +
+                        "PARTITION " + MAX_PARTITION + " VALUES LESS THAN (MAXVALUE))");
+            }
+        }));
+    }
+
+}
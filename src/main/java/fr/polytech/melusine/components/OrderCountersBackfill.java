@@ -0,0 +1,34 @@
+package fr.polytech.melusine.components;
+
+import fr.polytech.melusine.repositories.OrderRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+
+/**
+ * Count the items of the orders created before the status counters, before the application updates them.
+ */
+@Slf4j
+@Component
+public class OrderCountersBackfill {
+
+    private final OrderRepository orderRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    public OrderCountersBackfill(OrderRepository orderRepository, PlatformTransactionManager transactionManager) {
+        this.orderRepository = orderRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @PostConstruct
+    public void backfill() {
+        int initialized = transactionTemplate.execute(status -> orderRepository.initializeCounters());
+        if (initialized > 0) {
+            log.info("Status counters initialized for " + initialized + " orders");
+        }
+    }
+
+}
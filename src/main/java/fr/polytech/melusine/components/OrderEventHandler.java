@@ -0,0 +1,128 @@
+package fr.polytech.melusine.components;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import fr.polytech.melusine.configurations.AsyncConfiguration;
+import fr.polytech.melusine.configurations.OrderEventProperties;
+import fr.polytech.melusine.models.entities.DeadLetterEvent;
+import fr.polytech.melusine.models.events.OrderCreatedEvent;
+import fr.polytech.melusine.models.events.OrderItemsStatusChangedEvent;
+import fr.polytech.melusine.repositories.DeadLetterEventRepository;
+import fr.polytech.melusine.services.OrderService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Clock;
+import java.time.OffsetDateTime;
+import java.util.Objects;
+
+/**
+ * Apply the side effects of the orders (stock, order status, refunds) once their transaction is committed, on the
+ * order event executor so that the request does not wait for them.
+ * <p>
+ * Each attempt runs in its own transaction, a failed event is retried with a growing wait and put in the dead letter
+ * table after the last attempt. An event refused by the full executor is put in the dead letter table at once: the
+ * listener runs after the commit of the request, where the side effects could not be committed.
+ */
+@Slf4j
+@Component
+public class OrderEventHandler {
+
+    private final OrderService orderService;
+    private final DeadLetterEventRepository deadLetterEventRepository;
+    private final OrderEventProperties orderEventProperties;
+    private final ObjectMapper objectMapper;
+    private final TaskExecutor orderEventExecutor;
+    private final TransactionTemplate transactionTemplate;
+    private final Clock clock;
+
+    public OrderEventHandler(OrderService orderService, DeadLetterEventRepository deadLetterEventRepository,
+                             OrderEventProperties orderEventProperties, ObjectMapper objectMapper,
+                             @Qualifier(AsyncConfiguration.ORDER_EVENT_EXECUTOR) TaskExecutor orderEventExecutor,
+                             PlatformTransactionManager transactionManager, Clock clock) {
+        this.orderService = orderService;
+        this.deadLetterEventRepository = deadLetterEventRepository;
+        this.orderEventProperties = orderEventProperties;
+        this.objectMapper = objectMapper;
+        this.orderEventExecutor = orderEventExecutor;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.clock = clock;
+    }
+
+    @TransactionalEventListener
+    public void onOrderCreated(OrderCreatedEvent event) {
+        submit(event, () -> orderService.applyOrderCreated(event));
+    }
+
+    @TransactionalEventListener
+    public void onOrderItemsStatusChanged(OrderItemsStatusChangedEvent event) {
+        submit(event, () -> orderService.applyOrderItemsStatusChanged(event));
+    }
+
+    private void submit(Object event, Runnable sideEffects) {
+        try {
+            orderEventExecutor.execute(() -> handle(event, sideEffects));
+        } catch (TaskRejectedException e) {
+            saveDeadLetter(event, e, 0);
+        }
+    }
+
+    void handle(Object event, Runnable sideEffects) {
+        long backoff = orderEventProperties.getBackoff();
+        RuntimeException lastError = null;
+        int attempts = 0;
+        while (attempts < orderEventProperties.getMaxAttempts()) {
+            attempts++;
+            try {
+                sideEffects.run();
+                return;
+            } catch (RuntimeException e) {
+                lastError = e;
+                log.warn("Attempt " + attempts + " of " + event + " failed : " + e.getMessage());
+            }
+            if (attempts < orderEventProperties.getMaxAttempts() && !sleep(backoff)) {
+                break;
+            }
+            backoff *= 2;
+        }
+        saveDeadLetter(event, lastError, attempts);
+    }
+
+    private boolean sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private void saveDeadLetter(Object event, RuntimeException error, int attempts) {
+        log.error("Side effects of " + event + " not applied, event put in the dead letter table", error);
+        String payload;
+        try {
+            payload = objectMapper.writeValueAsString(event);
+        } catch (JsonProcessingException e) {
+            payload = event.toString();
+        }
+        String message = Objects.nonNull(error) && Objects.nonNull(error.getMessage()) ? error.getMessage() : String.valueOf(error);
+        DeadLetterEvent deadLetterEvent = DeadLetterEvent.builder()
+                .type(event.getClass().getSimpleName())
+                .payload(payload)
+                .error(message.length() > 1000 ? message.substring(0, 1000) : message)
+                .attempts(attempts)
+                .createdAt(OffsetDateTime.now(clock))
+                .build();
+        transactionTemplate.executeWithoutResult(status -> deadLetterEventRepository.save(deadLetterEvent));
+    }
+
+}
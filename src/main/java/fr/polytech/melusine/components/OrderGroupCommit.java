@@ -0,0 +1,227 @@
+package fr.polytech.melusine.components;
+
+import fr.polytech.melusine.configurations.GroupCommitProperties;
+import fr.polytech.melusine.exceptions.ErrorCodeException;
+import fr.polytech.melusine.exceptions.InternalServerErrorException;
+import fr.polytech.melusine.exceptions.errors.OrderError;
+import fr.polytech.melusine.exceptions.errors.SystemError;
+import fr.polytech.melusine.models.dtos.requests.OrderRequest;
+import fr.polytech.melusine.models.dtos.responses.OrderResponse;
+import fr.polytech.melusine.services.OrderService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+/**
+ * Create the concurrent orders in shared transactions, so that the database commits once for a batch of orders
+ * instead of once by order.
+ * <p>
+ * The callers enqueue their request and wait for it. A single writer takes the queued requests as soon as the batch
+ * is full or the first one has waited long enough, creates them in one transaction and completes each caller with its
+ * own order or error. If the transaction fails as a whole, the requests of the batch are created one by one.
+ */
+@Slf4j
+@Component
+@EnableConfigurationProperties({GroupCommitProperties.class})
+public class OrderGroupCommit {
+
+    private final OrderService orderService;
+    private final GroupCommitProperties groupCommitProperties;
+    private final Queue<QueuedOrder> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger queued = new AtomicInteger();
+    private final AtomicInteger transactions = new AtomicInteger();
+    private volatile boolean running = false;
+    private volatile Thread writer;
+
+    public OrderGroupCommit(OrderService orderService, GroupCommitProperties groupCommitProperties) {
+        this.orderService = orderService;
+        this.groupCommitProperties = groupCommitProperties;
+    }
+
+    public boolean isEnabled() {
+        return groupCommitProperties.isEnabled();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!isEnabled()) {
+            return;
+        }
+        running = true;
+        writer = new Thread(this::run, "order-group-commit");
+        writer.start();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        if (Objects.nonNull(writer)) {
+            LockSupport.unpark(writer);
+            writer.join(TimeUnit.SECONDS.toMillis(30));
+        }
+    }
+
+    /**
+     * Create an order in the next batch and wait for it, or alone if the writer is not running.
+     * <p>
+     * A caller still queued after the timeout creates its order alone. Once the writer has taken the order in a batch,
+     * the caller cannot tell whether it will be committed and gets an error.
+     *
+     * @param orderRequest the request
+     * @return the order
+     */
+    public OrderResponse createOrder(OrderRequest orderRequest) {
+        QueuedOrder queuedOrder = enqueue(orderRequest);
+        try {
+            return queuedOrder.future.get(groupCommitProperties.getTimeout(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            if (dequeue(queuedOrder)) {
+                log.warn("Order not taken in a batch after " + groupCommitProperties.getTimeout() + " ms, created alone");
+                return orderService.createOrder(orderRequest);
+            }
+            throw new InternalServerErrorException(OrderError.GROUP_COMMIT_TIMEOUT, groupCommitProperties.getTimeout());
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new CompletionException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InternalServerErrorException(SystemError.TECHNICAL_ERROR, e, e.getMessage());
+        }
+    }
+
+    /**
+     * Enqueue an order in the next batch, or create it alone if the writer is not running.
+     *
+     * @param orderRequest the request
+     * @return the order, once its transaction is committed
+     */
+    public CompletableFuture<OrderResponse> submit(OrderRequest orderRequest) {
+        return enqueue(orderRequest).future;
+    }
+
+    private QueuedOrder enqueue(OrderRequest orderRequest) {
+        QueuedOrder queuedOrder = new QueuedOrder(orderRequest);
+        if (!running) {
+            writeAlone(queuedOrder);
+            return queuedOrder;
+        }
+        queue.offer(queuedOrder);
+        int size = queued.incrementAndGet();
+        if (size == 1 || size >= groupCommitProperties.getMaxBatchSize()) {
+            LockSupport.unpark(writer);
+        }
+        // The writer may have stopped after the check, it would then never take the order
+        if (!running && dequeue(queuedOrder)) {
+            writeAlone(queuedOrder);
+        }
+        return queuedOrder;
+    }
+
+    /**
+     * Take back an order the writer has not taken yet.
+     *
+     * @return true if the order was still queued
+     */
+    private boolean dequeue(QueuedOrder queuedOrder) {
+        if (queue.remove(queuedOrder)) {
+            queued.decrementAndGet();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Get the number of transactions started since the start, the batches and the orders created one by one after
+     * the failure of their batch.
+     */
+    public int getTransactions() {
+        return transactions.get();
+    }
+
+    private void run() {
+        long maxWait = TimeUnit.MILLISECONDS.toNanos(groupCommitProperties.getMaxWait());
+        while (running || queued.get() > 0) {
+            if (queued.get() == 0) {
+                LockSupport.park(this);
+                continue;
+            }
+            long deadline = System.nanoTime() + maxWait;
+            long remaining = maxWait;
+            while (running && queued.get() < groupCommitProperties.getMaxBatchSize() && remaining > 0) {
+                LockSupport.parkNanos(this, remaining);
+                remaining = deadline - System.nanoTime();
+            }
+            write(drain());
+        }
+    }
+
+    private List<QueuedOrder> drain() {
+        List<QueuedOrder> batch = new ArrayList<>();
+        QueuedOrder queuedOrder;
+        while (batch.size() < groupCommitProperties.getMaxBatchSize() && Objects.nonNull(queuedOrder = queue.poll())) {
+            batch.add(queuedOrder);
+        }
+        queued.addAndGet(-batch.size());
+        return batch;
+    }
+
+    void write(List<QueuedOrder> batch) {
+        List<OrderRequest> orderRequests = new ArrayList<>();
+        batch.forEach(queuedOrder -> orderRequests.add(queuedOrder.orderRequest));
+        List<Consumer<CompletableFuture<OrderResponse>>> results;
+        try {
+            transactions.incrementAndGet();
+            results = orderService.createOrders(orderRequests,
+                    order -> future -> future.complete(order),
+                    (ErrorCodeException e) -> future -> future.completeExceptionally(e));
+        } catch (RuntimeException e) {
+            log.warn("Batch of " + batch.size() + " orders failed, orders created one by one : " + e.getMessage());
+            batch.forEach(this::writeAlone);
+            return;
+        }
+        for (int i = 0; i < batch.size(); i++) {
+            results.get(i).accept(batch.get(i).future);
+        }
+        log.debug("Batch of " + batch.size() + " orders committed");
+    }
+
+    private void writeAlone(QueuedOrder queuedOrder) {
+        try {
+            transactions.incrementAndGet();
+            queuedOrder.future.complete(orderService.createOrder(queuedOrder.orderRequest));
+        } catch (RuntimeException e) {
+            queuedOrder.future.completeExceptionally(e);
+        }
+    }
+
+    static class QueuedOrder {
+
+        private final OrderRequest orderRequest;
+        private final CompletableFuture<OrderResponse> future = new CompletableFuture<>();
+
+        QueuedOrder(OrderRequest orderRequest) {
+            this.orderRequest = orderRequest;
+        }
+
+    }
+
+}
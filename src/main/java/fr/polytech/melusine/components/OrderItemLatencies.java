@@ -0,0 +1,164 @@
+package fr.polytech.melusine.components;
+
+import fr.polytech.melusine.configurations.LatencyProperties;
+import fr.polytech.melusine.models.dtos.responses.LatencyResponse;
+import fr.polytech.melusine.models.dtos.responses.OrderItemResponse;
+import fr.polytech.melusine.models.enums.Category;
+import fr.polytech.melusine.models.enums.OrderItemEventType;
+import fr.polytech.melusine.models.enums.OrderStatus;
+import fr.polytech.melusine.models.events.OrderItemEvent;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.Value;
+import org.HdrHistogram.AbstractHistogram;
+import org.HdrHistogram.IntCountsHistogram;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Time spent by the items in the pending queue, until their delivery or their cancellation, by hour of the day of
+ * their creation, for all the items, by category and by product.
+ * <p>
+ * The times are recorded after the commit of the status change into histograms in seconds with two significant
+ * digits, held for the current and the previous windows. They are also recorded by category in timers of the metrics
+ * registry.
+ */
+@Component
+@EnableConfigurationProperties({LatencyProperties.class})
+public class OrderItemLatencies {
+
+    private static final String ALL = "all";
+    private static final long HIGHEST_LATENCY = Duration.ofDays(1).getSeconds();
+    private static final int SIGNIFICANT_DIGITS = 2;
+    private static final String TIMER = "melusine.order.items.latency";
+
+    private final LatencyProperties latencyProperties;
+    private final MeterRegistry meterRegistry;
+    private final Clock clock;
+    private Map<LatencyKey, AbstractHistogram> current = new HashMap<>();
+    private Map<LatencyKey, AbstractHistogram> previous = new HashMap<>();
+    private long currentWindow = Long.MIN_VALUE;
+
+    public OrderItemLatencies(LatencyProperties latencyProperties, MeterRegistry meterRegistry, Clock clock) {
+        this.latencyProperties = latencyProperties;
+        this.meterRegistry = meterRegistry;
+        this.clock = clock;
+    }
+
+    @TransactionalEventListener
+    public void onOrderItemEvent(OrderItemEvent event) {
+        if (event.getType() == OrderItemEventType.ADDED) {
+            return;
+        }
+        OrderStatus status = event.getType() == OrderItemEventType.DELIVERED ? OrderStatus.DELIVER : OrderStatus.CANCEL;
+        event.getItems().forEach(item -> record(item, status));
+    }
+
+    private void record(OrderItemResponse item, OrderStatus status) {
+        Duration latency = Duration.between(item.getCreatedAt(), item.getUpdatedAt());
+        Timer.builder(TIMER)
+                .description("Time from the creation of an order item to its delivery or its cancellation")
+                .tag("category", Objects.toString(item.getCategory()))
+                .tag("status", status.name())
+                .publishPercentiles(0.5, 0.9, 0.99)
+                .register(meterRegistry)
+                .record(latency);
+
+        int hour = item.getCreatedAt().atZoneSameInstant(clock.getZone()).getHour();
+        long seconds = Math.max(0, Math.min(latency.getSeconds(), HIGHEST_LATENCY));
+        synchronized (this) {
+            rotate();
+            record(new LatencyKey(ALL, status, hour), seconds);
+            record(new LatencyKey(getCategorySubject(item.getCategory()), status, hour), seconds);
+            record(new LatencyKey(getProductSubject(item.getProductId()), status, hour), seconds);
+        }
+    }
+
+    private void record(LatencyKey key, long seconds) {
+        current.computeIfAbsent(key, k -> new IntCountsHistogram(HIGHEST_LATENCY, SIGNIFICANT_DIGITS))
+                .recordValue(seconds);
+    }
+
+    /**
+     * Start a new window when the current one is over, the previous window is dropped.
+     */
+    private void rotate() {
+        long window = OffsetDateTime.now(clock).toLocalDate().toEpochDay() / latencyProperties.getWindow();
+        if (window == currentWindow) {
+            return;
+        }
+        previous = window == currentWindow + 1 ? current : new HashMap<>();
+        current = new HashMap<>();
+        currentWindow = window;
+    }
+
+    /**
+     * Get the percentiles in seconds of the time spent pending by the items, by hour of the day of their creation.
+     *
+     * @param status    the status the items have moved to
+     * @param category  the category of the items, null for all the categories
+     * @param productId the product of the items, instead of the category
+     * @return the percentiles of the hours with items
+     */
+    public synchronized List<LatencyResponse> getLatencies(OrderStatus status, Category category, String productId) {
+        rotate();
+        String subject = Objects.nonNull(productId) ? getProductSubject(productId) :
+                Objects.nonNull(category) ? getCategorySubject(category) : ALL;
+        return IntStream.range(0, 24)
+                .mapToObj(hour -> buildResponse(hour, getHistogram(new LatencyKey(subject, status, hour))))
+                .filter(latency -> latency.getCount() > 0)
+                .collect(Collectors.toList());
+    }
+
+    private AbstractHistogram getHistogram(LatencyKey key) {
+        AbstractHistogram histogram = new IntCountsHistogram(HIGHEST_LATENCY, SIGNIFICANT_DIGITS);
+        if (current.containsKey(key)) {
+            histogram.add(current.get(key));
+        }
+        if (previous.containsKey(key)) {
+            histogram.add(previous.get(key));
+        }
+        return histogram;
+    }
+
+    private LatencyResponse buildResponse(int hour, AbstractHistogram histogram) {
+        return LatencyResponse.builder()
+                .hour(hour)
+                .count(histogram.getTotalCount())
+                .p50(histogram.getValueAtPercentile(50))
+                .p90(histogram.getValueAtPercentile(90))
+                .p99(histogram.getValueAtPercentile(99))
+                .build();
+    }
+
+    private String getCategorySubject(Category category) {
+        return "category:" + category;
+    }
+
+    private String getProductSubject(String productId) {
+        return "product:" + productId;
+    }
+
+    @Value
+    private static class LatencyKey {
+
+        String subject;
+
+        OrderStatus status;
+
+        int hour;
+
+    }
+
+}
@@ -0,0 +1,35 @@
+package fr.polytech.melusine.components;
+
+import fr.polytech.melusine.mappers.OrderItemMapper;
+import fr.polytech.melusine.models.dtos.responses.OrderItemResponse;
+import fr.polytech.melusine.models.projections.OrderItemRow;
+import org.springframework.data.domain.Page;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Build the order item responses from the listing rows. The rows carry the product snapshot of the items, so that a
+ * listing is read in a single query whatever its size.
+ */
+@Component
+public class OrderItemReader {
+
+    private final OrderItemMapper orderItemMapper;
+
+    public OrderItemReader(OrderItemMapper orderItemMapper) {
+        this.orderItemMapper = orderItemMapper;
+    }
+
+    public List<OrderItemResponse> read(List<OrderItemRow> rows) {
+        return rows.stream()
+                .map(orderItemMapper::mapToOrderItemResponse)
+                .collect(Collectors.toList());
+    }
+
+    public Page<OrderItemResponse> read(Page<OrderItemRow> rows) {
+        return rows.map(orderItemMapper::mapToOrderItemResponse);
+    }
+
+}
@@ -0,0 +1,67 @@
+package fr.polytech.melusine.components;
+
+import fr.polytech.melusine.models.entities.Ingredient;
+import fr.polytech.melusine.models.entities.OrderItem;
+import fr.polytech.melusine.repositories.OrderItemRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.Collectors;
+
+/**
+ * Fill the product snapshot and the user of the items created before they existed, from their current product and
+ * their order, before the application reads them.
+ */
+@Slf4j
+@Component
+public class OrderItemSnapshotBackfill {
+
+    private static final int BATCH_SIZE = 500;
+
+    private final OrderItemRepository orderItemRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    public OrderItemSnapshotBackfill(OrderItemRepository orderItemRepository, PlatformTransactionManager transactionManager) {
+        this.orderItemRepository = orderItemRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @PostConstruct
+    public void backfill() {
+        int users = transactionTemplate.execute(status -> orderItemRepository.fillUserIds());
+        if (users > 0) {
+            log.info("User filled for " + users + " order items");
+        }
+        long filled = 0;
+        int batch;
+        do {
+            batch = transactionTemplate.execute(status -> fillBatch());
+            filled += batch;
+        } while (batch == BATCH_SIZE);
+        if (filled > 0) {
+            log.info("Product snapshot filled for " + filled + " order items");
+        }
+    }
+
+    private int fillBatch() {
+        List<OrderItem> orderItems = orderItemRepository.findWithProductByProductNameIsNull(PageRequest.of(0, BATCH_SIZE));
+        orderItemRepository.saveAll(orderItems.stream()
+                .map(orderItem -> orderItem.toBuilder()
+                        .productName(Objects.requireNonNullElse(orderItem.getProduct().getName(), ""))
+                        .category(orderItem.getProduct().getCategory())
+                        .ingredientNames(orderItem.getProduct().getIngredients().stream()
+                                .map(Ingredient::getName)
+                                .distinct()
+                                .collect(Collectors.toList()))
+                        .build())
+                .collect(Collectors.toList()));
+        return orderItems.size();
+    }
+
+}
@@ -0,0 +1,137 @@
+package fr.polytech.melusine.components;
+
+import fr.polytech.melusine.configurations.AsyncConfiguration;
+import fr.polytech.melusine.models.dtos.responses.OrderItemResponse;
+import fr.polytech.melusine.models.events.OrderItemEvent;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Server-Sent Events stream of the pending queue for the kitchen screens.
+ * <p>
+ * The events of each screen are sent one after the other on the stream executor, never on the thread committing the
+ * change. A screen with too many events waiting is disconnected, it gets a new snapshot when it reconnects.
+ */
+@Slf4j
+@Component
+public class OrderItemStream {
+
+    private static final long TIMEOUT = 30 * 60 * 1000L;
+    private static final String SNAPSHOT_EVENT = "snapshot";
+    private static final int MAX_PENDING_SENDS = 1000;
+
+    private final Executor executor;
+    private final Set<Subscriber> subscribers = new CopyOnWriteArraySet<>();
+
+    public OrderItemStream(@Qualifier(AsyncConfiguration.ORDER_ITEM_STREAM_EXECUTOR) Executor executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * Register a screen, then read the pending items and send them to it.
+     * <p>
+     * The screen is registered before the snapshot is read, so that a change committed meanwhile is not lost, and the
+     * events are only sent after the snapshot. A change committed between the registration and the read can be both
+     * in the snapshot and in an event, the screens apply the events by item id.
+     *
+     * @param snapshot the reading of the pending items
+     * @return the emitter of the screen
+     */
+    public SseEmitter subscribe(Supplier<List<OrderItemResponse>> snapshot) {
+        SseEmitter emitter = new SseEmitter(TIMEOUT);
+        CompletableFuture<List<OrderItemResponse>> items = new CompletableFuture<>();
+        Subscriber subscriber = new Subscriber(emitter, items.thenAcceptAsync(pendingItems ->
+                send(emitter, SseEmitter.event().name(SNAPSHOT_EVENT).data(pendingItems)), executor));
+        emitter.onCompletion(() -> subscribers.remove(subscriber));
+        emitter.onTimeout(() -> subscribers.remove(subscriber));
+        emitter.onError(e -> subscribers.remove(subscriber));
+        subscribers.add(subscriber);
+
+        try {
+            items.complete(snapshot.get());
+        } catch (RuntimeException e) {
+            subscribers.remove(subscriber);
+            items.completeExceptionally(e);
+            throw e;
+        }
+        log.debug("Kitchen screen subscribed, " + subscribers.size() + " screens connected");
+        return emitter;
+    }
+
+    @TransactionalEventListener
+    public void onOrderItemEvent(OrderItemEvent event) {
+        if (event.getItems().isEmpty()) {
+            return;
+        }
+        String name = event.getType().name().toLowerCase();
+        subscribers.forEach(subscriber -> enqueue(subscriber, SseEmitter.event().name(name).data(event.getItems())));
+    }
+
+    /**
+     * Keep the idle connections open through the proxies.
+     */
+    @Scheduled(fixedRate = 30000)
+    public void heartbeat() {
+        subscribers.forEach(subscriber -> enqueue(subscriber, SseEmitter.event().comment("heartbeat")));
+    }
+
+    /**
+     * Chain the event after the previous sends of the screen.
+     */
+    private void enqueue(Subscriber subscriber, SseEmitter.SseEventBuilder event) {
+        if (subscriber.pendingSends.incrementAndGet() > MAX_PENDING_SENDS) {
+            log.warn("Kitchen screen too slow, disconnected with " + subscriber.pendingSends.get() + " events waiting");
+            subscribers.remove(subscriber);
+            subscriber.emitter.complete();
+            return;
+        }
+        synchronized (subscriber) {
+            subscriber.lastSend = subscriber.lastSend.handleAsync((result, e) -> {
+                subscriber.pendingSends.decrementAndGet();
+                send(subscriber.emitter, event);
+                return null;
+            }, executor);
+        }
+    }
+
+    private void send(SseEmitter emitter, SseEmitter.SseEventBuilder event) {
+        try {
+            emitter.send(event);
+        } catch (IOException | IllegalStateException e) {
+            log.debug("Kitchen screen disconnected", e);
+            subscribers.removeIf(subscriber -> subscriber.emitter == emitter);
+            emitter.completeWithError(e);
+        }
+    }
+
+    public int getSubscriberCount() {
+        return subscribers.size();
+    }
+
+    private static final class Subscriber {
+
+        private final SseEmitter emitter;
+        private final AtomicInteger pendingSends = new AtomicInteger();
+        private CompletableFuture<?> lastSend;
+
+        private Subscriber(SseEmitter emitter, CompletableFuture<?> snapshotSend) {
+            this.emitter = emitter;
+            this.lastSend = snapshotSend;
+        }
+
+    }
+
+}
@@ -0,0 +1,326 @@
+package fr.polytech.melusine.components;
+
+import fr.polytech.melusine.configurations.JournalProperties;
+import fr.polytech.melusine.models.JournaledOrder;
+import fr.polytech.melusine.models.dtos.responses.JournalStatusResponse;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * Write-ahead journal of the accepted orders, in a memory-mapped file.
+ * <p>
+ * The file starts with the position of the first order not written in the database yet, followed by the records:
+ * the length and the CRC of the payload, then the payload, and a zero length after the last record. An append is
+ * durable once the flusher has synced the file, which is done for all the appends of a flush interval at once. The
+ * file is rewound when the writer has caught up with the appends.
+ */
+@Slf4j
+@Component
+@EnableConfigurationProperties({JournalProperties.class})
+public class OrderJournal {
+
+    private static final int HEADER_SIZE = 16;
+    private static final int RECORD_HEADER_SIZE = 8;
+    private static final int END_MARKER_SIZE = 4;
+    private static final byte VERSION = 1;
+    private static final String METRIC = "melusine.orders.journal";
+
+    private final JournalProperties journalProperties;
+    private final Clock clock;
+    private final Deque<PendingSync> pendingSyncs = new ArrayDeque<>();
+    private ScheduledExecutorService flusher;
+    private FileChannel channel;
+    private MappedByteBuffer buffer;
+    private int checkpoint;
+    private int writePosition;
+    private int durablePosition;
+    private long appendedSequence;
+    private long pendingOrders;
+    private long rewinds;
+
+    public OrderJournal(JournalProperties journalProperties, MeterRegistry meterRegistry, Clock clock) {
+        this.journalProperties = journalProperties;
+        this.clock = clock;
+        TimeGauge.builder(METRIC + ".lag", this, TimeUnit.MILLISECONDS, journal -> journal.getStatus().getLag())
+                .register(meterRegistry);
+        meterRegistry.gauge(METRIC + ".pending", this, journal -> journal.getStatus().getPendingOrders());
+    }
+
+    @PostConstruct
+    public void open() throws IOException {
+        if (!journalProperties.isEnabled()) {
+            return;
+        }
+        RandomAccessFile file = new RandomAccessFile(journalProperties.getFile(), "rw");
+        if (file.length() < journalProperties.getSize()) {
+            file.setLength(journalProperties.getSize());
+        }
+        channel = file.getChannel();
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, journalProperties.getSize());
+
+        checkpoint = Math.max(HEADER_SIZE, (int) buffer.getLong(0));
+        int position = checkpoint;
+        while (Objects.nonNull(readRecord(position))) {
+            position = nextPosition(position);
+            pendingOrders++;
+        }
+        writePosition = position;
+        durablePosition = position;
+        log.info("Order journal opened with " + pendingOrders + " orders to write in the database");
+
+        flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "order-journal-flusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flusher.scheduleWithFixedDelay(this::flush, journalProperties.getFlushInterval(),
+                journalProperties.getFlushInterval(), TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        if (!isEnabled()) {
+            return;
+        }
+        flusher.shutdown();
+        flush();
+        channel.close();
+    }
+
+    public boolean isEnabled() {
+        return Objects.nonNull(buffer);
+    }
+
+    /**
+     * Append an order to the journal.
+     *
+     * @param order the order
+     * @return a future completed once the order is synced to the disk, or empty if the journal is full
+     */
+    public Optional<CompletableFuture<Void>> append(JournaledOrder order) {
+        byte[] payload = encode(order);
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        synchronized (this) {
+            int end = writePosition + RECORD_HEADER_SIZE + payload.length;
+            if (end + END_MARKER_SIZE > buffer.capacity()) {
+                return Optional.empty();
+            }
+            buffer.putInt(end, 0);
+            ByteBuffer view = buffer.duplicate().position(writePosition + RECORD_HEADER_SIZE);
+            view.put(payload);
+            buffer.putInt(writePosition + 4, (int) crc.getValue());
+            buffer.putInt(writePosition, payload.length);
+            writePosition = end;
+            pendingOrders++;
+            PendingSync pendingSync = new PendingSync(++appendedSequence);
+            pendingSyncs.add(pendingSync);
+            return Optional.of(pendingSync.future);
+        }
+    }
+
+    /**
+     * Sync the appended orders to the disk and release their callers.
+     */
+    void flush() {
+        long sequence;
+        int position;
+        long rewindsBefore;
+        synchronized (this) {
+            if (pendingSyncs.isEmpty()) {
+                return;
+            }
+            sequence = appendedSequence;
+            position = writePosition;
+            rewindsBefore = rewinds;
+        }
+        buffer.force();
+        List<PendingSync> synced = new ArrayList<>();
+        synchronized (this) {
+            if (rewinds == rewindsBefore) {
+                durablePosition = Math.max(durablePosition, position);
+            }
+            while (!pendingSyncs.isEmpty() && pendingSyncs.peek().sequence <= sequence) {
+                synced.add(pendingSyncs.poll());
+            }
+        }
+        synced.forEach(pendingSync -> pendingSync.future.complete(null));
+    }
+
+    /**
+     * Read the first durable orders not written in the database yet.
+     *
+     * @param max the maximum number of orders
+     * @return the orders, in the order of their append
+     */
+    public synchronized List<JournaledOrder> readPending(int max) {
+        List<JournaledOrder> orders = new ArrayList<>();
+        int position = checkpoint;
+        while (orders.size() < max && position < durablePosition) {
+            orders.add(decode(readRecord(position)));
+            position = nextPosition(position);
+        }
+        return orders;
+    }
+
+    /**
+     * Mark the first pending orders as written in the database.
+     *
+     * @param count the number of orders written
+     */
+    public void checkpoint(int count) {
+        synchronized (this) {
+            for (int i = 0; i < count; i++) {
+                checkpoint = nextPosition(checkpoint);
+            }
+            pendingOrders -= count;
+            if (checkpoint == writePosition && writePosition == durablePosition) {
+                buffer.putInt(HEADER_SIZE, 0);
+                checkpoint = HEADER_SIZE;
+                writePosition = HEADER_SIZE;
+                durablePosition = HEADER_SIZE;
+                rewinds++;
+            }
+            buffer.putLong(0, checkpoint);
+        }
+        buffer.force();
+    }
+
+    /**
+     * Tell whether an order is in the journal and not written in the database yet.
+     *
+     * @param orderId the order id
+     * @return true until the order is checkpointed
+     */
+    public synchronized boolean contains(String orderId) {
+        if (!isEnabled()) {
+            return false;
+        }
+        for (int position = checkpoint; position < writePosition; position = nextPosition(position)) {
+            if (decode(readRecord(position)).getOrderId().equals(orderId)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public synchronized JournalStatusResponse getStatus() {
+        long lag = 0;
+        if (isEnabled() && checkpoint < writePosition) {
+            OffsetDateTime oldest = decode(readRecord(checkpoint)).getCreatedAt();
+            lag = Math.max(0, Duration.between(oldest, OffsetDateTime.now(clock)).toMillis());
+        }
+        return JournalStatusResponse.builder()
+                .enabled(isEnabled())
+                .pendingOrders(pendingOrders)
+                .lag(lag)
+                .build();
+    }
+
+    private int nextPosition(int position) {
+        return position + RECORD_HEADER_SIZE + buffer.getInt(position);
+    }
+
+    /**
+     * Read the payload of the record at the position.
+     *
+     * @return the payload, or null if there is no complete record at the position
+     */
+    private byte[] readRecord(int position) {
+        if (position + RECORD_HEADER_SIZE > buffer.capacity()) {
+            return null;
+        }
+        int length = buffer.getInt(position);
+        if (length <= 0 || position + RECORD_HEADER_SIZE + length > buffer.capacity()) {
+            return null;
+        }
+        byte[] payload = new byte[length];
+        buffer.duplicate().position(position + RECORD_HEADER_SIZE).get(payload);
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        return (int) crc.getValue() == buffer.getInt(position + 4) ? payload : null;
+    }
+
+    static byte[] encode(JournaledOrder order) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+        try (DataOutputStream output = new DataOutputStream(bytes)) {
+            output.writeByte(VERSION);
+            output.writeUTF(order.getOrderId());
+            output.writeLong(order.getCreatedAt().toInstant().toEpochMilli());
+            output.writeUTF(order.getName());
+            output.writeBoolean(Objects.nonNull(order.getUserId()));
+            if (Objects.nonNull(order.getUserId())) {
+                output.writeUTF(order.getUserId());
+            }
+            output.writeInt(order.getItems().size());
+            for (String item : order.getItems()) {
+                output.writeUTF(item);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    static JournaledOrder decode(byte[] payload) {
+        try (DataInputStream input = new DataInputStream(new ByteArrayInputStream(payload))) {
+            input.readByte();
+            String orderId = input.readUTF();
+            OffsetDateTime createdAt = OffsetDateTime.ofInstant(Instant.ofEpochMilli(input.readLong()), ZoneOffset.UTC);
+            String name = input.readUTF();
+            String userId = input.readBoolean() ? input.readUTF() : null;
+            int itemCount = input.readInt();
+            List<String> items = new ArrayList<>(itemCount);
+            for (int i = 0; i < itemCount; i++) {
+                items.add(input.readUTF());
+            }
+            return JournaledOrder.builder()
+                    .orderId(orderId)
+                    .createdAt(createdAt)
+                    .name(name)
+                    .userId(userId)
+                    .items(items)
+                    .build();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static class PendingSync {
+
+        private final long sequence;
+        private final CompletableFuture<Void> future = new CompletableFuture<>();
+
+        private PendingSync(long sequence) {
+            this.sequence = sequence;
+        }
+
+    }
+
+}
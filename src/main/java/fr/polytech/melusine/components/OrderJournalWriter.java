@@ -0,0 +1,118 @@
+package fr.polytech.melusine.components;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import fr.polytech.melusine.configurations.JournalProperties;
+import fr.polytech.melusine.models.JournaledOrder;
+import fr.polytech.melusine.models.entities.DeadLetterEvent;
+import fr.polytech.melusine.repositories.DeadLetterEventRepository;
+import fr.polytech.melusine.services.OrderService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.time.Clock;
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Write the orders of the journal in the database by batches, in the background.
+ * <p>
+ * It starts when the application is ready, so the orders left in the journal by a crash are written first. A batch
+ * is checkpointed in the journal once committed; if the database fails, the batch is retried at the next run.
+ */
+@Slf4j
+@Component
+public class OrderJournalWriter {
+
+    private static final String DEAD_LETTER_TYPE = "JournaledOrder";
+
+    private final OrderJournal orderJournal;
+    private final OrderService orderService;
+    private final DeadLetterEventRepository deadLetterEventRepository;
+    private final JournalProperties journalProperties;
+    private final ObjectMapper objectMapper;
+    private final Clock clock;
+    private ScheduledExecutorService writer;
+
+    public OrderJournalWriter(OrderJournal orderJournal, OrderService orderService,
+                              DeadLetterEventRepository deadLetterEventRepository, JournalProperties journalProperties,
+                              ObjectMapper objectMapper, Clock clock) {
+        this.orderJournal = orderJournal;
+        this.orderService = orderService;
+        this.deadLetterEventRepository = deadLetterEventRepository;
+        this.journalProperties = journalProperties;
+        this.objectMapper = objectMapper;
+        this.clock = clock;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!orderJournal.isEnabled()) {
+            return;
+        }
+        writer = Executors.newSingleThreadScheduledExecutor(runnable -> new Thread(runnable, "order-journal-writer"));
+        writer.scheduleWithFixedDelay(this::writeAll, 0, journalProperties.getWriterDelay(), TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        if (Objects.nonNull(writer)) {
+            writer.shutdown();
+            writer.awaitTermination(30, TimeUnit.SECONDS);
+        }
+    }
+
+    void writeAll() {
+        try {
+            while (writeBatch() == journalProperties.getBatchSize()) {
+                log.debug("Order journal lag : " + orderJournal.getStatus().getLag() + " ms");
+            }
+        } catch (RuntimeException e) {
+            log.warn("Orders of the journal not written, retried at the next run : " + e.getMessage());
+        }
+    }
+
+    /**
+     * Write a batch of orders of the journal.
+     *
+     * @return the number of orders written
+     */
+    int writeBatch() {
+        List<JournaledOrder> orders = orderJournal.readPending(journalProperties.getBatchSize());
+        if (orders.isEmpty()) {
+            return 0;
+        }
+        Map<String, String> rejected = orderService.replayJournaledOrders(orders);
+        orders.stream()
+                .filter(order -> rejected.containsKey(order.getOrderId()))
+                .forEach(order -> saveDeadLetter(order, rejected.get(order.getOrderId())));
+        orderJournal.checkpoint(orders.size());
+        return orders.size();
+    }
+
+    private void saveDeadLetter(JournaledOrder order, String error) {
+        String payload;
+        try {
+            payload = objectMapper.writeValueAsString(order);
+        } catch (JsonProcessingException e) {
+            payload = order.toString();
+        }
+        deadLetterEventRepository.save(DeadLetterEvent.builder()
+                .type(DEAD_LETTER_TYPE)
+                .orderId(order.getOrderId())
+                .payload(payload)
+                .error(error)
+                .attempts(1)
+                .createdAt(OffsetDateTime.now(clock))
+                .build());
+    }
+
+}
@@ -0,0 +1,294 @@
+package fr.polytech.melusine.components;
+
+import fr.polytech.melusine.models.entities.OrderItem;
+import fr.polytech.melusine.models.entities.ProductRollup;
+import fr.polytech.melusine.models.entities.RollupBackfill;
+import fr.polytech.melusine.models.enums.OrderStatus;
+import fr.polytech.melusine.models.projections.OrderItemSale;
+import fr.polytech.melusine.repositories.*;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import java.time.Clock;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Keep the hourly rollups of the products up to date in the transaction of each creation and each status change, the
+ * items are counted in the hour of their creation. The orders are counted after the commit of their creation, by the
+ * order event handler, so that the concurrent creations do not all update the row of the current hour.
+ * <p>
+ * The rollups are rebuilt from the hot and the archive tables in the background when they are empty at the start, by
+ * a single instance which records the next day to rebuild, so that a failed rebuild resumes at the next start. The
+ * rebuild counts the orders created before the instant the rollups were found empty, the next ones are counted by the
+ * live path. The rollups of the items of a day are deleted and counted again in the transaction of the day, whose
+ * locks order it with the transactions of the items.
+ */
+@Slf4j
+@Component
+public class OrderRollups {
+
+    static final String BACKFILL_ID = "rollups";
+    private static final long CLAIM_TIMEOUT_MINUTES = 10;
+    private static final int MAX_ATTEMPTS = 3;
+
+    private final ProductRollupRepository productRollupRepository;
+    private final OrderRollupRepository orderRollupRepository;
+    private final OrderRepository orderRepository;
+    private final OrderItemRepository orderItemRepository;
+    private final ArchivedOrderRepository archivedOrderRepository;
+    private final ArchivedOrderItemRepository archivedOrderItemRepository;
+    private final RollupBackfillRepository rollupBackfillRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final Clock clock;
+    private final String instance = UUID.randomUUID().toString();
+    private volatile boolean backfilled;
+
+    public OrderRollups(ProductRollupRepository productRollupRepository, OrderRollupRepository orderRollupRepository,
+                        OrderRepository orderRepository, OrderItemRepository orderItemRepository,
+                        ArchivedOrderRepository archivedOrderRepository,
+                        ArchivedOrderItemRepository archivedOrderItemRepository,
+                        RollupBackfillRepository rollupBackfillRepository,
+                        PlatformTransactionManager transactionManager, Clock clock) {
+        this.productRollupRepository = productRollupRepository;
+        this.orderRollupRepository = orderRollupRepository;
+        this.orderRepository = orderRepository;
+        this.orderItemRepository = orderItemRepository;
+        this.archivedOrderRepository = archivedOrderRepository;
+        this.archivedOrderItemRepository = archivedOrderItemRepository;
+        this.rollupBackfillRepository = rollupBackfillRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.clock = clock;
+    }
+
+    /**
+     * Record the rebuild when the rollups are empty, before the application adds to them. The first instance to find
+     * them empty sets the boundary of the rebuild.
+     */
+    @PostConstruct
+    public void prepareBackfill() {
+        if (rollupBackfillRepository.existsById(BACKFILL_ID)
+                || productRollupRepository.count() > 0 || orderRollupRepository.count() > 0) {
+            return;
+        }
+        LocalDate firstDay = Stream.of(orderRepository.findMinCreatedAt(), archivedOrderRepository.findMinCreatedAt())
+                .flatMap(Optional::stream)
+                .min(Comparator.naturalOrder())
+                .map(date -> date.atZoneSameInstant(clock.getZone()).toLocalDate())
+                .orElse(null);
+        try {
+            rollupBackfillRepository.save(RollupBackfill.builder()
+                    .id(BACKFILL_ID)
+                    .boundary(OffsetDateTime.now(clock))
+                    .nextDay(firstDay)
+                    .build());
+        } catch (DataAccessException e) {
+            log.info("Rebuild of the rollups already recorded by another instance");
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void startBackfill() {
+        Thread backfill = new Thread(this::backfill, "order-rollups-backfill");
+        backfill.setDaemon(true);
+        backfill.start();
+    }
+
+    /**
+     * Rebuild the rollups from the next recorded day to the day of the boundary, if no other instance is rebuilding
+     * them. A day which still fails after the last attempt stops the rebuild until the next start.
+     */
+    public void backfill() {
+        OffsetDateTime now = OffsetDateTime.now(clock);
+        Integer claimed = transactionTemplate.execute(status -> rollupBackfillRepository.claim(BACKFILL_ID, instance, now,
+                now.minusMinutes(CLAIM_TIMEOUT_MINUTES)));
+        if (Objects.isNull(claimed) || claimed == 0) {
+            return;
+        }
+        try {
+            RollupBackfill backfill = rollupBackfillRepository.findById(BACKFILL_ID).orElseThrow();
+            OffsetDateTime boundary = backfill.getBoundary();
+            LocalDate lastDay = boundary.atZoneSameInstant(clock.getZone()).toLocalDate();
+            log.info("Rebuild the rollups from " + backfill.getNextDay() + " to " + lastDay);
+            for (LocalDate day = backfill.getNextDay(); !day.isAfter(lastDay); day = day.plusDays(1)) {
+                if (!rebuildDay(day, boundary, day.equals(lastDay) ? null : day.plusDays(1))) {
+                    log.error("Rebuild of the rollups stopped at " + day + ", resumed at the next start");
+                    return;
+                }
+            }
+            log.info("End of the rebuild of the rollups");
+        } finally {
+            transactionTemplate.execute(status -> rollupBackfillRepository.release(BACKFILL_ID, instance));
+        }
+    }
+
+    /**
+     * Tell whether the rollups are being rebuilt, by this instance or another one, or wait for a rebuild to resume.
+     *
+     * @return true until all the days are rebuilt
+     */
+    public boolean isBackfilling() {
+        if (backfilled) {
+            return false;
+        }
+        boolean backfilling = rollupBackfillRepository.findById(BACKFILL_ID)
+                .map(backfill -> Objects.nonNull(backfill.getNextDay()))
+                .orElse(false);
+        backfilled = !backfilling;
+        return backfilling;
+    }
+
+    /**
+     * Count a created order in the rollup of its hour.
+     *
+     * @param createdAt the creation date of the order
+     */
+    public void addCreatedOrder(OffsetDateTime createdAt) {
+        orderRollupRepository.add(getHourStart(createdAt), 1);
+    }
+
+    /**
+     * Add the items of a created order which are delivered at once to the rollups.
+     *
+     * @param items the items of the order
+     */
+    public void addDeliveredItems(List<OrderItem> items) {
+        addDeltas(items.stream()
+                .filter(item -> item.getStatus() != OrderStatus.PENDING)
+                .map(item -> buildDelta(item, null, item.getStatus()))
+                .collect(Collectors.toList()));
+    }
+
+    /**
+     * Move the items from their previous status to the new one in the rollups of the hours of their creation.
+     *
+     * @param previousOrderItems the items with their previous status
+     * @param status             the new status of the items
+     */
+    public void addStatusChanges(List<OrderItem> previousOrderItems, OrderStatus status) {
+        addDeltas(previousOrderItems.stream()
+                .map(item -> buildDelta(item, item.getStatus(), status))
+                .collect(Collectors.toList()));
+    }
+
+    /**
+     * Sum the deltas by hour and product, so that each rollup row is written once.
+     */
+    private void addDeltas(List<ProductRollup> deltas) {
+        deltas.stream()
+                .collect(Collectors.toMap(this::getKey, Function.identity(), this::merge, LinkedHashMap::new))
+                .values()
+                .forEach(delta -> productRollupRepository.add(delta.getHourStart(), delta.getProductId(),
+                        delta.getProductName(), Objects.toString(delta.getCategory(), null),
+                        delta.getDeliveredCount(), delta.getDeliveredRevenue(),
+                        delta.getCancelledCount(), delta.getCancelledRevenue()));
+    }
+
+    private ProductRollup buildDelta(OrderItem item, OrderStatus from, OrderStatus to) {
+        return ProductRollup.builder()
+                .hourStart(getHourStart(item.getCreatedAt()))
+                .productId(item.getProduct().getId())
+                .productName(item.getProductName())
+                .category(item.getCategory())
+                .deliveredCount(getCountDelta(from, to, OrderStatus.DELIVER))
+                .deliveredRevenue(getCountDelta(from, to, OrderStatus.DELIVER) * item.getPrice())
+                .cancelledCount(getCountDelta(from, to, OrderStatus.CANCEL))
+                .cancelledRevenue(getCountDelta(from, to, OrderStatus.CANCEL) * item.getPrice())
+                .build();
+    }
+
+    private long getCountDelta(OrderStatus from, OrderStatus to, OrderStatus counted) {
+        return (to == counted ? 1 : 0) - (from == counted ? 1 : 0);
+    }
+
+    /**
+     * Rebuild a day and record the next one in a single transaction, with a few attempts.
+     *
+     * @return false when the day still fails after the last attempt
+     */
+    private boolean rebuildDay(LocalDate day, OffsetDateTime boundary, LocalDate nextDay) {
+        OffsetDateTime start = day.atStartOfDay(clock.getZone()).toOffsetDateTime();
+        OffsetDateTime end = day.plusDays(1).atStartOfDay(clock.getZone()).toOffsetDateTime();
+        for (int attempt = 1; attempt <= MAX_ATTEMPTS; attempt++) {
+            try {
+                transactionTemplate.executeWithoutResult(status -> {
+                    rebuildDay(start, end, boundary);
+                    if (rollupBackfillRepository.advance(BACKFILL_ID, instance, nextDay, OffsetDateTime.now(clock)) == 0) {
+                        throw new IllegalStateException("Rebuild of the rollups claimed by another instance");
+                    }
+                });
+                return true;
+            } catch (RuntimeException e) {
+                log.warn("Attempt " + attempt + " of the rebuild of the rollups of " + day + " failed : " + e.getMessage());
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Count the items of the day again, and add the orders of the day created before the boundary, which the live path
+     * has not counted.
+     */
+    private void rebuildDay(OffsetDateTime start, OffsetDateTime end, OffsetDateTime boundary) {
+        productRollupRepository.deleteFrom(start, end);
+        addDeltas(Stream.concat(
+                orderItemRepository.findSalesByCreatedAtFrom(start, end).stream(),
+                archivedOrderItemRepository.findSalesByCreatedAtFrom(start, end).stream())
+                .filter(sale -> sale.getStatus() != OrderStatus.PENDING)
+                .map(this::buildRollup)
+                .collect(Collectors.toList()));
+
+        OffsetDateTime ordersEnd = end.isAfter(boundary) ? boundary : end;
+        Stream.concat(
+                orderRepository.findCreatedAtFrom(start, ordersEnd).stream(),
+                archivedOrderRepository.findCreatedAtFrom(start, ordersEnd).stream())
+                .collect(Collectors.groupingBy(this::getHourStart, Collectors.counting()))
+                .forEach(orderRollupRepository::add);
+    }
+
+    private ProductRollup buildRollup(OrderItemSale sale) {
+        boolean delivered = sale.getStatus() == OrderStatus.DELIVER;
+        return ProductRollup.builder()
+                .hourStart(getHourStart(sale.getCreatedAt()))
+                .productId(sale.getProductId())
+                .productName(sale.getProductName())
+                .category(sale.getCategory())
+                .deliveredCount(delivered ? 1 : 0)
+                .deliveredRevenue(delivered ? sale.getPrice() : 0)
+                .cancelledCount(delivered ? 0 : 1)
+                .cancelledRevenue(delivered ? 0 : sale.getPrice())
+                .build();
+    }
+
+    private ProductRollup.Key getKey(ProductRollup rollup) {
+        return new ProductRollup.Key(rollup.getHourStart(), rollup.getProductId());
+    }
+
+    private ProductRollup merge(ProductRollup first, ProductRollup second) {
+        return first.toBuilder()
+                .deliveredCount(first.getDeliveredCount() + second.getDeliveredCount())
+                .deliveredRevenue(first.getDeliveredRevenue() + second.getDeliveredRevenue())
+                .cancelledCount(first.getCancelledCount() + second.getCancelledCount())
+                .cancelledRevenue(first.getCancelledRevenue() + second.getCancelledRevenue())
+                .build();
+    }
+
+    /**
+     * Get the start of the hour of the date, with the offset of the zone of the application.
+     */
+    private OffsetDateTime getHourStart(OffsetDateTime date) {
+        return date.atZoneSameInstant(clock.getZone()).toOffsetDateTime().truncatedTo(ChronoUnit.HOURS);
+    }
+
+}
@@ -0,0 +1,166 @@
+package fr.polytech.melusine.components;
+
+import fr.polytech.melusine.models.dtos.responses.OrderItemResponse;
+import fr.polytech.melusine.models.enums.OrderItemEventType;
+import fr.polytech.melusine.models.enums.OrderStatus;
+import fr.polytech.melusine.models.events.OrderItemEvent;
+import fr.polytech.melusine.repositories.OrderItemRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.OffsetDateTime;
+import java.util.Comparator;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.stream.Collectors;
+
+/**
+ * In-memory view of the pending order items, ordered by creation date, with their display data already resolved.
+ * <p>
+ * It is loaded when the application is ready and then kept up to date with the committed order item events, so
+ * that the kitchen queue is read without any query.
+ */
+@Slf4j
+@Component
+public class PendingOrderItems {
+
+    private static final String CREATED_AT = "createdAt";
+    private static final Comparator<OrderItemResponse> CREATION_ORDER = Comparator
+            .comparing(OrderItemResponse::getCreatedAt)
+            .thenComparing(OrderItemResponse::getId);
+
+    private final OrderItemRepository orderItemRepository;
+    private final OrderItemReader orderItemReader;
+    private final NavigableSet<OrderItemResponse> items = new ConcurrentSkipListSet<>(CREATION_ORDER);
+    private final ConcurrentMap<String, OrderItemResponse> itemsById = new ConcurrentHashMap<>();
+    private final Set<String> removedWhileLoading = ConcurrentHashMap.newKeySet();
+    private volatile boolean loaded = false;
+
+    public PendingOrderItems(OrderItemRepository orderItemRepository, OrderItemReader orderItemReader) {
+        this.orderItemRepository = orderItemRepository;
+        this.orderItemReader = orderItemReader;
+    }
+
+    @Transactional(readOnly = true)
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        List<OrderItemResponse> pendingItems = orderItemReader.read(orderItemRepository.findAllRowsByStatus(OrderStatus.PENDING));
+        synchronized (this) {
+            pendingItems.stream()
+                    .filter(item -> !removedWhileLoading.contains(item.getId()))
+                    .forEach(item -> itemsById.putIfAbsent(item.getId(), item));
+            items.addAll(itemsById.values());
+            removedWhileLoading.clear();
+            loaded = true;
+        }
+        log.info("Pending order items loaded : " + itemsById.size());
+    }
+
+    @TransactionalEventListener
+    public void onOrderItemEvent(OrderItemEvent event) {
+        if (event.getType() == OrderItemEventType.ADDED) {
+            event.getItems().forEach(this::add);
+        } else {
+            event.getItems().forEach(item -> remove(item.getId()));
+        }
+    }
+
+    private synchronized void add(OrderItemResponse item) {
+        OrderItemResponse previous = itemsById.put(item.getId(), item);
+        if (Objects.nonNull(previous)) {
+            items.remove(previous);
+        }
+        items.add(item);
+    }
+
+    private synchronized void remove(String id) {
+        OrderItemResponse previous = itemsById.remove(id);
+        if (Objects.nonNull(previous)) {
+            items.remove(previous);
+        }
+        if (!loaded) {
+            removedWhileLoading.add(id);
+        }
+    }
+
+    /**
+     * Get a page of the pending items.
+     *
+     * @param pageable the page, only sorted by creation date
+     * @return the page, or empty if the view is not loaded yet or if the sort is not supported
+     */
+    public Optional<Page<OrderItemResponse>> getPage(Pageable pageable) {
+        if (!loaded) {
+            return Optional.empty();
+        }
+        Sort sort = pageable.getSort();
+        Sort.Order createdAtOrder = sort.getOrderFor(CREATED_AT);
+        if (sort.isSorted() && (Objects.isNull(createdAtOrder) || sort.stream().count() > 1)) {
+            return Optional.empty();
+        }
+
+        NavigableSet<OrderItemResponse> orderedItems = Objects.nonNull(createdAtOrder) && createdAtOrder.isDescending() ?
+                items.descendingSet() : items;
+        List<OrderItemResponse> content = pageable.isPaged() ?
+                orderedItems.stream()
+                        .skip(pageable.getOffset())
+                        .limit(pageable.getPageSize())
+                        .collect(Collectors.toList()) :
+                List.copyOf(orderedItems);
+        return Optional.of(new PageImpl<>(content, pageable, itemsById.size()));
+    }
+
+    /**
+     * Get a slice of the pending items by creation date, read after the given item.
+     *
+     * @param createdAt the creation date of the last item of the previous slice, null for the first slice
+     * @param id        the id of the last item of the previous slice
+     * @param size      the number of items to read
+     * @return the items, or empty if the view is not loaded yet
+     */
+    public Optional<List<OrderItemResponse>> getSliceAfter(OffsetDateTime createdAt, String id, int size) {
+        if (!loaded) {
+            return Optional.empty();
+        }
+        NavigableSet<OrderItemResponse> orderedItems = Objects.isNull(createdAt) ? items : items.tailSet(
+                OrderItemResponse.builder().createdAt(createdAt).id(id).build(),
+                false
+        );
+        return Optional.of(orderedItems.stream()
+                .limit(size)
+                .collect(Collectors.toList()));
+    }
+
+    /**
+     * Get all the pending items by creation date.
+     *
+     * @return the items, or empty if the view is not loaded yet
+     */
+    public Optional<List<OrderItemResponse>> getAll() {
+        return loaded ? Optional.of(List.copyOf(items)) : Optional.empty();
+    }
+
+    /**
+     * Count the pending items.
+     *
+     * @return the count, or empty if the view is not loaded yet
+     */
+    public Optional<Long> count() {
+        return loaded ? Optional.of((long) itemsById.size()) : Optional.empty();
+    }
+
+}
@@ -0,0 +1,61 @@
+package fr.polytech.melusine.components;
+
+import fr.polytech.melusine.configurations.KitchenProperties;
+import fr.polytech.melusine.models.projections.ProductPrepTime;
+import fr.polytech.melusine.repositories.OrderItemRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.OffsetDateTime;
+import java.util.Map;
+import java.util.Objects;
+import java.util.stream.Collectors;
+
+/**
+ * Estimated preparation time of each product, from the time its items took from their creation to their delivery.
+ * The estimates are computed in one query and refreshed periodically, the scheduling only reads the map.
+ */
+@Slf4j
+@Component
+public class PrepTimeEstimates {
+
+    private final KitchenProperties kitchenProperties;
+    private final OrderItemRepository orderItemRepository;
+    private final Clock clock;
+    private volatile Map<String, Long> prepTimes = Map.of();
+
+    public PrepTimeEstimates(KitchenProperties kitchenProperties, OrderItemRepository orderItemRepository, Clock clock) {
+        this.kitchenProperties = kitchenProperties;
+        this.orderItemRepository = orderItemRepository;
+        this.clock = clock;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelay = 600000, initialDelay = 600000)
+    public void refresh() {
+        OffsetDateTime since = OffsetDateTime.now(clock).minusDays(kitchenProperties.getEstimateWindow());
+        prepTimes = orderItemRepository.findPrepTimesByUpdatedAtAfter(since).stream()
+                .filter(prepTime -> Objects.nonNull(prepTime.getProductId()) && Objects.nonNull(prepTime.getPrepTime()))
+                .collect(Collectors.toUnmodifiableMap(ProductPrepTime::getProductId,
+                        prepTime -> Math.round(prepTime.getPrepTime())));
+        log.debug("Preparation times estimated for " + prepTimes.size() + " products");
+    }
+
+    /**
+     * Get the estimated preparation time of a product.
+     *
+     * @param productId the product id
+     * @return the time in seconds
+     */
+    public long getPrepTime(String productId) {
+        if (Objects.isNull(productId)) {
+            return kitchenProperties.getDefaultPrepTime();
+        }
+        return prepTimes.getOrDefault(productId, kitchenProperties.getDefaultPrepTime());
+    }
+
+}
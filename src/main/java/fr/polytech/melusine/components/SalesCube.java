@@ -0,0 +1,503 @@
+package fr.polytech.melusine.components;
+
+import fr.polytech.melusine.exceptions.BadRequestException;
+import fr.polytech.melusine.exceptions.errors.OrderError;
+import fr.polytech.melusine.models.dtos.requests.SalesRequest;
+import fr.polytech.melusine.models.dtos.responses.OrderItemResponse;
+import fr.polytech.melusine.models.dtos.responses.SalesResponse;
+import fr.polytech.melusine.models.enums.Category;
+import fr.polytech.melusine.models.enums.OrderItemEventType;
+import fr.polytech.melusine.models.enums.OrderStatus;
+import fr.polytech.melusine.models.enums.SalesDimension;
+import fr.polytech.melusine.models.enums.Section;
+import fr.polytech.melusine.models.events.OrderCreatedEvent;
+import fr.polytech.melusine.models.events.OrderItemChange;
+import fr.polytech.melusine.models.events.OrderItemEvent;
+import fr.polytech.melusine.models.events.OrderItemsStatusChangedEvent;
+import fr.polytech.melusine.models.projections.SaleRow;
+import fr.polytech.melusine.repositories.ArchivedOrderItemRepository;
+import fr.polytech.melusine.repositories.ArchivedOrderRepository;
+import fr.polytech.melusine.repositories.OrderItemRepository;
+import fr.polytech.melusine.repositories.OrderRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Clock;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+import java.util.*;
+import java.util.function.ToIntFunction;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static fr.polytech.melusine.utils.MoneyFormatter.formatToDouble;
+
+/**
+ * The delivered items held in memory as one primitive array by column, to slice the sales without reading the
+ * database.
+ * <p>
+ * The items delivered before the startup are loaded month by month, the next ones are appended after the commit of
+ * their delivery. A delivered item which leaves the delivered status is not removed, a copy of its row with a negative
+ * sign and a negative price is appended instead, so it is taken back from the groups it was counted in even when its
+ * client has changed of section or membership since. A query scans the columns in parallel chunks, each chunk sums
+ * its items into its own groups.
+ */
+@Slf4j
+@Component
+public class SalesCube {
+
+    private static final int INITIAL_CAPACITY = 1 << 16;
+    private static final int MAX_GROUPS = 1 << 18;
+    private static final int CHUNKS = Runtime.getRuntime().availableProcessors() * 2;
+    private static final int SECTIONS = Section.values().length + 1;
+    private static final int MEMBERSHIPS = 3;
+    private static final int CATEGORIES = Category.values().length;
+    private static final int HOURS = 24;
+    private static final String NONE = "NONE";
+
+    private final OrderItemRepository orderItemRepository;
+    private final ArchivedOrderItemRepository archivedOrderItemRepository;
+    private final OrderRepository orderRepository;
+    private final ArchivedOrderRepository archivedOrderRepository;
+    private final OrderArchiver orderArchiver;
+    private final Clock clock;
+    private final Map<String, Integer> productIndexes = new HashMap<>();
+    /**
+     * The position of the row of each delivered item of the hot table, the archived items never change of status.
+     */
+    private final Map<String, Integer> hotRows = new HashMap<>();
+    private volatile Columns columns = new Columns(0, 0, INITIAL_CAPACITY);
+    private volatile OffsetDateTime loadedUntil;
+
+    public SalesCube(OrderItemRepository orderItemRepository, ArchivedOrderItemRepository archivedOrderItemRepository,
+                     OrderRepository orderRepository, ArchivedOrderRepository archivedOrderRepository,
+                     OrderArchiver orderArchiver, Clock clock) {
+        this.orderItemRepository = orderItemRepository;
+        this.archivedOrderItemRepository = archivedOrderItemRepository;
+        this.orderRepository = orderRepository;
+        this.archivedOrderRepository = archivedOrderRepository;
+        this.orderArchiver = orderArchiver;
+        this.clock = clock;
+    }
+
+    /**
+     * Load the items delivered before now, the items delivered from now on are appended by the events.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        OffsetDateTime cutoff = OffsetDateTime.now(clock);
+        loadedUntil = cutoff;
+        Optional<OffsetDateTime> oldest = Stream.of(orderRepository.findMinCreatedAt(), archivedOrderRepository.findMinCreatedAt())
+                .flatMap(Optional::stream)
+                .min(Comparator.naturalOrder());
+        if (oldest.isEmpty()) {
+            return;
+        }
+        for (OffsetDateTime start = oldest.get(); start.isBefore(cutoff); start = start.plusMonths(1)) {
+            OffsetDateTime end = start.plusMonths(1);
+            append(orderItemRepository.findSaleRowsByCreatedAtFrom(start, end, cutoff, OrderStatus.DELIVER), true);
+            append(archivedOrderItemRepository.findSaleRowsByCreatedAtFrom(start, end, OrderStatus.DELIVER), false);
+        }
+        log.info("Sales cube loaded with " + columns.size + " items of " + columns.productCount + " products");
+    }
+
+    @TransactionalEventListener
+    public void onOrderItemEvent(OrderItemEvent event) {
+        if (event.getType() != OrderItemEventType.DELIVERED) {
+            return;
+        }
+        appendChanged(orderItemRepository.findSaleRowsByIdInAndStatus(event.getItems().stream()
+                .map(OrderItemResponse::getId)
+                .collect(Collectors.toList()), OrderStatus.DELIVER));
+    }
+
+    @TransactionalEventListener
+    public void onOrderCreated(OrderCreatedEvent event) {
+        if (event.getDeliveredProductIds().isEmpty()) {
+            return;
+        }
+        appendChanged(orderItemRepository.findSaleRowsByOrderIdAndStatus(event.getOrderId(), OrderStatus.DELIVER));
+    }
+
+    /**
+     * Take back the delivered items moved to another status, with the values of the rows they were counted with.
+     */
+    @TransactionalEventListener
+    public void onOrderItemsStatusChanged(OrderItemsStatusChangedEvent event) {
+        if (event.getStatus() == OrderStatus.DELIVER) {
+            return;
+        }
+        List<String> itemIds = event.getChanges().stream()
+                .filter(change -> change.getPreviousStatus() == OrderStatus.DELIVER)
+                .map(OrderItemChange::getItemId)
+                .collect(Collectors.toList());
+        if (itemIds.isEmpty() || Objects.isNull(loadedUntil)) {
+            return;
+        }
+        takeBack(itemIds);
+    }
+
+    /**
+     * Forget the rows of the archived items, which can no longer be taken back.
+     */
+    @Scheduled(cron = "${melusine.archive.cron:0 0 4 * * *}")
+    public void forgetArchivedItems() {
+        OffsetDateTime boundary = orderArchiver.getBoundary();
+        Set<String> hotIds = new HashSet<>(orderItemRepository.findIdsByCreatedAtBefore(boundary));
+        long until = boundary.toEpochSecond();
+        synchronized (this) {
+            Columns current = columns;
+            hotRows.entrySet().removeIf(hotRow -> current.createdAt[hotRow.getValue()] < until
+                    && !hotIds.contains(hotRow.getKey()));
+        }
+    }
+
+    /**
+     * Append the items changed after the start of the load, the ones changed before are read by the load in their
+     * current status.
+     */
+    private void appendChanged(List<SaleRow> saleRows) {
+        OffsetDateTime cutoff = loadedUntil;
+        if (Objects.isNull(cutoff)) {
+            return;
+        }
+        append(saleRows.stream()
+                .filter(saleRow -> !saleRow.getUpdatedAt().isBefore(cutoff))
+                .collect(Collectors.toList()), true);
+    }
+
+    /**
+     * Write the items after the last one, in new arrays when they are full, and publish the new size. A query only
+     * reads the items below the size it has read, which are never written again.
+     *
+     * @param saleRows the delivered items
+     * @param hot      true for the items of the hot table, whose rows are kept to take them back, an item already
+     *                 counted is skipped
+     */
+    synchronized void append(List<SaleRow> saleRows, boolean hot) {
+        if (saleRows.isEmpty()) {
+            return;
+        }
+        ZoneId zone = clock.getZone();
+        Columns current = columns;
+        int size = current.size;
+        int productCount = current.productCount;
+        Columns next = current.grow(size + saleRows.size(), productCount + saleRows.size());
+        for (SaleRow saleRow : saleRows) {
+            if (Objects.isNull(saleRow.getCategory()) || (hot && hotRows.containsKey(saleRow.getId()))) {
+                continue;
+            }
+            Integer product = productIndexes.get(saleRow.getProductId());
+            if (Objects.isNull(product)) {
+                product = productCount++;
+                productIndexes.put(saleRow.getProductId(), product);
+            }
+            next.productIds[product] = saleRow.getProductId();
+            next.productNames[product] = saleRow.getProductName();
+            next.createdAt[size] = saleRow.getCreatedAt().toEpochSecond();
+            next.product[size] = product;
+            next.category[size] = (byte) saleRow.getCategory().ordinal();
+            next.section[size] = (byte) (Objects.isNull(saleRow.getSection()) ? 0 : saleRow.getSection().ordinal() + 1);
+            next.membership[size] = (byte) (Objects.isNull(saleRow.getMembership()) ? 0 : saleRow.getMembership() ? 2 : 1);
+            next.hour[size] = (byte) saleRow.getCreatedAt().atZoneSameInstant(zone).getHour();
+            next.sign[size] = 1;
+            next.price[size] = saleRow.getPrice();
+            if (hot) {
+                hotRows.put(saleRow.getId(), size);
+            }
+            size++;
+        }
+        columns = next.withSize(size, productCount);
+    }
+
+    /**
+     * Append a copy of the rows of the items with a negative sign and a negative price. The items without a row were
+     * not counted, or are already taken back.
+     *
+     * @param itemIds the ids of the items
+     */
+    synchronized void takeBack(List<String> itemIds) {
+        Columns current = columns;
+        int size = current.size;
+        Columns next = current.grow(size + itemIds.size(), current.productCount);
+        for (String itemId : itemIds) {
+            Integer row = hotRows.remove(itemId);
+            if (Objects.isNull(row)) {
+                continue;
+            }
+            next.createdAt[size] = next.createdAt[row];
+            next.product[size] = next.product[row];
+            next.category[size] = next.category[row];
+            next.section[size] = next.section[row];
+            next.membership[size] = next.membership[row];
+            next.hour[size] = next.hour[row];
+            next.sign[size] = -1;
+            next.price[size] = -next.price[row];
+            size++;
+        }
+        columns = next.withSize(size, current.productCount);
+    }
+
+    /**
+     * Count the items and sum their prices by group of the slice.
+     *
+     * @param salesRequest the filters and the dimensions of the groups
+     * @return the groups with items, in the order of the dimensions
+     */
+    public List<SalesResponse> query(SalesRequest salesRequest) {
+        Columns snapshot = columns;
+        Slice slice = new Slice(salesRequest, snapshot);
+        int chunks = Math.max(1, Math.min(CHUNKS, snapshot.size / INITIAL_CAPACITY));
+        long[] totals = IntStream.range(0, chunks)
+                .parallel()
+                .mapToObj(chunk -> scan(snapshot, slice,
+                        (int) ((long) snapshot.size * chunk / chunks),
+                        (int) ((long) snapshot.size * (chunk + 1) / chunks)))
+                .reduce(SalesCube::sum)
+                .orElseGet(() -> new long[2 * slice.groups]);
+        return IntStream.range(0, slice.groups)
+                .filter(group -> totals[2 * group] > 0)
+                .mapToObj(group -> SalesResponse.builder()
+                        .group(slice.getLabels(snapshot, group))
+                        .count(totals[2 * group])
+                        .revenue(formatToDouble(totals[2 * group + 1]))
+                        .build())
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Sum the signed items of the range into the count and the revenue of their group, at the even and odd positions.
+     */
+    private static long[] scan(Columns columns, Slice slice, int start, int end) {
+        long[] totals = new long[2 * slice.groups];
+        for (int i = start; i < end; i++) {
+            long createdAt = columns.createdAt[i];
+            if (createdAt < slice.from || createdAt >= slice.to
+                    || !slice.categories[columns.category[i]]
+                    || !slice.sections[columns.section[i]]
+                    || !slice.memberships[columns.membership[i]]
+                    || !slice.hours[columns.hour[i]]
+                    || (Objects.nonNull(slice.products) && !slice.products[columns.product[i]])) {
+                continue;
+            }
+            int group = 0;
+            for (SalesDimension dimension : slice.dimensions) {
+                group = group * slice.getCardinality(dimension) + getValue(columns, dimension, i);
+            }
+            totals[2 * group] += columns.sign[i];
+            totals[2 * group + 1] += columns.price[i];
+        }
+        return totals;
+    }
+
+    private static long[] sum(long[] first, long[] second) {
+        for (int i = 0; i < first.length; i++) {
+            first[i] += second[i];
+        }
+        return first;
+    }
+
+    private static int getValue(Columns columns, SalesDimension dimension, int i) {
+        switch (dimension) {
+            case SECTION:
+                return columns.section[i];
+            case MEMBERSHIP:
+                return columns.membership[i];
+            case CATEGORY:
+                return columns.category[i];
+            case PRODUCT:
+                return columns.product[i];
+            default:
+                return columns.hour[i];
+        }
+    }
+
+    public int size() {
+        return columns.size;
+    }
+
+    /**
+     * The columns, only the items below the size are readable.
+     */
+    private static final class Columns {
+
+        private final int size;
+        private final int productCount;
+        private final long[] createdAt;
+        private final int[] product;
+        private final byte[] category;
+        private final byte[] section;
+        private final byte[] membership;
+        private final byte[] hour;
+        private final byte[] sign;
+        private final long[] price;
+        private final String[] productIds;
+        private final String[] productNames;
+
+        private Columns(int size, int productCount, int capacity) {
+            this(size, productCount, new long[capacity], new int[capacity], new byte[capacity], new byte[capacity],
+                    new byte[capacity], new byte[capacity], new byte[capacity], new long[capacity], new String[capacity],
+                    new String[capacity]);
+        }
+
+        private Columns(int size, int productCount, long[] createdAt, int[] product, byte[] category, byte[] section,
+                        byte[] membership, byte[] hour, byte[] sign, long[] price, String[] productIds,
+                        String[] productNames) {
+            this.size = size;
+            this.productCount = productCount;
+            this.createdAt = createdAt;
+            this.product = product;
+            this.category = category;
+            this.section = section;
+            this.membership = membership;
+            this.hour = hour;
+            this.sign = sign;
+            this.price = price;
+            this.productIds = productIds;
+            this.productNames = productNames;
+        }
+
+        /**
+         * Get columns holding the items and the products, the same arrays when they are large enough.
+         */
+        private Columns grow(int items, int products) {
+            int capacity = createdAt.length;
+            while (capacity < items) {
+                capacity *= 2;
+            }
+            int productCapacity = productNames.length;
+            while (productCapacity < products) {
+                productCapacity *= 2;
+            }
+            if (capacity == createdAt.length && productCapacity == productNames.length) {
+                return this;
+            }
+            return new Columns(size, productCount, Arrays.copyOf(createdAt, capacity), Arrays.copyOf(product, capacity),
+                    Arrays.copyOf(category, capacity), Arrays.copyOf(section, capacity),
+                    Arrays.copyOf(membership, capacity), Arrays.copyOf(hour, capacity), Arrays.copyOf(sign, capacity),
+                    Arrays.copyOf(price, capacity),
+                    Arrays.copyOf(productIds, productCapacity), Arrays.copyOf(productNames, productCapacity));
+        }
+
+        private Columns withSize(int size, int productCount) {
+            return new Columns(size, productCount, createdAt, product, category, section, membership, hour, sign,
+                    price, productIds, productNames);
+        }
+
+    }
+
+    /**
+     * The filters of a query as one flag by value of each column, and its groups.
+     */
+    private static final class Slice {
+
+        private final long from;
+        private final long to;
+        private final boolean[] sections;
+        private final boolean[] memberships;
+        private final boolean[] categories;
+        private final boolean[] hours;
+        private final boolean[] products;
+        private final List<SalesDimension> dimensions;
+        private final int productCount;
+        private final int groups;
+
+        private Slice(SalesRequest salesRequest, Columns columns) {
+            from = Objects.nonNull(salesRequest.getFrom()) ? salesRequest.getFrom().toEpochSecond() : Long.MIN_VALUE;
+            to = Objects.nonNull(salesRequest.getTo()) ? salesRequest.getTo().toEpochSecond() : Long.MAX_VALUE;
+            sections = getFlags(SECTIONS, salesRequest.getSections(), section -> section.ordinal() + 1);
+            memberships = getFlags(MEMBERSHIPS, Objects.isNull(salesRequest.getMembership()) ? null :
+                    List.of(salesRequest.getMembership()), membership -> membership ? 2 : 1);
+            categories = getFlags(CATEGORIES, salesRequest.getCategories(), Category::ordinal);
+            hours = getFlags(HOURS, salesRequest.getHours(), hour -> hour);
+            productCount = columns.productCount;
+            products = isEmpty(salesRequest.getProductIds()) ? null : getProductFlags(columns, salesRequest.getProductIds());
+            dimensions = Objects.requireNonNullElse(salesRequest.getGroupBy(), List.<SalesDimension>of()).stream()
+                    .distinct()
+                    .collect(Collectors.toList());
+            long count = 1;
+            for (SalesDimension dimension : dimensions) {
+                count *= Math.max(1, getCardinality(dimension));
+                if (count > MAX_GROUPS) {
+                    throw new BadRequestException(OrderError.SALES_TOO_MANY_GROUPS, dimensions);
+                }
+            }
+            groups = (int) count;
+        }
+
+        private boolean[] getProductFlags(Columns columns, List<String> productIds) {
+            Set<String> wanted = new HashSet<>(productIds);
+            boolean[] flags = new boolean[productCount];
+            for (int product = 0; product < productCount; product++) {
+                flags[product] = wanted.contains(columns.productIds[product]);
+            }
+            return flags;
+        }
+
+        private int getCardinality(SalesDimension dimension) {
+            switch (dimension) {
+                case SECTION:
+                    return SECTIONS;
+                case MEMBERSHIP:
+                    return MEMBERSHIPS;
+                case CATEGORY:
+                    return CATEGORIES;
+                case PRODUCT:
+                    return productCount;
+                default:
+                    return HOURS;
+            }
+        }
+
+        private Map<SalesDimension, String> getLabels(Columns columns, int group) {
+            Map<SalesDimension, String> labels = new EnumMap<>(SalesDimension.class);
+            for (int i = dimensions.size() - 1; i >= 0; i--) {
+                SalesDimension dimension = dimensions.get(i);
+                int value = group % getCardinality(dimension);
+                group /= getCardinality(dimension);
+                labels.put(dimension, getLabel(columns, dimension, value));
+            }
+            return labels;
+        }
+
+        private String getLabel(Columns columns, SalesDimension dimension, int value) {
+            switch (dimension) {
+                case SECTION:
+                    return value == 0 ? NONE : Section.values()[value - 1].name();
+                case MEMBERSHIP:
+                    return value == 0 ? NONE : String.valueOf(value == 2);
+                case CATEGORY:
+                    return Category.values()[value].name();
+                case PRODUCT:
+                    return columns.productNames[value];
+                default:
+                    return String.valueOf(value);
+            }
+        }
+
+        private static <T> boolean[] getFlags(int cardinality, List<T> values, ToIntFunction<T> index) {
+            boolean[] flags = new boolean[cardinality];
+            if (isEmpty(values)) {
+                Arrays.fill(flags, true);
+                return flags;
+            }
+            values.stream()
+                    .filter(Objects::nonNull)
+                    .mapToInt(index)
+                    .filter(value -> value >= 0 && value < cardinality)
+                    .forEach(value -> flags[value] = true);
+            return flags;
+        }
+
+        private static boolean isEmpty(List<?> values) {
+            return Objects.isNull(values) || values.isEmpty();
+        }
+
+    }
+
+}
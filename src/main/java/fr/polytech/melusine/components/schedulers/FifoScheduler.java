@@ -0,0 +1,31 @@
+package fr.polytech.melusine.components.schedulers;
+
+import fr.polytech.melusine.models.dtos.responses.OrderItemResponse;
+import fr.polytech.melusine.models.enums.KitchenStrategy;
+import org.springframework.stereotype.Component;
+
+import java.time.OffsetDateTime;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+
+@Component
+public class FifoScheduler implements KitchenScheduler {
+
+    static final Comparator<OrderItemResponse> CREATION_ORDER = Comparator
+            .comparing(OrderItemResponse::getCreatedAt)
+            .thenComparing(OrderItemResponse::getId);
+
+    @Override
+    public KitchenStrategy getStrategy() {
+        return KitchenStrategy.FIFO;
+    }
+
+    @Override
+    public List<OrderItemResponse> schedule(List<OrderItemResponse> items, OffsetDateTime now) {
+        return items.stream()
+                .sorted(CREATION_ORDER)
+                .collect(Collectors.toList());
+    }
+
+}
@@ -0,0 +1,25 @@
+package fr.polytech.melusine.components.schedulers;
+
+import fr.polytech.melusine.models.dtos.responses.OrderItemResponse;
+import fr.polytech.melusine.models.enums.KitchenStrategy;
+
+import java.time.OffsetDateTime;
+import java.util.List;
+
+/**
+ * Order in which the kitchen prepares the pending items.
+ */
+public interface KitchenScheduler {
+
+    KitchenStrategy getStrategy();
+
+    /**
+     * Sort the pending items in their order of preparation.
+     *
+     * @param items the pending items
+     * @param now   the current date, for the wait of the items
+     * @return the items in their order of preparation
+     */
+    List<OrderItemResponse> schedule(List<OrderItemResponse> items, OffsetDateTime now);
+
+}
@@ -0,0 +1,60 @@
+package fr.polytech.melusine.components.schedulers;
+
+import fr.polytech.melusine.components.PrepTimeEstimates;
+import fr.polytech.melusine.configurations.KitchenProperties;
+import fr.polytech.melusine.models.dtos.responses.OrderItemResponse;
+import fr.polytech.melusine.models.enums.KitchenStrategy;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * The items of an order one after the other, since an order is picked up when its last item is ready, and the orders
+ * by shortest estimated preparation first. The estimate of an order is the sum of the estimates of its items, lowered
+ * by its wait times the aging.
+ */
+@Component
+public class OrderBatchScheduler implements KitchenScheduler {
+
+    private final PrepTimeEstimates prepTimeEstimates;
+    private final KitchenProperties kitchenProperties;
+
+    public OrderBatchScheduler(PrepTimeEstimates prepTimeEstimates, KitchenProperties kitchenProperties) {
+        this.prepTimeEstimates = prepTimeEstimates;
+        this.kitchenProperties = kitchenProperties;
+    }
+
+    @Override
+    public KitchenStrategy getStrategy() {
+        return KitchenStrategy.ORDER_BATCH;
+    }
+
+    @Override
+    public List<OrderItemResponse> schedule(List<OrderItemResponse> items, OffsetDateTime now) {
+        Map<String, List<OrderItemResponse>> orders = items.stream()
+                .sorted(FifoScheduler.CREATION_ORDER)
+                .collect(Collectors.groupingBy(OrderItemResponse::getOrderId, LinkedHashMap::new, Collectors.toList()));
+        Comparator<List<OrderItemResponse>> priority = Comparator.<List<OrderItemResponse>>comparingDouble(
+                order -> getPriority(order, now))
+                .thenComparing(order -> order.get(0), FifoScheduler.CREATION_ORDER);
+        return orders.values().stream()
+                .sorted(priority)
+                .flatMap(List::stream)
+                .collect(Collectors.toList());
+    }
+
+    private double getPriority(List<OrderItemResponse> order, OffsetDateTime now) {
+        long prepTime = order.stream()
+                .mapToLong(item -> prepTimeEstimates.getPrepTime(item.getProductId()))
+                .sum();
+        long wait = Duration.between(order.get(0).getCreatedAt(), now).getSeconds();
+        return prepTime - kitchenProperties.getAging() * wait;
+    }
+
+}
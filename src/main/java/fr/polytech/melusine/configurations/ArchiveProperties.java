@@ -0,0 +1,26 @@
+package fr.polytech.melusine.configurations;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Data
+@ConfigurationProperties(prefix = "melusine.archive")
+public class ArchiveProperties {
+
+    /**
+     * Number of whole months of orders kept in the hot tables, the current one excluded.
+     */
+    private int horizon = 3;
+
+    /**
+     * Number of orders moved to the archive in one transaction.
+     */
+    private int batchSize = 500;
+
+    /**
+     * Create the archive tables partitioned by month of creation and add the missing partitions before each run. Only
+     * supported by MariaDB, the archive tables are otherwise created with the rest of the schema.
+     */
+    private boolean partitioned = false;
+
+}
@@ -0,0 +1,46 @@
+package fr.polytech.melusine.configurations;
+
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.scheduling.annotation.EnableAsync;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+@Configuration
+@EnableAsync
+@EnableConfigurationProperties({OrderEventProperties.class})
+public class AsyncConfiguration {
+
+    public static final String ORDER_EVENT_EXECUTOR = "orderEventExecutor";
+    public static final String ORDER_ITEM_STREAM_EXECUTOR = "orderItemStreamExecutor";
+
+    /**
+     * Threads applying the side effects of the orders, a task refused by the full queue is not run by the committing
+     * thread but put in the dead letter table by the order event handler.
+     */
+    @Bean(name = ORDER_EVENT_EXECUTOR)
+    public TaskExecutor orderEventExecutor(OrderEventProperties orderEventProperties) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(orderEventProperties.getPoolSize());
+        executor.setMaxPoolSize(orderEventProperties.getPoolSize());
+        executor.setQueueCapacity(orderEventProperties.getQueueCapacity());
+        executor.setThreadNamePrefix("order-event-");
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        return executor;
+    }
+
+    /**
+     * Threads sending the events to the kitchen screens, so that a slow screen does not delay the committing request.
+     */
+    @Bean(name = ORDER_ITEM_STREAM_EXECUTOR)
+    public TaskExecutor orderItemStreamExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(2);
+        executor.setMaxPoolSize(2);
+        executor.setThreadNamePrefix("order-item-stream-");
+        return executor;
+    }
+
+}
@@ -0,0 +1,15 @@
+package fr.polytech.melusine.configurations;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Data
+@ConfigurationProperties(prefix = "melusine.chart-cache")
+public class ChartCacheProperties {
+
+    /**
+     * Maximum number of charts kept in memory.
+     */
+    private int maxSize = 500;
+
+}
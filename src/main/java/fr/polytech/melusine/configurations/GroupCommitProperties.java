@@ -0,0 +1,31 @@
+package fr.polytech.melusine.configurations;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Data
+@ConfigurationProperties(prefix = "melusine.group-commit")
+public class GroupCommitProperties {
+
+    /**
+     * Create the concurrent orders in shared transactions instead of one transaction by order.
+     */
+    private boolean enabled = false;
+
+    /**
+     * Maximum number of orders created in one transaction.
+     */
+    private int maxBatchSize = 50;
+
+    /**
+     * Maximum wait of an order for other ones before its transaction starts, in milliseconds.
+     */
+    private long maxWait = 5;
+
+    /**
+     * Maximum wait of an order for its transaction, in milliseconds. An order not taken in a batch by then is created
+     * alone.
+     */
+    private long timeout = 10000;
+
+}
@@ -0,0 +1,20 @@
+package fr.polytech.melusine.configurations;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Data
+@ConfigurationProperties(prefix = "melusine.idempotency")
+public class IdempotencyProperties {
+
+    /**
+     * Time to live of a key in seconds.
+     */
+    private int timeToLive = 86400;
+
+    /**
+     * Maximum number of responses kept in memory.
+     */
+    private int maxSize = 10000;
+
+}
@@ -0,0 +1,40 @@
+package fr.polytech.melusine.configurations;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Data
+@ConfigurationProperties(prefix = "melusine.journal")
+public class JournalProperties {
+
+    /**
+     * Accept the orders in the journal and write them in the database in the background.
+     */
+    private boolean enabled = false;
+
+    /**
+     * Path of the journal file.
+     */
+    private String file = "/tmp/melusine-orders.journal";
+
+    /**
+     * Size of the journal file in bytes, the orders are created synchronously while it is full.
+     */
+    private int size = 64 * 1024 * 1024;
+
+    /**
+     * Interval between two syncs of the journal to the disk in milliseconds, the appends in between share the sync.
+     */
+    private long flushInterval = 5;
+
+    /**
+     * Maximum number of orders written in the database in one transaction.
+     */
+    private int batchSize = 50;
+
+    /**
+     * Wait of the writer when the journal is empty in milliseconds.
+     */
+    private long writerDelay = 100;
+
+}
@@ -0,0 +1,52 @@
+package fr.polytech.melusine.configurations;
+
+import fr.polytech.melusine.models.enums.Category;
+import fr.polytech.melusine.models.enums.KitchenStrategy;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+@Data
+@ConfigurationProperties(prefix = "melusine.kitchen")
+public class KitchenProperties {
+
+    /**
+     * Categories of the items prepared by each station, a station not listed here cannot claim items.
+     */
+    private Map<String, List<Category>> stations = new HashMap<>();
+
+    /**
+     * Time in seconds after which an item claimed by a station and still pending can be claimed again.
+     */
+    private long claimTimeout = 600;
+
+    /**
+     * Order in which the pending items are prepared.
+     */
+    private KitchenStrategy strategy = KitchenStrategy.FIFO;
+
+    /**
+     * Number of pending items considered by a claim for each item claimed, so that the strategy picks among them.
+     */
+    private int claimLookahead = 4;
+
+    /**
+     * Seconds of preparation a pending item gains for each second waited, so that a long item is not overtaken
+     * forever by shorter ones.
+     */
+    private double aging = 1.0;
+
+    /**
+     * Preparation time in seconds of a product without delivered items in the estimate window.
+     */
+    private long defaultPrepTime = 300;
+
+    /**
+     * Number of days of delivered items the preparation times are estimated from.
+     */
+    private int estimateWindow = 30;
+
+}
@@ -0,0 +1,16 @@
+package fr.polytech.melusine.configurations;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Data
+@ConfigurationProperties(prefix = "melusine.latency")
+public class LatencyProperties {
+
+    /**
+     * Number of days of a window of the latency histograms. The current and the previous windows are kept, so the
+     * percentiles cover between one and two windows.
+     */
+    private int window = 7;
+
+}
@@ -0,0 +1,15 @@
+package fr.polytech.melusine.configurations;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Data
+@ConfigurationProperties(prefix = "melusine.order-batch")
+public class OrderBatchProperties {
+
+    /**
+     * Maximum number of orders sent in one batch, created in one transaction.
+     */
+    private int maxSize = 100;
+
+}
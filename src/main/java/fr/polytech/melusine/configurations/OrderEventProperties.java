@@ -0,0 +1,30 @@
+package fr.polytech.melusine.configurations;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Data
+@ConfigurationProperties(prefix = "melusine.order-events")
+public class OrderEventProperties {
+
+    /**
+     * Number of threads applying the side effects of the orders.
+     */
+    private int poolSize = 2;
+
+    /**
+     * Maximum number of events waiting for a thread, the next ones are put in the dead letter table.
+     */
+    private int queueCapacity = 1000;
+
+    /**
+     * Number of attempts before an event is put in the dead letter table.
+     */
+    private int maxAttempts = 3;
+
+    /**
+     * Wait before the first retry in milliseconds, doubled at each retry.
+     */
+    private long backoff = 200;
+
+}
@@ -0,0 +1,26 @@
+package fr.polytech.melusine.configurations;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Data
+@ConfigurationProperties(prefix = "melusine.retry")
+public class RetryProperties {
+
+    /**
+     * Number of attempts of an update in conflict with a concurrent one.
+     */
+    private int maxAttempts = 5;
+
+    /**
+     * Maximum wait before the first retry in milliseconds, doubled at each retry. The wait is drawn at random below
+     * it, so that the writers in conflict do not retry at the same time.
+     */
+    private long backoff = 10;
+
+    /**
+     * Cap of the doubled wait in milliseconds.
+     */
+    private long maxBackoff = 200;
+
+}
@@ -98,6 +98,8 @@ public class SpringSecurityConfiguration extends WebSecurityConfigurerAdapter {
                 .antMatchers(HttpMethod.GET, "/favicon.ico").permitAll()
 
                 .antMatchers(HttpMethod.GET, "/orders/items").permitAll()
+                .antMatchers(HttpMethod.GET, "/orders/items/stream").permitAll()
+                .antMatchers(HttpMethod.GET, "/orders/items/count").permitAll()
 
                 // All other requests need to be authenticated
                 .anyRequest().authenticated().and()
@@ -12,6 +12,7 @@ import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.context.request.WebRequest;
 
 import javax.servlet.http.HttpServletResponse;
+import javax.validation.ConstraintViolationException;
 import java.nio.file.AccessDeniedException;
 
 @Slf4j
@@ -26,6 +27,14 @@ public class CustomExceptionHandler extends BaseExceptionHandler {
         return buildErrorMessageWithErrorCodeException(ex);
     }
 
+    @ExceptionHandler(ConstraintViolationException.class)
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    @ResponseBody
+    public ErrorMessage handleConstraintViolationException(ConstraintViolationException ex, WebRequest request, HttpServletResponse response) {
+        log.error("ConstraintViolationException in controller", ex);
+        return buildErrorMessageWithStatusAndException(HttpStatus.BAD_REQUEST, ex);
+    }
+
     @ExceptionHandler(UnauthorizedException.class)
     @ResponseStatus(HttpStatus.UNAUTHORIZED)
     @ResponseBody
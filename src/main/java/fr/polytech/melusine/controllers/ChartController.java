@@ -1,12 +1,15 @@
 package fr.polytech.melusine.controllers;
 
 import fr.polytech.melusine.models.dtos.requests.ChartRequest;
+import fr.polytech.melusine.models.dtos.requests.SalesRequest;
 import fr.polytech.melusine.models.dtos.responses.ChartResponse;
+import fr.polytech.melusine.models.dtos.responses.SalesResponse;
 import fr.polytech.melusine.services.ChartService;
 import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.*;
 
 import javax.validation.Valid;
+import java.util.List;
 
 @RestController
 @RequestMapping(path = "/charts", produces = "application/json; charset=UTF-8")
@@ -30,4 +33,10 @@ public class ChartController {
         return chartService.findConsumptionsChart(chartRequest);
     }
 
+    @PostMapping(path = "/sales")
+    @ResponseStatus(HttpStatus.OK)
+    public List<SalesResponse> findSales(@RequestBody @Valid SalesRequest salesRequest) {
+        return chartService.findSales(salesRequest);
+    }
+
 }
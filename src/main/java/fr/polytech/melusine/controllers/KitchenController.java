@@ -0,0 +1,48 @@
+package fr.polytech.melusine.controllers;
+
+import fr.polytech.melusine.models.dtos.responses.LatencyResponse;
+import fr.polytech.melusine.models.dtos.responses.OrderItemResponse;
+import fr.polytech.melusine.models.enums.Category;
+import fr.polytech.melusine.models.enums.OrderStatus;
+import fr.polytech.melusine.services.KitchenService;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+@RequestMapping(path = "/kitchen", produces = "application/json; charset=UTF-8")
+public class KitchenController {
+
+    private final KitchenService kitchenService;
+
+    public KitchenController(KitchenService kitchenService) {
+        this.kitchenService = kitchenService;
+    }
+
+    @GetMapping(path = "/queue")
+    @ResponseStatus(HttpStatus.OK)
+    public List<OrderItemResponse> getQueue() {
+        return kitchenService.getQueue();
+    }
+
+    @GetMapping(path = "/latencies")
+    @ResponseStatus(HttpStatus.OK)
+    public List<LatencyResponse> getLatencies(
+            @RequestParam(defaultValue = "DELIVER") OrderStatus status,
+            @RequestParam(required = false) Category category,
+            @RequestParam(required = false) String productId
+    ) {
+        return kitchenService.getLatencies(status, category, productId);
+    }
+
+    @PostMapping(path = "/stations/{station}/claims")
+    @ResponseStatus(HttpStatus.OK)
+    public List<OrderItemResponse> claimOrderItems(
+            @PathVariable String station,
+            @RequestParam(defaultValue = "5") int size
+    ) {
+        return kitchenService.claimOrderItems(station, size);
+    }
+
+}
@@ -1,42 +1,99 @@
 package fr.polytech.melusine.controllers;
 
+import fr.polytech.melusine.components.IdempotencyCache;
+import fr.polytech.melusine.components.OrderGroupCommit;
+import fr.polytech.melusine.components.OrderItemStream;
+import fr.polytech.melusine.components.OrderJournal;
 import fr.polytech.melusine.models.dtos.requests.OrderItemRequest;
+import fr.polytech.melusine.models.dtos.requests.OrderItemsRequest;
 import fr.polytech.melusine.models.dtos.requests.OrderRequest;
+import fr.polytech.melusine.models.dtos.responses.CountResponse;
+import fr.polytech.melusine.models.dtos.responses.JournalStatusResponse;
+import fr.polytech.melusine.models.dtos.responses.JournaledOrderResponse;
+import fr.polytech.melusine.models.dtos.responses.OrderBatchResponse;
 import fr.polytech.melusine.models.dtos.responses.OrderItemResponse;
 import fr.polytech.melusine.models.dtos.responses.OrderResponse;
+import fr.polytech.melusine.models.dtos.responses.SliceResponse;
 import fr.polytech.melusine.services.OrderService;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.web.PageableDefault;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import javax.validation.Valid;
 import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
 
+@Validated
 @RestController
 @RequestMapping(path = "/orders", produces = "application/json; charset=UTF-8")
 public class OrderController {
 
+    private static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+
     private final OrderService orderService;
+    private final IdempotencyCache idempotencyCache;
+    private final OrderItemStream orderItemStream;
+    private final OrderJournal orderJournal;
+    private final OrderGroupCommit orderGroupCommit;
 
-    public OrderController(OrderService orderService) {
+    public OrderController(OrderService orderService, IdempotencyCache idempotencyCache, OrderItemStream orderItemStream,
+                           OrderJournal orderJournal, OrderGroupCommit orderGroupCommit) {
         this.orderService = orderService;
+        this.idempotencyCache = idempotencyCache;
+        this.orderItemStream = orderItemStream;
+        this.orderJournal = orderJournal;
+        this.orderGroupCommit = orderGroupCommit;
     }
 
+    /**
+     * Create an order, or accept it in the journal if no idempotency key is given: the response is then 202 with the
+     * order id, and the created order is given by {@link #getJournaledOrder(String)}.
+     */
     @PostMapping
-    @ResponseStatus(HttpStatus.CREATED)
-    public OrderResponse createOrder(@RequestBody @Valid OrderRequest orderRequest) {
-        return orderService.createOrder(orderRequest);
+    public ResponseEntity<Object> createOrder(
+            @RequestHeader(name = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey,
+            @RequestBody @Valid OrderRequest orderRequest
+    ) {
+        if (Objects.nonNull(idempotencyKey) && !idempotencyKey.isBlank()) {
+            return ResponseEntity.status(HttpStatus.CREATED)
+                    .body(idempotencyCache.getOrCompute(idempotencyKey, () -> orderService.createOrder(orderRequest, idempotencyKey)));
+        }
+        Optional<JournaledOrderResponse> accepted = orderService.journalOrder(orderRequest);
+        if (accepted.isPresent()) {
+            return ResponseEntity.accepted().body(accepted.get());
+        }
+        return ResponseEntity.status(HttpStatus.CREATED)
+                .body(orderGroupCommit.isEnabled() ?
+                        orderGroupCommit.createOrder(orderRequest) :
+                        orderService.createOrder(orderRequest));
+    }
+
+    @PostMapping(path = "/batch")
+    @ResponseStatus(HttpStatus.OK)
+    public List<OrderBatchResponse> createOrders(@RequestBody @Valid List<OrderRequest> orderRequests) {
+        return orderService.createOrders(orderRequests);
     }
 
     @PostMapping(path = "/items/{itemId}")
     @ResponseStatus(HttpStatus.OK)
-    public void updateOrderStatus(@PathVariable String itemId, @RequestBody OrderItemRequest request) {
+    public void updateOrderStatus(@PathVariable String itemId, @RequestBody @Valid OrderItemRequest request) {
         orderService.updateOrderStatus(itemId, request);
     }
 
+    @PostMapping(path = "/items")
+    @ResponseStatus(HttpStatus.OK)
+    public void updateOrderItemsStatus(@RequestBody @Valid OrderItemsRequest request) {
+        orderService.updateOrderItemsStatus(request);
+    }
+
     @GetMapping(path = "/items")
     @ResponseStatus(HttpStatus.OK)
     public Page<OrderItemResponse> getOrderItems(
@@ -45,6 +102,38 @@ public class OrderController {
         return orderService.getOrderItems(pageable);
     }
 
+    @GetMapping(path = "/items", params = "cursor")
+    @ResponseStatus(HttpStatus.OK)
+    public SliceResponse<OrderItemResponse> getOrderItems(
+            @RequestParam String cursor,
+            @RequestParam(defaultValue = "20") int size
+    ) {
+        return orderService.getOrderItems(cursor, size);
+    }
+
+    @GetMapping(path = "/items/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamOrderItems() {
+        return orderItemStream.subscribe(orderService::getPendingOrderItems);
+    }
+
+    @GetMapping(path = "/items/count")
+    @ResponseStatus(HttpStatus.OK)
+    public CountResponse countPendingOrderItems() {
+        return orderService.countPendingOrderItems();
+    }
+
+    @GetMapping(path = "/journal")
+    @ResponseStatus(HttpStatus.OK)
+    public JournalStatusResponse getJournalStatus() {
+        return orderJournal.getStatus();
+    }
+
+    @GetMapping(path = "/journal/{orderId}")
+    @ResponseStatus(HttpStatus.OK)
+    public JournaledOrderResponse getJournaledOrder(@PathVariable String orderId) {
+        return orderService.getJournaledOrder(orderId);
+    }
+
     @GetMapping(path = "/items/{userId}")
     @ResponseStatus(HttpStatus.OK)
     public List<OrderItemResponse> getLastOrderItemsByUser(
@@ -53,6 +142,16 @@ public class OrderController {
         return orderService.getLastOrderItemsByUserId(userId);
     }
 
+    @GetMapping(path = "/items/{userId}", params = "cursor")
+    @ResponseStatus(HttpStatus.OK)
+    public SliceResponse<OrderItemResponse> getOrderItemsByUser(
+            @PathVariable String userId,
+            @RequestParam String cursor,
+            @RequestParam(defaultValue = "20") int size
+    ) {
+        return orderService.getOrderItemsByUserId(userId, cursor, size);
+    }
+
     @GetMapping(path = "/items/last")
     @ResponseStatus(HttpStatus.OK)
     public Page<OrderItemResponse> getLastOrderItems(
@@ -61,4 +160,13 @@ public class OrderController {
         return orderService.getLastOrderItems(pageable);
     }
 
+    @GetMapping(path = "/items/last", params = "cursor")
+    @ResponseStatus(HttpStatus.OK)
+    public SliceResponse<OrderItemResponse> getLastOrderItems(
+            @RequestParam String cursor,
+            @RequestParam(defaultValue = "20") int size
+    ) {
+        return orderService.getLastOrderItems(cursor, size);
+    }
+
 }
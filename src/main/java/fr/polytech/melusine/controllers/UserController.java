@@ -2,6 +2,7 @@ package fr.polytech.melusine.controllers;
 
 import fr.polytech.melusine.models.dtos.requests.UserRegistrationRequest;
 import fr.polytech.melusine.models.dtos.requests.UserUpdateRequest;
+import fr.polytech.melusine.models.dtos.responses.SliceResponse;
 import fr.polytech.melusine.models.dtos.responses.UserResponse;
 import fr.polytech.melusine.services.UserService;
 import org.springframework.data.domain.Page;
@@ -40,6 +41,15 @@ public class UserController {
         return userService.getUsers(pageable);
     }
 
+    @GetMapping(params = "cursor")
+    @ResponseStatus(HttpStatus.OK)
+    public SliceResponse<UserResponse> getUsers(
+            @RequestParam String cursor,
+            @RequestParam(defaultValue = "20") int size
+    ) {
+        return userService.getUsers(cursor, size);
+    }
+
     @PatchMapping(path = "/{id}")
     @ResponseStatus(HttpStatus.OK)
     public UserResponse creditUser(@PathVariable String id, @RequestBody @Valid UserUpdateRequest request) {
@@ -54,6 +64,16 @@ public class UserController {
         return userService.searchUser(name, pageable);
     }
 
+    @GetMapping(path = "/search", params = "cursor")
+    @ResponseStatus(HttpStatus.OK)
+    public SliceResponse<UserResponse> searchUser(
+            @RequestParam @Size(min = 3, max = 50) String name,
+            @RequestParam String cursor,
+            @RequestParam(defaultValue = "20") int size
+    ) {
+        return userService.searchUser(name, cursor, size);
+    }
+
     @PutMapping(path = "/{id}")
     @ResponseStatus(HttpStatus.OK)
     public UserResponse updateUser(@PathVariable String id, @RequestBody @Valid UserUpdateRequest request) {
@@ -0,0 +1,33 @@
+package fr.polytech.melusine.exceptions.errors;
+
+public enum ConcurrencyError implements ErrorCode {
+
+    CONCURRENT_UPDATE("CO0001", "%s avec l'ID : %s a été modifié en même temps, veuillez réessayer");
+
+    private final String code;
+    private final String description;
+
+    ConcurrencyError(String code, String description) {
+        this.code = code;
+        this.description = description;
+    }
+
+    @Override
+    public String getCode() {
+        return code;
+    }
+
+    @Override
+    public String getDescription() {
+        return description;
+    }
+
+    @Override
+    public String toString() {
+        return "ConcurrencyError{" +
+                "code='" + code + '\'' +
+                ", description='" + description + '\'' +
+                '}';
+    }
+
+}
@@ -5,7 +5,15 @@ public enum OrderError implements ErrorCode {
     INVALID_ORDER("OR0001", "La commande n'a pas d'item"),
     ORDER_NOT_FOUND("OR0002", "La commande avec l'ID : %s est introuvable"),
     ORDER_ITEM_NOT_FOUND("OR0003", "L'item de commande avec l'ID : %s est introuvable"),
-    ORDER_ITEM_WRONG_STATUS("OR0004", "L'item de commande avec l'ID : %s est déjà dans ce statut : %s");
+    ORDER_ITEM_WRONG_STATUS("OR0004", "L'item de commande avec l'ID : %s est déjà dans ce statut : %s"),
+    IDEMPOTENCY_KEY_CONFLICT("OR0005", "Une commande avec la clé d'idempotence : %s est déjà en cours de création"),
+    LATENCY_WRONG_STATUS("OR0006", "Les latences ne sont mesurées que vers les statuts DELIVER et CANCEL : %s"),
+    SALES_TOO_MANY_GROUPS("OR0007", "Le découpage des ventes demandé produit trop de groupes : %s"),
+    BATCH_TOO_LARGE("OR0008", "Le lot contient %s commandes, le maximum est : %s"),
+    ORDER_ITEMS_WRONG_STATUS("OR0009", "Plusieurs items de commande ne peuvent être passés qu'aux statuts DELIVER et CANCEL : %s"),
+    GROUP_COMMIT_TIMEOUT("OR0010", "La commande n'a pas été enregistrée dans le délai de %s ms, son statut est inconnu"),
+    ORDER_ITEM_STATUS_CONFLICT("OR0011", "Les items de commande : %s ont changé de statut pendant la mise à jour"),
+    KITCHEN_UNKNOWN_STATION("OR0012", "La station : %s n'est pas configurée, les stations sont : %s");
 
     private final String code;
     private final String description;
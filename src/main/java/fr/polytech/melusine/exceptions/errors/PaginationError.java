@@ -0,0 +1,33 @@
+package fr.polytech.melusine.exceptions.errors;
+
+public enum PaginationError implements ErrorCode {
+
+    INVALID_CURSOR("PA0001", "Le curseur : %s est invalide");
+
+    private final String code;
+    private final String description;
+
+    PaginationError(String code, String description) {
+        this.code = code;
+        this.description = description;
+    }
+
+    @Override
+    public String getCode() {
+        return code;
+    }
+
+    @Override
+    public String getDescription() {
+        return description;
+    }
+
+    @Override
+    public String toString() {
+        return "PaginationError{" +
+                "code='" + code + '\'' +
+                ", description='" + description + '\'' +
+                '}';
+    }
+
+}
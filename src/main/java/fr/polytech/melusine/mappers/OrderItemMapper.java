@@ -1,14 +1,10 @@
 package fr.polytech.melusine.mappers;
 
-import fr.polytech.melusine.models.charts.OrderItemPoint;
 import fr.polytech.melusine.models.dtos.responses.OrderItemResponse;
-import fr.polytech.melusine.models.entities.Ingredient;
 import fr.polytech.melusine.models.entities.OrderItem;
-import fr.polytech.melusine.models.enums.Category;
+import fr.polytech.melusine.models.projections.OrderItemRow;
 import org.springframework.stereotype.Component;
 
-import java.util.stream.Collectors;
-
 import static fr.polytech.melusine.utils.MoneyFormatter.formatToDouble;
 
 @Component
@@ -17,9 +13,11 @@ public class OrderItemMapper {
     public OrderItemResponse mapToOrderItemResponse(OrderItem orderItem) {
         return OrderItemResponse.builder()
                 .id(orderItem.getId())
-                .productName(orderItem.getProduct().getName())
+                .productId(orderItem.getProduct().getId())
+                .productName(orderItem.getProductName())
+                .category(orderItem.getCategory())
                 .clientName(orderItem.getOrder().getClientName())
-                .ingredients(orderItem.getProduct().getIngredients().stream().map(Ingredient::getName).distinct().collect(Collectors.toList()))
+                .ingredients(orderItem.getIngredientNames())
                 .price(formatToDouble(orderItem.getPrice()))
                 .orderId(orderItem.getOrder().getId())
                 .status(orderItem.getStatus())
@@ -28,17 +26,19 @@ public class OrderItemMapper {
                 .build();
     }
 
-    public OrderItemPoint mapToOrderItemPoint(OrderItem orderItem) {
-        if (orderItem.getProduct().getCategory().equals(Category.CUSTOM)) {
-            return OrderItemPoint.builder()
-                    .ordinate(orderItem.getUpdatedAt())
-                    .abscissa(orderItem.getProduct().getCategory().toString())
-                    .build();
-        }
-
-        return OrderItemPoint.builder()
-                .ordinate(orderItem.getUpdatedAt())
-                .abscissa(orderItem.getProduct().getName())
+    public OrderItemResponse mapToOrderItemResponse(OrderItemRow orderItemRow) {
+        return OrderItemResponse.builder()
+                .id(orderItemRow.getId())
+                .productId(orderItemRow.getProductId())
+                .productName(orderItemRow.getProductName())
+                .category(orderItemRow.getCategory())
+                .clientName(orderItemRow.getClientName())
+                .ingredients(orderItemRow.getIngredientNames())
+                .price(formatToDouble(orderItemRow.getPrice()))
+                .orderId(orderItemRow.getOrderId())
+                .status(orderItemRow.getStatus())
+                .createdAt(orderItemRow.getCreatedAt())
+                .updatedAt(orderItemRow.getUpdatedAt())
                 .build();
     }
 
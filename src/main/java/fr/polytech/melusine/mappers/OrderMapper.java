@@ -1,6 +1,5 @@
 package fr.polytech.melusine.mappers;
 
-import fr.polytech.melusine.models.charts.OrderPoint;
 import fr.polytech.melusine.models.dtos.responses.OrderResponse;
 import fr.polytech.melusine.models.entities.Order;
 import org.springframework.stereotype.Component;
@@ -21,11 +20,4 @@ public class OrderMapper {
                 .build();
     }
 
-    public OrderPoint mapToOrderPoint(Order order) {
-        return OrderPoint.builder()
-                .ordinate(order.getTotal())
-                .abscissa(order.getUpdatedAt())
-                .build();
-    }
-
 }
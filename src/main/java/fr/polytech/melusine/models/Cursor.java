@@ -0,0 +1,28 @@
+package fr.polytech.melusine.models;
+
+import fr.polytech.melusine.exceptions.BadRequestException;
+import fr.polytech.melusine.exceptions.errors.PaginationError;
+import lombok.Value;
+
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeParseException;
+
+/**
+ * The position of the last row of a slice: the value of the sort column and the id of the row.
+ */
+@Value
+public class Cursor {
+
+    String value;
+
+    String id;
+
+    public OffsetDateTime getDateTimeValue() {
+        try {
+            return OffsetDateTime.parse(value);
+        } catch (DateTimeParseException e) {
+            throw new BadRequestException(PaginationError.INVALID_CURSOR, value);
+        }
+    }
+
+}
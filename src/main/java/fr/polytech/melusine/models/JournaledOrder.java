@@ -0,0 +1,26 @@
+package fr.polytech.melusine.models;
+
+import lombok.Builder;
+import lombok.Value;
+
+import java.time.OffsetDateTime;
+import java.util.List;
+
+/**
+ * An order accepted in the order journal, not yet written in the database.
+ */
+@Value
+@Builder
+public class JournaledOrder {
+
+    String orderId;
+
+    String name;
+
+    String userId;
+
+    List<String> items;
+
+    OffsetDateTime createdAt;
+
+}
@@ -0,0 +1,140 @@
+package fr.polytech.melusine.models.charts;
+
+import java.time.DayOfWeek;
+import java.time.Month;
+import java.time.OffsetDateTime;
+import java.time.format.TextStyle;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import static fr.polytech.melusine.utils.MoneyFormatter.formatToDouble;
+
+/**
+ * The sums of a chart by bucket of its interval, in one array indexed by the fields of the dates: adding a value does
+ * not allocate, the labels are only built for the buckets with values.
+ * <p>
+ * The buckets merge the dates with the same label: the same month of two years, the same day of the week and of the
+ * month of two months.
+ */
+public final class ChartBuckets {
+
+    private static final String[] MONTHS = new String[12];
+    private static final String[] DAYS_OF_WEEK = new String[7];
+    private static final int DAYS_OF_MONTH = 31;
+
+    static {
+        for (Month month : Month.values()) {
+            MONTHS[month.ordinal()] = month.getDisplayName(TextStyle.FULL, Locale.FRANCE);
+        }
+        for (DayOfWeek dayOfWeek : DayOfWeek.values()) {
+            DAYS_OF_WEEK[dayOfWeek.ordinal()] = dayOfWeek.getDisplayName(TextStyle.FULL, Locale.FRANCE);
+        }
+    }
+
+    private final ChartInterval interval;
+    private final int firstYear;
+    private final long[] sums;
+    private final boolean[] filled;
+
+    /**
+     * The buckets of a chart between the dates. The decades have one more year on each side, for the dates read with
+     * another offset.
+     *
+     * @param interval the interval of the chart
+     * @param start    the start date
+     * @param end      the end date
+     */
+    public ChartBuckets(ChartInterval interval, OffsetDateTime start, OffsetDateTime end) {
+        this.interval = interval;
+        this.firstYear = start.getYear() - 1;
+        int size = getSize(interval, end.getYear() - firstYear + 2);
+        this.sums = new long[size];
+        this.filled = new boolean[size];
+    }
+
+    private static int getSize(ChartInterval interval, int years) {
+        switch (interval) {
+            case DECADE:
+                return years;
+            case YEAR:
+                return MONTHS.length;
+            case MONTH:
+            case WEEK:
+                return DAYS_OF_MONTH * DAYS_OF_WEEK.length;
+            default:
+                return 24;
+        }
+    }
+
+    /**
+     * Add a value to the bucket of the date, a date out of the buckets is ignored.
+     *
+     * @param date  the date
+     * @param value the value, in cents
+     */
+    public void add(OffsetDateTime date, long value) {
+        int bucket = getBucket(date);
+        if (bucket < 0 || bucket >= sums.length) {
+            return;
+        }
+        sums[bucket] += value;
+        filled[bucket] = true;
+    }
+
+    private int getBucket(OffsetDateTime date) {
+        switch (interval) {
+            case DECADE:
+                return date.getYear() - firstYear;
+            case YEAR:
+                return date.getMonthValue() - 1;
+            case MONTH:
+            case WEEK:
+                return (date.getDayOfMonth() - 1) * DAYS_OF_WEEK.length + date.getDayOfWeek().ordinal();
+            default:
+                return date.getHour();
+        }
+    }
+
+    /**
+     * Get a point by bucket with values, in the order of the buckets.
+     *
+     * @return the points
+     */
+    public List<ChartPoint> getPoints() {
+        List<ChartPoint> points = new ArrayList<>();
+        for (int bucket = 0; bucket < sums.length; bucket++) {
+            if (filled[bucket]) {
+                points.add(getPoint(bucket, formatToDouble(sums[bucket])));
+            }
+        }
+        return points;
+    }
+
+    private ChartPoint getPoint(int bucket, Double ordinate) {
+        switch (interval) {
+            case DECADE:
+                return ChartPointInteger.builder()
+                        .ordinate(ordinate)
+                        .abscissa(firstYear + bucket)
+                        .build();
+            case YEAR:
+                return ChartPointString.builder()
+                        .ordinate(ordinate)
+                        .abscissa(MONTHS[bucket])
+                        .build();
+            case MONTH:
+            case WEEK:
+                return ChartPointString.builder()
+                        .ordinate(ordinate)
+                        .abscissa(DAYS_OF_WEEK[bucket % DAYS_OF_WEEK.length] + " " + (bucket / DAYS_OF_WEEK.length + 1))
+                        .build();
+            default:
+                return ChartPointInteger.builder()
+                        .ordinate(ordinate)
+                        .abscissa(bucket)
+                        .build();
+        }
+    }
+
+}
@@ -0,0 +1,20 @@
+package fr.polytech.melusine.models.dtos.requests;
+
+import fr.polytech.melusine.models.enums.OrderStatus;
+import lombok.Data;
+
+import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Size;
+import java.util.List;
+
+@Data
+public class OrderItemsRequest {
+
+    @NotNull
+    @Size(min = 1)
+    private List<String> itemIds;
+
+    @NotNull
+    private OrderStatus status;
+
+}
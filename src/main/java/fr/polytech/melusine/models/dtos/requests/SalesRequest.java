@@ -0,0 +1,35 @@
+package fr.polytech.melusine.models.dtos.requests;
+
+import fr.polytech.melusine.models.enums.Category;
+import fr.polytech.melusine.models.enums.SalesDimension;
+import fr.polytech.melusine.models.enums.Section;
+import lombok.Builder;
+import lombok.Data;
+
+import java.time.OffsetDateTime;
+import java.util.List;
+
+/**
+ * A slice of the delivered items, the filters left empty keep all the items.
+ */
+@Data
+@Builder
+public class SalesRequest {
+
+    OffsetDateTime from;
+
+    OffsetDateTime to;
+
+    List<Section> sections;
+
+    Boolean membership;
+
+    List<Category> categories;
+
+    List<String> productIds;
+
+    List<Integer> hours;
+
+    List<SalesDimension> groupBy;
+
+}
@@ -0,0 +1,12 @@
+package fr.polytech.melusine.models.dtos.responses;
+
+import lombok.Builder;
+import lombok.Data;
+
+@Data
+@Builder
+public class CountResponse {
+
+    private long count;
+
+}
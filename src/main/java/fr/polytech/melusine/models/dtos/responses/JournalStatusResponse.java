@@ -0,0 +1,19 @@
+package fr.polytech.melusine.models.dtos.responses;
+
+import lombok.Builder;
+import lombok.Data;
+
+@Data
+@Builder
+public class JournalStatusResponse {
+
+    private boolean enabled;
+
+    private long pendingOrders;
+
+    /**
+     * Age of the oldest order not written in the database yet, in milliseconds.
+     */
+    private long lag;
+
+}
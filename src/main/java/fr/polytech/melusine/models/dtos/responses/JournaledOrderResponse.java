@@ -0,0 +1,25 @@
+package fr.polytech.melusine.models.dtos.responses;
+
+import fr.polytech.melusine.models.enums.JournaledOrderStatus;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NonNull;
+
+/**
+ * An order accepted in the journal: the created order once written in the database, or the error if it was refused.
+ */
+@Data
+@Builder
+public class JournaledOrderResponse {
+
+    @NonNull
+    private String id;
+
+    @NonNull
+    private JournaledOrderStatus status;
+
+    private OrderResponse order;
+
+    private String error;
+
+}
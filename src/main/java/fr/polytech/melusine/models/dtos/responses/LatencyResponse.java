@@ -0,0 +1,20 @@
+package fr.polytech.melusine.models.dtos.responses;
+
+import lombok.Builder;
+import lombok.Data;
+
+@Data
+@Builder
+public class LatencyResponse {
+
+    private int hour;
+
+    private long count;
+
+    private long p50;
+
+    private long p90;
+
+    private long p99;
+
+}
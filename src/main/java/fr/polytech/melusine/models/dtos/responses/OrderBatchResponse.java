@@ -0,0 +1,18 @@
+package fr.polytech.melusine.models.dtos.responses;
+
+import fr.polytech.melusine.exceptions.errors.ErrorMessage;
+import lombok.Builder;
+import lombok.Data;
+
+/**
+ * The result of one order of a batch, either the created order or the error.
+ */
+@Data
+@Builder
+public class OrderBatchResponse {
+
+    private OrderResponse order;
+
+    private ErrorMessage error;
+
+}
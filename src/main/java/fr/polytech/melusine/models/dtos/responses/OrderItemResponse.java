@@ -1,5 +1,6 @@
 package fr.polytech.melusine.models.dtos.responses;
 
+import fr.polytech.melusine.models.enums.Category;
 import fr.polytech.melusine.models.enums.OrderStatus;
 import lombok.Builder;
 import lombok.Data;
@@ -15,8 +16,12 @@ public class OrderItemResponse {
 
     private String orderId;
 
+    private String productId;
+
     private String productName;
 
+    private Category category;
+
     private String clientName;
 
     private List<String> ingredients;
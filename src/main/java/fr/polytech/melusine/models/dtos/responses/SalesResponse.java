@@ -0,0 +1,19 @@
+package fr.polytech.melusine.models.dtos.responses;
+
+import fr.polytech.melusine.models.enums.SalesDimension;
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.Map;
+
+@Data
+@Builder
+public class SalesResponse {
+
+    private Map<SalesDimension, String> group;
+
+    private long count;
+
+    private double revenue;
+
+}
@@ -0,0 +1,19 @@
+package fr.polytech.melusine.models.dtos.responses;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * A slice of rows without total, the next cursor is null on the last slice.
+ */
+@Data
+@Builder
+public class SliceResponse<T> {
+
+    private List<T> content;
+
+    private String nextCursor;
+
+}
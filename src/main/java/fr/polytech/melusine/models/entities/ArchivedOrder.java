@@ -0,0 +1,38 @@
+package fr.polytech.melusine.models.entities;
+
+import fr.polytech.melusine.models.enums.OrderStatus;
+import lombok.*;
+
+import javax.persistence.*;
+import java.time.OffsetDateTime;
+
+/**
+ * An order moved out of the hot tables by the archiver, without any foreign key so that its table can be partitioned.
+ */
+@Entity
+@Table(name = "orders_archive", indexes = @Index(columnList = "userId"))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder(toBuilder = true)
+public class ArchivedOrder {
+
+    @Id
+    private String id;
+
+    private String clientName;
+
+    private String userId;
+
+    private long total;
+
+    @Enumerated(EnumType.STRING)
+    private OrderStatus status;
+
+    @NonNull
+    private OffsetDateTime createdAt;
+
+    @NonNull
+    private OffsetDateTime updatedAt;
+
+}
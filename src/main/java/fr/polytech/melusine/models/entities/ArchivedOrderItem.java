@@ -0,0 +1,50 @@
+package fr.polytech.melusine.models.entities;
+
+import fr.polytech.melusine.models.entities.converters.StringListConverter;
+import fr.polytech.melusine.models.enums.Category;
+import fr.polytech.melusine.models.enums.OrderStatus;
+import lombok.*;
+
+import javax.persistence.*;
+import java.time.OffsetDateTime;
+import java.util.List;
+
+/**
+ * An item of an archived order.
+ */
+@Entity
+@Table(name = "order_items_archive", indexes = @Index(columnList = "orderId"))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder(toBuilder = true)
+public class ArchivedOrderItem {
+
+    @Id
+    private String id;
+
+    private long price;
+
+    private String productId;
+
+    private String orderId;
+
+    private String productName;
+
+    @Enumerated(EnumType.STRING)
+    private Category category;
+
+    @Convert(converter = StringListConverter.class)
+    @Column(length = 1000)
+    private List<String> ingredientNames;
+
+    @Enumerated(EnumType.STRING)
+    private OrderStatus status;
+
+    @NonNull
+    private OffsetDateTime createdAt;
+
+    @NonNull
+    private OffsetDateTime updatedAt;
+
+}
@@ -0,0 +1,46 @@
+package fr.polytech.melusine.models.entities;
+
+import lombok.*;
+import org.hibernate.annotations.GenericGenerator;
+
+import javax.persistence.*;
+import java.time.OffsetDateTime;
+
+/**
+ * An order event whose side effects could not be applied after all the attempts, kept to be replayed by hand.
+ */
+@Entity
+@Table(name = "dead_letter_events")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder(toBuilder = true)
+public class DeadLetterEvent {
+
+    @Id
+    @GeneratedValue(generator = "uuid2")
+    @GenericGenerator(name = "uuid2", strategy = "uuid2")
+    private String id;
+
+    @NonNull
+    private String type;
+
+    /**
+     * The id of the order refused by the journal writer, null for the other events.
+     */
+    @Column(unique = true)
+    private String orderId;
+
+    @Lob
+    @NonNull
+    private String payload;
+
+    @Column(length = 1000)
+    private String error;
+
+    private int attempts;
+
+    @NonNull
+    private OffsetDateTime createdAt;
+
+}
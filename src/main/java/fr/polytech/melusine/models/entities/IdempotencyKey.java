@@ -0,0 +1,50 @@
+package fr.polytech.melusine.models.entities;
+
+import lombok.*;
+import org.springframework.data.domain.Persistable;
+
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.PostLoad;
+import javax.persistence.PostPersist;
+import javax.persistence.Table;
+import javax.persistence.Transient;
+import java.time.OffsetDateTime;
+
+/**
+ * The idempotency key sent with an order creation, shared by all the instances of the application.
+ * <p>
+ * A key is always new until it is inserted or loaded, so that saving it inserts it without reading it first, and
+ * the insertion of a key already claimed fails on its primary key.
+ */
+@Entity
+@Table(name = "idempotency_keys")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder(toBuilder = true)
+public class IdempotencyKey implements Persistable<String> {
+
+    @Id
+    private String id;
+
+    /**
+     * The created order, null while the order of the key is being created.
+     */
+    private String orderId;
+
+    @NonNull
+    private OffsetDateTime createdAt;
+
+    @Transient
+    @Builder.Default
+    @EqualsAndHashCode.Exclude
+    private boolean isNew = true;
+
+    @PostLoad
+    @PostPersist
+    void markNotNew() {
+        this.isNew = false;
+    }
+
+}
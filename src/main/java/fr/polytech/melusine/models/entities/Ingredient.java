@@ -34,6 +34,9 @@ public class Ingredient {
 
     private boolean isDeleted;
 
+    @Version
+    private long version;
+
     @NonNull
     private OffsetDateTime createdAt;
 
@@ -18,7 +18,7 @@ public class Order {
 
     @Id
     @GeneratedValue(generator = "uuid2")
-    @GenericGenerator(name = "uuid2", strategy = "uuid2")
+    @GenericGenerator(name = "uuid2", strategy = "fr.polytech.melusine.models.entities.generators.AssignedOrUuidGenerator")
     private String id;
 
     private String clientName;
@@ -33,6 +33,18 @@ public class Order {
     @Enumerated(EnumType.STRING)
     private OrderStatus status;
 
+    /**
+     * Number of items by status, updated with each item transition so that the status is derived without the items.
+     */
+    @Builder.Default
+    private int pendingCount = 0;
+
+    @Builder.Default
+    private int deliveredCount = 0;
+
+    @Builder.Default
+    private int cancelledCount = 0;
+
     @OneToMany(mappedBy = "order")
     private List<OrderItem> items;
 
@@ -1,14 +1,20 @@
 package fr.polytech.melusine.models.entities;
 
+import fr.polytech.melusine.models.entities.converters.StringListConverter;
+import fr.polytech.melusine.models.enums.Category;
 import fr.polytech.melusine.models.enums.OrderStatus;
 import lombok.*;
 import org.hibernate.annotations.GenericGenerator;
 
 import javax.persistence.*;
 import java.time.OffsetDateTime;
+import java.util.List;
 
 @Entity
-@Table(name = "order_items")
+@Table(name = "order_items", indexes = {
+        @Index(name = "order_items_user_created_at_status", columnList = "userId, createdAt, status"),
+        @Index(name = "order_items_status_created_at", columnList = "status, createdAt")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -26,13 +32,38 @@ public class OrderItem {
     @JoinColumn(name = "product_id", nullable = false)
     private Product product;
 
+    /**
+     * Snapshot of the product at the creation of the item, so that the item is displayed without the product and
+     * keeps its name when the product is edited.
+     */
+    private String productName;
+
+    @Enumerated(EnumType.STRING)
+    private Category category;
+
+    @Convert(converter = StringListConverter.class)
+    @Column(length = 1000)
+    private List<String> ingredientNames;
+
     @ManyToOne
     @JoinColumn(name = "order_id", nullable = false)
     private Order order;
 
+    /**
+     * Copy of the user of the order, so that the history of a user is read from the items and their index alone.
+     */
+    private String userId;
+
     @Enumerated(EnumType.STRING)
     private OrderStatus status;
 
+    /**
+     * Kitchen station preparing the item, the claim lapses after a timeout if the item is still pending.
+     */
+    private String claimedBy;
+
+    private OffsetDateTime claimedAt;
+
     @NonNull
     private OffsetDateTime createdAt;
 
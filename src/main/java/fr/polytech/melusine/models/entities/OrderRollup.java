@@ -0,0 +1,24 @@
+package fr.polytech.melusine.models.entities;
+
+import lombok.*;
+
+import javax.persistence.*;
+import java.time.OffsetDateTime;
+
+/**
+ * The orders created during an hour, kept up to date with each created order.
+ */
+@Entity
+@Table(name = "order_rollups")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder(toBuilder = true)
+public class OrderRollup {
+
+    @Id
+    private OffsetDateTime hourStart;
+
+    private long orderCount;
+
+}
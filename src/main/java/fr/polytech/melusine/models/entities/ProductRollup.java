@@ -0,0 +1,53 @@
+package fr.polytech.melusine.models.entities;
+
+import fr.polytech.melusine.models.enums.Category;
+import lombok.*;
+
+import javax.persistence.*;
+import java.io.Serializable;
+import java.time.OffsetDateTime;
+
+/**
+ * The items of a product delivered and cancelled during an hour, by creation date, kept up to date with each status
+ * change so that the charts sum these rows instead of reading the items.
+ */
+@Entity
+@Table(name = "product_rollups", indexes = @Index(columnList = "hourStart, category"))
+@IdClass(ProductRollup.Key.class)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder(toBuilder = true)
+public class ProductRollup {
+
+    @Id
+    private OffsetDateTime hourStart;
+
+    @Id
+    private String productId;
+
+    private String productName;
+
+    @Enumerated(EnumType.STRING)
+    private Category category;
+
+    private long deliveredCount;
+
+    private long deliveredRevenue;
+
+    private long cancelledCount;
+
+    private long cancelledRevenue;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+
+        private OffsetDateTime hourStart;
+
+        private String productId;
+
+    }
+
+}
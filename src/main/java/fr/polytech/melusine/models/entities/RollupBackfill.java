@@ -0,0 +1,38 @@
+package fr.polytech.melusine.models.entities;
+
+import lombok.*;
+
+import javax.persistence.*;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+
+/**
+ * The progress of the rebuild of the rollups, claimed by a single instance at a time.
+ */
+@Entity
+@Table(name = "rollup_backfills")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder(toBuilder = true)
+public class RollupBackfill {
+
+    @Id
+    private String id;
+
+    /**
+     * The orders created before are counted by the rebuild, the next ones after the commit of their creation.
+     */
+    @NonNull
+    private OffsetDateTime boundary;
+
+    /**
+     * The next day to rebuild, null once all the days are rebuilt.
+     */
+    private LocalDate nextDay;
+
+    private String claimedBy;
+
+    private OffsetDateTime claimedAt;
+
+}
@@ -39,6 +39,9 @@ public class User {
 
     private boolean isMembership;
 
+    @Version
+    private long version;
+
     @NonNull
     private OffsetDateTime createdAt;
 
@@ -0,0 +1,61 @@
+package fr.polytech.melusine.models.entities.converters;
+
+import javax.persistence.AttributeConverter;
+import javax.persistence.Converter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Store a list of names in a single column, separated by a character. The separator and the escape character are
+ * escaped in the names, so a column written before the escaping, without any of them in the names, reads the same.
+ */
+@Converter
+public class StringListConverter implements AttributeConverter<List<String>, String> {
+
+    private static final char SEPARATOR = '|';
+    private static final char ESCAPE = '\\';
+
+    @Override
+    public String convertToDatabaseColumn(List<String> names) {
+        if (Objects.isNull(names)) {
+            return null;
+        }
+        StringBuilder column = new StringBuilder();
+        for (int i = 0; i < names.size(); i++) {
+            if (i > 0) {
+                column.append(SEPARATOR);
+            }
+            for (char character : names.get(i).toCharArray()) {
+                if (character == SEPARATOR || character == ESCAPE) {
+                    column.append(ESCAPE);
+                }
+                column.append(character);
+            }
+        }
+        return column.toString();
+    }
+
+    @Override
+    public List<String> convertToEntityAttribute(String column) {
+        if (Objects.isNull(column) || column.isEmpty()) {
+            return List.of();
+        }
+        List<String> names = new ArrayList<>();
+        StringBuilder name = new StringBuilder();
+        for (int i = 0; i < column.length(); i++) {
+            char character = column.charAt(i);
+            if (character == ESCAPE && i + 1 < column.length()) {
+                name.append(column.charAt(++i));
+            } else if (character == SEPARATOR) {
+                names.add(name.toString());
+                name.setLength(0);
+            } else {
+                name.append(character);
+            }
+        }
+        names.add(name.toString());
+        return names;
+    }
+
+}
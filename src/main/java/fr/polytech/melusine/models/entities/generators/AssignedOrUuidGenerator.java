@@ -0,0 +1,20 @@
+package fr.polytech.melusine.models.entities.generators;
+
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.id.UUIDGenerator;
+
+import java.io.Serializable;
+import java.util.Objects;
+
+/**
+ * Keep the id assigned by the application, as for the orders accepted in the journal, else generate a UUID.
+ */
+public class AssignedOrUuidGenerator extends UUIDGenerator {
+
+    @Override
+    public Serializable generate(SharedSessionContractImplementor session, Object object) {
+        Serializable id = session.getEntityPersister(null, object).getIdentifier(object, session);
+        return Objects.nonNull(id) ? id : super.generate(session, object);
+    }
+
+}
@@ -0,0 +1,9 @@
+package fr.polytech.melusine.models.enums;
+
+public enum JournaledOrderStatus {
+
+    ACCEPTED,
+    CREATED,
+    REFUSED
+
+}
@@ -0,0 +1,23 @@
+package fr.polytech.melusine.models.enums;
+
+/**
+ * The order in which the kitchen prepares the pending items.
+ */
+public enum KitchenStrategy {
+
+    /**
+     * By creation date.
+     */
+    FIFO,
+
+    /**
+     * Shortest estimated preparation first, aged by the wait.
+     */
+    SHORTEST_PREP_TIME,
+
+    /**
+     * The items of an order together, shortest estimated order first, aged by the wait.
+     */
+    ORDER_BATCH
+
+}
@@ -0,0 +1,12 @@
+package fr.polytech.melusine.models.enums;
+
+/**
+ * The change of an order item pushed to the kitchen screens.
+ */
+public enum OrderItemEventType {
+
+    ADDED,
+    DELIVERED,
+    CANCELLED
+
+}
@@ -0,0 +1,27 @@
+package fr.polytech.melusine.models.enums;
+
+/**
+ * The dimensions the sales can be grouped by.
+ */
+public enum SalesDimension {
+
+    /**
+     * The section of the client, NONE for the orders without user.
+     */
+    SECTION,
+
+    /**
+     * Whether the client is a member, NONE for the orders without user.
+     */
+    MEMBERSHIP,
+
+    CATEGORY,
+
+    PRODUCT,
+
+    /**
+     * The hour of the day of the creation of the item.
+     */
+    HOUR
+
+}
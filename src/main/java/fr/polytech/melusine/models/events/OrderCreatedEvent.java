@@ -0,0 +1,25 @@
+package fr.polytech.melusine.models.events;
+
+import lombok.Builder;
+import lombok.Value;
+
+import java.time.OffsetDateTime;
+import java.util.List;
+
+/**
+ * Published by the order service when an order has been inserted, its side effects are applied after the commit.
+ */
+@Value
+@Builder
+public class OrderCreatedEvent {
+
+    String orderId;
+
+    OffsetDateTime createdAt;
+
+    /**
+     * The products delivered with the order, a product present twice leaves the stock twice.
+     */
+    List<String> deliveredProductIds;
+
+}
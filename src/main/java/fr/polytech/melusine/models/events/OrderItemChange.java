@@ -0,0 +1,30 @@
+package fr.polytech.melusine.models.events;
+
+import fr.polytech.melusine.models.enums.OrderStatus;
+import lombok.Builder;
+import lombok.Value;
+
+import java.time.OffsetDateTime;
+
+/**
+ * An order item which has moved to another status, with what its side effects need.
+ */
+@Value
+@Builder
+public class OrderItemChange {
+
+    String itemId;
+
+    String orderId;
+
+    String userId;
+
+    String productId;
+
+    long price;
+
+    OrderStatus previousStatus;
+
+    OffsetDateTime createdAt;
+
+}
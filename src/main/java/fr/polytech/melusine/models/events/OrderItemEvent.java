@@ -0,0 +1,21 @@
+package fr.polytech.melusine.models.events;
+
+import fr.polytech.melusine.models.dtos.responses.OrderItemResponse;
+import fr.polytech.melusine.models.enums.OrderItemEventType;
+import lombok.Builder;
+import lombok.Value;
+
+import java.util.List;
+
+/**
+ * Published by the order service when items enter or leave the pending queue.
+ */
+@Value
+@Builder
+public class OrderItemEvent {
+
+    OrderItemEventType type;
+
+    List<OrderItemResponse> items;
+
+}
@@ -0,0 +1,21 @@
+package fr.polytech.melusine.models.events;
+
+import fr.polytech.melusine.models.enums.OrderStatus;
+import lombok.Builder;
+import lombok.Value;
+
+import java.util.List;
+
+/**
+ * Published by the order service when items have been delivered, cancelled or put back in the pending queue, its
+ * side effects are applied after the commit.
+ */
+@Value
+@Builder
+public class OrderItemsStatusChangedEvent {
+
+    OrderStatus status;
+
+    List<OrderItemChange> changes;
+
+}
@@ -0,0 +1,16 @@
+package fr.polytech.melusine.models.projections;
+
+import fr.polytech.melusine.models.enums.Category;
+
+/**
+ * The number of delivered items of a product.
+ */
+public interface ConsumptionRollup {
+
+    String getProductName();
+
+    Category getCategory();
+
+    long getCount();
+
+}
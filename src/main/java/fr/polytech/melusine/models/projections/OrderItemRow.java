@@ -0,0 +1,37 @@
+package fr.polytech.melusine.models.projections;
+
+import fr.polytech.melusine.models.enums.Category;
+import fr.polytech.melusine.models.enums.OrderStatus;
+
+import java.time.OffsetDateTime;
+import java.util.List;
+
+/**
+ * The columns of an order item displayed in the listings, read from the product snapshot of the item without
+ * loading the item, its order or its product.
+ */
+public interface OrderItemRow {
+
+    String getId();
+
+    String getOrderId();
+
+    String getClientName();
+
+    String getProductId();
+
+    String getProductName();
+
+    Category getCategory();
+
+    List<String> getIngredientNames();
+
+    long getPrice();
+
+    OrderStatus getStatus();
+
+    OffsetDateTime getCreatedAt();
+
+    OffsetDateTime getUpdatedAt();
+
+}
@@ -0,0 +1,25 @@
+package fr.polytech.melusine.models.projections;
+
+import fr.polytech.melusine.models.enums.Category;
+import fr.polytech.melusine.models.enums.OrderStatus;
+
+import java.time.OffsetDateTime;
+
+/**
+ * The product snapshot, the price and the status of an item, to rebuild the rollups.
+ */
+public interface OrderItemSale {
+
+    OffsetDateTime getCreatedAt();
+
+    String getProductId();
+
+    String getProductName();
+
+    Category getCategory();
+
+    long getPrice();
+
+    OrderStatus getStatus();
+
+}
@@ -0,0 +1,12 @@
+package fr.polytech.melusine.models.projections;
+
+/**
+ * The mean time in seconds from the creation to the delivery of the items of a product.
+ */
+public interface ProductPrepTime {
+
+    String getProductId();
+
+    Double getPrepTime();
+
+}
@@ -0,0 +1,15 @@
+package fr.polytech.melusine.models.projections;
+
+import java.time.OffsetDateTime;
+
+/**
+ * The revenue of the items delivered during an hour, a day, a month or a year, by creation date, dated by the first
+ * hour of the bucket.
+ */
+public interface RevenueRollup {
+
+    OffsetDateTime getHourStart();
+
+    long getRevenue();
+
+}
@@ -0,0 +1,31 @@
+package fr.polytech.melusine.models.projections;
+
+import fr.polytech.melusine.models.enums.Category;
+import fr.polytech.melusine.models.enums.Section;
+
+import java.time.OffsetDateTime;
+
+/**
+ * A delivered item with the section and the membership of its client, to load the sales cube.
+ */
+public interface SaleRow {
+
+    String getId();
+
+    OffsetDateTime getCreatedAt();
+
+    OffsetDateTime getUpdatedAt();
+
+    String getProductId();
+
+    String getProductName();
+
+    Category getCategory();
+
+    Section getSection();
+
+    Boolean getMembership();
+
+    long getPrice();
+
+}
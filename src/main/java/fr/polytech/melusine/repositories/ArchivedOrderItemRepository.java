@@ -0,0 +1,108 @@
+package fr.polytech.melusine.repositories;
+
+import fr.polytech.melusine.models.entities.ArchivedOrderItem;
+import fr.polytech.melusine.models.enums.Category;
+import fr.polytech.melusine.models.enums.OrderStatus;
+import fr.polytech.melusine.models.projections.OrderItemRow;
+import fr.polytech.melusine.models.projections.OrderItemSale;
+import fr.polytech.melusine.models.projections.SaleRow;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
+
+import java.time.OffsetDateTime;
+import java.util.Collection;
+import java.util.List;
+
+public interface ArchivedOrderItemRepository extends CrudRepository<ArchivedOrderItem, String> {
+
+    String ROW = "SELECT i.id AS id, o.id AS orderId, o.clientName AS clientName, i.productId AS productId, " +
+            "i.productName AS productName, i.category AS category, i.ingredientNames AS ingredientNames, i.price AS price, " +
+            "i.status AS status, i.createdAt AS createdAt, i.updatedAt AS updatedAt " +
+            "FROM ArchivedOrderItem i JOIN ArchivedOrder o ON o.id = i.orderId ";
+
+    /**
+     * Find the first slice of archived items of a user not in the status, by creation date descending.
+     *
+     * @param userId      the user id
+     * @param orderStatus the excluded status
+     * @param pageable    the size of the slice
+     * @return a list of OrderItemRow
+     */
+    @Query(ROW + "WHERE o.userId = :userId AND i.status <> :status ORDER BY i.createdAt DESC, i.id DESC")
+    List<OrderItemRow> findFirstRowsByUserIdAndStatusNot(@Param("userId") String userId,
+                                                         @Param("status") OrderStatus orderStatus,
+                                                         Pageable pageable);
+
+    /**
+     * Find the slice of archived items of a user not in the status created before the given item, by creation date
+     * descending.
+     *
+     * @param userId      the user id
+     * @param orderStatus the excluded status
+     * @param createdAt   the creation date of the last item of the previous slice
+     * @param id          the id of the last item of the previous slice
+     * @param pageable    the size of the slice
+     * @return a list of OrderItemRow
+     */
+    @Query(ROW + "WHERE o.userId = :userId AND i.status <> :status " +
+            "AND (i.createdAt < :createdAt OR (i.createdAt = :createdAt AND i.id < :id)) " +
+            "ORDER BY i.createdAt DESC, i.id DESC")
+    List<OrderItemRow> findRowsByUserIdAndStatusNotBefore(@Param("userId") String userId,
+                                                          @Param("status") OrderStatus orderStatus,
+                                                          @Param("createdAt") OffsetDateTime createdAt,
+                                                          @Param("id") String id,
+                                                          Pageable pageable);
+
+    /**
+     * Find the sales of the archived items created from the start date included to the end date excluded.
+     *
+     * @param start the start date
+     * @param end   the end date
+     * @return a list of OrderItemSale
+     */
+    @Query("SELECT i.createdAt AS createdAt, i.productId AS productId, i.productName AS productName, " +
+            "i.category AS category, i.price AS price, i.status AS status FROM ArchivedOrderItem i " +
+            "WHERE i.createdAt >= :start AND i.createdAt < :end")
+    List<OrderItemSale> findSalesByCreatedAtFrom(@Param("start") OffsetDateTime start, @Param("end") OffsetDateTime end);
+
+    /**
+     * Find the archived items in the status created from the start date included to the end date excluded, with their
+     * client.
+     *
+     * @param start  the start date
+     * @param end    the end date
+     * @param status the status
+     * @return a list of SaleRow
+     */
+    @Query("SELECT i.id AS id, i.createdAt AS createdAt, i.updatedAt AS updatedAt, i.productId AS productId, " +
+            "i.productName AS productName, i.category AS category, u.section AS section, " +
+            "u.isMembership AS membership, i.price AS price FROM ArchivedOrderItem i " +
+            "JOIN ArchivedOrder o ON o.id = i.orderId LEFT JOIN User u ON u.id = o.userId " +
+            "WHERE i.createdAt >= :start AND i.createdAt < :end AND i.status = :status")
+    List<SaleRow> findSaleRowsByCreatedAtFrom(@Param("start") OffsetDateTime start,
+                                              @Param("end") OffsetDateTime end,
+                                              @Param("status") OrderStatus status);
+
+    /**
+     * Copy the items of the given orders from the hot table.
+     *
+     * @param orderIds the order ids
+     * @return the number of copied items
+     */
+    @Modifying
+    @Query(nativeQuery = true, value = "INSERT INTO order_items_archive " +
+            "(id, price, product_id, order_id, product_name, category, ingredient_names, status, created_at, updated_at) " +
+            "SELECT id, price, product_id, order_id, product_name, category, ingredient_names, status, created_at, " +
+            "updated_at FROM order_items " +
+            "WHERE order_id IN :orderIds")
+    int copyByOrderIdIn(@Param("orderIds") Collection<String> orderIds);
+
+    @Modifying
+    @Query("DELETE FROM ArchivedOrderItem i WHERE i.orderId IN " +
+            "(SELECT o.id FROM ArchivedOrder o WHERE o.userId = :userId)")
+    void deleteByOrderUserId(@Param("userId") String userId);
+
+}
@@ -0,0 +1,46 @@
+package fr.polytech.melusine.repositories;
+
+import fr.polytech.melusine.models.entities.ArchivedOrder;
+import fr.polytech.melusine.models.enums.OrderStatus;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
+
+import java.time.OffsetDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+public interface ArchivedOrderRepository extends CrudRepository<ArchivedOrder, String> {
+
+    /**
+     * Find the creation dates of the archived orders created from the start date included to the end date excluded.
+     *
+     * @param start the start date
+     * @param end   the end date
+     * @return a list of creation dates
+     */
+    @Query("SELECT o.createdAt FROM ArchivedOrder o WHERE o.createdAt >= :start AND o.createdAt < :end")
+    List<OffsetDateTime> findCreatedAtFrom(@Param("start") OffsetDateTime start, @Param("end") OffsetDateTime end);
+
+    @Query("SELECT MIN(o.createdAt) FROM ArchivedOrder o")
+    Optional<OffsetDateTime> findMinCreatedAt();
+
+    /**
+     * Copy the given orders from the hot table.
+     *
+     * @param ids the order ids
+     * @return the number of copied orders
+     */
+    @Modifying
+    @Query(nativeQuery = true, value = "INSERT INTO orders_archive " +
+            "(id, client_name, user_id, total, status, created_at, updated_at) " +
+            "SELECT id, client_name, user_id, total, status, created_at, updated_at FROM orders WHERE id IN :ids")
+    int copyByIdIn(@Param("ids") Collection<String> ids);
+
+    @Modifying
+    @Query("DELETE FROM ArchivedOrder o WHERE o.userId = :userId")
+    void deleteByUserId(@Param("userId") String userId);
+
+}
@@ -0,0 +1,12 @@
+package fr.polytech.melusine.repositories;
+
+import fr.polytech.melusine.models.entities.DeadLetterEvent;
+import org.springframework.data.repository.CrudRepository;
+
+import java.util.Optional;
+
+public interface DeadLetterEventRepository extends CrudRepository<DeadLetterEvent, String> {
+
+    Optional<DeadLetterEvent> findByOrderId(String orderId);
+
+}
@@ -0,0 +1,19 @@
+package fr.polytech.melusine.repositories;
+
+import fr.polytech.melusine.models.entities.IdempotencyKey;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.OffsetDateTime;
+
+public interface IdempotencyKeyRepository extends JpaRepository<IdempotencyKey, String> {
+
+    /**
+     * Delete the keys created before the date.
+     *
+     * @param date the date
+     */
+    @Transactional
+    void deleteByCreatedAtBefore(OffsetDateTime date);
+
+}
@@ -2,8 +2,13 @@ package fr.polytech.melusine.repositories;
 
 import fr.polytech.melusine.models.entities.Ingredient;
 import fr.polytech.melusine.models.enums.IngredientType;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.PagingAndSortingRepository;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -22,4 +27,16 @@ public interface IngredientRepository extends PagingAndSortingRepository<Ingredi
 
     Optional<Ingredient> findByIdAndIsDeletedFalse(String id);
 
+    /**
+     * Add the delta to the quantity of all the given ingredients in one statement.
+     *
+     * @param ids   the ingredient ids
+     * @param delta the quantity to add, negative to remove
+     * @return the number of updated ingredients
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE Ingredient i SET i.quantity = i.quantity + :delta, i.version = i.version + 1 WHERE i.id IN :ids")
+    int updateQuantityByIdIn(@Param("ids") Collection<String> ids, @Param("delta") long delta);
+
 }
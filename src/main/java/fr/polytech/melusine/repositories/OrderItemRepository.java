@@ -4,28 +4,319 @@ import fr.polytech.melusine.models.entities.Order;
 import fr.polytech.melusine.models.entities.OrderItem;
 import fr.polytech.melusine.models.enums.Category;
 import fr.polytech.melusine.models.enums.OrderStatus;
+import fr.polytech.melusine.models.projections.OrderItemRow;
+import fr.polytech.melusine.models.projections.OrderItemSale;
+import fr.polytech.melusine.models.projections.ProductPrepTime;
+import fr.polytech.melusine.models.projections.SaleRow;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
 
 import java.time.OffsetDateTime;
+import java.util.Collection;
 import java.util.List;
 
 public interface OrderItemRepository extends CrudRepository<OrderItem, String> {
 
+    String ROW = "SELECT i.id AS id, o.id AS orderId, o.clientName AS clientName, i.product.id AS productId, " +
+            "i.productName AS productName, i.category AS category, i.ingredientNames AS ingredientNames, i.price AS price, " +
+            "i.status AS status, i.createdAt AS createdAt, i.updatedAt AS updatedAt FROM OrderItem i JOIN i.order o ";
+
     /**
      * Find all item by the status.
      *
+     * @param status   the status
      * @param pageable the pageable configuration
+     * @return a page of OrderItemRow
+     */
+    @Query(value = ROW + "WHERE i.status = :status",
+            countQuery = "SELECT COUNT(i) FROM OrderItem i WHERE i.status = :status")
+    Page<OrderItemRow> findRowsByStatus(@Param("status") OrderStatus status, Pageable pageable);
+
+    /**
+     * Find all item by the status, by creation date.
+     *
+     * @param status the status
+     * @return a list of OrderItemRow
+     */
+    @Query(ROW + "WHERE i.status = :status ORDER BY i.createdAt ASC, i.id ASC")
+    List<OrderItemRow> findAllRowsByStatus(@Param("status") OrderStatus status);
+
+    /**
+     * Find the first slice of items by the status, by creation date.
+     *
      * @param status   the status
-     * @return a page of OrderItem
+     * @param pageable the size of the slice
+     * @return a list of OrderItemRow
      */
-    Page<OrderItem> findAllByStatus(Pageable pageable, OrderStatus status);
+    @Query(ROW + "WHERE i.status = :status ORDER BY i.createdAt ASC, i.id ASC")
+    List<OrderItemRow> findFirstRowsByStatus(@Param("status") OrderStatus status, Pageable pageable);
+
+    /**
+     * Find the slice of items by the status created after the given item, by creation date.
+     *
+     * @param status    the status
+     * @param createdAt the creation date of the last item of the previous slice
+     * @param id        the id of the last item of the previous slice
+     * @param pageable  the size of the slice
+     * @return a list of OrderItemRow
+     */
+    @Query(ROW + "WHERE i.status = :status " +
+            "AND (i.createdAt > :createdAt OR (i.createdAt = :createdAt AND i.id > :id)) " +
+            "ORDER BY i.createdAt ASC, i.id ASC")
+    List<OrderItemRow> findRowsByStatusAfter(@Param("status") OrderStatus status,
+                                             @Param("createdAt") OffsetDateTime createdAt,
+                                             @Param("id") String id,
+                                             Pageable pageable);
+
+    long countByStatus(OrderStatus status);
 
     void deleteByOrder(Order order);
 
-    List<OrderItem> findByCreatedAtBetweenAndStatusAndProductCategoryIsIn(OffsetDateTime start, OffsetDateTime now, OrderStatus status, List<Category> categories);
+    @Modifying
+    @Query("DELETE FROM OrderItem i WHERE i.order.id IN :orderIds")
+    void deleteByOrderIdIn(@Param("orderIds") Collection<String> orderIds);
+
+    /**
+     * Find the sales of the items created from the start date included to the end date excluded.
+     *
+     * @param start the start date
+     * @param end   the end date
+     * @return a list of OrderItemSale
+     */
+    @Query("SELECT i.createdAt AS createdAt, i.product.id AS productId, i.productName AS productName, " +
+            "i.category AS category, i.price AS price, i.status AS status FROM OrderItem i " +
+            "WHERE i.createdAt >= :start AND i.createdAt < :end")
+    List<OrderItemSale> findSalesByCreatedAtFrom(@Param("start") OffsetDateTime start, @Param("end") OffsetDateTime end);
+
+    /**
+     * Find the items in the status created from the start date included to the end date excluded and updated before
+     * the cutoff, with their client.
+     *
+     * @param start  the start date
+     * @param end    the end date
+     * @param cutoff the last update date excluded
+     * @param status the status
+     * @return a list of SaleRow
+     */
+    @Query("SELECT i.id AS id, i.createdAt AS createdAt, i.updatedAt AS updatedAt, i.product.id AS productId, " +
+            "i.productName AS productName, i.category AS category, u.section AS section, " +
+            "u.isMembership AS membership, i.price AS price FROM OrderItem i LEFT JOIN User u ON u.id = i.userId " +
+            "WHERE i.createdAt >= :start AND i.createdAt < :end AND i.updatedAt < :cutoff AND i.status = :status")
+    List<SaleRow> findSaleRowsByCreatedAtFrom(@Param("start") OffsetDateTime start,
+                                              @Param("end") OffsetDateTime end,
+                                              @Param("cutoff") OffsetDateTime cutoff,
+                                              @Param("status") OrderStatus status);
+
+    @Query("SELECT i.id AS id, i.createdAt AS createdAt, i.updatedAt AS updatedAt, i.product.id AS productId, " +
+            "i.productName AS productName, i.category AS category, u.section AS section, " +
+            "u.isMembership AS membership, i.price AS price FROM OrderItem i LEFT JOIN User u ON u.id = i.userId " +
+            "WHERE i.id IN :ids AND i.status = :status")
+    List<SaleRow> findSaleRowsByIdInAndStatus(@Param("ids") Collection<String> ids, @Param("status") OrderStatus status);
+
+    @Query("SELECT i.id AS id, i.createdAt AS createdAt, i.updatedAt AS updatedAt, i.product.id AS productId, " +
+            "i.productName AS productName, i.category AS category, u.section AS section, " +
+            "u.isMembership AS membership, i.price AS price FROM OrderItem i LEFT JOIN User u ON u.id = i.userId " +
+            "WHERE i.order.id = :orderId AND i.status = :status")
+    List<SaleRow> findSaleRowsByOrderIdAndStatus(@Param("orderId") String orderId, @Param("status") OrderStatus status);
+
+    /**
+     * Find the items created before the date which are still in the hot table.
+     *
+     * @param boundary the date
+     * @return a list of item ids
+     */
+    @Query("SELECT i.id FROM OrderItem i WHERE i.createdAt < :boundary")
+    List<String> findIdsByCreatedAtBefore(@Param("boundary") OffsetDateTime boundary);
+
+    /**
+     * Find the items created before the product snapshot, with their product.
+     *
+     * @param pageable the number of items
+     * @return a list of OrderItem
+     */
+    @Query("SELECT i FROM OrderItem i JOIN FETCH i.product WHERE i.productName IS NULL")
+    List<OrderItem> findWithProductByProductNameIsNull(Pageable pageable);
+
+    /**
+     * Find the items not in the status updated between the dates.
+     *
+     * @param orderStatus the excluded status
+     * @param start       the start date
+     * @param now         the end date
+     * @param pageable    the pageable configuration
+     * @return a page of OrderItemRow
+     */
+    @Query(value = ROW + "WHERE i.status <> :status AND i.updatedAt BETWEEN :start AND :now",
+            countQuery = "SELECT COUNT(i) FROM OrderItem i WHERE i.status <> :status AND i.updatedAt BETWEEN :start AND :now")
+    Page<OrderItemRow> findRowsByStatusNotAndUpdatedAtBetween(@Param("status") OrderStatus orderStatus,
+                                                              @Param("start") OffsetDateTime start,
+                                                              @Param("now") OffsetDateTime now,
+                                                              Pageable pageable);
+
+    /**
+     * Find the first slice of items not in the status updated between the dates, by update date descending.
+     *
+     * @param orderStatus the excluded status
+     * @param start       the start date
+     * @param now         the end date
+     * @param pageable    the size of the slice
+     * @return a list of OrderItemRow
+     */
+    @Query(ROW + "WHERE i.status <> :status AND i.updatedAt BETWEEN :start AND :now " +
+            "ORDER BY i.updatedAt DESC, i.id DESC")
+    List<OrderItemRow> findFirstRowsByStatusNotAndUpdatedAtBetween(@Param("status") OrderStatus orderStatus,
+                                                                   @Param("start") OffsetDateTime start,
+                                                                   @Param("now") OffsetDateTime now,
+                                                                   Pageable pageable);
 
-    Page<OrderItem> findByStatusNotAndUpdatedAtBetween(Pageable pageable, OrderStatus orderStatus, OffsetDateTime start, OffsetDateTime now);
+    /**
+     * Find the slice of items not in the status updated between the dates before the given item, by update date
+     * descending.
+     *
+     * @param orderStatus the excluded status
+     * @param start       the start date
+     * @param now         the end date
+     * @param updatedAt   the update date of the last item of the previous slice
+     * @param id          the id of the last item of the previous slice
+     * @param pageable    the size of the slice
+     * @return a list of OrderItemRow
+     */
+    @Query(ROW + "WHERE i.status <> :status AND i.updatedAt BETWEEN :start AND :now " +
+            "AND (i.updatedAt < :updatedAt OR (i.updatedAt = :updatedAt AND i.id < :id)) " +
+            "ORDER BY i.updatedAt DESC, i.id DESC")
+    List<OrderItemRow> findRowsByStatusNotAndUpdatedAtBetweenBefore(@Param("status") OrderStatus orderStatus,
+                                                                    @Param("start") OffsetDateTime start,
+                                                                    @Param("now") OffsetDateTime now,
+                                                                    @Param("updatedAt") OffsetDateTime updatedAt,
+                                                                    @Param("id") String id,
+                                                                    Pageable pageable);
+
+    /**
+     * Find the items of a user not in the status created between the dates, by creation date descending.
+     *
+     * @param userId      the user id
+     * @param orderStatus the excluded status
+     * @param start       the start date
+     * @param now         the end date
+     * @return a list of OrderItemRow
+     */
+    @Query(ROW + "WHERE i.userId = :userId AND i.createdAt BETWEEN :start AND :now AND i.status <> :status " +
+            "ORDER BY i.createdAt DESC, i.id DESC")
+    List<OrderItemRow> findRowsByUserIdAndStatusNotAndCreatedAtBetween(@Param("userId") String userId,
+                                                                       @Param("status") OrderStatus orderStatus,
+                                                                       @Param("start") OffsetDateTime start,
+                                                                       @Param("now") OffsetDateTime now);
+
+    /**
+     * Find the first slice of items of a user not in the status, by creation date descending.
+     *
+     * @param userId      the user id
+     * @param orderStatus the excluded status
+     * @param pageable    the size of the slice
+     * @return a list of OrderItemRow
+     */
+    @Query(ROW + "WHERE i.userId = :userId AND i.status <> :status ORDER BY i.createdAt DESC, i.id DESC")
+    List<OrderItemRow> findFirstRowsByUserIdAndStatusNot(@Param("userId") String userId,
+                                                         @Param("status") OrderStatus orderStatus,
+                                                         Pageable pageable);
+
+    /**
+     * Find the slice of items of a user not in the status created before the given item, by creation date
+     * descending.
+     *
+     * @param userId      the user id
+     * @param orderStatus the excluded status
+     * @param createdAt   the creation date of the last item of the previous slice
+     * @param id          the id of the last item of the previous slice
+     * @param pageable    the size of the slice
+     * @return a list of OrderItemRow
+     */
+    @Query(ROW + "WHERE i.userId = :userId AND i.status <> :status " +
+            "AND (i.createdAt < :createdAt OR (i.createdAt = :createdAt AND i.id < :id)) " +
+            "ORDER BY i.createdAt DESC, i.id DESC")
+    List<OrderItemRow> findRowsByUserIdAndStatusNotBefore(@Param("userId") String userId,
+                                                          @Param("status") OrderStatus orderStatus,
+                                                          @Param("createdAt") OffsetDateTime createdAt,
+                                                          @Param("id") String id,
+                                                          Pageable pageable);
+
+    /**
+     * Copy the user of their order to the items created before the copy existed.
+     *
+     * @return the number of items
+     */
+    @Modifying
+    @Query("UPDATE OrderItem i SET i.userId = (SELECT o.user.id FROM Order o WHERE o.id = i.order.id) " +
+            "WHERE i.userId IS NULL AND i.order.id IN (SELECT o.id FROM Order o WHERE o.user IS NOT NULL)")
+    int fillUserIds();
+
+    /**
+     * Lock the oldest pending items of the categories not claimed or whose claim has lapsed, skipping the items locked
+     * by the claim of another station instead of waiting for it.
+     *
+     * @param categories the product categories
+     * @param expiredAt  the date before which a claim has lapsed
+     * @param limit      the number of items
+     * @return a list of item ids
+     */
+    @Query(value = "SELECT id FROM order_items WHERE status = 'PENDING' AND category IN :categories " +
+            "AND (claimed_at IS NULL OR claimed_at < :expiredAt) ORDER BY created_at, id LIMIT :limit " +
+            "FOR UPDATE SKIP LOCKED", nativeQuery = true)
+    List<String> lockIdsToClaim(@Param("categories") Collection<String> categories,
+                                @Param("expiredAt") OffsetDateTime expiredAt,
+                                @Param("limit") int limit);
+
+    /**
+     * Move the items to a status only if they are still in the previous one.
+     *
+     * @param ids      the item ids
+     * @param previous the status read before the update
+     * @param status   the new status
+     * @param now      the update date
+     * @return the number of updated items
+     */
+    @Modifying
+    @Query("UPDATE OrderItem i SET i.status = :status, i.updatedAt = :now WHERE i.id IN :ids AND i.status = :previous")
+    int updateStatus(@Param("ids") Collection<String> ids,
+                     @Param("previous") OrderStatus previous,
+                     @Param("status") OrderStatus status,
+                     @Param("now") OffsetDateTime now);
+
+    @Modifying
+    @Query("UPDATE OrderItem i SET i.claimedBy = :station, i.claimedAt = :now WHERE i.id IN :ids")
+    int claim(@Param("ids") Collection<String> ids, @Param("station") String station, @Param("now") OffsetDateTime now);
+
+    /**
+     * Find the items by their ids, by creation date.
+     *
+     * @param ids the item ids
+     * @return a list of OrderItemRow
+     */
+    @Query(ROW + "WHERE i.id IN :ids ORDER BY i.createdAt ASC, i.id ASC")
+    List<OrderItemRow> findRowsByIdIn(@Param("ids") Collection<String> ids);
+
+    /**
+     * Find the mean time from the creation to the delivery of the items of each product delivered since the date.
+     *
+     * @param since the start date
+     * @return a list of ProductPrepTime
+     */
+    @Query(value = "SELECT product_id AS productId, AVG(TIMESTAMPDIFF(SECOND, created_at, updated_at)) AS prepTime " +
+            "FROM order_items WHERE status = 'DELIVER' AND updated_at >= :since GROUP BY product_id", nativeQuery = true)
+    List<ProductPrepTime> findPrepTimesByUpdatedAtAfter(@Param("since") OffsetDateTime since);
+
+    /**
+     * Find items by their ids with their order, user, product and ingredients fetched in the same query.
+     *
+     * @param ids the item ids
+     * @return a list of OrderItem
+     */
+    @Query("SELECT DISTINCT i FROM OrderItem i JOIN FETCH i.order o LEFT JOIN FETCH o.user " +
+            "JOIN FETCH i.product p LEFT JOIN FETCH p.ingredients WHERE i.id IN :ids")
+    List<OrderItem> findAllWithOrderAndProductByIdIn(@Param("ids") Collection<String> ids);
 
 }
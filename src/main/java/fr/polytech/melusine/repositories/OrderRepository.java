@@ -5,20 +5,109 @@ import fr.polytech.melusine.models.entities.User;
 import fr.polytech.melusine.models.enums.OrderStatus;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.PagingAndSortingRepository;
+import org.springframework.data.repository.query.Param;
 
 import java.time.OffsetDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 public interface OrderRepository extends PagingAndSortingRepository<Order, String> {
 
+    String STATUS_FROM_COUNTERS = "CASE WHEN pending_count > 0 THEN 'PENDING' " +
+            "WHEN delivered_count > 0 THEN 'DELIVER' ELSE 'CANCEL' END";
+
     void deleteByUser(User user);
 
     List<Order> findAllByUser(User user);
 
-    List<Order> findByCreatedAtBetweenAndStatus(OffsetDateTime start, OffsetDateTime now, OrderStatus status);
+    /**
+     * Find the creation dates of the orders created from the start date included to the end date excluded.
+     *
+     * @param start the start date
+     * @param end   the end date
+     * @return a list of creation dates
+     */
+    @Query("SELECT o.createdAt FROM Order o WHERE o.createdAt >= :start AND o.createdAt < :end")
+    List<OffsetDateTime> findCreatedAtFrom(@Param("start") OffsetDateTime start, @Param("end") OffsetDateTime end);
+
+    /**
+     * Find which of the given ids are already used by an order.
+     *
+     * @param ids the order ids
+     * @return a list of order ids
+     */
+    @Query("SELECT o.id FROM Order o WHERE o.id IN :ids")
+    List<String> findIdsByIdIn(@Param("ids") Collection<String> ids);
+
+    /**
+     * Find the oldest orders created before the date and not in the status.
+     *
+     * @param boundary the date
+     * @param status   the excluded status
+     * @param pageable the number of orders
+     * @return a list of order ids
+     */
+    @Query("SELECT o.id FROM Order o WHERE o.createdAt < :boundary AND o.status <> :status ORDER BY o.createdAt ASC")
+    List<String> findIdsByCreatedAtBeforeAndStatusNot(@Param("boundary") OffsetDateTime boundary,
+                                                      @Param("status") OrderStatus status,
+                                                      Pageable pageable);
+
+    /**
+     * Add the item transitions of an order to its counters, in a single statement so that concurrent transitions
+     * are not lost.
+     *
+     * @param id        the order id
+     * @param pending   the change of the number of pending items
+     * @param delivered the change of the number of delivered items
+     * @param cancelled the change of the number of cancelled items
+     * @return the number of updated orders
+     */
+    @Modifying
+    @Query("UPDATE Order o SET o.pendingCount = o.pendingCount + :pending, " +
+            "o.deliveredCount = o.deliveredCount + :delivered, o.cancelledCount = o.cancelledCount + :cancelled " +
+            "WHERE o.id = :id")
+    int addToCounters(@Param("id") String id,
+                      @Param("pending") int pending,
+                      @Param("delivered") int delivered,
+                      @Param("cancelled") int cancelled);
+
+    /**
+     * Derive the status of the orders from their counters, only the orders whose status changes are written.
+     *
+     * @param ids the order ids
+     * @param now the update date
+     * @return the number of updated orders
+     */
+    @Modifying
+    @Query(nativeQuery = true, value = "UPDATE orders SET status = " + STATUS_FROM_COUNTERS + ", updated_at = :now " +
+            "WHERE id IN :ids AND status <> " + STATUS_FROM_COUNTERS)
+    int updateStatusFromCounters(@Param("ids") Collection<String> ids, @Param("now") OffsetDateTime now);
+
+    /**
+     * Count the items of the orders created before the counters, which have none.
+     *
+     * @return the number of updated orders
+     */
+    @Modifying
+    @Query("UPDATE Order o SET " +
+            "o.pendingCount = (SELECT COUNT(i) FROM OrderItem i WHERE i.order = o " +
+            "AND i.status = fr.polytech.melusine.models.enums.OrderStatus.PENDING), " +
+            "o.deliveredCount = (SELECT COUNT(i) FROM OrderItem i WHERE i.order = o " +
+            "AND i.status = fr.polytech.melusine.models.enums.OrderStatus.DELIVER), " +
+            "o.cancelledCount = (SELECT COUNT(i) FROM OrderItem i WHERE i.order = o " +
+            "AND i.status = fr.polytech.melusine.models.enums.OrderStatus.CANCEL) " +
+            "WHERE o.pendingCount = 0 AND o.deliveredCount = 0 AND o.cancelledCount = 0")
+    int initializeCounters();
+
+    @Query("SELECT MIN(o.createdAt) FROM Order o")
+    Optional<OffsetDateTime> findMinCreatedAt();
 
-    List<Order> findByUserAndCreatedAtBetween(User user, OffsetDateTime start, OffsetDateTime now);
+    @Modifying
+    @Query("DELETE FROM Order o WHERE o.id IN :ids")
+    void deleteByIdIn(@Param("ids") Collection<String> ids);
 
 }
@@ -0,0 +1,25 @@
+package fr.polytech.melusine.repositories;
+
+import fr.polytech.melusine.models.entities.OrderRollup;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
+
+import java.time.OffsetDateTime;
+
+public interface OrderRollupRepository extends CrudRepository<OrderRollup, OffsetDateTime> {
+
+    /**
+     * Add the orders to the rollup of the hour, created if missing, in one statement.
+     *
+     * @param hourStart  the start of the hour
+     * @param orderCount the number of orders
+     * @return the number of inserted or updated rows
+     */
+    @Modifying
+    @Query(nativeQuery = true, value = "INSERT INTO order_rollups (hour_start, order_count) VALUES (:hourStart, :orderCount) " +
+            "ON DUPLICATE KEY UPDATE order_count = order_count + :orderCount")
+    int add(@Param("hourStart") OffsetDateTime hourStart, @Param("orderCount") long orderCount);
+
+}
@@ -2,8 +2,11 @@ package fr.polytech.melusine.repositories;
 
 import fr.polytech.melusine.models.entities.Ingredient;
 import fr.polytech.melusine.models.entities.Product;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.PagingAndSortingRepository;
+import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -28,5 +31,13 @@ public interface ProductRepository extends PagingAndSortingRepository<Product, S
 
     List<Product> findByIngredientsInAndIsDeletedFalse(List<Ingredient> ingredient);
 
+    /**
+     * Find products by their ids with their ingredients fetched in the same query.
+     *
+     * @param ids the product ids
+     * @return a list of products
+     */
+    @Query("SELECT DISTINCT p FROM Product p LEFT JOIN FETCH p.ingredients WHERE p.id IN :ids")
+    List<Product> findAllWithIngredientsByIdIn(@Param("ids") Collection<String> ids);
 
 }
@@ -0,0 +1,118 @@
+package fr.polytech.melusine.repositories;
+
+import fr.polytech.melusine.models.entities.ProductRollup;
+import fr.polytech.melusine.models.enums.Category;
+import fr.polytech.melusine.models.projections.ConsumptionRollup;
+import fr.polytech.melusine.models.projections.RevenueRollup;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
+
+import java.time.OffsetDateTime;
+import java.util.List;
+
+public interface ProductRollupRepository extends CrudRepository<ProductRollup, ProductRollup.Key> {
+
+    /**
+     * Add the deltas to the rollup of the product for the hour, created if missing, in one statement.
+     *
+     * @return the number of inserted or updated rows
+     */
+    @Modifying
+    @Query(nativeQuery = true, value = "INSERT INTO product_rollups (hour_start, product_id, product_name, category, " +
+            "delivered_count, delivered_revenue, cancelled_count, cancelled_revenue) " +
+            "VALUES (:hourStart, :productId, :productName, :category, :deliveredCount, :deliveredRevenue, " +
+            ":cancelledCount, :cancelledRevenue) " +
+            "ON DUPLICATE KEY UPDATE product_name = :productName, category = :category, " +
+            "delivered_count = delivered_count + :deliveredCount, " +
+            "delivered_revenue = delivered_revenue + :deliveredRevenue, " +
+            "cancelled_count = cancelled_count + :cancelledCount, " +
+            "cancelled_revenue = cancelled_revenue + :cancelledRevenue")
+    int add(@Param("hourStart") OffsetDateTime hourStart,
+            @Param("productId") String productId,
+            @Param("productName") String productName,
+            @Param("category") String category,
+            @Param("deliveredCount") long deliveredCount,
+            @Param("deliveredRevenue") long deliveredRevenue,
+            @Param("cancelledCount") long cancelledCount,
+            @Param("cancelledRevenue") long cancelledRevenue);
+
+    /**
+     * Find the revenue of each hour between the dates.
+     *
+     * @param start the start date
+     * @param end   the end date
+     * @return a list of RevenueRollup
+     */
+    @Query("SELECT r.hourStart AS hourStart, SUM(r.deliveredRevenue) AS revenue FROM ProductRollup r " +
+            "WHERE r.hourStart BETWEEN :start AND :end AND r.deliveredCount > 0 GROUP BY r.hourStart")
+    List<RevenueRollup> findRevenuesByHourStartBetween(@Param("start") OffsetDateTime start,
+                                                       @Param("end") OffsetDateTime end);
+
+    /**
+     * Find the revenue of each day between the dates, dated by the first hour of the day with revenue.
+     *
+     * @param start the start date
+     * @param end   the end date
+     * @return a list of RevenueRollup
+     */
+    @Query("SELECT MIN(r.hourStart) AS hourStart, SUM(r.deliveredRevenue) AS revenue FROM ProductRollup r " +
+            "WHERE r.hourStart BETWEEN :start AND :end AND r.deliveredCount > 0 " +
+            "GROUP BY YEAR(r.hourStart), MONTH(r.hourStart), DAY(r.hourStart)")
+    List<RevenueRollup> findDailyRevenuesByHourStartBetween(@Param("start") OffsetDateTime start,
+                                                            @Param("end") OffsetDateTime end);
+
+    /**
+     * Find the revenue of each month between the dates, dated by the first hour of the month with revenue.
+     *
+     * @param start the start date
+     * @param end   the end date
+     * @return a list of RevenueRollup
+     */
+    @Query("SELECT MIN(r.hourStart) AS hourStart, SUM(r.deliveredRevenue) AS revenue FROM ProductRollup r " +
+            "WHERE r.hourStart BETWEEN :start AND :end AND r.deliveredCount > 0 " +
+            "GROUP BY YEAR(r.hourStart), MONTH(r.hourStart)")
+    List<RevenueRollup> findMonthlyRevenuesByHourStartBetween(@Param("start") OffsetDateTime start,
+                                                              @Param("end") OffsetDateTime end);
+
+    /**
+     * Find the revenue of each year between the dates, dated by the first hour of the year with revenue.
+     *
+     * @param start the start date
+     * @param end   the end date
+     * @return a list of RevenueRollup
+     */
+    @Query("SELECT MIN(r.hourStart) AS hourStart, SUM(r.deliveredRevenue) AS revenue FROM ProductRollup r " +
+            "WHERE r.hourStart BETWEEN :start AND :end AND r.deliveredCount > 0 " +
+            "GROUP BY YEAR(r.hourStart)")
+    List<RevenueRollup> findYearlyRevenuesByHourStartBetween(@Param("start") OffsetDateTime start,
+                                                             @Param("end") OffsetDateTime end);
+
+    /**
+     * Find the number of delivered items of each product between the dates.
+     *
+     * @param start      the start date
+     * @param end        the end date
+     * @param categories the product categories
+     * @return a list of ConsumptionRollup
+     */
+    @Query("SELECT r.productName AS productName, r.category AS category, SUM(r.deliveredCount) AS count " +
+            "FROM ProductRollup r WHERE r.hourStart BETWEEN :start AND :end AND r.category IN :categories " +
+            "GROUP BY r.productName, r.category HAVING SUM(r.deliveredCount) > 0")
+    List<ConsumptionRollup> findConsumptionsByHourStartBetweenAndCategoryIn(@Param("start") OffsetDateTime start,
+                                                                            @Param("end") OffsetDateTime end,
+                                                                            @Param("categories") List<Category> categories);
+
+    /**
+     * Delete the rollups of the hours from the start date included to the end date excluded.
+     *
+     * @param start the start date
+     * @param end   the end date
+     * @return the number of deleted rows
+     */
+    @Modifying
+    @Query("DELETE FROM ProductRollup r WHERE r.hourStart >= :start AND r.hourStart < :end")
+    int deleteFrom(@Param("start") OffsetDateTime start, @Param("end") OffsetDateTime end);
+
+}
@@ -0,0 +1,53 @@
+package fr.polytech.melusine.repositories;
+
+import fr.polytech.melusine.models.entities.RollupBackfill;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+
+public interface RollupBackfillRepository extends CrudRepository<RollupBackfill, String> {
+
+    /**
+     * Claim the rebuild if it is not finished and not claimed by another instance since the expiry date.
+     *
+     * @param id        the backfill id
+     * @param instance  the instance claiming the rebuild
+     * @param now       the claim date
+     * @param expiredAt the date before which a claim is expired
+     * @return 1 when the rebuild is claimed
+     */
+    @Modifying
+    @Query("UPDATE RollupBackfill b SET b.claimedBy = :instance, b.claimedAt = :now WHERE b.id = :id " +
+            "AND b.nextDay IS NOT NULL AND (b.claimedAt IS NULL OR b.claimedAt < :expiredAt OR b.claimedBy = :instance)")
+    int claim(@Param("id") String id,
+              @Param("instance") String instance,
+              @Param("now") OffsetDateTime now,
+              @Param("expiredAt") OffsetDateTime expiredAt);
+
+    /**
+     * Record the next day to rebuild and renew the claim of the instance.
+     *
+     * @param id       the backfill id
+     * @param instance the instance holding the claim
+     * @param nextDay  the next day, null when all the days are rebuilt
+     * @param now      the update date
+     * @return 0 when the claim has been lost
+     */
+    @Modifying
+    @Query("UPDATE RollupBackfill b SET b.nextDay = :nextDay, b.claimedAt = :now WHERE b.id = :id " +
+            "AND b.claimedBy = :instance")
+    int advance(@Param("id") String id,
+                @Param("instance") String instance,
+                @Param("nextDay") LocalDate nextDay,
+                @Param("now") OffsetDateTime now);
+
+    @Modifying
+    @Query("UPDATE RollupBackfill b SET b.claimedBy = NULL, b.claimedAt = NULL WHERE b.id = :id " +
+            "AND b.claimedBy = :instance")
+    int release(@Param("id") String id, @Param("instance") String instance);
+
+}
@@ -4,12 +4,20 @@ import fr.polytech.melusine.models.entities.User;
 import fr.polytech.melusine.models.enums.Section;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.PagingAndSortingRepository;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.OffsetDateTime;
 import java.util.List;
 
 public interface UserRepository extends PagingAndSortingRepository<User, String> {
 
+    String NAME_CONTAINS = "LOWER(u.firstName) LIKE CONCAT('%', :name, '%') " +
+            "OR LOWER(u.lastName) LIKE CONCAT('%', :name, '%') OR LOWER(u.nickName) LIKE CONCAT('%', :name, '%')";
+
     /**
      * Check if a user exists by his first name, last name and section.
      *
@@ -33,4 +41,79 @@ public interface UserRepository extends PagingAndSortingRepository<User, String>
     @Override
     List<User> findAll();
 
+    /**
+     * Find the first slice of users by last name.
+     *
+     * @param pageable the size of the slice
+     * @return a list of user
+     */
+    List<User> findAllByOrderByLastNameAscIdAsc(Pageable pageable);
+
+    /**
+     * Find the slice of users after the given user, by last name.
+     *
+     * @param lastName the last name of the last user of the previous slice
+     * @param id       the id of the last user of the previous slice
+     * @param pageable the size of the slice
+     * @return a list of user
+     */
+    @Query("SELECT u FROM User u WHERE u.lastName > :lastName OR (u.lastName = :lastName AND u.id > :id) " +
+            "ORDER BY u.lastName ASC, u.id ASC")
+    List<User> findAllAfter(@Param("lastName") String lastName, @Param("id") String id, Pageable pageable);
+
+    /**
+     * Find the first slice of users whose first name, last name or nick name contains the name, by last name.
+     *
+     * @param name     the name in lower case
+     * @param pageable the size of the slice
+     * @return a list of user
+     */
+    @Query("SELECT u FROM User u WHERE " + NAME_CONTAINS + " ORDER BY u.lastName ASC, u.id ASC")
+    List<User> searchFirst(@Param("name") String name, Pageable pageable);
+
+    /**
+     * Find the slice of users whose first name, last name or nick name contains the name after the given user, by
+     * last name.
+     *
+     * @param name     the name in lower case
+     * @param lastName the last name of the last user of the previous slice
+     * @param id       the id of the last user of the previous slice
+     * @param pageable the size of the slice
+     * @return a list of user
+     */
+    @Query("SELECT u FROM User u WHERE (" + NAME_CONTAINS + ") " +
+            "AND (u.lastName > :lastName OR (u.lastName = :lastName AND u.id > :id)) ORDER BY u.lastName ASC, u.id ASC")
+    List<User> searchAfter(@Param("name") String name, @Param("lastName") String lastName, @Param("id") String id,
+                           Pageable pageable);
+
+    /**
+     * Remove the amount from the credit of a user in one statement, only if his credit is upper than zero. The
+     * persistence context is not cleared, a loaded user keeps his previous credit until he is refreshed.
+     *
+     * @param id        the user id
+     * @param amount    the amount to remove
+     * @param updatedAt the update date
+     * @return 1 if the user has been debited, 0 if he does not exist or his credit is not upper than zero
+     */
+    @Transactional
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE User u SET u.credit = u.credit - :amount, u.updatedAt = :updatedAt, u.version = u.version + 1 " +
+            "WHERE u.id = :id AND u.credit > 0")
+    int debitCredit(@Param("id") String id, @Param("amount") long amount, @Param("updatedAt") OffsetDateTime updatedAt);
+
+    /**
+     * Add the amount to the credit of a user in one statement. The persistence context is not cleared, a loaded
+     * user keeps his previous credit until he is refreshed.
+     *
+     * @param id        the user id
+     * @param amount    the amount to add
+     * @param updatedAt the update date
+     * @return 1 if the user has been credited, 0 if he does not exist
+     */
+    @Transactional
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE User u SET u.credit = u.credit + :amount, u.updatedAt = :updatedAt, u.version = u.version + 1 " +
+            "WHERE u.id = :id")
+    int addCredit(@Param("id") String id, @Param("amount") long amount, @Param("updatedAt") OffsetDateTime updatedAt);
+
 }
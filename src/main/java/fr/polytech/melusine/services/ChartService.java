@@ -1,76 +1,98 @@
 package fr.polytech.melusine.services;
 
+import fr.polytech.melusine.components.ChartCache;
+import fr.polytech.melusine.components.SalesCube;
 import fr.polytech.melusine.exceptions.InternalServerErrorException;
 import fr.polytech.melusine.exceptions.errors.SystemError;
-import fr.polytech.melusine.mappers.OrderItemMapper;
-import fr.polytech.melusine.mappers.OrderMapper;
 import fr.polytech.melusine.models.charts.*;
 import fr.polytech.melusine.models.dtos.requests.ChartRequest;
+import fr.polytech.melusine.models.dtos.requests.SalesRequest;
 import fr.polytech.melusine.models.dtos.responses.ChartResponse;
+import fr.polytech.melusine.models.dtos.responses.SalesResponse;
 import fr.polytech.melusine.models.enums.Category;
-import fr.polytech.melusine.models.enums.OrderStatus;
-import fr.polytech.melusine.repositories.OrderItemRepository;
-import fr.polytech.melusine.repositories.OrderRepository;
+import fr.polytech.melusine.models.projections.ConsumptionRollup;
+import fr.polytech.melusine.models.projections.RevenueRollup;
+import fr.polytech.melusine.repositories.ProductRollupRepository;
 import org.springframework.stereotype.Service;
 
 import java.time.Clock;
 import java.time.OffsetDateTime;
-import java.time.format.TextStyle;
+import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Locale;
 import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Stream;
 
-import static fr.polytech.melusine.utils.MoneyFormatter.formatToDouble;
 import static java.util.stream.Collectors.groupingBy;
+import static java.util.stream.Collectors.summingLong;
 
 @Service
 public class ChartService {
 
-    private OrderRepository orderRepository;
-    private OrderMapper orderMapper;
-    private OrderItemRepository orderItemRepository;
-    private OrderItemMapper orderItemMapper;
+    private static final String REVENUES = "revenues";
+    private static final String CONSUMPTIONS = "consumptions";
+
+    private ProductRollupRepository productRollupRepository;
+    private ChartCache chartCache;
+    private SalesCube salesCube;
     private Clock clock;
 
-    public ChartService(OrderRepository orderRepository, OrderMapper orderMapper, OrderItemRepository orderItemRepository,
-                        OrderItemMapper orderItemMapper, Clock clock) {
-        this.orderRepository = orderRepository;
-        this.orderMapper = orderMapper;
-        this.orderItemRepository = orderItemRepository;
-        this.orderItemMapper = orderItemMapper;
+    public ChartService(ProductRollupRepository productRollupRepository, ChartCache chartCache, SalesCube salesCube,
+                        Clock clock) {
+        this.productRollupRepository = productRollupRepository;
+        this.chartCache = chartCache;
+        this.salesCube = salesCube;
         this.clock = clock;
     }
 
+    public List<SalesResponse> findSales(SalesRequest salesRequest) {
+        return salesCube.query(salesRequest);
+    }
+
+    /**
+     * Build the revenues chart from the cached rows of its closed hours and the rows of its last hour, read again.
+     */
     public ChartResponse findRevenuesChart(ChartRequest chartRequest) {
+        ChartInterval interval = chartRequest.getInterval();
         OffsetDateTime from = getFrom(chartRequest);
-        OffsetDateTime start = getStartDate(chartRequest.getInterval(), from);
+        OffsetDateTime start = getStartDate(interval, from);
+        OffsetDateTime lastClosedHour = from.minusHours(1);
+        ChartCache.Key key = new ChartCache.Key(REVENUES, interval, start, lastClosedHour, Set.of());
+        List<RevenueRollup> closedHours = chartCache.getOrCompute(key, () -> findRevenues(interval, start, lastClosedHour));
 
-        List<ChartPoint> orderChartPoints = new ArrayList<>();
-        orderRepository.findByCreatedAtBetweenAndStatus(start, from, OrderStatus.DELIVER).stream()
-                .map(orderMapper::mapToOrderPoint)
-                .map(orderPoint -> getChartPointForIntervalAndOrderPoint(chartRequest.getInterval(), orderPoint))
-                .collect(groupingBy(ChartPoint::getAbscissa))
-                .forEach((time, points) -> addChartPointInList(orderChartPoints, time, points));
+        ChartBuckets buckets = new ChartBuckets(interval, start, from);
+        Stream.concat(closedHours.stream(), productRollupRepository.findRevenuesByHourStartBetween(from, from).stream())
+                .forEach(revenueRollup -> buckets.add(revenueRollup.getHourStart(), revenueRollup.getRevenue()));
 
         return ChartResponse.builder()
-                .points(orderChartPoints)
+                .points(buckets.getPoints())
                 .build();
     }
 
+    /**
+     * Build the consumptions chart from the cached rows of its closed hours and the rows of its last hour, read again.
+     */
     public ChartResponse findConsumptionsChart(ChartRequest chartRequest) {
         OffsetDateTime from = getFrom(chartRequest);
         OffsetDateTime start = getStartDate(chartRequest.getInterval(), from);
-        List<ChartPoint> productChartPoints = new ArrayList<>();
-        List<Category> categories = List.of(Category.values());
+        OffsetDateTime lastClosedHour = from.minusHours(1);
+        Set<Category> categories = Set.of(Category.values());
         if (Objects.nonNull(chartRequest.getCategories()) && !chartRequest.getCategories().isEmpty()) {
-            categories = chartRequest.getCategories();
+            categories = Set.copyOf(chartRequest.getCategories());
         }
-        orderItemRepository.findByCreatedAtBetweenAndStatusAndProductCategoryIsIn(start, from, OrderStatus.DELIVER, categories).stream()
-                .map(orderItemMapper::mapToOrderItemPoint)
-                .collect(groupingBy(OrderItemPoint::getAbscissa))
-                .forEach((productName, points) -> productChartPoints.add(ChartPointString.builder()
-                        .ordinate(((double) points.size()))
+        ChartCache.Key key = new ChartCache.Key(CONSUMPTIONS, chartRequest.getInterval(), start, lastClosedHour,
+                categories);
+        List<Category> categoryList = List.copyOf(categories);
+        List<ConsumptionRollup> closedHours = chartCache.getOrCompute(key, () -> productRollupRepository
+                .findConsumptionsByHourStartBetweenAndCategoryIn(start, lastClosedHour, categoryList));
+
+        List<ChartPoint> productChartPoints = new ArrayList<>();
+        Stream.concat(closedHours.stream(), productRollupRepository
+                .findConsumptionsByHourStartBetweenAndCategoryIn(from, from, categoryList).stream())
+                .collect(groupingBy(this::getConsumptionAbscissa, summingLong(ConsumptionRollup::getCount)))
+                .forEach((productName, count) -> productChartPoints.add(ChartPointString.builder()
+                        .ordinate(count.doubleValue())
                         .abscissa(productName)
                         .build()));
 
@@ -79,70 +101,43 @@ public class ChartService {
                 .build();
     }
 
-    private OffsetDateTime getFrom(ChartRequest chartRequest) {
-        if (Objects.nonNull(chartRequest.getFrom())) {
-            return chartRequest.getFrom();
-        }
-        return OffsetDateTime.now(clock);
-    }
-
-    private void addChartPointInList(List<ChartPoint> orderCharts, Object time, List<? extends ChartPoint> points) {
-        double newTotal = points.stream()
-                .map(ChartPoint::getOrdinate)
-                .map(Double.class::cast)
-                .mapToDouble(Double::valueOf)
-                .sum();
-        if (time instanceof Integer) {
-            orderCharts.add(
-                    ChartPointInteger.builder()
-                            .ordinate(newTotal)
-                            .abscissa((Integer) time)
-                            .build());
-        }
-        if (time instanceof String) {
-            orderCharts.add(ChartPointString.builder()
-                    .ordinate(newTotal)
-                    .abscissa((String) time)
-                    .build());
+    /**
+     * The custom products are summed together under their category.
+     */
+    private String getConsumptionAbscissa(ConsumptionRollup consumptionRollup) {
+        if (consumptionRollup.getCategory().equals(Category.CUSTOM)) {
+            return consumptionRollup.getCategory().toString();
         }
+        return consumptionRollup.getProductName();
     }
 
-    private ChartPoint getChartPointForIntervalAndOrderPoint(ChartInterval chartInterval, OrderPoint orderPoint) {
+    /**
+     * Sum the revenue in the database by the bucket of the interval, so that only one row by point is read.
+     */
+    private List<RevenueRollup> findRevenues(ChartInterval chartInterval, OffsetDateTime start, OffsetDateTime end) {
         if (chartInterval.equals(ChartInterval.DECADE)) {
-            return ChartPointInteger.builder()
-                    .ordinate(formatToDouble(orderPoint.getOrdinate()))
-                    .abscissa(orderPoint.getAbscissa().getYear())
-                    .build();
+            return productRollupRepository.findYearlyRevenuesByHourStartBetween(start, end);
         }
         if (chartInterval.equals(ChartInterval.YEAR)) {
-            return ChartPointString.builder()
-                    .ordinate(formatToDouble(orderPoint.getOrdinate()))
-                    .abscissa(orderPoint.getAbscissa().getMonth().getDisplayName(TextStyle.FULL, Locale.FRANCE))
-                    .build();
+            return productRollupRepository.findMonthlyRevenuesByHourStartBetween(start, end);
         }
-        if (chartInterval.equals(ChartInterval.MONTH)) {
-            return ChartPointString.builder()
-                    .ordinate(formatToDouble(orderPoint.getOrdinate()))
-                    .abscissa(orderPoint.getAbscissa().getDayOfWeek().getDisplayName(TextStyle.FULL, Locale.FRANCE)
-                            + " " + orderPoint.getAbscissa().getDayOfMonth())
-                    .build();
-        }
-        if (chartInterval.equals(ChartInterval.WEEK)) {
-            return ChartPointString.builder()
-                    .ordinate(formatToDouble(orderPoint.getOrdinate()))
-                    .abscissa(orderPoint.getAbscissa().getDayOfWeek().getDisplayName(TextStyle.FULL, Locale.FRANCE)
-                            + " " + orderPoint.getAbscissa().getDayOfMonth())
-                    .build();
+        if (chartInterval.equals(ChartInterval.MONTH) || chartInterval.equals(ChartInterval.WEEK)) {
+            return productRollupRepository.findDailyRevenuesByHourStartBetween(start, end);
         }
         if (chartInterval.equals(ChartInterval.DAY)) {
-            return ChartPointInteger.builder()
-                    .ordinate(formatToDouble(orderPoint.getOrdinate()))
-                    .abscissa(orderPoint.getAbscissa().getHour())
-                    .build();
+            return productRollupRepository.findRevenuesByHourStartBetween(start, end);
         }
         throw new InternalServerErrorException(SystemError.TECHNICAL_ERROR);
     }
 
+    /**
+     * Get the end of the chart, truncated to the start of its hour as the rollups are.
+     */
+    private OffsetDateTime getFrom(ChartRequest chartRequest) {
+        OffsetDateTime from = Objects.requireNonNullElseGet(chartRequest.getFrom(), () -> OffsetDateTime.now(clock));
+        return from.atZoneSameInstant(clock.getZone()).toOffsetDateTime().truncatedTo(ChronoUnit.HOURS);
+    }
+
     private OffsetDateTime getStartDate(ChartInterval chartInterval, OffsetDateTime now) {
         if (chartInterval.equals(ChartInterval.DECADE)) {
             return now.minusYears(10);
@@ -1,5 +1,6 @@
 package fr.polytech.melusine.services;
 
+import fr.polytech.melusine.components.OptimisticLockRetry;
 import fr.polytech.melusine.exceptions.BadRequestException;
 import fr.polytech.melusine.exceptions.NotFoundException;
 import fr.polytech.melusine.exceptions.errors.CreditError;
@@ -29,15 +30,19 @@ import static fr.polytech.melusine.utils.MoneyFormatter.formatToLong;
 public class IngredientService {
 
     public static final String PAIN_UUID = "6509e418-a12a-4a8a-b7af-8df1f7bcce00";
+    private static final String INGREDIENT = "L'ingrédient";
     private final IngredientRepository ingredientRepository;
     private final IngredientMapper ingredientMapper;
     private final ProductRepository productRepository;
+    private final OptimisticLockRetry optimisticLockRetry;
     private final Clock clock;
 
-    public IngredientService(IngredientRepository ingredientRepository, IngredientMapper ingredientMapper, ProductRepository productRepository, Clock clock) {
+    public IngredientService(IngredientRepository ingredientRepository, IngredientMapper ingredientMapper, ProductRepository productRepository,
+                             OptimisticLockRetry optimisticLockRetry, Clock clock) {
         this.ingredientRepository = ingredientRepository;
         this.ingredientMapper = ingredientMapper;
         this.productRepository = productRepository;
+        this.optimisticLockRetry = optimisticLockRetry;
         this.clock = clock;
     }
 
@@ -91,40 +96,50 @@ public class IngredientService {
         }
     }
 
+    /**
+     * Update an ingredient and the price of its products, again from the read if the ingredient has been updated
+     * meanwhile, by a delivery for instance.
+     *
+     * @param id                the ingredient id
+     * @param ingredientRequest the new ingredient
+     * @return the updated ingredient
+     */
     public IngredientResponse updateIngredient(String id, IngredientRequest ingredientRequest) {
         log.debug("Update ingredient by id: {}", id);
 
         ensurePriceUpperThanZero(ingredientRequest.getPrice());
-        Ingredient ingredientToUpdate = findIngredientById(id).toBuilder()
-                .name(ingredientRequest.getName())
-                .price(formatToLong(ingredientRequest.getPrice()))
-                .quantity(ingredientRequest.getQuantity())
-                .type(ingredientRequest.getType())
-                .image(ingredientRequest.getImage())
-                .build();
-
-        List<Product> products = productRepository.findByIngredientsInAndIsDeletedFalse(List.of(ingredientToUpdate));
-        products.forEach(product -> {
-            List<Ingredient> updateIngredients = product.getIngredients().stream()
-                    .map(productIngredient -> {
-                        if (productIngredient.getId().equals(ingredientToUpdate.getId())) {
-                            return ingredientToUpdate;
-                        }
-                        return productIngredient;
-                    })
-                    .collect(Collectors.toList());
-            long ingredientsPrice = updateIngredients.stream()
-                    .map(Ingredient::getPrice)
-                    .mapToLong(Long::valueOf)
-                    .sum();
-            Product productAfterIngredientDeletion = product.toBuilder()
-                    .ingredients(updateIngredients)
-                    .price(ingredientsPrice)
+        Ingredient updatedIngredient = optimisticLockRetry.execute(INGREDIENT, id, () -> {
+            Ingredient ingredientToUpdate = findIngredientById(id).toBuilder()
+                    .name(ingredientRequest.getName())
+                    .price(formatToLong(ingredientRequest.getPrice()))
+                    .quantity(ingredientRequest.getQuantity())
+                    .type(ingredientRequest.getType())
+                    .image(ingredientRequest.getImage())
                     .build();
-            productRepository.save(productAfterIngredientDeletion);
-        });
 
-        Ingredient updatedIngredient = ingredientRepository.save(ingredientToUpdate);
+            List<Product> products = productRepository.findByIngredientsInAndIsDeletedFalse(List.of(ingredientToUpdate));
+            products.forEach(product -> {
+                List<Ingredient> updateIngredients = product.getIngredients().stream()
+                        .map(productIngredient -> {
+                            if (productIngredient.getId().equals(ingredientToUpdate.getId())) {
+                                return ingredientToUpdate;
+                            }
+                            return productIngredient;
+                        })
+                        .collect(Collectors.toList());
+                long ingredientsPrice = updateIngredients.stream()
+                        .map(Ingredient::getPrice)
+                        .mapToLong(Long::valueOf)
+                        .sum();
+                Product productAfterIngredientDeletion = product.toBuilder()
+                        .ingredients(updateIngredients)
+                        .price(ingredientsPrice)
+                        .build();
+                productRepository.save(productAfterIngredientDeletion);
+            });
+
+            return ingredientRepository.save(ingredientToUpdate);
+        });
 
         log.info("End of the update of an ingredient");
         return ingredientMapper.mapIngredientToIngredientResponse(updatedIngredient);
@@ -144,24 +159,26 @@ public class IngredientService {
     public void deleteIngredient(String id) {
         ensureAuthenticatedUserIsAdmin();
         log.info("Start of the logic deletion of a product");
-        Ingredient ingredient = findIngredientById(id);
-
-        ensurePainIsUpdated(ingredient.getId());
-        List<Product> products = productRepository.findByIngredientsInAndIsDeletedFalse(List.of(ingredient));
-        products.forEach(product -> {
-            List<Ingredient> ingredientAfterDeletion = product.getIngredients().stream()
-                    .filter(productIngredient -> !productIngredient.getId().equals(ingredient.getId()))
-                    .collect(Collectors.toList());
-            Product productAfterIngredientDeletion = product.toBuilder()
-                    .ingredients(ingredientAfterDeletion)
+        optimisticLockRetry.execute(INGREDIENT, id, () -> {
+            Ingredient ingredient = findIngredientById(id);
+
+            ensurePainIsUpdated(ingredient.getId());
+            List<Product> products = productRepository.findByIngredientsInAndIsDeletedFalse(List.of(ingredient));
+            products.forEach(product -> {
+                List<Ingredient> ingredientAfterDeletion = product.getIngredients().stream()
+                        .filter(productIngredient -> !productIngredient.getId().equals(ingredient.getId()))
+                        .collect(Collectors.toList());
+                Product productAfterIngredientDeletion = product.toBuilder()
+                        .ingredients(ingredientAfterDeletion)
+                        .build();
+                productRepository.save(productAfterIngredientDeletion);
+            });
+
+            Ingredient deletedIngredient = ingredient.toBuilder()
+                    .isDeleted(true)
                     .build();
-            productRepository.save(productAfterIngredientDeletion);
+            return ingredientRepository.save(deletedIngredient);
         });
-
-        Ingredient deletedIngredient = ingredient.toBuilder()
-                .isDeleted(true)
-                .build();
-        ingredientRepository.save(deletedIngredient);
     }
 
     private void ensurePainIsUpdated(String ingredientPainId) {
@@ -0,0 +1,130 @@
+package fr.polytech.melusine.services;
+
+import fr.polytech.melusine.components.OrderItemLatencies;
+import fr.polytech.melusine.components.OrderItemReader;
+import fr.polytech.melusine.components.PendingOrderItems;
+import fr.polytech.melusine.components.schedulers.KitchenScheduler;
+import fr.polytech.melusine.configurations.KitchenProperties;
+import fr.polytech.melusine.exceptions.BadRequestException;
+import fr.polytech.melusine.exceptions.errors.OrderError;
+import fr.polytech.melusine.models.dtos.responses.LatencyResponse;
+import fr.polytech.melusine.models.dtos.responses.OrderItemResponse;
+import fr.polytech.melusine.models.enums.Category;
+import fr.polytech.melusine.models.enums.OrderStatus;
+import fr.polytech.melusine.repositories.OrderItemRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Clock;
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static fr.polytech.melusine.utils.KeysetPagination.getLimit;
+
+/**
+ * Hand the pending items to the kitchen stations, each item to a single station at a time, in the order of the
+ * configured {@link KitchenScheduler}.
+ */
+@Slf4j
+@Service
+@EnableConfigurationProperties({KitchenProperties.class})
+public class KitchenService {
+
+    private final KitchenProperties kitchenProperties;
+    private final OrderItemRepository orderItemRepository;
+    private final OrderItemReader orderItemReader;
+    private final PendingOrderItems pendingOrderItems;
+    private final KitchenScheduler kitchenScheduler;
+    private final OrderItemLatencies orderItemLatencies;
+    private final Clock clock;
+
+    public KitchenService(KitchenProperties kitchenProperties, OrderItemRepository orderItemRepository,
+                          OrderItemReader orderItemReader, PendingOrderItems pendingOrderItems,
+                          List<KitchenScheduler> kitchenSchedulers, OrderItemLatencies orderItemLatencies, Clock clock) {
+        this.kitchenProperties = kitchenProperties;
+        this.orderItemRepository = orderItemRepository;
+        this.orderItemReader = orderItemReader;
+        this.pendingOrderItems = pendingOrderItems;
+        this.kitchenScheduler = kitchenSchedulers.stream()
+                .collect(Collectors.toMap(KitchenScheduler::getStrategy, Function.identity()))
+                .get(kitchenProperties.getStrategy());
+        this.orderItemLatencies = orderItemLatencies;
+        this.clock = clock;
+    }
+
+    /**
+     * Get the pending items in their order of preparation.
+     *
+     * @return the pending items
+     */
+    public List<OrderItemResponse> getQueue() {
+        log.debug("Find the kitchen queue with strategy : " + kitchenProperties.getStrategy());
+        List<OrderItemResponse> items = pendingOrderItems.getAll()
+                .orElseGet(() -> orderItemReader.read(orderItemRepository.findAllRowsByStatus(OrderStatus.PENDING)));
+        return kitchenScheduler.schedule(items, OffsetDateTime.now(clock));
+    }
+
+    /**
+     * Claim the next pending items of the categories of the station. The oldest candidates are locked with SKIP
+     * LOCKED, so the stations claiming at the same time get distinct items without waiting for each other, and the
+     * scheduler picks the claimed ones among them.
+     *
+     * @param station the station name, one of the configured stations
+     * @param size    the number of items
+     * @return the claimed items, in their order of preparation
+     */
+    @Transactional
+    public List<OrderItemResponse> claimOrderItems(String station, int size) {
+        OffsetDateTime now = OffsetDateTime.now(clock);
+        List<String> categories = getCategories(station).stream()
+                .map(Category::name)
+                .collect(Collectors.toList());
+        log.debug("Claim " + size + " order items of categories : " + categories + " for station : " + station);
+        int limit = getLimit(size);
+        List<String> candidates = orderItemRepository.lockIdsToClaim(categories,
+                now.minusSeconds(kitchenProperties.getClaimTimeout()), limit * kitchenProperties.getClaimLookahead());
+        if (candidates.isEmpty()) {
+            return List.of();
+        }
+        List<OrderItemResponse> items = kitchenScheduler.schedule(
+                orderItemReader.read(orderItemRepository.findRowsByIdIn(candidates)), now).stream()
+                .limit(limit)
+                .collect(Collectors.toList());
+        orderItemRepository.claim(items.stream()
+                .map(OrderItemResponse::getId)
+                .collect(Collectors.toList()), station, now);
+        log.info("Station " + station + " claimed " + items.size() + " order items");
+        return items;
+    }
+
+    /**
+     * Get the percentiles of the time spent pending by the items, by hour of the day of their creation.
+     *
+     * @param status    the status the items have moved to
+     * @param category  the category of the items, null for all the categories
+     * @param productId the product of the items, instead of the category
+     * @return the percentiles in seconds of the hours with items
+     */
+    public List<LatencyResponse> getLatencies(OrderStatus status, Category category, String productId) {
+        log.debug("Find the latencies to status : " + status + " of category : " + category + " and product : " + productId);
+        if (status == OrderStatus.PENDING) {
+            throw new BadRequestException(OrderError.LATENCY_WRONG_STATUS, status);
+        }
+        return orderItemLatencies.getLatencies(status, category, productId);
+    }
+
+    private List<Category> getCategories(String station) {
+        List<Category> categories = kitchenProperties.getStations().get(station);
+        if (Objects.isNull(categories)) {
+            throw new BadRequestException(OrderError.KITCHEN_UNKNOWN_STATION, station,
+                    kitchenProperties.getStations().keySet());
+        }
+        return categories;
+    }
+
+}
@@ -1,65 +1,144 @@
 package fr.polytech.melusine.services;
 
+import fr.polytech.melusine.components.OrderItemReader;
+import fr.polytech.melusine.components.OrderJournal;
+import fr.polytech.melusine.components.OrderRollups;
+import fr.polytech.melusine.components.PendingOrderItems;
+import fr.polytech.melusine.configurations.IdempotencyProperties;
+import fr.polytech.melusine.configurations.OrderBatchProperties;
 import fr.polytech.melusine.exceptions.BadRequestException;
+import fr.polytech.melusine.exceptions.ConflictException;
+import fr.polytech.melusine.exceptions.ErrorCodeException;
 import fr.polytech.melusine.exceptions.NotFoundException;
+import fr.polytech.melusine.exceptions.errors.ErrorMessage;
 import fr.polytech.melusine.exceptions.errors.OrderError;
 import fr.polytech.melusine.exceptions.errors.ProductError;
 import fr.polytech.melusine.exceptions.errors.UserError;
 import fr.polytech.melusine.mappers.OrderItemMapper;
 import fr.polytech.melusine.mappers.OrderMapper;
+import fr.polytech.melusine.models.Cursor;
+import fr.polytech.melusine.models.JournaledOrder;
 import fr.polytech.melusine.models.dtos.requests.OrderItemRequest;
+import fr.polytech.melusine.models.dtos.requests.OrderItemsRequest;
 import fr.polytech.melusine.models.dtos.requests.OrderRequest;
+import fr.polytech.melusine.models.dtos.responses.CountResponse;
+import fr.polytech.melusine.models.dtos.responses.JournaledOrderResponse;
+import fr.polytech.melusine.models.dtos.responses.OrderBatchResponse;
 import fr.polytech.melusine.models.dtos.responses.OrderItemResponse;
 import fr.polytech.melusine.models.dtos.responses.OrderResponse;
+import fr.polytech.melusine.models.dtos.responses.SliceResponse;
+import fr.polytech.melusine.models.entities.IdempotencyKey;
+import fr.polytech.melusine.models.entities.Ingredient;
 import fr.polytech.melusine.models.entities.Order;
 import fr.polytech.melusine.models.entities.OrderItem;
 import fr.polytech.melusine.models.entities.Product;
 import fr.polytech.melusine.models.entities.User;
 import fr.polytech.melusine.models.enums.Category;
+import fr.polytech.melusine.models.enums.JournaledOrderStatus;
+import fr.polytech.melusine.models.enums.OrderItemEventType;
 import fr.polytech.melusine.models.enums.OrderStatus;
+import fr.polytech.melusine.models.events.OrderCreatedEvent;
+import fr.polytech.melusine.models.events.OrderItemChange;
+import fr.polytech.melusine.models.events.OrderItemEvent;
+import fr.polytech.melusine.models.events.OrderItemsStatusChangedEvent;
+import fr.polytech.melusine.models.projections.OrderItemRow;
 import fr.polytech.melusine.repositories.*;
 import io.jsonwebtoken.lang.Strings;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.Clock;
 import java.time.OffsetDateTime;
 import java.time.temporal.ChronoUnit;
-import java.util.List;
-import java.util.Objects;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
 import java.util.stream.Collectors;
+import java.util.stream.StreamSupport;
+
+import static fr.polytech.melusine.utils.KeysetPagination.decode;
+import static fr.polytech.melusine.utils.KeysetPagination.getLimit;
+import static fr.polytech.melusine.utils.KeysetPagination.slice;
 
 @Slf4j
 @Service
+@EnableConfigurationProperties({OrderBatchProperties.class})
 public class OrderService {
 
+    private static final Map<OrderStatus, Set<OrderStatus>> ALLOWED_TRANSITIONS = Map.of(
+            OrderStatus.PENDING, Set.of(OrderStatus.DELIVER, OrderStatus.CANCEL),
+            OrderStatus.DELIVER, Set.of(OrderStatus.PENDING),
+            OrderStatus.CANCEL, Set.of(OrderStatus.PENDING));
+
     private final OrderRepository orderRepository;
     private final ProductRepository productRepository;
     private final OrderItemRepository orderItemRepository;
+    private final ArchivedOrderItemRepository archivedOrderItemRepository;
     private final UserRepository userRepository;
     private final OrderItemMapper orderItemMapper;
     private final OrderMapper orderMapper;
     private final IngredientRepository ingredientRepository;
+    private final IdempotencyKeyRepository idempotencyKeyRepository;
+    private final DeadLetterEventRepository deadLetterEventRepository;
+    private final IdempotencyProperties idempotencyProperties;
+    private final OrderBatchProperties orderBatchProperties;
+    private final ApplicationEventPublisher eventPublisher;
+    private final PendingOrderItems pendingOrderItems;
+    private final OrderItemReader orderItemReader;
+    private final OrderJournal orderJournal;
+    private final OrderRollups orderRollups;
+    private final TransactionTemplate transactionTemplate;
     private final Clock clock;
 
     public OrderService(
             OrderRepository orderRepository,
             ProductRepository productRepository,
             OrderItemRepository orderItemRepository,
+            ArchivedOrderItemRepository archivedOrderItemRepository,
             UserRepository userRepository,
             OrderItemMapper orderItemMapper,
             OrderMapper orderMapper,
-            IngredientRepository ingredientRepository, Clock clock) {
+            IngredientRepository ingredientRepository,
+            IdempotencyKeyRepository idempotencyKeyRepository,
+            DeadLetterEventRepository deadLetterEventRepository,
+            IdempotencyProperties idempotencyProperties,
+            OrderBatchProperties orderBatchProperties,
+            ApplicationEventPublisher eventPublisher,
+            PendingOrderItems pendingOrderItems,
+            OrderItemReader orderItemReader,
+            OrderJournal orderJournal,
+            OrderRollups orderRollups,
+            PlatformTransactionManager transactionManager,
+            Clock clock) {
         this.orderRepository = orderRepository;
         this.productRepository = productRepository;
         this.orderItemRepository = orderItemRepository;
+        this.archivedOrderItemRepository = archivedOrderItemRepository;
         this.userRepository = userRepository;
         this.orderItemMapper = orderItemMapper;
         this.orderMapper = orderMapper;
         this.ingredientRepository = ingredientRepository;
+        this.idempotencyKeyRepository = idempotencyKeyRepository;
+        this.deadLetterEventRepository = deadLetterEventRepository;
+        this.idempotencyProperties = idempotencyProperties;
+        this.orderBatchProperties = orderBatchProperties;
+        this.eventPublisher = eventPublisher;
+        this.pendingOrderItems = pendingOrderItems;
+        this.orderItemReader = orderItemReader;
+        this.orderJournal = orderJournal;
+        this.orderRollups = orderRollups;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
         this.clock = clock;
     }
 
@@ -78,13 +157,22 @@ public class OrderService {
                 .orElseThrow(() -> new NotFoundException(OrderError.ORDER_NOT_FOUND, id));
     }
 
-    private Product findProductById(String id) {
-        return productRepository.findById(id)
-                .orElseThrow(() -> new NotFoundException(ProductError.INVALID_NAME, id));
+    private Map<String, Product> findProductsByIds(Collection<String> ids) {
+        return productRepository.findAllWithIngredientsByIdIn(new HashSet<>(ids)).stream()
+                .collect(Collectors.toMap(Product::getId, Function.identity()));
+    }
+
+    private Map<String, User> findUsersByIds(Collection<String> ids) {
+        return StreamSupport.stream(userRepository.findAllById(new HashSet<>(ids)).spliterator(), false)
+                .collect(Collectors.toMap(User::getId, Function.identity()));
     }
 
     /**
      * Creation of an order.
+     * <p>
+     * The products are loaded in one query, the order and its items are inserted as a single batch and drinks are
+     * delivered at insert time, so the number of statements does not depend on the size of the basket. Only the debit
+     * and the inserts are done before the response, the stock is updated after the commit.
      *
      * @param orderRequest the request
      * @return the order
@@ -92,224 +180,674 @@ public class OrderService {
     @Transactional
     public OrderResponse createOrder(OrderRequest orderRequest) {
         log.debug("Create order : " + orderRequest.getName());
+        ensureOrderHasItems(orderRequest);
+
+        User user = Objects.nonNull(orderRequest.getUserId()) ? findUserById(orderRequest.getUserId()) : null;
+        Map<String, Product> productsById = findProductsByIds(orderRequest.getItems());
+
+        Order order = saveOrder(orderRequest, user, productsById);
+        log.debug("End of order creation");
+        return orderMapper.mapToOrderResponse(order);
+    }
 
-        if (orderRequest.getItems().isEmpty()) {
+    /**
+     * Creation of an order only once for an idempotency key.
+     * <p>
+     * The key is inserted before the order is created, in the same transaction. A call with a key already claimed
+     * by another instance waits on the insertion until the other transaction ends, then returns the order created
+     * with the key. If the other transaction has failed, the key is free again and the order is created.
+     *
+     * @param orderRequest   the request
+     * @param idempotencyKey the key sent by the client
+     * @return the order
+     */
+    public OrderResponse createOrder(OrderRequest orderRequest, String idempotencyKey) {
+        try {
+            return transactionTemplate.execute(status -> {
+                IdempotencyKey claimedKey = idempotencyKeyRepository.saveAndFlush(IdempotencyKey.builder()
+                        .id(idempotencyKey)
+                        .createdAt(OffsetDateTime.now(clock))
+                        .build());
+                OrderResponse response = createOrder(orderRequest);
+                claimedKey.setOrderId(response.getId());
+                return response;
+            });
+        } catch (DataIntegrityViolationException e) {
+            log.info("Order already created with idempotency key : " + idempotencyKey);
+            return transactionTemplate.execute(status -> findOrderByIdempotencyKey(idempotencyKey, e));
+        }
+    }
+
+    private OrderResponse findOrderByIdempotencyKey(String idempotencyKey, DataIntegrityViolationException cause) {
+        IdempotencyKey existingKey = idempotencyKeyRepository.findById(idempotencyKey)
+                .orElseThrow(() -> cause);
+        if (Objects.isNull(existingKey.getOrderId())) {
+            throw new ConflictException(OrderError.IDEMPOTENCY_KEY_CONFLICT, idempotencyKey);
+        }
+        return orderMapper.mapToOrderResponse(findOrderById(existingKey.getOrderId()));
+    }
+
+    /**
+     * Accept an order in the order journal, it is written in the database by the journal writer.
+     * <p>
+     * Only the shape of the request is checked, the products and the credit of the user are checked when the order
+     * is written, and a refused order goes to the dead letter table. The outcome is given by
+     * {@link #getJournaledOrder(String)}.
+     *
+     * @param orderRequest the request
+     * @return the id of the accepted order, or empty if the journal is disabled or full
+     */
+    public Optional<JournaledOrderResponse> journalOrder(OrderRequest orderRequest) {
+        if (!orderJournal.isEnabled()) {
+            return Optional.empty();
+        }
+        ensureOrderHasItems(orderRequest);
+        JournaledOrder journaledOrder = JournaledOrder.builder()
+                .orderId(UUID.randomUUID().toString())
+                .name(orderRequest.getName())
+                .userId(orderRequest.getUserId())
+                .items(orderRequest.getItems())
+                .createdAt(OffsetDateTime.now(clock))
+                .build();
+
+        Optional<CompletableFuture<Void>> synced = orderJournal.append(journaledOrder);
+        if (synced.isEmpty()) {
+            log.warn("Order journal full, order created synchronously");
+            return Optional.empty();
+        }
+        synced.get().join();
+        log.debug("Order accepted in the journal with ID : " + journaledOrder.getOrderId());
+        return Optional.of(JournaledOrderResponse.builder()
+                .id(journaledOrder.getOrderId())
+                .status(JournaledOrderStatus.ACCEPTED)
+                .build());
+    }
+
+    /**
+     * Give the outcome of an order accepted in the journal.
+     * <p>
+     * The journal is read first: the writer checkpoints an order after it is committed or put in the dead letter
+     * table, so an order missing from the journal is found in one of them.
+     *
+     * @param id the order id
+     * @return the order, still accepted, created or refused
+     */
+    @Transactional(readOnly = true)
+    public JournaledOrderResponse getJournaledOrder(String id) {
+        JournaledOrderResponse.JournaledOrderResponseBuilder response = JournaledOrderResponse.builder().id(id);
+        if (orderJournal.contains(id)) {
+            return response.status(JournaledOrderStatus.ACCEPTED).build();
+        }
+        Optional<Order> order = orderRepository.findById(id);
+        if (order.isPresent()) {
+            return response.status(JournaledOrderStatus.CREATED)
+                    .order(orderMapper.mapToOrderResponse(order.get()))
+                    .build();
+        }
+        return deadLetterEventRepository.findByOrderId(id)
+                .map(deadLetter -> response.status(JournaledOrderStatus.REFUSED).error(deadLetter.getError()).build())
+                .orElseThrow(() -> new NotFoundException(OrderError.ORDER_NOT_FOUND, id));
+    }
+
+    /**
+     * Write orders accepted in the journal in one transaction.
+     * <p>
+     * An order already written, before a crash of the application for instance, is skipped. A refused order does
+     * not prevent the other ones from being written.
+     *
+     * @param journaledOrders the orders
+     * @return the error of each refused order by order id
+     */
+    @Transactional
+    public Map<String, String> replayJournaledOrders(List<JournaledOrder> journaledOrders) {
+        Set<String> writtenIds = new HashSet<>(orderRepository.findIdsByIdIn(journaledOrders.stream()
+                .map(JournaledOrder::getOrderId)
+                .collect(Collectors.toSet())));
+        Map<String, Product> productsById = findProductsByIds(journaledOrders.stream()
+                .map(JournaledOrder::getItems)
+                .flatMap(List::stream)
+                .collect(Collectors.toSet()));
+        Map<String, User> usersById = findUsersByIds(journaledOrders.stream()
+                .map(JournaledOrder::getUserId)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet()));
+
+        Map<String, String> rejected = new LinkedHashMap<>();
+        for (JournaledOrder journaledOrder : journaledOrders) {
+            if (writtenIds.contains(journaledOrder.getOrderId())) {
+                continue;
+            }
+            try {
+                User user = null;
+                if (Objects.nonNull(journaledOrder.getUserId())) {
+                    user = Optional.ofNullable(usersById.get(journaledOrder.getUserId()))
+                            .orElseThrow(() -> new NotFoundException(UserError.NOT_FOUND, journaledOrder.getUserId()));
+                }
+                OrderRequest orderRequest = OrderRequest.builder()
+                        .name(journaledOrder.getName())
+                        .userId(journaledOrder.getUserId())
+                        .items(journaledOrder.getItems())
+                        .build();
+                saveOrder(orderRequest, user, productsById, journaledOrder.getOrderId(), journaledOrder.getCreatedAt());
+            } catch (ErrorCodeException e) {
+                log.warn("Journaled order with ID : " + journaledOrder.getOrderId() + " refused : " + e.getMessage());
+                rejected.put(journaledOrder.getOrderId(), e.getMessage());
+            }
+        }
+        log.info("End of the replay of " + journaledOrders.size() + " journaled orders");
+        return rejected;
+    }
+
+    @Scheduled(fixedDelay = 3600000)
+    public void deleteExpiredIdempotencyKeys() {
+        OffsetDateTime limit = OffsetDateTime.now(clock).minusSeconds(idempotencyProperties.getTimeToLive());
+        log.debug("Delete idempotency keys created before : " + limit);
+        idempotencyKeyRepository.deleteByCreatedAtBefore(limit);
+    }
+
+    /**
+     * Creation of several orders in one transaction.
+     * <p>
+     * The products and the users of all the requests are loaded once. An invalid request does not prevent the other
+     * ones from being created, its error is returned at the same position as the request. A batch larger than the
+     * configured maximum is refused as a whole.
+     *
+     * @param orderRequests the requests
+     * @return one response by request, in the same order
+     */
+    @Transactional
+    public List<OrderBatchResponse> createOrders(List<OrderRequest> orderRequests) {
+        if (orderRequests.size() > orderBatchProperties.getMaxSize()) {
+            throw new BadRequestException(OrderError.BATCH_TOO_LARGE, orderRequests.size(), orderBatchProperties.getMaxSize());
+        }
+        return createOrders(orderRequests,
+                order -> OrderBatchResponse.builder()
+                        .order(order)
+                        .build(),
+                e -> {
+                    ErrorMessage error = new ErrorMessage();
+                    error.setCode(e.getErrorCode().getCode());
+                    error.setDescription(e.getMessage());
+                    return OrderBatchResponse.builder()
+                            .error(error)
+                            .build();
+                });
+    }
+
+    /**
+     * Creation of several orders in one transaction, with the result of each request built by the caller.
+     *
+     * @param orderRequests the requests
+     * @param onCreated     the result of a created order
+     * @param onRejected    the result of a rejected request
+     * @return one result by request, in the same order
+     */
+    @Transactional
+    public <T> List<T> createOrders(List<OrderRequest> orderRequests, Function<OrderResponse, T> onCreated,
+                                    Function<ErrorCodeException, T> onRejected) {
+        log.debug("Create a batch of " + orderRequests.size() + " orders");
+
+        Set<String> productIds = orderRequests.stream()
+                .map(OrderRequest::getItems)
+                .filter(Objects::nonNull)
+                .flatMap(List::stream)
+                .collect(Collectors.toSet());
+        Set<String> userIds = orderRequests.stream()
+                .map(OrderRequest::getUserId)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet());
+
+        Map<String, Product> productsById = findProductsByIds(productIds);
+        Map<String, User> usersById = findUsersByIds(userIds);
+
+        List<T> results = new ArrayList<>();
+        for (OrderRequest orderRequest : orderRequests) {
+            try {
+                ensureOrderHasItems(orderRequest);
+                User user = null;
+                if (Objects.nonNull(orderRequest.getUserId())) {
+                    user = Optional.ofNullable(usersById.get(orderRequest.getUserId()))
+                            .orElseThrow(() -> new NotFoundException(UserError.NOT_FOUND, orderRequest.getUserId()));
+                }
+
+                Order order = saveOrder(orderRequest, user, productsById);
+                results.add(onCreated.apply(orderMapper.mapToOrderResponse(order)));
+            } catch (ErrorCodeException e) {
+                log.warn("Order of the batch rejected : " + e.getMessage());
+                results.add(onRejected.apply(e));
+            }
+        }
+
+        log.info("End of the creation of a batch of " + orderRequests.size() + " orders");
+        return results;
+    }
+
+    private void ensureOrderHasItems(OrderRequest orderRequest) {
+        if (Objects.isNull(orderRequest.getName()) || Objects.isNull(orderRequest.getItems()) || orderRequest.getItems().isEmpty()) {
             throw new BadRequestException(OrderError.INVALID_ORDER);
         }
+    }
 
+    /**
+     * Validate and insert an order with already loaded user and products. Nothing is written if the request is
+     * invalid.
+     *
+     * @param orderRequest the request
+     * @param user         the user of the order, can be null
+     * @param productsById the loaded products, must contain all the items of the request
+     * @return the saved order
+     */
+    private Order saveOrder(OrderRequest orderRequest, User user, Map<String, Product> productsById) {
+        return saveOrder(orderRequest, user, productsById, null, OffsetDateTime.now(clock));
+    }
+
+    /**
+     * Validate and insert an order with an id and a creation date already given.
+     *
+     * @param orderRequest the request
+     * @param user         the user of the order, can be null
+     * @param productsById the loaded products, must contain all the items of the request
+     * @param orderId      the id of the order, null to generate it
+     * @param now          the creation date
+     * @return the saved order
+     */
+    private Order saveOrder(OrderRequest orderRequest, User user, Map<String, Product> productsById, String orderId,
+                            OffsetDateTime now) {
         String clientName = Strings.capitalize(orderRequest.getName().toLowerCase().trim());
-        User user = null;
 
-        if (Objects.nonNull(orderRequest.getUserId())) {
-            user = findUserById(orderRequest.getUserId());
+        if (Objects.nonNull(user)) {
             clientName = Objects.nonNull(user.getNickName()) ?
                     Strings.capitalize(user.getNickName().toLowerCase().trim()) :
                     Strings.capitalize(user.getFirstName().toLowerCase().trim() + " " + user.getLastName().toLowerCase().trim());
-            ensureUserCreditIsUpperThanZero(user);
         }
 
-        Order order = Order.builder()
-                .clientName(clientName)
-                .user(user)
-                .total(0L)
-                .status(OrderStatus.PENDING)
-                .createdAt(OffsetDateTime.now(clock))
-                .updatedAt(OffsetDateTime.now(clock))
-                .build();
-
-        Order savedOrder = orderRepository.save(order);
-
-        List<OrderItem> items = orderRequest.getItems().stream()
-                .map(item -> saveOrderItem(savedOrder, item))
+        List<Product> products = orderRequest.getItems().stream()
+                .map(id -> Optional.ofNullable(productsById.get(id))
+                        .orElseThrow(() -> new NotFoundException(ProductError.INVALID_NAME, id)))
                 .collect(Collectors.toList());
 
-        long total = items.stream()
-                .map(OrderItem::getPrice)
+        long total = products.stream()
+                .map(Product::getPrice)
                 .mapToLong(Long::valueOf)
                 .sum();
 
-        Order finalOrder = savedOrder.toBuilder()
-                .items(items)
-                .total(total)
-                .build();
+        debitUserCredit(user, total, now);
 
-        log.info("Order saved with ID : " + finalOrder.getId());
+        int deliveredCount = (int) products.stream()
+                .filter(product -> product.getCategory() == Category.BOISSON)
+                .count();
 
-        updateUserCredit(user, total);
+        Order order = Order.builder()
+                .id(orderId)
+                .clientName(clientName)
+                .user(user)
+                .total(total)
+                .status(deliveredCount == products.size() ? OrderStatus.DELIVER : OrderStatus.PENDING)
+                .pendingCount(products.size() - deliveredCount)
+                .deliveredCount(deliveredCount)
+                .createdAt(now)
+                .updatedAt(now)
+                .build();
 
-        Order createdOrder = orderRepository.save(finalOrder);
-        log.debug("End of order creation");
+        Order savedOrder = orderRepository.save(order);
 
-        List<OrderItem> drinks = items.stream()
-                .filter(item -> item.getProduct().getCategory() == Category.BOISSON)
+        List<OrderItem> items = products.stream()
+                .map(product -> buildOrderItem(savedOrder, product, now))
                 .collect(Collectors.toList());
 
-        drinks.forEach(drink -> {
-            OrderItemRequest request = new OrderItemRequest();
-            request.setStatus(OrderStatus.DELIVER);
-            updateOrderStatus(drink.getId(), request);
-        });
-
-        return orderMapper.mapToOrderResponse(createdOrder);
+        orderItemRepository.saveAll(items);
+        orderRollups.addDeliveredItems(items);
+        log.info("Order saved with ID : " + savedOrder.getId() + " and " + items.size() + " items");
+        publishOrderItemEvent(OrderStatus.PENDING, items.stream()
+                .filter(item -> item.getStatus() == OrderStatus.PENDING)
+                .collect(Collectors.toList()));
+
+        eventPublisher.publishEvent(OrderCreatedEvent.builder()
+                .orderId(savedOrder.getId())
+                .createdAt(savedOrder.getCreatedAt())
+                .deliveredProductIds(products.stream()
+                        .filter(product -> product.getCategory() == Category.BOISSON)
+                        .map(Product::getId)
+                        .collect(Collectors.toList()))
+                .build());
+
+        return savedOrder.toBuilder()
+                .items(items)
+                .build();
     }
 
-    private void updateUserCredit(User user, long total) {
-        if (Objects.nonNull(user)) {
-            long newCredit = user.getCredit() - total;
+    /**
+     * Update the stock of the ingredients of the given products with one bulk update by distinct quantity,
+     * which is a single statement for the usual basket.
+     *
+     * @param products the products, a product present twice moves its ingredients twice
+     * @param delta    the quantity to add for each occurrence of an ingredient
+     */
+    private void updateIngredientsStock(List<Product> products, long delta) {
+        Map<String, Long> occurrences = products.stream()
+                .map(Product::getIngredients)
+                .filter(Objects::nonNull)
+                .flatMap(List::stream)
+                .collect(Collectors.groupingBy(Ingredient::getId, Collectors.counting()));
 
-            User updatedUser = user.toBuilder()
-                    .credit(newCredit)
-                    .updatedAt(OffsetDateTime.now(clock))
-                    .build();
+        occurrences.entrySet().stream()
+                .collect(Collectors.groupingBy(Map.Entry::getValue,
+                        Collectors.mapping(Map.Entry::getKey, Collectors.toList())))
+                .forEach((count, ids) -> ingredientRepository.updateQuantityByIdIn(ids, count * delta));
+    }
 
-            userRepository.save(updatedUser);
-            log.info("User saved with ID : " + updatedUser.getId() + " and new credit : " + newCredit);
+    /**
+     * Debit the user with a conditional update, the order is refused if the credit of the user is not upper than
+     * zero at the time of the update.
+     *
+     * @param user  the user, can be null
+     * @param total the amount to debit
+     * @param now   the update date
+     */
+    private void debitUserCredit(User user, long total, OffsetDateTime now) {
+        if (Objects.isNull(user)) {
+            return;
         }
+        if (userRepository.debitCredit(user.getId(), total, now) == 0) {
+            throw new BadRequestException(UserError.USER_CREDIT_UNDER_ZERO, user.getId());
+        }
+        log.info("User debited with ID : " + user.getId() + " and amount : " + total);
     }
 
-    private OrderItem saveOrderItem(Order order, String productId) {
-        Product product = findProductById(productId);
-
-        OrderItem orderItem = OrderItem.builder()
+    private OrderItem buildOrderItem(Order order, Product product, OffsetDateTime now) {
+        return OrderItem.builder()
                 .order(order)
                 .price(product.getPrice())
                 .product(product)
-                .createdAt(OffsetDateTime.now(clock))
-                .updatedAt(OffsetDateTime.now(clock))
-                .status(OrderStatus.PENDING)
+                .userId(Objects.isNull(order.getUser()) ? null : order.getUser().getId())
+                .productName(product.getName())
+                .category(product.getCategory())
+                .ingredientNames(getIngredientNames(product))
+                .createdAt(now)
+                .updatedAt(now)
+                .status(product.getCategory() == Category.BOISSON ? OrderStatus.DELIVER : OrderStatus.PENDING)
                 .build();
-
-        log.info("Order item saved with order ID : " + order.getId());
-
-        return orderItemRepository.save(orderItem);
     }
 
-    private void ensureUserCreditIsUpperThanZero(User user) {
-        if (user.getCredit() <= 0) {
-            throw new BadRequestException(UserError.USER_CREDIT_UNDER_ZERO, user.getId());
+    private List<String> getIngredientNames(Product product) {
+        if (Objects.isNull(product.getIngredients())) {
+            return List.of();
         }
+        return product.getIngredients().stream()
+                .map(Ingredient::getName)
+                .distinct()
+                .collect(Collectors.toList());
     }
 
-
     /**
      * Cancel an item from an order.
      *
      * @param itemId the item id
      * @return an order item
      */
+    @Transactional
     public OrderItem updateOrderStatus(String itemId, OrderItemRequest request) {
         log.debug("Cancel an item from with item id : " + itemId);
 
         OrderItem orderItem = findOrderItemById(itemId);
-        if (request.getStatus().equals(orderItem.getStatus())) {
-            throw new BadRequestException(OrderError.ORDER_ITEM_WRONG_STATUS, orderItem.getId(), orderItem.getStatus());
-        }
-        OrderItem orderItemToUpdate;
-        if (orderItem.getStatus().equals(OrderStatus.PENDING)) {
-            if (request.getStatus().equals(OrderStatus.DELIVER)) {
-                orderItem.getProduct().getIngredients().stream()
-                        .map(ingredient -> {
-                            long quantity = ingredient.getQuantity();
-                            return ingredient.toBuilder().quantity(quantity - 1L).build();
-                        })
-                        .forEach(ingredientRepository::save);
-            }
+        ensureStatusTransitionIsValid(orderItem, request.getStatus());
 
-            orderItemToUpdate = orderItem.toBuilder()
-                    .status(request.getStatus())
-                    .updatedAt(OffsetDateTime.now(clock))
-                    .build();
-        } else if (orderItem.getStatus().equals(OrderStatus.DELIVER)) {
-            if (request.getStatus().equals(OrderStatus.CANCEL)) {
-                throw new BadRequestException(OrderError.ORDER_ITEM_WRONG_STATUS, orderItem.getId(), OrderStatus.CANCEL);
-            }
-            orderItem.getProduct().getIngredients().stream()
-                    .map(ingredient -> {
-                        long quantity = ingredient.getQuantity();
-                        return ingredient.toBuilder().quantity(quantity + 1L).build();
-                    })
-                    .forEach(ingredientRepository::save);
-
-            orderItemToUpdate = orderItem.toBuilder()
-                    .status(request.getStatus())
-                    .updatedAt(OffsetDateTime.now(clock))
-                    .build();
-        } else {
-            if (request.getStatus().equals(OrderStatus.DELIVER)) {
-                throw new BadRequestException(OrderError.ORDER_ITEM_WRONG_STATUS, orderItem.getId(), OrderStatus.DELIVER);
-            }
-            orderItemToUpdate = orderItem.toBuilder()
-                    .status(request.getStatus())
-                    .updatedAt(OffsetDateTime.now(clock))
-                    .build();
-        }
+        OffsetDateTime now = OffsetDateTime.now(clock);
+        OrderItem orderItemToUpdate = orderItem.toBuilder()
+                .status(request.getStatus())
+                .updatedAt(now)
+                .build();
 
-        OrderItem updatedOrderItem = orderItemRepository.save(orderItemToUpdate);
+        updateItemsStatus(List.of(itemId), orderItem.getStatus(), request.getStatus(), now);
+        updateOrdersStatus(request.getStatus(), List.of(orderItem), now);
+        orderRollups.addStatusChanges(List.of(orderItem), request.getStatus());
 
-        Order order = findOrderById(orderItem.getOrder().getId());
+        publishOrderItemEvent(request.getStatus(), List.of(orderItemToUpdate));
+        publishOrderItemsStatusChangedEvent(request.getStatus(), List.of(orderItem));
+        log.info("End of cancel");
+        return orderItemToUpdate;
+    }
 
-        calculateAndSaveOrderStatus(order);
+    /**
+     * Deliver or cancel several pending items in one transaction, an item is moved back to pending one at a time.
+     * <p>
+     * The stock of each ingredient, the status of each order and the credit of each user are updated once for the
+     * whole batch, after the commit.
+     *
+     * @param request the items and their new status
+     */
+    @Transactional
+    public void updateOrderItemsStatus(OrderItemsRequest request) {
+        OrderStatus status = request.getStatus();
+        log.debug("Update " + request.getItemIds().size() + " order items to status : " + status);
+        if (status == OrderStatus.PENDING) {
+            throw new BadRequestException(OrderError.ORDER_ITEMS_WRONG_STATUS, status);
+        }
 
-        creditUserIfOrderStatusIsCancel(order, orderItem);
+        List<OrderItem> orderItems = orderItemRepository.findAllWithOrderAndProductByIdIn(new HashSet<>(request.getItemIds()));
+        Set<String> foundIds = orderItems.stream()
+                .map(OrderItem::getId)
+                .collect(Collectors.toSet());
+        request.getItemIds().stream()
+                .filter(id -> !foundIds.contains(id))
+                .findFirst()
+                .ifPresent(id -> {
+                    throw new NotFoundException(OrderError.ORDER_ITEM_NOT_FOUND, id);
+                });
+        orderItems.forEach(orderItem -> ensureStatusTransitionIsValid(orderItem, status));
 
-        log.info("End of cancel");
-        return updatedOrderItem;
+        OffsetDateTime now = OffsetDateTime.now(clock);
+        List<OrderItem> updatedItems = orderItems.stream()
+                .map(orderItem -> orderItem.toBuilder()
+                        .status(status)
+                        .updatedAt(now)
+                        .build())
+                .collect(Collectors.toList());
+        updateItemsStatus(foundIds, OrderStatus.PENDING, status, now);
+        updateOrdersStatus(status, orderItems, now);
+        orderRollups.addStatusChanges(orderItems, status);
+
+        publishOrderItemEvent(status, updatedItems);
+        publishOrderItemsStatusChangedEvent(status, orderItems);
+        log.info("End of the update of " + updatedItems.size() + " order items");
     }
 
-    private void creditUserIfOrderStatusIsCancel(Order order, OrderItem orderItem) {
-        if (orderItem.getStatus().equals(OrderStatus.CANCEL) && Objects.nonNull(order.getUser().getId())) {
-            User user = findUserById(order.getUser().getId());
-            long newCredit = user.getCredit() + orderItem.getPrice();
+    /**
+     * Move the items from the status they were read in, so that two concurrent requests cannot both apply the same
+     * transition to the counters, the rollups and the side effects.
+     *
+     * @param ids      the item ids
+     * @param previous the status the items were read in
+     * @param status   the new status
+     * @param now      the update date
+     */
+    private void updateItemsStatus(Collection<String> ids, OrderStatus previous, OrderStatus status, OffsetDateTime now) {
+        int updated = orderItemRepository.updateStatus(ids, previous, status, now);
+        if (updated != ids.size()) {
+            throw new ConflictException(OrderError.ORDER_ITEM_STATUS_CONFLICT, ids);
+        }
+    }
 
-            User updatedUser = user.toBuilder()
-                    .credit(newCredit)
-                    .updatedAt(OffsetDateTime.now(clock))
-                    .build();
+    /**
+     * Move the counters of the orders of the items and derive their status from the counters, in the transaction of
+     * the items, with one statement by order and one for all the status.
+     *
+     * @param status             the new status of the items
+     * @param previousOrderItems the items with their previous status
+     * @param now                the update date
+     */
+    private void updateOrdersStatus(OrderStatus status, List<OrderItem> previousOrderItems, OffsetDateTime now) {
+        Map<String, List<OrderItem>> itemsByOrderId = previousOrderItems.stream()
+                .collect(Collectors.groupingBy(orderItem -> orderItem.getOrder().getId()));
+        itemsByOrderId.forEach((orderId, orderItems) -> orderRepository.addToCounters(orderId,
+                getCounterDelta(orderItems, OrderStatus.PENDING, status),
+                getCounterDelta(orderItems, OrderStatus.DELIVER, status),
+                getCounterDelta(orderItems, OrderStatus.CANCEL, status)));
+        int updatedOrders = orderRepository.updateStatusFromCounters(itemsByOrderId.keySet(), now);
+        log.debug("Status changed for " + updatedOrders + " of " + itemsByOrderId.size() + " orders");
+    }
 
-            userRepository.save(updatedUser);
-        }
+    private int getCounterDelta(List<OrderItem> previousOrderItems, OrderStatus counted, OrderStatus status) {
+        int removed = (int) previousOrderItems.stream()
+                .filter(orderItem -> orderItem.getStatus() == counted)
+                .count();
+        return (status == counted ? previousOrderItems.size() : 0) - removed;
     }
 
-    private void calculateAndSaveOrderStatus(Order order) {
-        Order orderToUpdate = findOrderById(order.getId());
+    /**
+     * Publish the items which have moved to the status, the event is delivered to the listeners after the commit.
+     */
+    private void publishOrderItemEvent(OrderStatus status, List<OrderItem> orderItems) {
+        OrderItemEventType type = status == OrderStatus.PENDING ? OrderItemEventType.ADDED :
+                status == OrderStatus.DELIVER ? OrderItemEventType.DELIVERED : OrderItemEventType.CANCELLED;
+        eventPublisher.publishEvent(OrderItemEvent.builder()
+                .type(type)
+                .items(orderItems.stream()
+                        .map(orderItemMapper::mapToOrderItemResponse)
+                        .collect(Collectors.toList()))
+                .build());
+    }
 
-        boolean isPending = orderToUpdate.getItems().stream()
-                .map(OrderItem::getStatus)
-                .anyMatch(status -> status.equals(OrderStatus.PENDING));
+    /**
+     * Publish the items which have moved to the status with their previous status, their side effects are applied
+     * after the commit.
+     */
+    private void publishOrderItemsStatusChangedEvent(OrderStatus status, List<OrderItem> previousOrderItems) {
+        eventPublisher.publishEvent(OrderItemsStatusChangedEvent.builder()
+                .status(status)
+                .changes(previousOrderItems.stream()
+                        .map(orderItem -> OrderItemChange.builder()
+                                .itemId(orderItem.getId())
+                                .orderId(orderItem.getOrder().getId())
+                                .userId(Objects.nonNull(orderItem.getOrder().getUser()) ? orderItem.getOrder().getUser().getId() : null)
+                                .productId(orderItem.getProduct().getId())
+                                .price(orderItem.getPrice())
+                                .previousStatus(orderItem.getStatus())
+                                .createdAt(orderItem.getCreatedAt())
+                                .build())
+                        .collect(Collectors.toList()))
+                .build());
+    }
 
-        if (!isPending) {
-            boolean isDeliver = orderToUpdate.getItems().stream()
-                    .map(OrderItem::getStatus)
-                    .anyMatch(status -> status.equals(OrderStatus.DELIVER));
+    /**
+     * Count a created order in the rollups and remove the ingredients of the drinks delivered with it from the stock.
+     *
+     * @param event the created order
+     */
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public void applyOrderCreated(OrderCreatedEvent event) {
+        orderRollups.addCreatedOrder(event.getCreatedAt());
+        if (event.getDeliveredProductIds().isEmpty()) {
+            return;
+        }
+        Map<String, Product> productsById = findProductsByIds(event.getDeliveredProductIds());
+        updateIngredientsStock(event.getDeliveredProductIds().stream()
+                .map(productsById::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList()), -1L);
+        log.info("Stock updated for order with ID : " + event.getOrderId());
+    }
 
-            if (isDeliver) {
-                Order updatedOrder = orderToUpdate.toBuilder()
-                        .status(OrderStatus.DELIVER)
-                        .updatedAt(OffsetDateTime.now(clock))
-                        .build();
+    /**
+     * Apply the side effects of items which have moved to another status: the stock of their ingredients and the
+     * refund of their users when they are cancelled.
+     *
+     * @param event the changed items
+     */
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public void applyOrderItemsStatusChanged(OrderItemsStatusChangedEvent event) {
+        OrderStatus status = event.getStatus();
+        List<OrderItemChange> changes = event.getChanges();
+
+        Map<Long, List<String>> productIdsByStockDelta = changes.stream()
+                .collect(Collectors.groupingBy(change -> getStockDelta(change.getPreviousStatus(), status),
+                        Collectors.mapping(OrderItemChange::getProductId, Collectors.toList())));
+        productIdsByStockDelta.remove(0L);
+        if (!productIdsByStockDelta.isEmpty()) {
+            Map<String, Product> productsById = findProductsByIds(productIdsByStockDelta.values().stream()
+                    .flatMap(List::stream)
+                    .collect(Collectors.toSet()));
+            productIdsByStockDelta.forEach((stockDelta, productIds) -> updateIngredientsStock(productIds.stream()
+                    .map(productsById::get)
+                    .filter(Objects::nonNull)
+                    .collect(Collectors.toList()), stockDelta));
+        }
 
-                orderRepository.save(updatedOrder);
-            } else {
-                Order updatedOrder = orderToUpdate.toBuilder()
-                        .status(OrderStatus.CANCEL)
-                        .updatedAt(OffsetDateTime.now(clock))
-                        .build();
+        if (status == OrderStatus.CANCEL) {
+            OffsetDateTime now = OffsetDateTime.now(clock);
+            changes.stream()
+                    .filter(change -> Objects.nonNull(change.getUserId()))
+                    .collect(Collectors.groupingBy(OrderItemChange::getUserId, Collectors.summingLong(OrderItemChange::getPrice)))
+                    .forEach((userId, amount) -> userRepository.addCredit(userId, amount, now));
+        }
+        log.info("Side effects applied for " + changes.size() + " order items");
+    }
 
-                orderRepository.save(updatedOrder);
-            }
-        } else {
-            Order updatedOrder = orderToUpdate.toBuilder()
-                    .updatedAt(OffsetDateTime.now(clock))
-                    .build();
+    /**
+     * An item is delivered or cancelled while it is pending, and a delivered or cancelled item can only go back to
+     * pending.
+     */
+    private void ensureStatusTransitionIsValid(OrderItem orderItem, OrderStatus status) {
+        if (status.equals(orderItem.getStatus())) {
+            throw new BadRequestException(OrderError.ORDER_ITEM_WRONG_STATUS, orderItem.getId(), orderItem.getStatus());
+        }
+        if (!ALLOWED_TRANSITIONS.get(orderItem.getStatus()).contains(status)) {
+            throw new BadRequestException(OrderError.ORDER_ITEM_WRONG_STATUS, orderItem.getId(), status);
+        }
+    }
 
-            orderRepository.save(updatedOrder);
+    /**
+     * The ingredients of a product leave the stock when it is delivered and come back when a delivery is undone.
+     */
+    private long getStockDelta(OrderStatus from, OrderStatus to) {
+        if (from.equals(OrderStatus.PENDING) && to.equals(OrderStatus.DELIVER)) {
+            return -1L;
         }
+        if (from.equals(OrderStatus.DELIVER)) {
+            return 1L;
+        }
+        return 0L;
     }
 
     public Page<OrderItemResponse> getOrderItems(Pageable pageable) {
         log.debug("Find all order items");
-        return orderItemRepository.findAllByStatus(pageable, OrderStatus.PENDING)
-                .map(orderItemMapper::mapToOrderItemResponse);
+        return pendingOrderItems.getPage(pageable)
+                .orElseGet(() -> orderItemReader.read(orderItemRepository.findRowsByStatus(OrderStatus.PENDING, pageable)));
+    }
+
+    /**
+     * Get a slice of the pending items by creation date, read after the cursor instead of with an offset.
+     *
+     * @param cursor the cursor of the previous slice, null for the first slice
+     * @param size   the size of the slice
+     * @return the slice with the cursor of the next one
+     */
+    public SliceResponse<OrderItemResponse> getOrderItems(String cursor, int size) {
+        log.debug("Find order items after cursor : " + cursor);
+        int limit = getLimit(size);
+        Optional<Cursor> after = decode(cursor);
+        OffsetDateTime createdAt = after.map(Cursor::getDateTimeValue).orElse(null);
+        String id = after.map(Cursor::getId).orElse(null);
+        PageRequest pageRequest = PageRequest.of(0, limit + 1);
+        List<OrderItemResponse> items = pendingOrderItems.getSliceAfter(createdAt, id, limit + 1)
+                .orElseGet(() -> orderItemReader.read(after.isPresent() ?
+                        orderItemRepository.findRowsByStatusAfter(OrderStatus.PENDING, createdAt, id, pageRequest) :
+                        orderItemRepository.findFirstRowsByStatus(OrderStatus.PENDING, pageRequest)));
+        return slice(items, limit, item -> item.getCreatedAt().toString(), OrderItemResponse::getId, Function.identity());
+    }
+
+    public List<OrderItemResponse> getPendingOrderItems() {
+        log.debug("Find all pending order items");
+        return pendingOrderItems.getAll()
+                .orElseGet(() -> orderItemReader.read(orderItemRepository.findAllRowsByStatus(OrderStatus.PENDING)));
+    }
+
+    public CountResponse countPendingOrderItems() {
+        long count = pendingOrderItems.count()
+                .orElseGet(() -> orderItemRepository.countByStatus(OrderStatus.PENDING));
+        return CountResponse.builder()
+                .count(count)
+                .build();
     }
 
     public List<OrderItemResponse> getLastOrderItemsByUserId(String userId) {
@@ -318,22 +856,78 @@ public class OrderService {
         OffsetDateTime now = OffsetDateTime.now(clock);
         OffsetDateTime start = now.minus(18, ChronoUnit.HOURS);
         log.debug("Find last order items not pending from : " + start + " to " + now + " with user ID : " + userId);
-        List<Order> deliverOrdersFromToday = orderRepository.findByUserAndCreatedAtBetween(user, now, start);
+        return orderItemReader.read(orderItemRepository.findRowsByUserIdAndStatusNotAndCreatedAtBetween(
+                user.getId(), OrderStatus.PENDING, start, now));
+    }
 
-        return deliverOrdersFromToday.stream()
-                .map(Order::getItems)
-                .flatMap(List::stream)
-                .map(orderItemMapper::mapToOrderItemResponse)
-                .filter(orderItem -> orderItem.getStatus() != OrderStatus.PENDING)
-                .collect(Collectors.toList());
+    /**
+     * Get a slice of the items not pending of a user by creation date descending, read after the cursor instead of
+     * with an offset, to go back through the history of the user.
+     * <p>
+     * The archived orders are older than the ones of the hot tables, so the read goes on in the archive, from the
+     * last hot item, once the hot items run out.
+     *
+     * @param userId the user id
+     * @param cursor the cursor of the previous slice, null for the first slice
+     * @param size   the size of the slice
+     * @return the slice with the cursor of the next one
+     */
+    public SliceResponse<OrderItemResponse> getOrderItemsByUserId(String userId, String cursor, int size) {
+        User user = findUserById(userId);
+        log.debug("Find order items not pending with user ID : " + userId + " after cursor : " + cursor);
+        int limit = getLimit(size);
+        PageRequest pageRequest = PageRequest.of(0, limit + 1);
+        Optional<Cursor> after = decode(cursor);
+        List<OrderItemRow> rows = new ArrayList<>(after
+                .map(last -> orderItemRepository.findRowsByUserIdAndStatusNotBefore(
+                        user.getId(), OrderStatus.PENDING, last.getDateTimeValue(), last.getId(), pageRequest))
+                .orElseGet(() -> orderItemRepository.findFirstRowsByUserIdAndStatusNot(
+                        user.getId(), OrderStatus.PENDING, pageRequest)));
+        if (rows.size() <= limit) {
+            PageRequest archivePageRequest = PageRequest.of(0, limit + 1 - rows.size());
+            OffsetDateTime lastCreatedAt = rows.isEmpty() ?
+                    after.map(Cursor::getDateTimeValue).orElse(null) :
+                    rows.get(rows.size() - 1).getCreatedAt();
+            String lastId = rows.isEmpty() ? after.map(Cursor::getId).orElse(null) : rows.get(rows.size() - 1).getId();
+            rows.addAll(Objects.isNull(lastCreatedAt) ?
+                    archivedOrderItemRepository.findFirstRowsByUserIdAndStatusNot(
+                            user.getId(), OrderStatus.PENDING, archivePageRequest) :
+                    archivedOrderItemRepository.findRowsByUserIdAndStatusNotBefore(
+                            user.getId(), OrderStatus.PENDING, lastCreatedAt, lastId, archivePageRequest));
+        }
+        return slice(orderItemReader.read(rows), limit, item -> item.getCreatedAt().toString(), OrderItemResponse::getId,
+                Function.identity());
     }
 
     public Page<OrderItemResponse> getLastOrderItems(Pageable pageable) {
         OffsetDateTime now = OffsetDateTime.now(clock);
         OffsetDateTime start = now.minus(18, ChronoUnit.HOURS);
         log.debug("Find last order items not pending from : " + start + " to " + now);
-        return orderItemRepository.findByStatusNotAndUpdatedAtBetween(pageable, OrderStatus.PENDING, start, now)
-                .map(orderItemMapper::mapToOrderItemResponse);
+        return orderItemReader.read(
+                orderItemRepository.findRowsByStatusNotAndUpdatedAtBetween(OrderStatus.PENDING, start, now, pageable));
+    }
+
+    /**
+     * Get a slice of the last items not pending by update date descending, read after the cursor instead of with an
+     * offset.
+     *
+     * @param cursor the cursor of the previous slice, null for the first slice
+     * @param size   the size of the slice
+     * @return the slice with the cursor of the next one
+     */
+    public SliceResponse<OrderItemResponse> getLastOrderItems(String cursor, int size) {
+        OffsetDateTime now = OffsetDateTime.now(clock);
+        OffsetDateTime start = now.minus(18, ChronoUnit.HOURS);
+        log.debug("Find last order items not pending from : " + start + " to " + now + " after cursor : " + cursor);
+        int limit = getLimit(size);
+        PageRequest pageRequest = PageRequest.of(0, limit + 1);
+        List<OrderItemRow> rows = decode(cursor)
+                .map(after -> orderItemRepository.findRowsByStatusNotAndUpdatedAtBetweenBefore(
+                        OrderStatus.PENDING, start, now, after.getDateTimeValue(), after.getId(), pageRequest))
+                .orElseGet(() -> orderItemRepository.findFirstRowsByStatusNotAndUpdatedAtBetween(
+                        OrderStatus.PENDING, start, now, pageRequest));
+        return slice(orderItemReader.read(rows), limit, item -> item.getUpdatedAt().toString(), OrderItemResponse::getId,
+                Function.identity());
     }
 
 }
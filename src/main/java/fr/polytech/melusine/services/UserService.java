@@ -1,5 +1,6 @@
 package fr.polytech.melusine.services;
 
+import fr.polytech.melusine.components.OptimisticLockRetry;
 import fr.polytech.melusine.exceptions.BadRequestException;
 import fr.polytech.melusine.exceptions.ConflictException;
 import fr.polytech.melusine.exceptions.NotFoundException;
@@ -10,11 +11,14 @@ import fr.polytech.melusine.mappers.UserMapper;
 import fr.polytech.melusine.models.dtos.requests.AccountRequest;
 import fr.polytech.melusine.models.dtos.requests.UserRegistrationRequest;
 import fr.polytech.melusine.models.dtos.requests.UserUpdateRequest;
+import fr.polytech.melusine.models.dtos.responses.SliceResponse;
 import fr.polytech.melusine.models.dtos.responses.UserResponse;
 import fr.polytech.melusine.models.entities.Account;
 import fr.polytech.melusine.models.entities.Order;
 import fr.polytech.melusine.models.entities.User;
 import fr.polytech.melusine.repositories.AccountRepository;
+import fr.polytech.melusine.repositories.ArchivedOrderItemRepository;
+import fr.polytech.melusine.repositories.ArchivedOrderRepository;
 import fr.polytech.melusine.repositories.OrderItemRepository;
 import fr.polytech.melusine.repositories.OrderRepository;
 import fr.polytech.melusine.repositories.UserRepository;
@@ -22,10 +26,12 @@ import io.jsonwebtoken.lang.Strings;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.shiro.authc.credential.PasswordService;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import javax.persistence.EntityManager;
 import java.time.Clock;
 import java.time.OffsetDateTime;
 import java.util.List;
@@ -33,29 +39,44 @@ import java.util.Objects;
 
 import static fr.polytech.melusine.utils.AuthenticatedFinder.ensureAuthenticatedUserIsAdmin;
 import static fr.polytech.melusine.utils.AuthenticatedFinder.getAuthenticatedUser;
+import static fr.polytech.melusine.utils.KeysetPagination.decode;
+import static fr.polytech.melusine.utils.KeysetPagination.getLimit;
+import static fr.polytech.melusine.utils.KeysetPagination.slice;
 import static fr.polytech.melusine.utils.MoneyFormatter.formatToLong;
 
 @Slf4j
 @Service
 public class UserService {
 
+    private static final String USER = "L'utilisateur";
+
     private UserRepository userRepository;
     private AccountRepository accountRepository;
     private PasswordService passwordService;
     private UserMapper userMapper;
     private OrderRepository orderRepository;
     private OrderItemRepository orderItemRepository;
+    private ArchivedOrderRepository archivedOrderRepository;
+    private ArchivedOrderItemRepository archivedOrderItemRepository;
+    private OptimisticLockRetry optimisticLockRetry;
+    private EntityManager entityManager;
     private Clock clock;
 
 
     public UserService(UserRepository userRepository, AccountRepository accountRepository, PasswordService passwordService,
-                       UserMapper userMapper, OrderRepository orderRepository, OrderItemRepository orderItemRepository, Clock clock) {
+                       UserMapper userMapper, OrderRepository orderRepository, OrderItemRepository orderItemRepository,
+                       ArchivedOrderRepository archivedOrderRepository, ArchivedOrderItemRepository archivedOrderItemRepository,
+                       OptimisticLockRetry optimisticLockRetry, EntityManager entityManager, Clock clock) {
         this.userRepository = userRepository;
         this.accountRepository = accountRepository;
         this.passwordService = passwordService;
         this.userMapper = userMapper;
         this.orderRepository = orderRepository;
         this.orderItemRepository = orderItemRepository;
+        this.archivedOrderRepository = archivedOrderRepository;
+        this.archivedOrderItemRepository = archivedOrderItemRepository;
+        this.optimisticLockRetry = optimisticLockRetry;
+        this.entityManager = entityManager;
         this.clock = clock;
     }
 
@@ -125,6 +146,23 @@ public class UserService {
         return userPages.map(this::getUserResponse);
     }
 
+    /**
+     * Get a slice of users by last name, read after the cursor instead of with an offset.
+     *
+     * @param cursor the cursor of the previous slice, null for the first slice
+     * @param size   the size of the slice
+     * @return the slice with the cursor of the next one
+     */
+    public SliceResponse<UserResponse> getUsers(String cursor, int size) {
+        log.debug("Find users order by last name after cursor : " + cursor);
+        int limit = getLimit(size);
+        PageRequest pageRequest = PageRequest.of(0, limit + 1);
+        List<User> users = decode(cursor)
+                .map(after -> userRepository.findAllAfter(after.getValue(), after.getId(), pageRequest))
+                .orElseGet(() -> userRepository.findAllByOrderByLastNameAscIdAsc(pageRequest));
+        return slice(users, limit, User::getLastName, User::getId, this::getUserResponse);
+    }
+
     private UserResponse getUserResponse(User user) {
         Account account = accountRepository.findByUser(user)
                 .orElse(null);
@@ -134,28 +172,29 @@ public class UserService {
         return userMapper.mapToUserResponse(user, email, isBarman);
     }
 
+    /**
+     * Credit a user with a conditional update, the user is then refreshed to return his new credit.
+     *
+     * @param userId  the user id
+     * @param request the credit
+     * @return the credited user
+     */
+    @Transactional
     public UserResponse creditUser(String userId, UserUpdateRequest request) {
         log.debug("Credit a user with ID : " + userId + " and amount : " + request.getCredit());
         User user = userRepository.findById(userId)
                 .orElseThrow(() -> new NotFoundException(UserError.NOT_FOUND, userId));
 
         long requestedCredit = formatToLong(request.getCredit());
-        long newCredit;
+        long amount = user.isMembership() ? requestedCredit + getMembershipBonus(requestedCredit) : requestedCredit;
 
-        if (user.isMembership()) {
-            newCredit = user.getCredit() + requestedCredit + getMembershipBonus(requestedCredit);
-        } else {
-            newCredit = user.getCredit() + requestedCredit;
+        if (userRepository.addCredit(userId, amount, OffsetDateTime.now(clock)) == 0) {
+            throw new NotFoundException(UserError.NOT_FOUND, userId);
         }
-
-        User updatedUser = userRepository.save(user.toBuilder()
-                .credit(newCredit)
-                .updatedAt(OffsetDateTime.now(clock))
-                .build()
-        );
+        entityManager.refresh(user);
 
         log.info("End of credit a user");
-        return getUserResponse(updatedUser);
+        return getUserResponse(user);
     }
 
     private long getMembershipBonus(long requestedCredit) {
@@ -174,21 +213,49 @@ public class UserService {
         return users.map(this::getUserResponse);
     }
 
+    /**
+     * Search a slice of users by name, by last name, read after the cursor instead of with an offset.
+     *
+     * @param name   the searched name
+     * @param cursor the cursor of the previous slice, null for the first slice
+     * @param size   the size of the slice
+     * @return the slice with the cursor of the next one
+     */
+    public SliceResponse<UserResponse> searchUser(String name, String cursor, int size) {
+        log.debug("Search user by this char : " + name + " after cursor : " + cursor);
+        String formattedName = name.toLowerCase().trim();
+        int limit = getLimit(size);
+        PageRequest pageRequest = PageRequest.of(0, limit + 1);
+        List<User> users = decode(cursor)
+                .map(after -> userRepository.searchAfter(formattedName, after.getValue(), after.getId(), pageRequest))
+                .orElseGet(() -> userRepository.searchFirst(formattedName, pageRequest));
+        return slice(users, limit, User::getLastName, User::getId, this::getUserResponse);
+    }
+
+    /**
+     * Update a user, again from the read if his credit or his profile has been updated meanwhile.
+     *
+     * @param id      the user id
+     * @param request the new profile
+     * @return the updated user
+     */
     public UserResponse updateUser(String id, UserUpdateRequest request) {
-        User user = userRepository.findById(id)
-                .orElseThrow(() -> new NotFoundException(UserError.NOT_FOUND, id));
-        String firstName = Strings.capitalize(request.getFirstName().toLowerCase().trim());
-        String lastName = Strings.capitalize(request.getLastName().toLowerCase().trim());
-        String nickName = Strings.capitalize(request.getNickName().toLowerCase().trim());
-        User updatedUser = user.toBuilder()
-                .firstName(firstName)
-                .lastName(lastName)
-                .nickName(nickName)
-                .section(request.getSection())
-                .isMembership(Objects.nonNull(request.getIsMembership()) ? request.getIsMembership() : user.isMembership() )
-                .build();
+        User savedUser = optimisticLockRetry.execute(USER, id, () -> {
+            User user = userRepository.findById(id)
+                    .orElseThrow(() -> new NotFoundException(UserError.NOT_FOUND, id));
+            String firstName = Strings.capitalize(request.getFirstName().toLowerCase().trim());
+            String lastName = Strings.capitalize(request.getLastName().toLowerCase().trim());
+            String nickName = Strings.capitalize(request.getNickName().toLowerCase().trim());
+            User updatedUser = user.toBuilder()
+                    .firstName(firstName)
+                    .lastName(lastName)
+                    .nickName(nickName)
+                    .section(request.getSection())
+                    .isMembership(Objects.nonNull(request.getIsMembership()) ? request.getIsMembership() : user.isMembership() )
+                    .build();
 
-        User savedUser = userRepository.save(updatedUser);
+            return userRepository.save(updatedUser);
+        });
         return getUserResponse(savedUser);
     }
 
@@ -202,6 +269,8 @@ public class UserService {
         List<Order> orders = orderRepository.findAllByUser(user);
         orders.forEach(order -> orderItemRepository.deleteByOrder(order));
         orderRepository.deleteByUser(user);
+        archivedOrderItemRepository.deleteByOrderUserId(user.getId());
+        archivedOrderRepository.deleteByUserId(user.getId());
         accountRepository.deleteByUser(user);
         userRepository.deleteById(user.getId());
     }
@@ -0,0 +1,84 @@
+package fr.polytech.melusine.utils;
+
+import fr.polytech.melusine.exceptions.BadRequestException;
+import fr.polytech.melusine.exceptions.errors.PaginationError;
+import fr.polytech.melusine.models.Cursor;
+import fr.polytech.melusine.models.dtos.responses.SliceResponse;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Opaque cursors for the seek pagination: a slice is read after the last row of the previous one instead of with an
+ * offset, so that a deep slice costs the same as the first one and no count is needed.
+ */
+public final class KeysetPagination {
+
+    public static final int MAX_SIZE = 100;
+    private static final char SEPARATOR = '|';
+
+    private KeysetPagination() {
+    }
+
+    public static String encode(String value, String id) {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((value + SEPARATOR + id).getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decode a cursor sent by a client.
+     *
+     * @param cursor the cursor, null or blank for the first slice
+     * @return the cursor, empty for the first slice
+     */
+    public static Optional<Cursor> decode(String cursor) {
+        if (Objects.isNull(cursor) || cursor.isBlank()) {
+            return Optional.empty();
+        }
+        try {
+            String decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separatorIndex = decoded.lastIndexOf(SEPARATOR);
+            if (separatorIndex < 0) {
+                throw new BadRequestException(PaginationError.INVALID_CURSOR, cursor);
+            }
+            return Optional.of(new Cursor(decoded.substring(0, separatorIndex), decoded.substring(separatorIndex + 1)));
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestException(PaginationError.INVALID_CURSOR, cursor);
+        }
+    }
+
+    public static int getLimit(int size) {
+        return Math.max(1, Math.min(size, MAX_SIZE));
+    }
+
+    /**
+     * Build a slice from rows read with one more row than the limit, the extra row only tells that there is a next
+     * slice.
+     *
+     * @param rows        the rows, at most limit + 1
+     * @param limit       the size of the slice
+     * @param cursorValue the value of the sort column of a row
+     * @param id          the id of a row
+     * @param mapper      the mapping of a row to the response
+     * @return the slice
+     */
+    public static <T, R> SliceResponse<R> slice(List<T> rows, int limit, Function<T, String> cursorValue,
+                                                Function<T, String> id, Function<T, R> mapper) {
+        List<T> content = rows.size() > limit ? rows.subList(0, limit) : rows;
+        String nextCursor = null;
+        if (rows.size() > limit) {
+            T last = content.get(content.size() - 1);
+            nextCursor = encode(cursorValue.apply(last), id.apply(last));
+        }
+        return SliceResponse.<R>builder()
+                .content(content.stream().map(mapper).collect(Collectors.toList()))
+                .nextCursor(nextCursor)
+                .build();
+    }
+
+}
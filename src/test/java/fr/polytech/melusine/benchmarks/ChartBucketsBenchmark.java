@@ -0,0 +1,77 @@
+package fr.polytech.melusine.benchmarks;
+
+import fr.polytech.melusine.models.charts.ChartBuckets;
+import fr.polytech.melusine.models.charts.ChartInterval;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time and allocations by input row of the bucketing of a chart, to run with the main method and the test classpath:
+ * the {@code gc.alloc.rate.norm} of the GC profiler is in bytes by row.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ChartBucketsBenchmark {
+
+    private static final int ROWS = 100_000;
+    private static final OffsetDateTime END = OffsetDateTime.of(2020, 2, 17, 13, 0, 0, 0, ZoneOffset.UTC);
+
+    @Param({"DECADE", "YEAR", "MONTH", "DAY"})
+    private ChartInterval interval;
+
+    private OffsetDateTime start;
+    private OffsetDateTime[] dates;
+    private long[] values;
+
+    @Setup
+    public void setUp() {
+        start = END.minusYears(10);
+        dates = new OffsetDateTime[ROWS];
+        values = new long[ROWS];
+        for (int i = 0; i < ROWS; i++) {
+            dates[i] = END.minusHours(i * 7L % 87_600);
+            values[i] = i % 1000;
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public ChartBuckets bucket() {
+        ChartBuckets buckets = new ChartBuckets(interval, start, END);
+        for (int i = 0; i < ROWS; i++) {
+            buckets.add(dates[i], values[i]);
+        }
+        return buckets;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(ChartBucketsBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build())
+                .run();
+    }
+
+}
@@ -0,0 +1,123 @@
+package fr.polytech.melusine.benchmarks;
+
+import fr.polytech.melusine.TestData;
+import fr.polytech.melusine.components.OptimisticLockRetry;
+import fr.polytech.melusine.models.entities.User;
+import fr.polytech.melusine.repositories.UserRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Contention benchmark of the read-modify-write of a user: the writers increment the same credit, half of them
+ * through a versioned save and half through the conditional update, and the throughput and the retry rate are logged
+ * for each number of writers.
+ * <p>
+ * It takes several seconds, so it is left out of the build by its name: run it with
+ * {@code mvn test -Dtest=OptimisticLockRetryContentionBenchmark}.
+ */
+@Slf4j
+@RunWith(SpringRunner.class)
+@DataJpaTest(properties = {
+        "spring.jpa.hibernate.ddl-auto=create",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+        "melusine.retry.max-attempts=100",
+        "melusine.retry.backoff=1",
+        "melusine.retry.max-backoff=8"
+})
+@Import(OptimisticLockRetry.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class OptimisticLockRetryContentionBenchmark {
+
+    private static final int UPDATES_BY_WRITER = 50;
+
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private OptimisticLockRetry optimisticLockRetry;
+
+    @After
+    public void tearDown() {
+        userRepository.deleteAll();
+    }
+
+    @Test
+    public void execute_noUpdateIsLostWhateverTheNumberOfWriters() throws Exception {
+        for (int writers : List.of(1, 2, 4, 8)) {
+            User user = userRepository.save(TestData.USER_BRUCE_WAYNE.toBuilder()
+                    .id(null)
+                    .credit(0)
+                    .build());
+            long attemptsBefore = optimisticLockRetry.getAttempts();
+            long retriesBefore = optimisticLockRetry.getRetries();
+
+            long start = System.nanoTime();
+            runWriters(writers, writer -> {
+                if (writer % 2 == 0) {
+                    optimisticLockRetry.execute("User", user.getId(), () -> {
+                        User current = userRepository.findById(user.getId()).get();
+                        return userRepository.save(current.toBuilder()
+                                .credit(current.getCredit() + 1)
+                                .build());
+                    });
+                } else {
+                    userRepository.addCredit(user.getId(), 1, TestData.INSTANT_2);
+                }
+            });
+            long elapsedNanos = System.nanoTime() - start;
+
+            long updates = (long) writers * UPDATES_BY_WRITER;
+            long versionedUpdates = (long) ((writers + 1) / 2) * UPDATES_BY_WRITER;
+            long retries = optimisticLockRetry.getRetries() - retriesBefore;
+            log.info(String.format("%d writers : %.0f updates/s, %d attempts, %.2f retries by versioned update",
+                    writers,
+                    updates * 1e9 / elapsedNanos,
+                    optimisticLockRetry.getAttempts() - attemptsBefore,
+                    (double) retries / versionedUpdates));
+            assertThat(userRepository.findById(user.getId()).get().getCredit()).isEqualTo(updates);
+        }
+    }
+
+    private void runWriters(int writers, WriterTask task) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(writers);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < writers; i++) {
+                int writer = i;
+                futures.add(executor.submit(() -> {
+                    for (int j = 0; j < UPDATES_BY_WRITER; j++) {
+                        task.run(writer);
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private interface WriterTask {
+
+        void run(int writer);
+
+    }
+
+}
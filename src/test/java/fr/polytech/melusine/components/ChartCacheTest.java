@@ -0,0 +1,153 @@
+package fr.polytech.melusine.components;
+
+import fr.polytech.melusine.configurations.ChartCacheProperties;
+import fr.polytech.melusine.models.charts.ChartInterval;
+import fr.polytech.melusine.models.dtos.responses.ChartResponse;
+import fr.polytech.melusine.models.enums.OrderStatus;
+import fr.polytech.melusine.models.events.OrderItemChange;
+import fr.polytech.melusine.models.events.OrderItemsStatusChangedEvent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import java.time.Clock;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalStateException;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class ChartCacheTest {
+
+    private static final OffsetDateTime HOUR = OffsetDateTime.of(2020, 2, 17, 13, 0, 0, 0, ZoneOffset.UTC);
+
+    @Mock
+    private OrderRollups orderRollups;
+    @Mock
+    private Clock clock;
+
+    private SimpleMeterRegistry meterRegistry;
+    private ChartCache chartCache;
+    private AtomicInteger computations;
+
+    @Before
+    public void setUp() {
+        when(clock.getZone()).thenReturn(ZoneOffset.UTC);
+        ChartCacheProperties chartCacheProperties = new ChartCacheProperties();
+        chartCacheProperties.setMaxSize(2);
+        meterRegistry = new SimpleMeterRegistry();
+        chartCache = new ChartCache(chartCacheProperties, orderRollups, meterRegistry, clock);
+        computations = new AtomicInteger();
+    }
+
+    @Test
+    public void getOrCompute_computesTheChartOnceForAllTheViewers() {
+        ChartCache.Key key = buildKey(HOUR);
+
+        ChartResponse first = chartCache.getOrCompute(key, compute());
+        ChartResponse second = chartCache.getOrCompute(buildKey(HOUR), compute());
+
+        assertThat(second).isSameAs(first);
+        assertThat(computations).hasValue(1);
+        assertThat(meterRegistry.get("melusine.charts.cache.gets").tag("result", "hit").counter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("melusine.charts.cache.gets").tag("result", "miss").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    public void onOrderItemsStatusChanged_onlyInvalidatesTheChartsCoveringTheHourOfTheItems() {
+        ChartCache.Key past = buildKey(HOUR.minusHours(1));
+        ChartCache.Key current = buildKey(HOUR);
+        chartCache.getOrCompute(past, compute());
+        chartCache.getOrCompute(current, compute());
+
+        chartCache.onOrderItemsStatusChanged(buildEvent(OrderStatus.DELIVER, OrderStatus.PENDING, HOUR.plusMinutes(5)));
+        chartCache.getOrCompute(past, compute());
+        chartCache.getOrCompute(current, compute());
+
+        assertThat(computations).hasValue(3);
+        assertThat(meterRegistry.get("melusine.charts.cache.invalidations").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    public void onOrderItemsStatusChanged_invalidatesTheChartsWhenADeliveredItemIsPutBackInTheQueue() {
+        ChartCache.Key current = buildKey(HOUR);
+        chartCache.getOrCompute(current, compute());
+
+        chartCache.onOrderItemsStatusChanged(buildEvent(OrderStatus.PENDING, OrderStatus.DELIVER, HOUR.plusMinutes(5)));
+        chartCache.getOrCompute(current, compute());
+
+        assertThat(computations).hasValue(2);
+    }
+
+    @Test
+    public void getOrCompute_keepsNothingWhileTheRollupsAreRebuilt() {
+        when(orderRollups.isBackfilling()).thenReturn(true, true, false);
+        ChartCache.Key key = buildKey(HOUR);
+
+        chartCache.getOrCompute(key, compute());
+        chartCache.getOrCompute(key, compute());
+        chartCache.getOrCompute(key, compute());
+
+        assertThat(computations).hasValue(3);
+        assertThat(chartCache.size()).isEqualTo(1);
+    }
+
+    @Test
+    public void getOrCompute_evictsTheEldestChartsAboveTheMaximumSize() {
+        chartCache.getOrCompute(buildKey(HOUR.minusHours(2)), compute());
+        chartCache.getOrCompute(buildKey(HOUR.minusHours(1)), compute());
+        chartCache.getOrCompute(buildKey(HOUR), compute());
+        chartCache.getOrCompute(buildKey(HOUR.minusHours(2)), compute());
+
+        assertThat(computations).hasValue(4);
+        assertThat(chartCache.size()).isEqualTo(2);
+        assertThat(meterRegistry.get("melusine.charts.cache.evictions").counter().count()).isEqualTo(2);
+        assertThat(meterRegistry.get("melusine.charts.cache.size").gauge().value()).isEqualTo(2);
+    }
+
+    @Test
+    public void getOrCompute_doesNotKeepTheErrors() {
+        ChartCache.Key key = buildKey(HOUR);
+
+        assertThatIllegalStateException().isThrownBy(() -> chartCache.getOrCompute(key, () -> {
+            throw new IllegalStateException("database down");
+        }));
+        chartCache.getOrCompute(key, compute());
+
+        assertThat(computations).hasValue(1);
+        assertThat(chartCache.size()).isEqualTo(1);
+    }
+
+    private Supplier<ChartResponse> compute() {
+        return () -> {
+            computations.incrementAndGet();
+            return ChartResponse.builder().points(List.of()).build();
+        };
+    }
+
+    private ChartCache.Key buildKey(OffsetDateTime end) {
+        return new ChartCache.Key("revenues", ChartInterval.DAY, end.minusDays(1), end, Set.of());
+    }
+
+    private OrderItemsStatusChangedEvent buildEvent(OrderStatus status, OrderStatus previousStatus,
+                                                    OffsetDateTime createdAt) {
+        return OrderItemsStatusChangedEvent.builder()
+                .status(status)
+                .changes(List.of(OrderItemChange.builder()
+                        .itemId("itemId")
+                        .previousStatus(previousStatus)
+                        .createdAt(createdAt)
+                        .build()))
+                .build();
+    }
+
+}
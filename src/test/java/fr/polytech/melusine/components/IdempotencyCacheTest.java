@@ -0,0 +1,167 @@
+package fr.polytech.melusine.components;
+
+import fr.polytech.melusine.TestData;
+import fr.polytech.melusine.configurations.IdempotencyProperties;
+import fr.polytech.melusine.exceptions.BadRequestException;
+import fr.polytech.melusine.exceptions.errors.OrderError;
+import fr.polytech.melusine.models.dtos.responses.OrderResponse;
+import fr.polytech.melusine.models.enums.OrderStatus;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+public class IdempotencyCacheTest {
+
+    private static final OrderResponse RESPONSE = OrderResponse.builder()
+            .id("orderId")
+            .clientName("Batman")
+            .status(OrderStatus.PENDING)
+            .createdAt(TestData.INSTANT_1)
+            .updatedAt(TestData.INSTANT_1)
+            .build();
+
+    private MutableClock clock;
+    private IdempotencyProperties idempotencyProperties;
+    private IdempotencyCache idempotencyCache;
+
+    @Before
+    public void setUp() {
+        clock = new MutableClock(TestData.INSTANT_1.toInstant());
+        idempotencyProperties = new IdempotencyProperties();
+        idempotencyProperties.setTimeToLive(60);
+        idempotencyProperties.setMaxSize(2);
+        idempotencyCache = new IdempotencyCache(idempotencyProperties, clock);
+    }
+
+    @Test
+    public void getOrCompute_replaysTheFirstResponse() {
+        AtomicInteger calls = new AtomicInteger();
+
+        idempotencyCache.getOrCompute("key", () -> {
+            calls.incrementAndGet();
+            return RESPONSE;
+        });
+        OrderResponse replay = idempotencyCache.getOrCompute("key", () -> {
+            calls.incrementAndGet();
+            return null;
+        });
+
+        assertThat(replay).isEqualTo(RESPONSE);
+        assertThat(calls).hasValue(1);
+    }
+
+    @Test
+    public void getOrCompute_concurrentDuplicatesWaitForTheInFlightCall() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            Future<OrderResponse> first = executor.submit(() -> idempotencyCache.getOrCompute("key", () -> {
+                calls.incrementAndGet();
+                started.countDown();
+                await(release);
+                return RESPONSE;
+            }));
+            started.await(5, TimeUnit.SECONDS);
+            Future<OrderResponse> second = executor.submit(() -> idempotencyCache.getOrCompute("key", () -> {
+                calls.incrementAndGet();
+                return null;
+            }));
+            Future<OrderResponse> third = executor.submit(() -> idempotencyCache.getOrCompute("key", () -> {
+                calls.incrementAndGet();
+                return null;
+            }));
+
+            release.countDown();
+
+            assertThat(first.get(5, TimeUnit.SECONDS)).isEqualTo(RESPONSE);
+            assertThat(second.get(5, TimeUnit.SECONDS)).isEqualTo(RESPONSE);
+            assertThat(third.get(5, TimeUnit.SECONDS)).isEqualTo(RESPONSE);
+            assertThat(calls).hasValue(1);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void getOrCompute_forgetsTheKeyWhenTheCallFails() {
+        assertThatExceptionOfType(BadRequestException.class)
+                .isThrownBy(() -> idempotencyCache.getOrCompute("key", () -> {
+                    throw new BadRequestException(OrderError.INVALID_ORDER);
+                }));
+
+        assertThat(idempotencyCache.getOrCompute("key", () -> RESPONSE)).isEqualTo(RESPONSE);
+    }
+
+    @Test
+    public void getOrCompute_expiresAndBoundsTheEntries() {
+        idempotencyCache.getOrCompute("first", () -> RESPONSE);
+        idempotencyCache.getOrCompute("second", () -> RESPONSE);
+        idempotencyCache.getOrCompute("third", () -> RESPONSE);
+
+        assertThat(idempotencyCache.size()).isEqualTo(2);
+
+        clock.advance(Duration.ofSeconds(61));
+        AtomicInteger calls = new AtomicInteger();
+        idempotencyCache.getOrCompute("third", () -> {
+            calls.incrementAndGet();
+            return RESPONSE;
+        });
+
+        assertThat(calls).hasValue(1);
+        assertThat(idempotencyCache.size()).isEqualTo(1);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static final class MutableClock extends Clock {
+
+        private volatile Instant instant;
+
+        private MutableClock(Instant instant) {
+            this.instant = instant;
+        }
+
+        private void advance(Duration duration) {
+            instant = instant.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return instant;
+        }
+
+    }
+
+}
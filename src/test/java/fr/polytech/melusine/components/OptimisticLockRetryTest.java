@@ -0,0 +1,64 @@
+package fr.polytech.melusine.components;
+
+import fr.polytech.melusine.TestData;
+import fr.polytech.melusine.exceptions.ConflictException;
+import fr.polytech.melusine.models.entities.User;
+import fr.polytech.melusine.repositories.UserRepository;
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+@RunWith(SpringRunner.class)
+@DataJpaTest(properties = {
+        "spring.jpa.hibernate.ddl-auto=create",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+        "melusine.retry.max-attempts=100",
+        "melusine.retry.backoff=1",
+        "melusine.retry.max-backoff=8"
+})
+@Import(OptimisticLockRetry.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class OptimisticLockRetryTest {
+
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private OptimisticLockRetry optimisticLockRetry;
+
+    @After
+    public void tearDown() {
+        userRepository.deleteAll();
+    }
+
+    @Test
+    public void execute_throwConflictAfterTheLastAttempt() {
+        User user = userRepository.save(TestData.USER_BRUCE_WAYNE.toBuilder()
+                .id(null)
+                .build());
+        AtomicLong attempts = new AtomicLong();
+
+        assertThatExceptionOfType(ConflictException.class)
+                .isThrownBy(() -> optimisticLockRetry.execute("User", user.getId(), () -> {
+                    attempts.incrementAndGet();
+                    User current = userRepository.findById(user.getId()).get();
+                    userRepository.addCredit(user.getId(), 1, TestData.INSTANT_2);
+                    return userRepository.save(current.toBuilder()
+                            .nickName("Robin")
+                            .build());
+                }));
+        assertThat(attempts.get()).isEqualTo(100);
+    }
+
+}
@@ -0,0 +1,133 @@
+package fr.polytech.melusine.components;
+
+import fr.polytech.melusine.TestData;
+import fr.polytech.melusine.models.entities.ArchivedOrder;
+import fr.polytech.melusine.models.entities.ArchivedOrderItem;
+import fr.polytech.melusine.models.entities.Order;
+import fr.polytech.melusine.models.entities.OrderItem;
+import fr.polytech.melusine.models.entities.Product;
+import fr.polytech.melusine.models.enums.OrderStatus;
+import fr.polytech.melusine.models.projections.OrderItemSale;
+import fr.polytech.melusine.models.projections.SaleRow;
+import fr.polytech.melusine.repositories.ArchivedOrderItemRepository;
+import fr.polytech.melusine.repositories.ArchivedOrderRepository;
+import fr.polytech.melusine.repositories.OrderItemRepository;
+import fr.polytech.melusine.repositories.OrderRepository;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.time.Clock;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@RunWith(SpringRunner.class)
+@DataJpaTest(properties = {
+        "spring.jpa.hibernate.ddl-auto=create",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+        "melusine.archive.horizon=3",
+        "melusine.archive.batch-size=1",
+        "melusine.archive.partitioned=false"
+})
+@Import({OrderArchiver.class, OrderArchiverTest.ClockConfiguration.class})
+public class OrderArchiverTest {
+
+    private static final OffsetDateTime NOW = OffsetDateTime.of(2020, 6, 15, 12, 0, 0, 0, ZoneOffset.UTC);
+
+    @Autowired
+    private TestEntityManager entityManager;
+    @Autowired
+    private OrderRepository orderRepository;
+    @Autowired
+    private OrderItemRepository orderItemRepository;
+    @Autowired
+    private ArchivedOrderRepository archivedOrderRepository;
+    @Autowired
+    private ArchivedOrderItemRepository archivedOrderItemRepository;
+    @Autowired
+    private OrderArchiver orderArchiver;
+
+    @Test
+    public void archive_movesTheFinishedOrdersOlderThanTheHorizon() {
+        Product product = entityManager.persist(TestData.PRODUCT_1.toBuilder().id(null).ingredients(List.of()).build());
+        Order old = persistOrder(OrderStatus.DELIVER, NOW.minusMonths(5), product, 2);
+        Order oldPending = persistOrder(OrderStatus.PENDING, NOW.minusMonths(5), product, 1);
+        Order oldCancelled = persistOrder(OrderStatus.CANCEL, NOW.minusMonths(4), product, 1);
+        Order recent = persistOrder(OrderStatus.DELIVER, NOW.minusMonths(3), product, 1);
+        entityManager.flush();
+        entityManager.clear();
+
+        orderArchiver.archive();
+        entityManager.clear();
+
+        assertThat(orderArchiver.getBoundary()).isEqualTo(OffsetDateTime.of(2020, 3, 1, 0, 0, 0, 0, ZoneOffset.UTC));
+        assertThat(orderRepository.findAll()).extracting(Order::getId)
+                .containsExactlyInAnyOrder(oldPending.getId(), recent.getId());
+        assertThat(orderItemRepository.findAll()).hasSize(2);
+        assertThat(archivedOrderRepository.findAll()).extracting(ArchivedOrder::getId)
+                .containsExactlyInAnyOrder(old.getId(), oldCancelled.getId());
+        assertThat(archivedOrderItemRepository.findAll()).extracting(ArchivedOrderItem::getOrderId)
+                .containsExactlyInAnyOrder(old.getId(), old.getId(), oldCancelled.getId());
+
+        List<OrderItemSale> sales = archivedOrderItemRepository.findSalesByCreatedAtFrom(NOW.minusYears(1), NOW);
+        assertThat(sales).extracting(OrderItemSale::getProductName).containsExactly("Mitch", "Mitch", "Mitch");
+        assertThat(sales).extracting(OrderItemSale::getStatus)
+                .containsExactlyInAnyOrder(OrderStatus.DELIVER, OrderStatus.DELIVER, OrderStatus.CANCEL);
+        assertThat(archivedOrderRepository.findCreatedAtFrom(NOW.minusYears(1), NOW)).hasSize(2);
+        assertThat(archivedOrderItemRepository.findSaleRowsByCreatedAtFrom(NOW.minusYears(1), NOW, OrderStatus.DELIVER))
+                .extracting(SaleRow::getPrice)
+                .containsExactly(120L, 120L);
+    }
+
+    @Test
+    public void isArchiveNeeded_onlyForTheRangesStartingBeforeTheBoundary() {
+        assertThat(orderArchiver.isArchiveNeeded(NOW.minusMonths(1))).isFalse();
+        assertThat(orderArchiver.isArchiveNeeded(NOW.minusYears(1))).isTrue();
+    }
+
+    private Order persistOrder(OrderStatus status, OffsetDateTime createdAt, Product product, int items) {
+        Order order = entityManager.persist(TestData.ODER_1.toBuilder()
+                .id(null)
+                .user(null)
+                .status(status)
+                .total(items * product.getPrice())
+                .createdAt(createdAt)
+                .updatedAt(createdAt)
+                .build());
+        for (int i = 0; i < items; i++) {
+            entityManager.persist(OrderItem.builder()
+                    .order(order)
+                    .product(product)
+                    .productName(product.getName())
+                    .category(product.getCategory())
+                    .ingredientNames(List.of())
+                    .price(product.getPrice())
+                    .status(status)
+                    .createdAt(createdAt)
+                    .updatedAt(createdAt)
+                    .build());
+        }
+        return order;
+    }
+
+    @TestConfiguration
+    static class ClockConfiguration {
+
+        @Bean
+        public Clock clock() {
+            return Clock.fixed(NOW.toInstant(), ZoneOffset.UTC);
+        }
+
+    }
+
+}
@@ -0,0 +1,127 @@
+package fr.polytech.melusine.components;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import fr.polytech.melusine.TestData;
+import fr.polytech.melusine.configurations.OrderEventProperties;
+import fr.polytech.melusine.models.entities.DeadLetterEvent;
+import fr.polytech.melusine.models.events.OrderCreatedEvent;
+import fr.polytech.melusine.repositories.DeadLetterEventRepository;
+import fr.polytech.melusine.services.OrderService;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.springframework.core.task.SyncTaskExecutor;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Clock;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@RunWith(MockitoJUnitRunner.class)
+public class OrderEventHandlerTest {
+
+    private static final OrderCreatedEvent EVENT = OrderCreatedEvent.builder()
+            .orderId("orderId")
+            .deliveredProductIds(List.of("drinkId"))
+            .build();
+
+    @Mock
+    private OrderService orderService;
+    @Mock
+    private DeadLetterEventRepository deadLetterEventRepository;
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private OrderEventHandler orderEventHandler;
+
+    @Before
+    public void setUp() {
+        orderEventHandler = buildHandler(new SyncTaskExecutor());
+    }
+
+    @Test
+    public void onOrderCreated_retriesUntilTheSideEffectsAreApplied() {
+        doThrow(new IllegalStateException("deadlock"))
+                .doNothing()
+                .when(orderService).applyOrderCreated(EVENT);
+
+        orderEventHandler.onOrderCreated(EVENT);
+
+        verify(orderService, times(2)).applyOrderCreated(EVENT);
+        verify(deadLetterEventRepository, never()).save(any());
+    }
+
+    @Test
+    public void onOrderCreated_savesADeadLetterAfterTheLastAttempt() {
+        doThrow(new IllegalStateException("deadlock")).when(orderService).applyOrderCreated(EVENT);
+
+        orderEventHandler.onOrderCreated(EVENT);
+
+        verify(orderService, times(3)).applyOrderCreated(EVENT);
+        ArgumentCaptor<DeadLetterEvent> deadLetterCaptor = ArgumentCaptor.forClass(DeadLetterEvent.class);
+        verify(deadLetterEventRepository).save(deadLetterCaptor.capture());
+        assertThat(deadLetterCaptor.getValue().getType()).isEqualTo("OrderCreatedEvent");
+        assertThat(deadLetterCaptor.getValue().getPayload()).contains("\"orderId\":\"orderId\"");
+        assertThat(deadLetterCaptor.getValue().getError()).isEqualTo("deadlock");
+        assertThat(deadLetterCaptor.getValue().getAttempts()).isEqualTo(3);
+        assertThat(deadLetterCaptor.getValue().getCreatedAt()).isEqualTo(TestData.INSTANT_1);
+    }
+
+    @Test
+    public void onOrderCreated_savesADeadLetterWithoutRunningTheSideEffectsWhenTheQueueIsFull() throws Exception {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(1);
+        executor.setMaxPoolSize(1);
+        executor.setQueueCapacity(1);
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.initialize();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            started.countDown();
+            release.await();
+            return null;
+        }).when(orderService).applyOrderCreated(EVENT);
+        OrderEventHandler handler = buildHandler(executor);
+
+        handler.onOrderCreated(EVENT);
+        started.await();
+        handler.onOrderCreated(EVENT);
+        handler.onOrderCreated(EVENT);
+
+        ArgumentCaptor<DeadLetterEvent> deadLetterCaptor = ArgumentCaptor.forClass(DeadLetterEvent.class);
+        verify(deadLetterEventRepository).save(deadLetterCaptor.capture());
+        verify(transactionManager).getTransaction(any());
+        assertThat(deadLetterCaptor.getValue().getAttempts()).isZero();
+        verify(orderService).applyOrderCreated(EVENT);
+
+        release.countDown();
+        executor.shutdown();
+        executor.getThreadPoolExecutor().awaitTermination(5, TimeUnit.SECONDS);
+        verify(orderService, times(2)).applyOrderCreated(EVENT);
+    }
+
+    private OrderEventHandler buildHandler(TaskExecutor executor) {
+        OrderEventProperties properties = new OrderEventProperties();
+        properties.setMaxAttempts(3);
+        properties.setBackoff(1);
+        return new OrderEventHandler(orderService, deadLetterEventRepository, properties, new ObjectMapper(), executor,
+                transactionManager, Clock.fixed(TestData.INSTANT_1.toInstant(), ZoneOffset.UTC));
+    }
+
+}
@@ -0,0 +1,224 @@
+package fr.polytech.melusine.components;
+
+import fr.polytech.melusine.TestData;
+import fr.polytech.melusine.configurations.GroupCommitProperties;
+import fr.polytech.melusine.exceptions.BadRequestException;
+import fr.polytech.melusine.exceptions.ErrorCodeException;
+import fr.polytech.melusine.exceptions.InternalServerErrorException;
+import fr.polytech.melusine.exceptions.errors.OrderError;
+import fr.polytech.melusine.models.dtos.requests.OrderRequest;
+import fr.polytech.melusine.models.dtos.responses.OrderResponse;
+import fr.polytech.melusine.models.enums.OrderStatus;
+import fr.polytech.melusine.services.OrderService;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.mockito.stubbing.Answer;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@Slf4j
+@RunWith(MockitoJUnitRunner.class)
+public class OrderGroupCommitTest {
+
+    @Mock
+    private OrderService orderService;
+
+    private GroupCommitProperties groupCommitProperties;
+    private OrderGroupCommit orderGroupCommit;
+
+    @Before
+    public void setUp() {
+        groupCommitProperties = new GroupCommitProperties();
+        groupCommitProperties.setEnabled(true);
+        groupCommitProperties.setMaxBatchSize(10);
+        groupCommitProperties.setMaxWait(50);
+        orderGroupCommit = new OrderGroupCommit(orderService, groupCommitProperties);
+    }
+
+    @After
+    public void tearDown() throws InterruptedException {
+        orderGroupCommit.stop();
+    }
+
+    @Test
+    public void submit_completesEachCallerWithItsOwnResult() {
+        when(orderService.createOrders(anyList(), any(), any())).then(createOrders(false));
+        orderGroupCommit.start();
+
+        CompletableFuture<OrderResponse> created = orderGroupCommit.submit(buildRequest("created"));
+        CompletableFuture<OrderResponse> rejected = orderGroupCommit.submit(buildRequest("rejected"));
+
+        assertThat(created.join().getClientName()).isEqualTo("created");
+        assertThatExceptionOfType(BadRequestException.class)
+                .isThrownBy(() -> orderGroupCommit.createOrder(buildRequest("rejected")));
+        assertThat(rejected).isCompletedExceptionally();
+        verify(orderService, times(2)).createOrders(anyList(), any(), any());
+    }
+
+    @Test
+    public void submit_createsTheOrdersOneByOneWhenTheBatchFails() {
+        when(orderService.createOrders(anyList(), any(), any())).thenThrow(new IllegalStateException("deadlock"));
+        when(orderService.createOrder(any(OrderRequest.class))).then(invocation -> buildResponse(invocation.getArgument(0)));
+        orderGroupCommit.start();
+
+        CompletableFuture<OrderResponse> first = orderGroupCommit.submit(buildRequest("first"));
+        CompletableFuture<OrderResponse> second = orderGroupCommit.submit(buildRequest("second"));
+
+        assertThat(first.join().getClientName()).isEqualTo("first");
+        assertThat(second.join().getClientName()).isEqualTo("second");
+        verify(orderService, times(2)).createOrder(any(OrderRequest.class));
+    }
+
+    @Test
+    public void createOrder_createsAloneWhenTheWriterIsNotRunning() throws InterruptedException {
+        when(orderService.createOrder(any(OrderRequest.class))).then(invocation -> buildResponse(invocation.getArgument(0)));
+
+        assertThat(orderGroupCommit.createOrder(buildRequest("beforeStart")).getClientName()).isEqualTo("beforeStart");
+        orderGroupCommit.start();
+        orderGroupCommit.stop();
+        assertThat(orderGroupCommit.submit(buildRequest("afterStop")).join().getClientName()).isEqualTo("afterStop");
+
+        verify(orderService, times(2)).createOrder(any(OrderRequest.class));
+        verify(orderService, never()).createOrders(anyList(), any(), any());
+    }
+
+    @Test
+    public void createOrder_createsAloneAnOrderStillQueuedAfterTheTimeout() throws InterruptedException {
+        groupCommitProperties.setMaxBatchSize(1);
+        groupCommitProperties.setTimeout(200);
+        CountDownLatch committing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(orderService.createOrders(anyList(), any(), any())).then(invocation -> {
+            committing.countDown();
+            release.await();
+            return createOrders(false).answer(invocation);
+        });
+        when(orderService.createOrder(any(OrderRequest.class))).then(invocation -> buildResponse(invocation.getArgument(0)));
+        orderGroupCommit.start();
+
+        CompletableFuture<OrderResponse> taken = CompletableFuture.supplyAsync(() ->
+                orderGroupCommit.createOrder(buildRequest("taken")));
+        committing.await();
+        OrderResponse queued = orderGroupCommit.createOrder(buildRequest("queued"));
+
+        assertThat(queued.getClientName()).isEqualTo("queued");
+        assertThatExceptionOfType(CompletionException.class)
+                .isThrownBy(taken::join)
+                .withCauseInstanceOf(InternalServerErrorException.class);
+        release.countDown();
+        verify(orderService, times(1)).createOrder(any(OrderRequest.class));
+        verify(orderService, times(1)).createOrders(anyList(), any(), any());
+    }
+
+    /**
+     * Throughput of 32 concurrent callers when each commit costs 2 ms and the commits are serialized, as the syncs of
+     * the redo log of the database are: each order pays a commit on the per-request path, each batch on the group
+     * commit path.
+     */
+    @Test
+    public void benchmark_groupCommitAgainstPerRequestCommits() throws Exception {
+        int callers = 32;
+        int ordersByCaller = 20;
+        groupCommitProperties.setMaxBatchSize(callers);
+        groupCommitProperties.setMaxWait(1);
+        when(orderService.createOrder(any(OrderRequest.class))).then(invocation -> {
+            commit();
+            return buildResponse(invocation.getArgument(0));
+        });
+        when(orderService.createOrders(anyList(), any(), any())).then(createOrders(true));
+        orderGroupCommit.start();
+
+        double perRequest = run(callers, ordersByCaller, orderService::createOrder);
+        double groupCommit = run(callers, ordersByCaller, orderGroupCommit::createOrder);
+
+        log.info(String.format("Per-request commits : %.0f orders/s, group commit : %.0f orders/s in %d transactions",
+                perRequest, groupCommit, orderGroupCommit.getTransactions()));
+        assertThat(orderGroupCommit.getTransactions()).isLessThan(callers * ordersByCaller);
+    }
+
+    private double run(int callers, int ordersByCaller, Function<OrderRequest, OrderResponse> createOrder) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(callers);
+        try {
+            long start = System.nanoTime();
+            List<Future<?>> futures = IntStream.range(0, callers)
+                    .mapToObj(caller -> executor.submit(() -> {
+                        for (int i = 0; i < ordersByCaller; i++) {
+                            String name = "caller" + caller + "-" + i;
+                            assertThat(createOrder.apply(buildRequest(name)).getClientName()).isEqualTo(name);
+                        }
+                    }))
+                    .collect(Collectors.toList());
+            for (Future<?> future : futures) {
+                future.get(1, TimeUnit.MINUTES);
+            }
+            return callers * ordersByCaller * 1e9 / (System.nanoTime() - start);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Create the batch, with the cost of a commit or not, the requests named "rejected" are refused.
+     */
+    private Answer<List<Object>> createOrders(boolean committed) {
+        return invocation -> {
+            List<OrderRequest> orderRequests = invocation.getArgument(0);
+            Function<OrderResponse, Object> onCreated = invocation.getArgument(1);
+            Function<ErrorCodeException, Object> onRejected = invocation.getArgument(2);
+            if (committed) {
+                commit();
+            }
+            return orderRequests.stream()
+                    .map(orderRequest -> orderRequest.getName().equals("rejected") ?
+                            onRejected.apply(new BadRequestException(OrderError.INVALID_ORDER)) :
+                            onCreated.apply(buildResponse(orderRequest)))
+                    .collect(Collectors.toList());
+        };
+    }
+
+    private static synchronized void commit() throws InterruptedException {
+        Thread.sleep(2);
+    }
+
+    private OrderRequest buildRequest(String name) {
+        return OrderRequest.builder()
+                .name(name)
+                .items(List.of("productId"))
+                .build();
+    }
+
+    private OrderResponse buildResponse(OrderRequest orderRequest) {
+        return OrderResponse.builder()
+                .id(orderRequest.getName())
+                .clientName(orderRequest.getName())
+                .status(OrderStatus.PENDING)
+                .createdAt(TestData.INSTANT_1)
+                .updatedAt(TestData.INSTANT_1)
+                .build();
+    }
+
+}
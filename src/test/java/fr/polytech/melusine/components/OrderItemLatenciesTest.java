@@ -0,0 +1,98 @@
+package fr.polytech.melusine.components;
+
+import fr.polytech.melusine.TestData;
+import fr.polytech.melusine.configurations.LatencyProperties;
+import fr.polytech.melusine.models.dtos.responses.LatencyResponse;
+import fr.polytech.melusine.models.dtos.responses.OrderItemResponse;
+import fr.polytech.melusine.models.enums.Category;
+import fr.polytech.melusine.models.enums.OrderItemEventType;
+import fr.polytech.melusine.models.enums.OrderStatus;
+import fr.polytech.melusine.models.events.OrderItemEvent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import java.time.Clock;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class OrderItemLatenciesTest {
+
+    @Mock
+    private Clock clock;
+
+    private SimpleMeterRegistry meterRegistry;
+    private OrderItemLatencies orderItemLatencies;
+
+    @Before
+    public void setUp() {
+        when(clock.getZone()).thenReturn(ZoneOffset.UTC);
+        when(clock.instant()).thenReturn(TestData.INSTANT_1.toInstant());
+        LatencyProperties latencyProperties = new LatencyProperties();
+        latencyProperties.setWindow(7);
+        meterRegistry = new SimpleMeterRegistry();
+        orderItemLatencies = new OrderItemLatencies(latencyProperties, meterRegistry, clock);
+    }
+
+    @Test
+    public void onOrderItemEvent_recordsTheTimeSpentPendingByHourCategoryAndProduct() {
+        publish(OrderItemEventType.DELIVERED, IntStream.rangeClosed(1, 100)
+                .mapToObj(seconds -> buildItem("sandwich", Category.CHAUD, 12, seconds))
+                .collect(Collectors.toList()));
+        publish(OrderItemEventType.DELIVERED, List.of(buildItem("dessert", Category.FROID, 13, 30)));
+        publish(OrderItemEventType.CANCELLED, List.of(buildItem("sandwich", Category.CHAUD, 12, 600)));
+        publish(OrderItemEventType.ADDED, List.of(buildItem("sandwich", Category.CHAUD, 12, 0)));
+
+        List<LatencyResponse> all = orderItemLatencies.getLatencies(OrderStatus.DELIVER, null, null);
+        List<LatencyResponse> sandwiches = orderItemLatencies.getLatencies(OrderStatus.DELIVER, null, "sandwich");
+        List<LatencyResponse> cold = orderItemLatencies.getLatencies(OrderStatus.DELIVER, Category.FROID, null);
+        List<LatencyResponse> cancelled = orderItemLatencies.getLatencies(OrderStatus.CANCEL, Category.CHAUD, null);
+
+        assertThat(all).extracting(LatencyResponse::getHour).containsExactly(12, 13);
+        assertThat(sandwiches).containsExactly(LatencyResponse.builder().hour(12).count(100).p50(50).p90(90).p99(99).build());
+        assertThat(cold).containsExactly(LatencyResponse.builder().hour(13).count(1).p50(30).p90(30).p99(30).build());
+        assertThat(cancelled).extracting(LatencyResponse::getCount).containsExactly(1L);
+        assertThat(meterRegistry.get("melusine.order.items.latency").tag("category", "CHAUD").tag("status", "DELIVER")
+                .timer().count()).isEqualTo(100);
+        assertThat(meterRegistry.get("melusine.order.items.latency").tag("category", "CHAUD").tag("status", "DELIVER")
+                .timer().max(TimeUnit.SECONDS)).isEqualTo(100);
+    }
+
+    @Test
+    public void getLatencies_keepsThePreviousWindowAndDropsTheOlderOnes() {
+        publish(OrderItemEventType.DELIVERED, List.of(buildItem("sandwich", Category.CHAUD, 12, 60)));
+
+        when(clock.instant()).thenReturn(TestData.INSTANT_1.plusDays(7).toInstant());
+        assertThat(orderItemLatencies.getLatencies(OrderStatus.DELIVER, null, null)).hasSize(1);
+
+        when(clock.instant()).thenReturn(TestData.INSTANT_1.plusDays(14).toInstant());
+        assertThat(orderItemLatencies.getLatencies(OrderStatus.DELIVER, null, null)).isEmpty();
+    }
+
+    private void publish(OrderItemEventType type, List<OrderItemResponse> items) {
+        orderItemLatencies.onOrderItemEvent(OrderItemEvent.builder()
+                .type(type)
+                .items(items)
+                .build());
+    }
+
+    private OrderItemResponse buildItem(String productId, Category category, int hour, int seconds) {
+        return OrderItemResponse.builder()
+                .productId(productId)
+                .category(category)
+                .createdAt(TestData.INSTANT_1.withHour(hour))
+                .updatedAt(TestData.INSTANT_1.withHour(hour).plusSeconds(seconds))
+                .build();
+    }
+
+}
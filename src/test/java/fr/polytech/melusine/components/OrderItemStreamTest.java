@@ -0,0 +1,68 @@
+package fr.polytech.melusine.components;
+
+import fr.polytech.melusine.models.dtos.responses.OrderItemResponse;
+import fr.polytech.melusine.models.enums.OrderItemEventType;
+import fr.polytech.melusine.models.events.OrderItemEvent;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class OrderItemStreamTest {
+
+    private List<Runnable> tasks;
+    private OrderItemStream orderItemStream;
+
+    @Before
+    public void setUp() {
+        tasks = new ArrayList<>();
+        orderItemStream = new OrderItemStream(tasks::add);
+    }
+
+    @Test
+    public void subscribe_registersTheScreenBeforeReadingTheSnapshot() {
+        AtomicInteger subscribersAtRead = new AtomicInteger();
+
+        orderItemStream.subscribe(() -> {
+            subscribersAtRead.set(orderItemStream.getSubscriberCount());
+            orderItemStream.onOrderItemEvent(buildEvent());
+            return List.of();
+        });
+
+        assertThat(subscribersAtRead).hasValue(1);
+        assertThat(tasks).hasSize(1);
+        runTasks();
+        assertThat(tasks).isEmpty();
+    }
+
+    @Test
+    public void onOrderItemEvent_sendsOnTheExecutorAndDisconnectsTooSlowScreens() {
+        orderItemStream.subscribe(List::of);
+
+        for (int i = 0; i < 1000; i++) {
+            orderItemStream.onOrderItemEvent(buildEvent());
+        }
+        assertThat(orderItemStream.getSubscriberCount()).isEqualTo(1);
+        orderItemStream.onOrderItemEvent(buildEvent());
+
+        assertThat(orderItemStream.getSubscriberCount()).isZero();
+    }
+
+    private void runTasks() {
+        while (!tasks.isEmpty()) {
+            tasks.remove(0).run();
+        }
+    }
+
+    private OrderItemEvent buildEvent() {
+        return OrderItemEvent.builder()
+                .type(OrderItemEventType.ADDED)
+                .items(List.of(OrderItemResponse.builder().id("itemId").build()))
+                .build();
+    }
+
+}
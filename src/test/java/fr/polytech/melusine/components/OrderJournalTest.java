@@ -0,0 +1,181 @@
+package fr.polytech.melusine.components;
+
+import fr.polytech.melusine.TestData;
+import fr.polytech.melusine.configurations.JournalProperties;
+import fr.polytech.melusine.models.JournaledOrder;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.time.Clock;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class OrderJournalTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final Clock clock = Clock.fixed(TestData.INSTANT_1.plusSeconds(3).toInstant(), ZoneOffset.UTC);
+    private JournalProperties journalProperties;
+    private OrderJournal orderJournal;
+
+    @Before
+    public void setUp() throws IOException {
+        journalProperties = new JournalProperties();
+        journalProperties.setEnabled(true);
+        journalProperties.setFile(folder.newFile().getPath());
+        journalProperties.setSize(4096);
+        journalProperties.setFlushInterval(60000);
+        orderJournal = open();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        orderJournal.close();
+    }
+
+    @Test
+    public void append_ordersAreReadOnceSynced() {
+        CompletableFuture<Void> synced = orderJournal.append(buildOrder("firstId", "userId")).get();
+        orderJournal.append(buildOrder("secondId", null));
+
+        assertThat(synced).isNotDone();
+        assertThat(orderJournal.readPending(10)).isEmpty();
+
+        orderJournal.flush();
+
+        assertThat(synced).isDone();
+        List<JournaledOrder> orders = orderJournal.readPending(10);
+        assertThat(orders).containsExactly(buildOrder("firstId", "userId"), buildOrder("secondId", null));
+        assertThat(orderJournal.getStatus().getPendingOrders()).isEqualTo(2);
+        assertThat(orderJournal.getStatus().getLag()).isEqualTo(3000);
+    }
+
+    @Test
+    public void checkpoint_rewindsOnceTheWriterHasCaughtUp() {
+        orderJournal.append(buildOrder("firstId", null));
+        orderJournal.append(buildOrder("secondId", null));
+        orderJournal.flush();
+
+        orderJournal.checkpoint(1);
+        assertThat(getIds(orderJournal.readPending(10))).containsExactly("secondId");
+
+        orderJournal.checkpoint(1);
+        assertThat(orderJournal.readPending(10)).isEmpty();
+        assertThat(orderJournal.getStatus().getPendingOrders()).isZero();
+        assertThat(orderJournal.getStatus().getLag()).isZero();
+
+        for (int i = 0; i < 100; i++) {
+            orderJournal.append(buildOrder("orderId" + i, null));
+            orderJournal.flush();
+            orderJournal.checkpoint(1);
+        }
+        assertThat(orderJournal.append(buildOrder("lastId", null))).isPresent();
+    }
+
+    @Test
+    public void contains_untilTheOrderIsCheckpointed() {
+        orderJournal.append(buildOrder("firstId", null));
+        orderJournal.append(buildOrder("secondId", null));
+        orderJournal.flush();
+
+        orderJournal.checkpoint(1);
+
+        assertThat(orderJournal.contains("firstId")).isFalse();
+        assertThat(orderJournal.contains("secondId")).isTrue();
+        assertThat(orderJournal.contains("unknownId")).isFalse();
+    }
+
+    @Test
+    public void lag_isAGauge() throws IOException {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        orderJournal.close();
+        orderJournal = new OrderJournal(journalProperties, meterRegistry, clock);
+        orderJournal.open();
+
+        orderJournal.append(buildOrder("firstId", null));
+        orderJournal.flush();
+
+        assertThat(meterRegistry.get("melusine.orders.journal.lag").timeGauge().value(TimeUnit.MILLISECONDS))
+                .isEqualTo(3000);
+        assertThat(meterRegistry.get("melusine.orders.journal.pending").gauge().value()).isEqualTo(1);
+    }
+
+    @Test
+    public void open_recoversTheOrdersNotCheckpointed() throws IOException {
+        orderJournal.append(buildOrder("firstId", null));
+        orderJournal.append(buildOrder("secondId", null));
+        orderJournal.append(buildOrder("thirdId", null));
+        orderJournal.flush();
+        orderJournal.checkpoint(1);
+        orderJournal.close();
+
+        orderJournal = open();
+
+        assertThat(getIds(orderJournal.readPending(10))).containsExactly("secondId", "thirdId");
+        assertThat(orderJournal.getStatus().getPendingOrders()).isEqualTo(2);
+    }
+
+    @Test
+    public void open_ignoresATornRecord() throws IOException {
+        orderJournal.append(buildOrder("firstId", null));
+        orderJournal.append(buildOrder("secondId", null));
+        orderJournal.flush();
+        orderJournal.close();
+        int secondPayloadStart = 16 + 8 + OrderJournal.encode(buildOrder("firstId", null)).length + 8;
+        try (RandomAccessFile file = new RandomAccessFile(journalProperties.getFile(), "rw")) {
+            file.seek(secondPayloadStart + 2);
+            file.write(0xFF);
+        }
+
+        orderJournal = open();
+
+        assertThat(getIds(orderJournal.readPending(10))).containsExactly("firstId");
+    }
+
+    @Test
+    public void append_emptyWhenTheJournalIsFull() {
+        int appended = 0;
+        while (orderJournal.append(buildOrder("orderId" + appended, null)).isPresent()) {
+            appended++;
+        }
+
+        assertThat(appended).isGreaterThan(10);
+        orderJournal.flush();
+        assertThat(orderJournal.readPending(1000)).hasSize(appended);
+    }
+
+    private OrderJournal open() throws IOException {
+        OrderJournal journal = new OrderJournal(journalProperties, new SimpleMeterRegistry(), clock);
+        journal.open();
+        return journal;
+    }
+
+    private JournaledOrder buildOrder(String orderId, String userId) {
+        return JournaledOrder.builder()
+                .orderId(orderId)
+                .name("displayName")
+                .userId(userId)
+                .items(List.of(TestData.PRODUCT_1.getId(), "drinkId"))
+                .createdAt(TestData.INSTANT_1)
+                .build();
+    }
+
+    private List<String> getIds(List<JournaledOrder> orders) {
+        return orders.stream()
+                .map(JournaledOrder::getOrderId)
+                .collect(Collectors.toList());
+    }
+
+}
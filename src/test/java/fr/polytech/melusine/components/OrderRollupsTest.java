@@ -0,0 +1,266 @@
+package fr.polytech.melusine.components;
+
+import fr.polytech.melusine.TestData;
+import fr.polytech.melusine.models.entities.Order;
+import fr.polytech.melusine.models.entities.OrderItem;
+import fr.polytech.melusine.models.entities.OrderRollup;
+import fr.polytech.melusine.models.entities.Product;
+import fr.polytech.melusine.models.entities.ProductRollup;
+import fr.polytech.melusine.models.entities.RollupBackfill;
+import fr.polytech.melusine.models.enums.Category;
+import fr.polytech.melusine.models.enums.OrderStatus;
+import fr.polytech.melusine.models.projections.ConsumptionRollup;
+import fr.polytech.melusine.models.projections.RevenueRollup;
+import fr.polytech.melusine.repositories.OrderRollupRepository;
+import fr.polytech.melusine.repositories.ProductRollupRepository;
+import fr.polytech.melusine.repositories.RollupBackfillRepository;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.time.Clock;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.StreamSupport;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+@RunWith(SpringRunner.class)
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:rollups;MODE=MySQL;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.jpa.hibernate.ddl-auto=create",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect"
+})
+@Import({OrderRollups.class, OrderRollupsTest.ClockConfiguration.class})
+public class OrderRollupsTest {
+
+    private static final OffsetDateTime NOW = OffsetDateTime.of(2020, 6, 15, 12, 30, 0, 0, ZoneOffset.UTC);
+    private static final OffsetDateTime HOUR = NOW.minusHours(2).withMinute(0);
+
+    @Autowired
+    private TestEntityManager entityManager;
+    @Autowired
+    private ProductRollupRepository productRollupRepository;
+    @Autowired
+    private OrderRollupRepository orderRollupRepository;
+    @Autowired
+    private RollupBackfillRepository rollupBackfillRepository;
+    @Autowired
+    private OrderRollups orderRollups;
+
+    private Product sandwich;
+    private Product drink;
+
+    @Before
+    public void setUp() {
+        sandwich = entityManager.persist(TestData.PRODUCT_1.toBuilder().id(null).ingredients(List.of()).build());
+        drink = entityManager.persist(TestData.PRODUCT_1.toBuilder().id(null).name("Coca").category(Category.BOISSON)
+                .price(100L).ingredients(List.of()).build());
+        rollupBackfillRepository.deleteAll();
+    }
+
+    @Test
+    public void addStatusChanges_movesTheItemsBetweenTheCountersOfTheHourOfTheirCreation() {
+        Order first = persistOrder(NOW.minusHours(2));
+        OrderItem firstSandwich = persistItem(first, sandwich, OrderStatus.PENDING);
+        OrderItem firstDrink = persistItem(first, drink, OrderStatus.DELIVER);
+        Order second = persistOrder(NOW.minusHours(2).plusMinutes(10));
+        OrderItem secondSandwich = persistItem(second, sandwich, OrderStatus.PENDING);
+
+        orderRollups.addDeliveredItems(List.of(firstSandwich, firstDrink));
+        orderRollups.addCreatedOrder(first.getCreatedAt());
+        orderRollups.addDeliveredItems(List.of(secondSandwich));
+        orderRollups.addCreatedOrder(second.getCreatedAt());
+        orderRollups.addStatusChanges(List.of(firstSandwich), OrderStatus.DELIVER);
+        orderRollups.addStatusChanges(List.of(secondSandwich), OrderStatus.CANCEL);
+        entityManager.clear();
+
+        List<RevenueRollup> revenues = productRollupRepository.findRevenuesByHourStartBetween(NOW.minusDays(1), NOW);
+        assertThat(revenues).extracting(revenue -> revenue.getHourStart().toInstant(), RevenueRollup::getRevenue)
+                .containsExactly(tuple(HOUR.toInstant(), 220L));
+        List<ConsumptionRollup> consumptions = productRollupRepository.findConsumptionsByHourStartBetweenAndCategoryIn(
+                NOW.minusDays(1), NOW, List.of(Category.FROID, Category.BOISSON));
+        assertThat(consumptions).extracting(ConsumptionRollup::getProductName, ConsumptionRollup::getCount)
+                .containsExactlyInAnyOrder(tuple("Mitch", 1L), tuple("Coca", 1L));
+        assertThat(productRollupRepository.findById(new ProductRollup.Key(HOUR, sandwich.getId())))
+                .hasValueSatisfying(rollup -> {
+                    assertThat(rollup.getCancelledCount()).isEqualTo(1);
+                    assertThat(rollup.getCancelledRevenue()).isEqualTo(120);
+                });
+        assertThat(orderRollupRepository.findAll()).extracting(OrderRollup::getOrderCount).containsExactly(2L);
+    }
+
+    @Test
+    public void backfill_sumsTheItemsOfTheHotAndTheArchiveTables() {
+        Order order = persistOrder(NOW.minusHours(2));
+        persistItem(order, sandwich, OrderStatus.DELIVER);
+        persistItem(order, sandwich, OrderStatus.CANCEL);
+        persistItem(order, drink, OrderStatus.DELIVER);
+        persistItem(order, drink, OrderStatus.PENDING);
+        entityManager.flush();
+        entityManager.getEntityManager().createNativeQuery("INSERT INTO orders_archive " +
+                "(id, client_name, total, status, created_at, updated_at) VALUES ('archived', 'client', 120, 'DELIVER', " +
+                "TIMESTAMP '2020-06-15 10:40:00', TIMESTAMP '2020-06-15 10:40:00')").executeUpdate();
+        entityManager.getEntityManager().createNativeQuery("INSERT INTO order_items_archive " +
+                "(id, price, product_id, order_id, product_name, category, status, created_at, updated_at) VALUES " +
+                "('archived', 120, '" + sandwich.getId() + "', 'archived', 'Mitch', 'FROID', 'DELIVER', " +
+                "TIMESTAMP '2020-06-15 10:40:00', TIMESTAMP '2020-06-15 10:40:00')").executeUpdate();
+
+        orderRollups.prepareBackfill();
+        assertThat(orderRollups.isBackfilling()).isTrue();
+        orderRollups.backfill();
+        entityManager.flush();
+        entityManager.clear();
+
+        assertThat(orderRollups.isBackfilling()).isFalse();
+        List<ProductRollup> rollups = StreamSupport.stream(productRollupRepository.findAll().spliterator(), false)
+                .collect(Collectors.toList());
+        assertThat(rollups).extracting(ProductRollup::getProductName, ProductRollup::getDeliveredCount,
+                ProductRollup::getDeliveredRevenue, ProductRollup::getCancelledCount)
+                .containsExactlyInAnyOrder(tuple("Mitch", 2L, 240L, 1L), tuple("Coca", 1L, 100L, 0L));
+        assertThat(orderRollupRepository.findAll()).extracting(OrderRollup::getOrderCount).containsExactly(2L);
+    }
+
+    @Test
+    public void backfill_rebuildsTheDaysWithOrders() {
+        Order old = persistOrder(NOW.minusDays(3));
+        persistItem(old, sandwich, OrderStatus.DELIVER);
+        Order order = persistOrder(NOW.minusHours(2));
+        persistItem(order, drink, OrderStatus.CANCEL);
+        entityManager.flush();
+
+        orderRollups.prepareBackfill();
+        orderRollups.backfill();
+        entityManager.flush();
+        entityManager.clear();
+
+        List<ProductRollup> rollups = StreamSupport.stream(productRollupRepository.findAll().spliterator(), false)
+                .collect(Collectors.toList());
+        assertThat(rollups).extracting(ProductRollup::getProductName, ProductRollup::getDeliveredCount,
+                ProductRollup::getCancelledCount)
+                .containsExactlyInAnyOrder(tuple("Mitch", 1L, 0L), tuple("Coca", 0L, 1L));
+        assertThat(orderRollupRepository.count()).isEqualTo(2);
+        assertThat(rollupBackfillRepository.findById(OrderRollups.BACKFILL_ID))
+                .hasValueSatisfying(backfill -> {
+                    assertThat(backfill.getNextDay()).isNull();
+                    assertThat(backfill.getClaimedBy()).isNull();
+                });
+    }
+
+    @Test
+    public void backfill_leavesTheOrdersCreatedAfterTheBoundaryToTheLivePath() {
+        Order before = persistOrder(NOW.minusMinutes(20));
+        persistItem(before, sandwich, OrderStatus.DELIVER);
+        entityManager.flush();
+        orderRollups.prepareBackfill();
+        Order after = persistOrder(NOW.plusMinutes(1));
+        OrderItem drinkAfter = persistItem(after, drink, OrderStatus.DELIVER);
+        orderRollups.addDeliveredItems(List.of(drinkAfter));
+        orderRollups.addCreatedOrder(after.getCreatedAt());
+        entityManager.flush();
+
+        orderRollups.backfill();
+        entityManager.flush();
+        entityManager.clear();
+
+        assertThat(orderRollupRepository.findAll()).extracting(OrderRollup::getOrderCount).containsExactly(2L);
+        assertThat(productRollupRepository.findAll()).extracting(ProductRollup::getProductName,
+                ProductRollup::getDeliveredCount)
+                .containsExactlyInAnyOrder(tuple("Mitch", 1L), tuple("Coca", 1L));
+    }
+
+    @Test
+    public void backfill_resumesFromTheNextRecordedDay() {
+        Order old = persistOrder(NOW.minusDays(3));
+        persistItem(old, sandwich, OrderStatus.DELIVER);
+        Order order = persistOrder(NOW.minusHours(2));
+        persistItem(order, drink, OrderStatus.DELIVER);
+        entityManager.persist(RollupBackfill.builder()
+                .id(OrderRollups.BACKFILL_ID)
+                .boundary(NOW)
+                .nextDay(NOW.toLocalDate())
+                .build());
+        entityManager.flush();
+
+        orderRollups.backfill();
+        entityManager.flush();
+        entityManager.clear();
+
+        assertThat(productRollupRepository.findAll()).extracting(ProductRollup::getProductName)
+                .containsExactly("Coca");
+        assertThat(orderRollupRepository.findAll()).extracting(OrderRollup::getOrderCount).containsExactly(1L);
+    }
+
+    @Test
+    public void backfill_leavesTheRebuildClaimedByAnotherInstance() {
+        Order order = persistOrder(NOW.minusHours(2));
+        persistItem(order, drink, OrderStatus.DELIVER);
+        entityManager.persist(RollupBackfill.builder()
+                .id(OrderRollups.BACKFILL_ID)
+                .boundary(NOW)
+                .nextDay(NOW.toLocalDate())
+                .claimedBy("otherInstance")
+                .claimedAt(NOW.minusMinutes(1))
+                .build());
+        entityManager.flush();
+
+        orderRollups.backfill();
+        entityManager.flush();
+        entityManager.clear();
+
+        assertThat(productRollupRepository.count()).isZero();
+        assertThat(orderRollupRepository.count()).isZero();
+        assertThat(rollupBackfillRepository.findById(OrderRollups.BACKFILL_ID))
+                .hasValueSatisfying(backfill -> assertThat(backfill.getClaimedBy()).isEqualTo("otherInstance"));
+    }
+
+    private Order persistOrder(OffsetDateTime createdAt) {
+        return entityManager.persist(TestData.ODER_1.toBuilder()
+                .id(null)
+                .user(null)
+                .status(OrderStatus.PENDING)
+                .total(0)
+                .createdAt(createdAt)
+                .updatedAt(createdAt)
+                .build());
+    }
+
+    private OrderItem persistItem(Order order, Product product, OrderStatus status) {
+        return entityManager.persist(OrderItem.builder()
+                .order(order)
+                .product(product)
+                .productName(product.getName())
+                .category(product.getCategory())
+                .ingredientNames(List.of())
+                .price(product.getPrice())
+                .status(status)
+                .createdAt(order.getCreatedAt())
+                .updatedAt(order.getCreatedAt())
+                .build());
+    }
+
+    @TestConfiguration
+    static class ClockConfiguration {
+
+        @Bean
+        public Clock clock() {
+            return Clock.fixed(NOW.toInstant(), ZoneOffset.UTC);
+        }
+
+    }
+
+}
@@ -0,0 +1,84 @@
+package fr.polytech.melusine.components;
+
+import fr.polytech.melusine.TestData;
+import fr.polytech.melusine.models.dtos.responses.OrderItemResponse;
+import fr.polytech.melusine.models.enums.OrderItemEventType;
+import fr.polytech.melusine.models.enums.OrderStatus;
+import fr.polytech.melusine.models.events.OrderItemEvent;
+import fr.polytech.melusine.models.projections.OrderItemRow;
+import fr.polytech.melusine.repositories.OrderItemRepository;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class PendingOrderItemsTest {
+
+    @Mock
+    private OrderItemRepository orderItemRepository;
+    @Mock
+    private OrderItemReader orderItemReader;
+    @Mock
+    private OrderItemRow loadedRow;
+
+    private PendingOrderItems pendingOrderItems;
+
+    @Before
+    public void setUp() {
+        pendingOrderItems = new PendingOrderItems(orderItemRepository, orderItemReader);
+    }
+
+    @Test
+    public void getPage_emptyUntilLoaded() {
+        assertThat(pendingOrderItems.getPage(PageRequest.of(0, 20))).isEmpty();
+        assertThat(pendingOrderItems.count()).isEmpty();
+    }
+
+    @Test
+    public void getPage_servesTheLoadedAndAddedItemsByCreationDate() {
+        when(orderItemRepository.findAllRowsByStatus(OrderStatus.PENDING)).thenReturn(List.of(loadedRow));
+        when(orderItemReader.read(List.of(loadedRow))).thenReturn(List.of(buildResponse("loadedId", 1)));
+        pendingOrderItems.load();
+
+        pendingOrderItems.onOrderItemEvent(OrderItemEvent.builder()
+                .type(OrderItemEventType.ADDED)
+                .items(List.of(buildResponse("secondId", 3), buildResponse("firstId", 2)))
+                .build());
+        pendingOrderItems.onOrderItemEvent(OrderItemEvent.builder()
+                .type(OrderItemEventType.DELIVERED)
+                .items(List.of(buildResponse("loadedId", 1)))
+                .build());
+
+        Page<OrderItemResponse> page = pendingOrderItems.getPage(PageRequest.of(0, 20, Sort.by("createdAt"))).get();
+        assertThat(page.getContent()).extracting(OrderItemResponse::getId).containsExactly("firstId", "secondId");
+        assertThat(page.getTotalElements()).isEqualTo(2);
+        Page<OrderItemResponse> descending = pendingOrderItems.getPage(PageRequest.of(0, 1, Sort.by(Sort.Direction.DESC, "createdAt"))).get();
+        assertThat(descending.getContent()).extracting(OrderItemResponse::getId).containsExactly("secondId");
+        assertThat(pendingOrderItems.count()).contains(2L);
+        assertThat(pendingOrderItems.getPage(PageRequest.of(0, 20, Sort.by("updatedAt")))).isEmpty();
+        verify(orderItemRepository).findAllRowsByStatus(OrderStatus.PENDING);
+        verifyNoMoreInteractions(orderItemRepository);
+    }
+
+    private OrderItemResponse buildResponse(String id, int minutes) {
+        return OrderItemResponse.builder()
+                .id(id)
+                .status(OrderStatus.PENDING)
+                .createdAt(TestData.INSTANT_1.plusMinutes(minutes))
+                .updatedAt(TestData.INSTANT_1.plusMinutes(minutes))
+                .build();
+    }
+
+}
@@ -0,0 +1,318 @@
+package fr.polytech.melusine.components;
+
+import fr.polytech.melusine.TestData;
+import fr.polytech.melusine.exceptions.BadRequestException;
+import fr.polytech.melusine.models.dtos.requests.SalesRequest;
+import fr.polytech.melusine.models.dtos.responses.OrderItemResponse;
+import fr.polytech.melusine.models.dtos.responses.SalesResponse;
+import fr.polytech.melusine.models.enums.Category;
+import fr.polytech.melusine.models.enums.OrderItemEventType;
+import fr.polytech.melusine.models.enums.OrderStatus;
+import fr.polytech.melusine.models.enums.SalesDimension;
+import fr.polytech.melusine.models.enums.Section;
+import fr.polytech.melusine.models.events.OrderItemChange;
+import fr.polytech.melusine.models.events.OrderItemEvent;
+import fr.polytech.melusine.models.events.OrderItemsStatusChangedEvent;
+import fr.polytech.melusine.models.projections.SaleRow;
+import fr.polytech.melusine.repositories.ArchivedOrderItemRepository;
+import fr.polytech.melusine.repositories.ArchivedOrderRepository;
+import fr.polytech.melusine.repositories.OrderItemRepository;
+import fr.polytech.melusine.repositories.OrderRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import java.time.Clock;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.when;
+
+@Slf4j
+@RunWith(MockitoJUnitRunner.class)
+public class SalesCubeTest {
+
+    private static final OffsetDateTime NOW = TestData.INSTANT_1;
+
+    @Mock
+    private OrderItemRepository orderItemRepository;
+    @Mock
+    private ArchivedOrderItemRepository archivedOrderItemRepository;
+    @Mock
+    private OrderRepository orderRepository;
+    @Mock
+    private ArchivedOrderRepository archivedOrderRepository;
+    @Mock
+    private OrderArchiver orderArchiver;
+    @Mock
+    private Clock clock;
+
+    private SalesCube salesCube;
+
+    @Before
+    public void setUp() {
+        when(clock.getZone()).thenReturn(ZoneOffset.UTC);
+        salesCube = new SalesCube(orderItemRepository, archivedOrderItemRepository, orderRepository,
+                archivedOrderRepository, orderArchiver, clock);
+    }
+
+    @Test
+    public void load_readsTheHotAndTheArchivedItemsMonthByMonth() {
+        when(clock.instant()).thenReturn(NOW.toInstant());
+        when(orderRepository.findMinCreatedAt()).thenReturn(Optional.of(NOW.minusDays(10)));
+        when(archivedOrderRepository.findMinCreatedAt()).thenReturn(Optional.of(NOW.minusMonths(5)));
+        when(orderItemRepository.findSaleRowsByCreatedAtFrom(any(), any(), eq(NOW), eq(OrderStatus.DELIVER)))
+                .thenAnswer(invocation -> List.of(buildRow(invocation.getArgument(0).toString(), "sandwich",
+                        Category.CHAUD, Section.FIRST, true, NOW.minusDays(1), 250)));
+        when(archivedOrderItemRepository.findSaleRowsByCreatedAtFrom(any(), any(), eq(OrderStatus.DELIVER)))
+                .thenReturn(List.of(buildRow("coffee", Category.BOISSON, null, null, NOW.minusMonths(4), 50)));
+
+        salesCube.load();
+
+        assertThat(salesCube.size()).isEqualTo(10);
+    }
+
+    @Test
+    public void query_filtersAndGroupsTheItems() {
+        salesCube.append(List.of(
+                buildRow("sandwich", Category.CHAUD, Section.FIRST, true, NOW.withHour(12), 250),
+                buildRow("sandwich", Category.CHAUD, Section.FIRST, false, NOW.withHour(12), 250),
+                buildRow("sandwich", Category.CHAUD, Section.SECOND, true, NOW.withHour(13), 250),
+                buildRow("coffee", Category.BOISSON, Section.FIRST, true, NOW.withHour(12), 50),
+                buildRow("coffee", Category.BOISSON, null, null, NOW.withHour(8), 50),
+                buildRow("sandwich", Category.CHAUD, Section.FIRST, true, NOW.minusDays(2), 250)), false);
+
+        List<SalesResponse> bySectionAndHour = salesCube.query(SalesRequest.builder()
+                .from(NOW.minusDays(1))
+                .categories(List.of(Category.CHAUD))
+                .groupBy(List.of(SalesDimension.SECTION, SalesDimension.HOUR))
+                .build());
+        List<SalesResponse> members = salesCube.query(SalesRequest.builder()
+                .membership(true)
+                .productIds(List.of("coffee"))
+                .groupBy(List.of(SalesDimension.PRODUCT))
+                .build());
+        List<SalesResponse> all = salesCube.query(SalesRequest.builder().build());
+
+        assertThat(bySectionAndHour).containsExactly(
+                buildResponse(Map.of(SalesDimension.SECTION, "FIRST", SalesDimension.HOUR, "12"), 2, 5.0),
+                buildResponse(Map.of(SalesDimension.SECTION, "SECOND", SalesDimension.HOUR, "13"), 1, 2.5));
+        assertThat(members).containsExactly(buildResponse(Map.of(SalesDimension.PRODUCT, "coffee"), 1, 0.5));
+        assertThat(all).containsExactly(buildResponse(Map.of(), 6, 11.0));
+    }
+
+    @Test
+    public void onOrderItemEvent_appendsTheItemsDeliveredAfterTheLoad() {
+        when(clock.instant()).thenReturn(NOW.toInstant());
+        when(orderRepository.findMinCreatedAt()).thenReturn(Optional.empty());
+        when(archivedOrderRepository.findMinCreatedAt()).thenReturn(Optional.empty());
+        salesCube.load();
+        SaleRow before = buildRow("sandwich", Category.CHAUD, Section.FIRST, true, NOW.minusHours(1), 250);
+        SaleRow after = buildRow("sandwich", Category.CHAUD, Section.FIRST, true, NOW.plusMinutes(1), 250);
+        when(orderItemRepository.findSaleRowsByIdInAndStatus(anyList(), eq(OrderStatus.DELIVER)))
+                .thenReturn(List.of(before, after));
+
+        salesCube.onOrderItemEvent(buildEvent(OrderItemEventType.ADDED));
+        salesCube.onOrderItemEvent(buildEvent(OrderItemEventType.DELIVERED));
+
+        assertThat(salesCube.size()).isEqualTo(1);
+    }
+
+    @Test
+    public void onOrderItemsStatusChanged_takesBackTheItemsLeavingTheDeliveredStatus() {
+        when(clock.instant()).thenReturn(NOW.toInstant());
+        when(orderRepository.findMinCreatedAt()).thenReturn(Optional.empty());
+        when(archivedOrderRepository.findMinCreatedAt()).thenReturn(Optional.empty());
+        salesCube.load();
+        SaleRow sandwich = buildRow("sandwichId", "sandwich", Category.CHAUD, Section.FIRST, true, NOW.plusMinutes(1), 250);
+        SaleRow coffee = buildRow("coffeeId", "coffee", Category.BOISSON, Section.FIRST, true, NOW.plusMinutes(1), 50);
+        when(orderItemRepository.findSaleRowsByIdInAndStatus(anyList(), eq(OrderStatus.DELIVER)))
+                .thenReturn(List.of(sandwich, coffee));
+        salesCube.onOrderItemEvent(buildEvent(OrderItemEventType.DELIVERED));
+
+        salesCube.onOrderItemsStatusChanged(buildStatusChangedEvent(OrderStatus.PENDING, List.of(
+                buildChange("sandwichId", OrderStatus.DELIVER),
+                buildChange("pendingId", OrderStatus.PENDING))));
+        salesCube.onOrderItemsStatusChanged(buildStatusChangedEvent(OrderStatus.DELIVER, List.of(
+                buildChange("otherId", OrderStatus.PENDING))));
+        salesCube.onOrderItemsStatusChanged(buildStatusChangedEvent(OrderStatus.CANCEL, List.of(
+                buildChange("sandwichId", OrderStatus.DELIVER))));
+
+        assertThat(salesCube.query(SalesRequest.builder()
+                .groupBy(List.of(SalesDimension.PRODUCT))
+                .build()))
+                .containsExactly(buildResponse(Map.of(SalesDimension.PRODUCT, "coffee"), 1, 0.5));
+        assertThat(salesCube.query(SalesRequest.builder().build()))
+                .containsExactly(buildResponse(Map.of(), 1, 0.5));
+    }
+
+    @Test
+    public void onOrderItemsStatusChanged_takesBackTheItemsFromTheSectionTheyWereCountedIn() {
+        when(clock.instant()).thenReturn(NOW.toInstant());
+        when(orderRepository.findMinCreatedAt()).thenReturn(Optional.empty());
+        when(archivedOrderRepository.findMinCreatedAt()).thenReturn(Optional.empty());
+        salesCube.load();
+        when(orderItemRepository.findSaleRowsByIdInAndStatus(anyList(), eq(OrderStatus.DELIVER)))
+                .thenReturn(List.of(buildRow("itemId", "sandwich", Category.CHAUD, Section.FIRST, true,
+                        NOW.plusMinutes(1), 250)));
+        salesCube.onOrderItemEvent(buildEvent(OrderItemEventType.DELIVERED));
+
+        salesCube.onOrderItemsStatusChanged(buildStatusChangedEvent(OrderStatus.PENDING, List.of(
+                buildChange("itemId", OrderStatus.DELIVER))));
+
+        assertThat(salesCube.size()).isEqualTo(2);
+        assertThat(salesCube.query(SalesRequest.builder()
+                .groupBy(List.of(SalesDimension.SECTION, SalesDimension.MEMBERSHIP))
+                .build()))
+                .isEmpty();
+    }
+
+    @Test
+    public void forgetArchivedItems_keepsTheRowsOfTheItemsStillInTheHotTable() {
+        OffsetDateTime boundary = NOW.minusMonths(1);
+        salesCube.append(List.of(
+                buildRow("archivedId", "sandwich", Category.CHAUD, Section.FIRST, true, boundary.minusDays(1), 250),
+                buildRow("hotId", "sandwich", Category.CHAUD, Section.FIRST, true, boundary.minusDays(1), 250),
+                buildRow("recentId", "sandwich", Category.CHAUD, Section.FIRST, true, NOW, 250)), true);
+        when(orderArchiver.getBoundary()).thenReturn(boundary);
+        when(orderItemRepository.findIdsByCreatedAtBefore(boundary)).thenReturn(List.of("hotId"));
+
+        salesCube.forgetArchivedItems();
+        salesCube.takeBack(List.of("archivedId", "hotId", "recentId"));
+
+        assertThat(salesCube.query(SalesRequest.builder().build()))
+                .containsExactly(buildResponse(Map.of(), 1, 2.5));
+    }
+
+    @Test
+    public void query_refusesTooManyGroups() {
+        salesCube.append(IntStream.range(0, 2000)
+                .mapToObj(i -> buildRow("product" + i, Category.CHAUD, Section.FIRST, true, NOW, 100))
+                .collect(Collectors.toList()), false);
+
+        assertThatExceptionOfType(BadRequestException.class).isThrownBy(() -> salesCube.query(SalesRequest.builder()
+                .groupBy(List.of(SalesDimension.PRODUCT, SalesDimension.HOUR, SalesDimension.SECTION))
+                .build()));
+    }
+
+    /**
+     * Time of a slice of two million items grouped by section and hour, on the parallel scans of the columns.
+     */
+    @Test
+    public void benchmark_sliceOfTwoMillionItems() {
+        Section[] sections = Section.values();
+        for (int batch = 0; batch < 2_000_000; batch += 10_000) {
+            List<SaleRow> saleRows = new ArrayList<>();
+            for (int i = batch; i < batch + 10_000; i++) {
+                saleRows.add(buildRow("product" + i % 50, Category.values()[i % Category.values().length],
+                        sections[i % sections.length], i % 3 == 0, NOW.minusMinutes(i % 10_000), 100));
+            }
+            salesCube.append(saleRows, false);
+        }
+        SalesRequest salesRequest = SalesRequest.builder()
+                .from(NOW.minusDays(30))
+                .membership(true)
+                .groupBy(List.of(SalesDimension.SECTION, SalesDimension.HOUR))
+                .build();
+        salesCube.query(salesRequest);
+
+        long start = System.nanoTime();
+        List<SalesResponse> sales = salesCube.query(salesRequest);
+        log.info(String.format("Slice of %d items in %.1f ms", salesCube.size(), (System.nanoTime() - start) / 1e6));
+
+        assertThat(sales.stream().mapToLong(SalesResponse::getCount).sum())
+                .isEqualTo(IntStream.range(0, 2_000_000).filter(i -> i % 3 == 0).count());
+    }
+
+    private SaleRow buildRow(String productId, Category category, Section section, Boolean membership,
+                             OffsetDateTime createdAt, long price) {
+        return buildRow(null, productId, category, section, membership, createdAt, price);
+    }
+
+    private SaleRow buildRow(String id, String productId, Category category, Section section, Boolean membership,
+                             OffsetDateTime createdAt, long price) {
+        return new SaleRow() {
+
+            public String getId() {
+                return id;
+            }
+
+            public OffsetDateTime getCreatedAt() {
+                return createdAt;
+            }
+
+            public OffsetDateTime getUpdatedAt() {
+                return createdAt;
+            }
+
+            public String getProductId() {
+                return productId;
+            }
+
+            public String getProductName() {
+                return productId;
+            }
+
+            public Category getCategory() {
+                return category;
+            }
+
+            public Section getSection() {
+                return section;
+            }
+
+            public Boolean getMembership() {
+                return membership;
+            }
+
+            public long getPrice() {
+                return price;
+            }
+
+        };
+    }
+
+    private SalesResponse buildResponse(Map<SalesDimension, String> group, long count, double revenue) {
+        return SalesResponse.builder()
+                .group(group)
+                .count(count)
+                .revenue(revenue)
+                .build();
+    }
+
+    private OrderItemEvent buildEvent(OrderItemEventType type) {
+        return OrderItemEvent.builder()
+                .type(type)
+                .items(List.of(OrderItemResponse.builder().id("itemId").build()))
+                .build();
+    }
+
+    private OrderItemsStatusChangedEvent buildStatusChangedEvent(OrderStatus status, List<OrderItemChange> changes) {
+        return OrderItemsStatusChangedEvent.builder()
+                .status(status)
+                .changes(changes)
+                .build();
+    }
+
+    private OrderItemChange buildChange(String itemId, OrderStatus previousStatus) {
+        return OrderItemChange.builder()
+                .itemId(itemId)
+                .previousStatus(previousStatus)
+                .build();
+    }
+
+}
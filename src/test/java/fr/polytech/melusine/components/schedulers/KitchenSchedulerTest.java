@@ -0,0 +1,125 @@
+package fr.polytech.melusine.components.schedulers;
+
+import fr.polytech.melusine.TestData;
+import fr.polytech.melusine.components.PrepTimeEstimates;
+import fr.polytech.melusine.configurations.KitchenProperties;
+import fr.polytech.melusine.models.dtos.responses.OrderItemResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.when;
+
+@Slf4j
+@RunWith(MockitoJUnitRunner.class)
+public class KitchenSchedulerTest {
+
+    private static final Map<String, Long> PREP_TIMES = Map.of("custom", 600L, "sandwich", 120L, "dessert", 30L);
+
+    @Mock
+    private PrepTimeEstimates prepTimeEstimates;
+
+    private KitchenProperties kitchenProperties;
+
+    @Before
+    public void setUp() {
+        when(prepTimeEstimates.getPrepTime(anyString())).then(invocation -> PREP_TIMES.get(invocation.<String>getArgument(0)));
+        kitchenProperties = new KitchenProperties();
+        kitchenProperties.setAging(1.0);
+    }
+
+    @Test
+    public void shortestPrepTime_agingLetsALongItemGoBeforeTheItemsCreatedLongAfterIt() {
+        ShortestPrepTimeScheduler scheduler = new ShortestPrepTimeScheduler(prepTimeEstimates, kitchenProperties);
+        OrderItemResponse custom = buildItem("custom", "order1", "custom", 0);
+        OrderItemResponse soonAfter = buildItem("soonAfter", "order2", "dessert", 60);
+        OrderItemResponse longAfter = buildItem("longAfter", "order3", "dessert", 600);
+
+        assertThat(scheduler.schedule(List.of(custom, soonAfter, longAfter), TestData.INSTANT_1.plusSeconds(600)))
+                .containsExactly(soonAfter, custom, longAfter);
+    }
+
+    @Test
+    public void orderBatch_keepsTheItemsOfAnOrderTogether() {
+        OrderBatchScheduler scheduler = new OrderBatchScheduler(prepTimeEstimates, kitchenProperties);
+        OrderItemResponse sandwich1 = buildItem("sandwich1", "order1", "sandwich", 0);
+        OrderItemResponse desserts = buildItem("dessert2", "order2", "dessert", 1);
+        OrderItemResponse sandwich2 = buildItem("sandwich2", "order1", "sandwich", 0);
+
+        assertThat(scheduler.schedule(List.of(sandwich1, desserts, sandwich2), TestData.INSTANT_1.plusSeconds(1)))
+                .containsExactly(desserts, sandwich1, sandwich2);
+    }
+
+    /**
+     * One cook during a rush: a custom sandwich, and orders of sandwiches and desserts every 10 seconds. The queue is
+     * scheduled again each time the cook takes an item, an order is picked up when its last item is ready.
+     */
+    @Test
+    public void rush_shortestPrepTimeLowersTheMeanWaitOfTheOrders() {
+        List<OrderItemResponse> rush = new ArrayList<>(List.of(buildItem("custom", "order0", "custom", 0)));
+        for (int i = 1; i <= 12; i++) {
+            rush.add(buildItem("item" + i, "order" + i, i % 3 == 0 ? "sandwich" : "dessert", (i - 1) * 10));
+            if (i % 4 == 0) {
+                rush.add(buildItem("extra" + i, "order" + i, "dessert", (i - 1) * 10));
+            }
+        }
+
+        double fifo = simulate(new FifoScheduler(), rush);
+        double shortestPrepTime = simulate(new ShortestPrepTimeScheduler(prepTimeEstimates, kitchenProperties), rush);
+        double orderBatch = simulate(new OrderBatchScheduler(prepTimeEstimates, kitchenProperties), rush);
+
+        log.info(String.format("Mean wait of the orders, FIFO : %.0f s, shortest prep time : %.0f s, order batch : %.0f s",
+                fifo, shortestPrepTime, orderBatch));
+        assertThat(shortestPrepTime).isLessThan(fifo);
+        assertThat(orderBatch).isLessThan(fifo);
+    }
+
+    private double simulate(KitchenScheduler scheduler, List<OrderItemResponse> items) {
+        List<OrderItemResponse> remaining = new ArrayList<>(items);
+        Map<String, OffsetDateTime> readyAt = new HashMap<>();
+        OffsetDateTime now = TestData.INSTANT_1;
+        while (!remaining.isEmpty()) {
+            OffsetDateTime time = now;
+            List<OrderItemResponse> pending = remaining.stream()
+                    .filter(item -> !item.getCreatedAt().isAfter(time))
+                    .collect(Collectors.toList());
+            if (pending.isEmpty()) {
+                now = remaining.stream().map(OrderItemResponse::getCreatedAt).min(OffsetDateTime::compareTo).orElseThrow();
+                continue;
+            }
+            OrderItemResponse next = scheduler.schedule(pending, now).get(0);
+            now = now.plusSeconds(PREP_TIMES.get(next.getProductId()));
+            remaining.remove(next);
+            readyAt.merge(next.getOrderId(), now, (previous, ready) -> ready.isAfter(previous) ? ready : previous);
+        }
+        return items.stream()
+                .collect(Collectors.toMap(OrderItemResponse::getOrderId, OrderItemResponse::getCreatedAt, (first, second) -> first))
+                .entrySet().stream()
+                .mapToLong(order -> Duration.between(order.getValue(), readyAt.get(order.getKey())).getSeconds())
+                .average()
+                .orElseThrow();
+    }
+
+    private OrderItemResponse buildItem(String id, String orderId, String productId, int seconds) {
+        return OrderItemResponse.builder()
+                .id(id)
+                .orderId(orderId)
+                .productId(productId)
+                .createdAt(TestData.INSTANT_1.plusSeconds(seconds))
+                .build();
+    }
+
+}
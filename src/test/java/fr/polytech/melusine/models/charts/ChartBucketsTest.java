@@ -0,0 +1,72 @@
+package fr.polytech.melusine.models.charts;
+
+import org.junit.Test;
+
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ChartBucketsTest {
+
+    private static final OffsetDateTime END = OffsetDateTime.of(2020, 2, 17, 13, 0, 0, 0, ZoneOffset.UTC);
+
+    @Test
+    public void getPoints_sumsTheYearsOfTheDecade() {
+        ChartBuckets buckets = new ChartBuckets(ChartInterval.DECADE, END.minusYears(10), END);
+
+        buckets.add(END.withYear(2012), 150);
+        buckets.add(END.withYear(2012).withMonth(6), 250);
+        buckets.add(END.withYear(2019), 100);
+
+        assertThat(buckets.getPoints()).containsExactly(integerPoint(2012, 4.0), integerPoint(2019, 1.0));
+    }
+
+    @Test
+    public void getPoints_labelsTheMonthsOfTheYear() {
+        ChartBuckets buckets = new ChartBuckets(ChartInterval.YEAR, END.minusYears(1), END);
+
+        buckets.add(END, 100);
+        buckets.add(END.minusMonths(1), 50);
+        buckets.add(END.minusYears(1), 25);
+
+        assertThat(buckets.getPoints()).containsExactly(stringPoint("janvier", 0.5), stringPoint("février", 1.25));
+    }
+
+    @Test
+    public void getPoints_labelsTheDaysOfTheMonth() {
+        ChartBuckets buckets = new ChartBuckets(ChartInterval.MONTH, END.minusMonths(1), END);
+
+        buckets.add(END, 100);
+        buckets.add(END.minusHours(2), 100);
+        buckets.add(END.minusDays(10), 300);
+
+        assertThat(buckets.getPoints()).containsExactly(stringPoint("vendredi 7", 3.0), stringPoint("lundi 17", 2.0));
+    }
+
+    @Test
+    public void getPoints_sumsTheHoursOfTheDay() {
+        ChartBuckets buckets = new ChartBuckets(ChartInterval.DAY, END.minusDays(1), END);
+
+        buckets.add(END, 100);
+        buckets.add(END.minusHours(2), 0);
+        buckets.add(END.minusDays(1), 50);
+
+        assertThat(buckets.getPoints()).containsExactly(integerPoint(11, 0.0), integerPoint(13, 1.5));
+    }
+
+    private ChartPoint integerPoint(int abscissa, double ordinate) {
+        return ChartPointInteger.builder()
+                .abscissa(abscissa)
+                .ordinate(ordinate)
+                .build();
+    }
+
+    private ChartPoint stringPoint(String abscissa, double ordinate) {
+        return ChartPointString.builder()
+                .abscissa(abscissa)
+                .ordinate(ordinate)
+                .build();
+    }
+
+}
@@ -0,0 +1,30 @@
+package fr.polytech.melusine.models.entities.converters;
+
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class StringListConverterTest {
+
+    private final StringListConverter converter = new StringListConverter();
+
+    @Test
+    public void convert_roundTripsTheSeparatorAndTheEscapeInTheNames() {
+        List<String> names = List.of("Cheddar|Emmental", "Sel\\Poivre", "", "Tomate");
+
+        String column = converter.convertToDatabaseColumn(names);
+
+        assertThat(column).isEqualTo("Cheddar\\|Emmental|Sel\\\\Poivre||Tomate");
+        assertThat(converter.convertToEntityAttribute(column)).isEqualTo(names);
+    }
+
+    @Test
+    public void convertToEntityAttribute_readsTheColumnsWrittenWithoutEscaping() {
+        assertThat(converter.convertToEntityAttribute("Cheddar|Tomate")).containsExactly("Cheddar", "Tomate");
+        assertThat(converter.convertToEntityAttribute("")).isEmpty();
+        assertThat(converter.convertToEntityAttribute(null)).isEmpty();
+    }
+
+}
@@ -0,0 +1,292 @@
+package fr.polytech.melusine.repositories;
+
+import fr.polytech.melusine.TestData;
+import fr.polytech.melusine.components.OrderItemReader;
+import fr.polytech.melusine.components.OrderItemSnapshotBackfill;
+import fr.polytech.melusine.mappers.OrderItemMapper;
+import fr.polytech.melusine.models.dtos.responses.OrderItemResponse;
+import fr.polytech.melusine.models.entities.Ingredient;
+import fr.polytech.melusine.models.entities.Order;
+import fr.polytech.melusine.models.entities.OrderItem;
+import fr.polytech.melusine.models.entities.Product;
+import fr.polytech.melusine.models.entities.User;
+import fr.polytech.melusine.models.enums.Category;
+import fr.polytech.melusine.models.enums.OrderStatus;
+import fr.polytech.melusine.models.projections.OrderItemRow;
+import fr.polytech.melusine.models.projections.ProductPrepTime;
+import fr.polytech.melusine.models.projections.SaleRow;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@RunWith(SpringRunner.class)
+@DataJpaTest(properties = {
+        "spring.jpa.hibernate.ddl-auto=create",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+@Import({OrderItemReader.class, OrderItemMapper.class, OrderItemSnapshotBackfill.class})
+public class OrderItemRepositoryTest {
+
+    @Autowired
+    private TestEntityManager entityManager;
+    @Autowired
+    private OrderItemRepository orderItemRepository;
+    @Autowired
+    private OrderItemReader orderItemReader;
+    @Autowired
+    private OrderItemSnapshotBackfill orderItemSnapshotBackfill;
+
+    private Statistics statistics;
+
+    @Before
+    public void setUp() {
+        statistics = entityManager.getEntityManager().getEntityManagerFactory()
+                .unwrap(SessionFactory.class)
+                .getStatistics();
+    }
+
+    @Test
+    public void findRowsByStatus_pageIsReadFromTheSnapshotWithConstantQueries() {
+        Ingredient cheese = entityManager.persist(TestData.INGREDIENT_CHEESE.toBuilder().id(null).image(null).build());
+        Ingredient ham = entityManager.persist(TestData.INGREDIENT_CHEESE.toBuilder().id(null).name("ham").image(null).build());
+        for (int i = 0; i < 5; i++) {
+            Product product = entityManager.persist(TestData.PRODUCT_1.toBuilder()
+                    .id(null)
+                    .name("Product" + i)
+                    .ingredients(List.of(cheese, ham, cheese))
+                    .build());
+            Order order = entityManager.persist(TestData.ODER_1.toBuilder()
+                    .id(null)
+                    .user(null)
+                    .clientName("Client" + i)
+                    .status(OrderStatus.PENDING)
+                    .build());
+            for (int j = 0; j < 6; j++) {
+                entityManager.persist(OrderItem.builder()
+                        .price(120)
+                        .product(product)
+                        .productName(product.getName())
+                        .category(product.getCategory())
+                        .ingredientNames(List.of("cheese", "ham"))
+                        .order(order)
+                        .status(OrderStatus.PENDING)
+                        .createdAt(TestData.INSTANT_1.plusMinutes(i * 6 + j))
+                        .updatedAt(TestData.INSTANT_1)
+                        .build());
+            }
+        }
+        entityManager.flush();
+        entityManager.clear();
+        statistics.clear();
+
+        Page<OrderItemResponse> page = orderItemReader.read(orderItemRepository.findRowsByStatus(
+                OrderStatus.PENDING,
+                PageRequest.of(0, 20, Sort.by("createdAt"))
+        ));
+
+        assertThat(page.getTotalElements()).isEqualTo(30);
+        assertThat(page.getContent()).hasSize(20);
+        assertThat(page.getContent().get(0).getProductName()).isEqualTo("Product0");
+        assertThat(page.getContent().get(0).getClientName()).isEqualTo("Client0");
+        assertThat(page.getContent().get(0).getIngredients()).containsExactlyInAnyOrder("cheese", "ham");
+        assertThat(page.getContent().get(19).getProductName()).isEqualTo("Product3");
+        // the page and the count, without loading any entity
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(2);
+        assertThat(statistics.getEntityLoadCount()).isZero();
+    }
+
+    @Test
+    public void backfill_fillsTheSnapshotOfTheOldItemsFromTheirProduct() {
+        Ingredient cheese = entityManager.persist(TestData.INGREDIENT_CHEESE.toBuilder().id(null).image(null).build());
+        Product product = entityManager.persist(TestData.PRODUCT_1.toBuilder()
+                .id(null)
+                .ingredients(List.of(cheese, cheese))
+                .build());
+        Order order = entityManager.persist(TestData.ODER_1.toBuilder()
+                .id(null)
+                .user(null)
+                .status(OrderStatus.PENDING)
+                .build());
+        OrderItem orderItem = entityManager.persist(OrderItem.builder()
+                .price(120)
+                .product(product)
+                .order(order)
+                .status(OrderStatus.PENDING)
+                .createdAt(TestData.INSTANT_1)
+                .updatedAt(TestData.INSTANT_1)
+                .build());
+        entityManager.flush();
+        entityManager.clear();
+
+        orderItemSnapshotBackfill.backfill();
+        entityManager.flush();
+        entityManager.clear();
+
+        OrderItem filled = entityManager.find(OrderItem.class, orderItem.getId());
+        assertThat(filled.getProductName()).isEqualTo("Mitch");
+        assertThat(filled.getCategory()).isEqualTo(Category.FROID);
+        assertThat(filled.getIngredientNames()).containsExactly("cheese");
+    }
+
+    @Test
+    public void findRowsByUserId_readsTheItemsNotPendingOfTheUserByCreationDateDescending() {
+        Product product = entityManager.persist(TestData.PRODUCT_1.toBuilder().id(null).ingredients(List.of()).build());
+        User user = entityManager.persist(TestData.USER_BRUCE_WAYNE.toBuilder().id(null).build());
+        User other = entityManager.persist(TestData.USER_BRUCE_WAYNE.toBuilder().id(null).build());
+        for (User owner : List.of(user, other)) {
+            Order order = entityManager.persist(TestData.ODER_1.toBuilder()
+                    .id(null)
+                    .user(owner)
+                    .status(OrderStatus.PENDING)
+                    .build());
+            for (int i = 0; i < 6; i++) {
+                entityManager.persist(OrderItem.builder()
+                        .price(120)
+                        .product(product)
+                        .productName("Item" + i)
+                        .order(order)
+                        .userId(owner.getId())
+                        .status(i == 5 ? OrderStatus.PENDING : i % 2 == 0 ? OrderStatus.DELIVER : OrderStatus.CANCEL)
+                        .createdAt(TestData.INSTANT_1.plusHours(i))
+                        .updatedAt(TestData.INSTANT_1)
+                        .build());
+            }
+        }
+        entityManager.flush();
+        entityManager.clear();
+
+        List<OrderItemRow> window = orderItemRepository.findRowsByUserIdAndStatusNotAndCreatedAtBetween(
+                user.getId(), OrderStatus.PENDING, TestData.INSTANT_1.plusHours(1), TestData.INSTANT_1.plusHours(5));
+        List<OrderItemRow> first = orderItemRepository.findFirstRowsByUserIdAndStatusNot(
+                user.getId(), OrderStatus.PENDING, PageRequest.of(0, 3));
+        OrderItemRow last = first.get(first.size() - 1);
+        List<OrderItemRow> next = orderItemRepository.findRowsByUserIdAndStatusNotBefore(
+                user.getId(), OrderStatus.PENDING, last.getCreatedAt(), last.getId(), PageRequest.of(0, 3));
+
+        assertThat(getProductNames(window)).containsExactly("Item4", "Item3", "Item2", "Item1");
+        assertThat(getProductNames(first)).containsExactly("Item4", "Item3", "Item2");
+        assertThat(getProductNames(next)).containsExactly("Item1", "Item0");
+    }
+
+    @Test
+    public void backfill_copiesTheUserOfTheOrderToTheOldItems() {
+        Product product = entityManager.persist(TestData.PRODUCT_1.toBuilder().id(null).ingredients(List.of()).build());
+        User user = entityManager.persist(TestData.USER_BRUCE_WAYNE.toBuilder().id(null).build());
+        Order order = entityManager.persist(TestData.ODER_1.toBuilder()
+                .id(null)
+                .user(user)
+                .status(OrderStatus.DELIVER)
+                .build());
+        Order guestOrder = entityManager.persist(TestData.ODER_1.toBuilder()
+                .id(null)
+                .user(null)
+                .status(OrderStatus.DELIVER)
+                .build());
+        List<OrderItem> orderItems = List.of(order, guestOrder).stream()
+                .map(owner -> entityManager.persist(OrderItem.builder()
+                        .price(120)
+                        .product(product)
+                        .productName(product.getName())
+                        .order(owner)
+                        .status(OrderStatus.DELIVER)
+                        .createdAt(TestData.INSTANT_1)
+                        .updatedAt(TestData.INSTANT_1)
+                        .build()))
+                .collect(Collectors.toList());
+        entityManager.flush();
+        entityManager.clear();
+
+        orderItemSnapshotBackfill.backfill();
+        entityManager.clear();
+
+        assertThat(entityManager.find(OrderItem.class, orderItems.get(0).getId()).getUserId()).isEqualTo(user.getId());
+        assertThat(entityManager.find(OrderItem.class, orderItems.get(1).getId()).getUserId()).isNull();
+    }
+
+    @Test
+    public void findPrepTimes_averagesTheDeliveryTimeOfTheItemsOfEachProduct() {
+        Product product = entityManager.persist(TestData.PRODUCT_1.toBuilder().id(null).ingredients(List.of()).build());
+        Order order = entityManager.persist(TestData.ODER_1.toBuilder()
+                .id(null)
+                .user(null)
+                .status(OrderStatus.DELIVER)
+                .build());
+        for (int seconds : List.of(100, 200, 900)) {
+            entityManager.persist(OrderItem.builder()
+                    .price(120)
+                    .product(product)
+                    .order(order)
+                    .status(seconds == 900 ? OrderStatus.CANCEL : OrderStatus.DELIVER)
+                    .createdAt(TestData.INSTANT_1)
+                    .updatedAt(TestData.INSTANT_1.plusSeconds(seconds))
+                    .build());
+        }
+        entityManager.flush();
+        entityManager.clear();
+
+        List<ProductPrepTime> prepTimes = orderItemRepository.findPrepTimesByUpdatedAtAfter(TestData.INSTANT_1);
+
+        assertThat(prepTimes).hasSize(1);
+        assertThat(prepTimes.get(0).getProductId()).isEqualTo(product.getId());
+        assertThat(prepTimes.get(0).getPrepTime()).isEqualTo(150);
+    }
+
+    @Test
+    public void findSaleRows_readsTheDeliveredItemsWithTheirClient() {
+        Product product = entityManager.persist(TestData.PRODUCT_1.toBuilder().id(null).ingredients(List.of()).build());
+        User user = entityManager.persist(TestData.USER_BRUCE_WAYNE.toBuilder().id(null).build());
+        Order order = entityManager.persist(TestData.ODER_1.toBuilder()
+                .id(null)
+                .user(null)
+                .status(OrderStatus.PENDING)
+                .build());
+        for (String userId : Arrays.asList(user.getId(), null)) {
+            entityManager.persist(OrderItem.builder()
+                    .price(120)
+                    .product(product)
+                    .productName(product.getName())
+                    .category(product.getCategory())
+                    .order(order)
+                    .userId(userId)
+                    .status(OrderStatus.DELIVER)
+                    .createdAt(TestData.INSTANT_1)
+                    .updatedAt(TestData.INSTANT_1)
+                    .build());
+        }
+        entityManager.flush();
+        entityManager.clear();
+
+        List<SaleRow> saleRows = orderItemRepository.findSaleRowsByCreatedAtFrom(TestData.INSTANT_1.minusDays(1),
+                TestData.INSTANT_1.plusDays(1), TestData.INSTANT_1.plusSeconds(1), OrderStatus.DELIVER);
+
+        assertThat(saleRows).extracting(SaleRow::getSection)
+                .containsExactlyInAnyOrder(user.getSection(), null);
+        assertThat(saleRows).extracting(SaleRow::getProductId).containsOnly(product.getId());
+        assertThat(orderItemRepository.findSaleRowsByOrderIdAndStatus(order.getId(), OrderStatus.DELIVER)).hasSize(2);
+    }
+
+    private List<String> getProductNames(List<OrderItemRow> rows) {
+        return rows.stream()
+                .map(OrderItemRow::getProductName)
+                .collect(Collectors.toList());
+    }
+
+}
@@ -0,0 +1,79 @@
+package fr.polytech.melusine.repositories;
+
+import fr.polytech.melusine.TestData;
+import fr.polytech.melusine.models.entities.Order;
+import fr.polytech.melusine.models.enums.OrderStatus;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@RunWith(SpringRunner.class)
+@DataJpaTest(properties = {
+        "spring.jpa.hibernate.ddl-auto=create",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect"
+})
+public class OrderRepositoryTest {
+
+    @Autowired
+    private TestEntityManager entityManager;
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Test
+    public void save_keepsTheAssignedIdOfAJournaledOrder() {
+        Order journaled = orderRepository.save(TestData.ODER_1.toBuilder()
+                .id("journaledId")
+                .user(null)
+                .status(OrderStatus.PENDING)
+                .build());
+        Order generated = orderRepository.save(TestData.ODER_1.toBuilder()
+                .id(null)
+                .user(null)
+                .status(OrderStatus.PENDING)
+                .build());
+
+        assertThat(journaled.getId()).isEqualTo("journaledId");
+        assertThat(generated.getId()).isNotNull().isNotEqualTo("journaledId");
+        assertThat(orderRepository.findIdsByIdIn(List.of("journaledId", "unknownId"))).containsExactly("journaledId");
+    }
+
+    @Test
+    public void updateStatusFromCounters_onlyWritesTheOrdersWhoseStatusChanges() {
+        Order first = orderRepository.save(TestData.ODER_1.toBuilder()
+                .id(null)
+                .user(null)
+                .status(OrderStatus.PENDING)
+                .pendingCount(2)
+                .build());
+        Order second = orderRepository.save(TestData.ODER_1.toBuilder()
+                .id(null)
+                .user(null)
+                .status(OrderStatus.PENDING)
+                .pendingCount(1)
+                .build());
+
+        orderRepository.addToCounters(first.getId(), -1, 1, 0);
+        orderRepository.addToCounters(second.getId(), -1, 0, 1);
+        int updated = orderRepository.updateStatusFromCounters(List.of(first.getId(), second.getId()), TestData.INSTANT_2);
+        entityManager.clear();
+
+        assertThat(updated).isEqualTo(1);
+        Order firstUpdated = orderRepository.findById(first.getId()).get();
+        assertThat(firstUpdated.getStatus()).isEqualTo(OrderStatus.PENDING);
+        assertThat(firstUpdated.getUpdatedAt()).isEqualTo(TestData.INSTANT_1);
+        assertThat(firstUpdated.getPendingCount()).isEqualTo(1);
+        assertThat(firstUpdated.getDeliveredCount()).isEqualTo(1);
+        Order secondUpdated = orderRepository.findById(second.getId()).get();
+        assertThat(secondUpdated.getStatus()).isEqualTo(OrderStatus.CANCEL);
+        assertThat(secondUpdated.getUpdatedAt()).isEqualTo(TestData.INSTANT_2);
+    }
+
+}
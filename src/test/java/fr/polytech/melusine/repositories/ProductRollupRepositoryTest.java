@@ -0,0 +1,79 @@
+package fr.polytech.melusine.repositories;
+
+import fr.polytech.melusine.models.entities.ProductRollup;
+import fr.polytech.melusine.models.enums.Category;
+import fr.polytech.melusine.models.projections.RevenueRollup;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+@RunWith(SpringRunner.class)
+@DataJpaTest(properties = {
+        "spring.jpa.hibernate.ddl-auto=create",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect"
+})
+public class ProductRollupRepositoryTest {
+
+    private static final OffsetDateTime START = OffsetDateTime.of(2019, 1, 1, 0, 0, 0, 0, ZoneOffset.UTC);
+    private static final OffsetDateTime END = OffsetDateTime.of(2021, 1, 1, 0, 0, 0, 0, ZoneOffset.UTC);
+
+    @Autowired
+    private TestEntityManager entityManager;
+    @Autowired
+    private ProductRollupRepository productRollupRepository;
+
+    @Before
+    public void setUp() {
+        persistRollup(OffsetDateTime.of(2019, 12, 31, 22, 0, 0, 0, ZoneOffset.UTC), "first", 100);
+        persistRollup(OffsetDateTime.of(2020, 2, 17, 12, 0, 0, 0, ZoneOffset.UTC), "first", 120);
+        persistRollup(OffsetDateTime.of(2020, 2, 17, 12, 0, 0, 0, ZoneOffset.UTC), "second", 80);
+        persistRollup(OffsetDateTime.of(2020, 2, 17, 13, 0, 0, 0, ZoneOffset.UTC), "first", 240);
+        persistRollup(OffsetDateTime.of(2020, 2, 18, 9, 0, 0, 0, ZoneOffset.UTC), "first", 120);
+        persistRollup(OffsetDateTime.of(2020, 3, 2, 9, 0, 0, 0, ZoneOffset.UTC), "first", 360);
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    public void findRevenues_sumTheHoursOfEachBucket() {
+        assertThat(productRollupRepository.findRevenuesByHourStartBetween(START, END))
+                .extracting(RevenueRollup::getRevenue)
+                .containsExactlyInAnyOrder(100L, 200L, 240L, 120L, 360L);
+        assertThat(productRollupRepository.findDailyRevenuesByHourStartBetween(START, END))
+                .extracting(revenue -> revenue.getHourStart().toInstant(), RevenueRollup::getRevenue)
+                .containsExactlyInAnyOrder(
+                        tuple(OffsetDateTime.of(2019, 12, 31, 22, 0, 0, 0, ZoneOffset.UTC).toInstant(), 100L),
+                        tuple(OffsetDateTime.of(2020, 2, 17, 12, 0, 0, 0, ZoneOffset.UTC).toInstant(), 440L),
+                        tuple(OffsetDateTime.of(2020, 2, 18, 9, 0, 0, 0, ZoneOffset.UTC).toInstant(), 120L),
+                        tuple(OffsetDateTime.of(2020, 3, 2, 9, 0, 0, 0, ZoneOffset.UTC).toInstant(), 360L));
+        assertThat(productRollupRepository.findMonthlyRevenuesByHourStartBetween(START, END))
+                .extracting(RevenueRollup::getRevenue)
+                .containsExactlyInAnyOrder(100L, 560L, 360L);
+        assertThat(productRollupRepository.findYearlyRevenuesByHourStartBetween(START, END))
+                .extracting(revenue -> revenue.getHourStart().getYear(), RevenueRollup::getRevenue)
+                .containsExactlyInAnyOrder(tuple(2019, 100L), tuple(2020, 920L));
+    }
+
+    private void persistRollup(OffsetDateTime hourStart, String productId, long revenue) {
+        entityManager.persist(ProductRollup.builder()
+                .hourStart(hourStart)
+                .productId(productId)
+                .productName(productId)
+                .category(Category.FROID)
+                .deliveredCount(1)
+                .deliveredRevenue(revenue)
+                .build());
+    }
+
+}
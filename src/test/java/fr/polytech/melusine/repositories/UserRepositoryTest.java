@@ -0,0 +1,160 @@
+package fr.polytech.melusine.repositories;
+
+import fr.polytech.melusine.TestData;
+import fr.polytech.melusine.models.entities.Product;
+import fr.polytech.melusine.models.entities.User;
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@RunWith(SpringRunner.class)
+@DataJpaTest(properties = {
+        "spring.jpa.hibernate.ddl-auto=create",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect"
+})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class UserRepositoryTest {
+
+    @Autowired
+    private TestEntityManager entityManager;
+    @Autowired
+    private UserRepository userRepository;
+
+    @After
+    public void tearDown() {
+        userRepository.deleteAll();
+    }
+
+    @Test
+    public void debitCredit_concurrentDebitsAreNotLost() throws Exception {
+        User user = userRepository.save(TestData.USER_BRUCE_WAYNE.toBuilder()
+                .id(null)
+                .credit(10_000)
+                .build());
+        int threads = 8;
+        int debitsByThread = 50;
+
+        List<Integer> updatedRows = runConcurrently(threads, debitsByThread,
+                () -> userRepository.debitCredit(user.getId(), 10, TestData.INSTANT_2));
+
+        assertThat(updatedRows).containsOnly(1);
+        assertThat(userRepository.findById(user.getId()).get().getCredit())
+                .isEqualTo(10_000 - threads * debitsByThread * 10);
+    }
+
+    @Test
+    public void debitCredit_refusedOnceCreditIsNotUpperThanZero() throws Exception {
+        User user = userRepository.save(TestData.USER_BRUCE_WAYNE.toBuilder()
+                .id(null)
+                .credit(100)
+                .build());
+
+        List<Integer> updatedRows = runConcurrently(4, 10,
+                () -> userRepository.debitCredit(user.getId(), 30, TestData.INSTANT_2));
+
+        assertThat(updatedRows.stream().filter(rows -> rows == 1).count()).isEqualTo(4);
+        assertThat(userRepository.findById(user.getId()).get().getCredit()).isEqualTo(-20);
+    }
+
+    @Test
+    @Transactional
+    public void debitCredit_keepsTheLoadedEntitiesOfTheTransaction() {
+        User user = entityManager.persistFlushFind(TestData.USER_BRUCE_WAYNE.toBuilder()
+                .id(null)
+                .credit(1000)
+                .build());
+        Product product = entityManager.persistFlushFind(TestData.PRODUCT_1.toBuilder()
+                .id(null)
+                .ingredients(List.of())
+                .build());
+
+        userRepository.debitCredit(user.getId(), 120, TestData.INSTANT_2);
+
+        assertThat(entityManager.getEntityManager().contains(product)).isTrue();
+        assertThat(entityManager.getEntityManager().contains(user)).isTrue();
+        entityManager.refresh(user);
+        assertThat(user.getCredit()).isEqualTo(880);
+    }
+
+    @Test
+    public void addCredit_concurrentCreditsAreNotLost() throws Exception {
+        User user = userRepository.save(TestData.USER_BRUCE_WAYNE.toBuilder()
+                .id(null)
+                .credit(0)
+                .build());
+
+        runConcurrently(8, 50, () -> userRepository.addCredit(user.getId(), 5, TestData.INSTANT_2));
+
+        assertThat(userRepository.findById(user.getId()).get().getCredit()).isEqualTo(8 * 50 * 5);
+        assertThat(userRepository.addCredit("unknownId", 5, TestData.INSTANT_2)).isEqualTo(0);
+    }
+
+    @Test
+    public void findAllAfter_walksAllUsersByLastNameWithoutDuplicates() {
+        List<String> lastNames = List.of("Wayne", "Kent", "Wayne", "Allen", "Kent", "Prince", "Wayne");
+        for (int i = 0; i < lastNames.size(); i++) {
+            userRepository.save(TestData.USER_BRUCE_WAYNE.toBuilder()
+                    .id(null)
+                    .firstName("User" + i)
+                    .lastName(lastNames.get(i))
+                    .build());
+        }
+        PageRequest slice = PageRequest.of(0, 3);
+
+        List<User> users = new ArrayList<>(userRepository.findAllByOrderByLastNameAscIdAsc(slice));
+        List<User> next = users;
+        while (next.size() == 3) {
+            User last = next.get(2);
+            next = userRepository.findAllAfter(last.getLastName(), last.getId(), slice);
+            users.addAll(next);
+        }
+
+        assertThat(users).extracting(User::getLastName)
+                .containsExactly("Allen", "Kent", "Kent", "Prince", "Wayne", "Wayne", "Wayne");
+        assertThat(users).extracting(User::getId).doesNotHaveDuplicates();
+        User lastKent = users.get(2);
+        assertThat(userRepository.searchAfter("ent", lastKent.getLastName(), lastKent.getId(), slice)).isEmpty();
+        assertThat(userRepository.searchFirst("wAy".toLowerCase(), slice)).hasSize(3);
+    }
+
+    private List<Integer> runConcurrently(int threads, int callsByThread, Callable<Integer> call) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<List<Integer>>> futures = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                futures.add(executor.submit(() -> {
+                    List<Integer> results = new ArrayList<>();
+                    for (int j = 0; j < callsByThread; j++) {
+                        results.add(call.call());
+                    }
+                    return results;
+                }));
+            }
+            List<Integer> results = new ArrayList<>();
+            for (Future<List<Integer>> future : futures) {
+                results.addAll(future.get());
+            }
+            return results;
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+}
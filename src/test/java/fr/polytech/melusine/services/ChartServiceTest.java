@@ -0,0 +1,117 @@
+package fr.polytech.melusine.services;
+
+import fr.polytech.melusine.components.ChartCache;
+import fr.polytech.melusine.components.OrderRollups;
+import fr.polytech.melusine.components.SalesCube;
+import fr.polytech.melusine.configurations.ChartCacheProperties;
+import fr.polytech.melusine.models.charts.ChartInterval;
+import fr.polytech.melusine.models.charts.ChartPoint;
+import fr.polytech.melusine.models.dtos.requests.ChartRequest;
+import fr.polytech.melusine.models.enums.OrderStatus;
+import fr.polytech.melusine.models.events.OrderItemChange;
+import fr.polytech.melusine.models.events.OrderItemsStatusChangedEvent;
+import fr.polytech.melusine.models.projections.RevenueRollup;
+import fr.polytech.melusine.repositories.ProductRollupRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import java.time.Clock;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class ChartServiceTest {
+
+    private static final OffsetDateTime HOUR = OffsetDateTime.of(2020, 2, 17, 13, 0, 0, 0, ZoneOffset.UTC);
+
+    @Mock
+    private ProductRollupRepository productRollupRepository;
+    @Mock
+    private SalesCube salesCube;
+    @Mock
+    private OrderRollups orderRollups;
+    @Mock
+    private Clock clock;
+
+    private ChartCache chartCache;
+    private ChartService chartService;
+
+    @Before
+    public void setUp() {
+        when(clock.getZone()).thenReturn(ZoneOffset.UTC);
+        when(clock.instant()).thenReturn(HOUR.plusMinutes(6).toInstant());
+        chartCache = new ChartCache(new ChartCacheProperties(), orderRollups, new SimpleMeterRegistry(), clock);
+        chartService = new ChartService(productRollupRepository, chartCache, salesCube, clock);
+    }
+
+    @Test
+    public void findRevenuesChart_readsTheCurrentHourAgainAndKeepsTheClosedHours() {
+        ChartRequest request = ChartRequest.builder().interval(ChartInterval.MONTH).build();
+        when(productRollupRepository.findDailyRevenuesByHourStartBetween(HOUR.minusMonths(1), HOUR.minusHours(1)))
+                .thenReturn(List.of(buildRevenue(HOUR.withHour(10), 100)));
+        when(productRollupRepository.findRevenuesByHourStartBetween(HOUR, HOUR))
+                .thenReturn(List.of(buildRevenue(HOUR, 50)))
+                .thenReturn(List.of(buildRevenue(HOUR, 80)));
+
+        List<ChartPoint> before = chartService.findRevenuesChart(request).getPoints();
+        chartCache.onOrderItemsStatusChanged(buildEvent(HOUR.plusMinutes(5)));
+        List<ChartPoint> after = chartService.findRevenuesChart(request).getPoints();
+
+        assertThat(before).extracting("ordinate").containsExactly(1.5);
+        assertThat(after).extracting("ordinate").containsExactly(1.8);
+        verify(productRollupRepository, times(1))
+                .findDailyRevenuesByHourStartBetween(HOUR.minusMonths(1), HOUR.minusHours(1));
+    }
+
+    @Test
+    public void findRevenuesChart_computesTheClosedHoursAgainWhenOneOfTheirItemsChanges() {
+        ChartRequest request = ChartRequest.builder().interval(ChartInterval.MONTH).build();
+        when(productRollupRepository.findDailyRevenuesByHourStartBetween(HOUR.minusMonths(1), HOUR.minusHours(1)))
+                .thenReturn(List.of(buildRevenue(HOUR.withHour(10), 100)));
+
+        chartService.findRevenuesChart(request);
+        chartCache.onOrderItemsStatusChanged(buildEvent(HOUR.withHour(10).plusMinutes(30)));
+        chartService.findRevenuesChart(request);
+
+        verify(productRollupRepository, times(2))
+                .findDailyRevenuesByHourStartBetween(HOUR.minusMonths(1), HOUR.minusHours(1));
+    }
+
+    private RevenueRollup buildRevenue(OffsetDateTime hourStart, long revenue) {
+        return new RevenueRollup() {
+
+            @Override
+            public OffsetDateTime getHourStart() {
+                return hourStart;
+            }
+
+            @Override
+            public long getRevenue() {
+                return revenue;
+            }
+
+        };
+    }
+
+    private OrderItemsStatusChangedEvent buildEvent(OffsetDateTime createdAt) {
+        return OrderItemsStatusChangedEvent.builder()
+                .status(OrderStatus.DELIVER)
+                .changes(List.of(OrderItemChange.builder()
+                        .itemId("itemId")
+                        .previousStatus(OrderStatus.PENDING)
+                        .createdAt(createdAt)
+                        .build()))
+                .build();
+    }
+
+}
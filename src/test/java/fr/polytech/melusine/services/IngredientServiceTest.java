@@ -1,6 +1,8 @@
 package fr.polytech.melusine.services;
 
 import fr.polytech.melusine.TestData;
+import fr.polytech.melusine.components.OptimisticLockRetry;
+import fr.polytech.melusine.configurations.RetryProperties;
 import fr.polytech.melusine.exceptions.NotFoundException;
 import fr.polytech.melusine.mappers.IngredientMapper;
 import fr.polytech.melusine.models.dtos.requests.IngredientRequest;
@@ -15,6 +17,7 @@ import org.junit.runner.RunWith;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnitRunner;
+import org.springframework.transaction.PlatformTransactionManager;
 
 import java.time.Clock;
 import java.time.ZoneOffset;
@@ -37,6 +40,8 @@ public class IngredientServiceTest {
     @Mock
     private ProductRepository productRepository;
     @Mock
+    private PlatformTransactionManager transactionManager;
+    @Mock
     private Clock clock;
 
     private IngredientService ingredientService;
@@ -45,7 +50,8 @@ public class IngredientServiceTest {
     public void setUp() throws Exception {
         when(clock.getZone()).thenReturn(ZoneOffset.UTC);
         when(clock.instant()).thenReturn(TestData.INSTANT_1.toInstant());
-        ingredientService = new IngredientService(ingredientRepository, ingredientMapper, productRepository, clock);
+        ingredientService = new IngredientService(ingredientRepository, ingredientMapper, productRepository,
+                new OptimisticLockRetry(new RetryProperties(), transactionManager), clock);
     }
 
     @Test
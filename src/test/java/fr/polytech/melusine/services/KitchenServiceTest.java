@@ -0,0 +1,116 @@
+package fr.polytech.melusine.services;
+
+import fr.polytech.melusine.TestData;
+import fr.polytech.melusine.components.OrderItemLatencies;
+import fr.polytech.melusine.components.OrderItemReader;
+import fr.polytech.melusine.components.PendingOrderItems;
+import fr.polytech.melusine.components.schedulers.FifoScheduler;
+import fr.polytech.melusine.configurations.KitchenProperties;
+import fr.polytech.melusine.exceptions.BadRequestException;
+import fr.polytech.melusine.models.dtos.responses.OrderItemResponse;
+import fr.polytech.melusine.models.enums.Category;
+import fr.polytech.melusine.models.projections.OrderItemRow;
+import fr.polytech.melusine.repositories.OrderItemRepository;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import java.time.Clock;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class KitchenServiceTest {
+
+    @Mock
+    private OrderItemRepository orderItemRepository;
+    @Mock
+    private OrderItemReader orderItemReader;
+    @Mock
+    private PendingOrderItems pendingOrderItems;
+    @Mock
+    private OrderItemLatencies orderItemLatencies;
+    @Mock
+    private Clock clock;
+
+    private KitchenService kitchenService;
+
+    @Before
+    public void setUp() {
+        when(clock.getZone()).thenReturn(ZoneOffset.UTC);
+        when(clock.instant()).thenReturn(TestData.INSTANT_1.toInstant());
+        KitchenProperties kitchenProperties = new KitchenProperties();
+        kitchenProperties.setStations(Map.of("grill", List.of(Category.CHAUD)));
+        kitchenProperties.setClaimTimeout(600);
+        kitchenService = new KitchenService(kitchenProperties, orderItemRepository, orderItemReader, pendingOrderItems,
+                List.of(new FifoScheduler()), orderItemLatencies, clock);
+    }
+
+    @Test
+    public void claimOrderItems_claimsTheFirstScheduledItemsOfTheCategoriesOfTheStation() {
+        List<OrderItemRow> rows = List.of(mock(OrderItemRow.class));
+        List<OrderItemResponse> items = List.of(buildItem("third", 3), buildItem("first", 1), buildItem("second", 2));
+        when(orderItemRepository.lockIdsToClaim(List.of("CHAUD"), TestData.INSTANT_1.minusMinutes(10), 8))
+                .thenReturn(List.of("first", "second", "third"));
+        when(orderItemRepository.findRowsByIdIn(List.of("first", "second", "third"))).thenReturn(rows);
+        when(orderItemReader.read(rows)).thenReturn(items);
+
+        List<OrderItemResponse> claimed = kitchenService.claimOrderItems("grill", 2);
+
+        assertThat(claimed).extracting(OrderItemResponse::getId).containsExactly("first", "second");
+        verify(orderItemRepository).claim(List.of("first", "second"), "grill", TestData.INSTANT_1);
+    }
+
+    @Test
+    public void claimOrderItems_returnsNothingWhenNoItemIsPending() {
+        when(orderItemRepository.lockIdsToClaim(anyCollection(), any(), anyInt())).thenReturn(List.of());
+
+        List<OrderItemResponse> claimed = kitchenService.claimOrderItems("grill", 500);
+
+        assertThat(claimed).isEmpty();
+        verify(orderItemRepository).lockIdsToClaim(eq(List.of("CHAUD")), eq(TestData.INSTANT_1.minusMinutes(10)),
+                eq(400));
+        verify(orderItemRepository, never()).claim(anyCollection(), anyString(), any());
+    }
+
+    @Test
+    public void claimOrderItems_throwExceptionWhenTheStationIsUnknown() {
+        assertThatExceptionOfType(BadRequestException.class)
+                .isThrownBy(() -> kitchenService.claimOrderItems("gril", 2));
+        verifyNoInteractions(orderItemRepository);
+    }
+
+    @Test
+    public void getQueue_schedulesThePendingItems() {
+        when(pendingOrderItems.getAll()).thenReturn(Optional.of(List.of(buildItem("second", 2), buildItem("first", 1))));
+
+        List<OrderItemResponse> queue = kitchenService.getQueue();
+
+        assertThat(queue).extracting(OrderItemResponse::getId).containsExactly("first", "second");
+    }
+
+    private OrderItemResponse buildItem(String id, int minutes) {
+        return OrderItemResponse.builder()
+                .id(id)
+                .createdAt(TestData.INSTANT_1.minusMinutes(10 - minutes))
+                .build();
+    }
+
+}
@@ -0,0 +1,162 @@
+package fr.polytech.melusine.services;
+
+import fr.polytech.melusine.TestData;
+import fr.polytech.melusine.components.OrderItemReader;
+import fr.polytech.melusine.components.OrderJournal;
+import fr.polytech.melusine.components.OrderRollups;
+import fr.polytech.melusine.components.PendingOrderItems;
+import fr.polytech.melusine.configurations.IdempotencyProperties;
+import fr.polytech.melusine.mappers.OrderItemMapper;
+import fr.polytech.melusine.mappers.OrderMapper;
+import fr.polytech.melusine.models.dtos.responses.OrderItemResponse;
+import fr.polytech.melusine.models.dtos.responses.SliceResponse;
+import fr.polytech.melusine.models.entities.ArchivedOrder;
+import fr.polytech.melusine.models.entities.ArchivedOrderItem;
+import fr.polytech.melusine.models.entities.Order;
+import fr.polytech.melusine.models.entities.OrderItem;
+import fr.polytech.melusine.models.entities.Product;
+import fr.polytech.melusine.models.entities.User;
+import fr.polytech.melusine.models.enums.OrderStatus;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.time.Clock;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Keyset read of the history of a user through the hot and the archive tables.
+ */
+@RunWith(SpringRunner.class)
+@DataJpaTest(properties = {
+        "spring.jpa.hibernate.ddl-auto=create",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect"
+})
+@Import({OrderService.class, OrderMapper.class, OrderItemMapper.class, OrderItemReader.class,
+        OrderServiceHistoryTest.Configuration.class})
+public class OrderServiceHistoryTest {
+
+    @Autowired
+    private TestEntityManager entityManager;
+    @Autowired
+    private OrderService orderService;
+    @MockBean
+    private PendingOrderItems pendingOrderItems;
+    @MockBean
+    private OrderJournal orderJournal;
+    @MockBean
+    private OrderRollups orderRollups;
+
+    private User user;
+    private String firstHotId;
+    private String secondHotId;
+
+    @Before
+    public void setUp() {
+        user = entityManager.persist(TestData.USER_BRUCE_WAYNE.toBuilder().id(null).build());
+        Product product = entityManager.persist(TestData.PRODUCT_1.toBuilder().id(null).ingredients(List.of()).build());
+        Order order = entityManager.persist(TestData.ODER_1.toBuilder().id(null).user(user).build());
+        firstHotId = persistItem(product, order, OrderStatus.DELIVER, TestData.INSTANT_1);
+        secondHotId = persistItem(product, order, OrderStatus.CANCEL, TestData.INSTANT_1.minusHours(1));
+        persistItem(product, order, OrderStatus.PENDING, TestData.INSTANT_1.minusHours(2));
+
+        OffsetDateTime archivedAt = TestData.INSTANT_1.minusMonths(4);
+        persistArchivedOrder("archivedOrderId", user.getId(), archivedAt);
+        persistArchivedItem("archived1", "archivedOrderId", OrderStatus.DELIVER, archivedAt);
+        persistArchivedItem("archived2", "archivedOrderId", OrderStatus.DELIVER, archivedAt.minusHours(1));
+        persistArchivedItem("archivedPending", "archivedOrderId", OrderStatus.PENDING, archivedAt.minusHours(2));
+        persistArchivedOrder("otherOrderId", "otherUserId", archivedAt);
+        persistArchivedItem("other", "otherOrderId", OrderStatus.DELIVER, archivedAt);
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    public void getOrderItemsByUserId_goesOnInTheArchive() {
+        assertThat(readAll(1)).containsExactly(firstHotId, secondHotId, "archived1", "archived2");
+        assertThat(readAll(3)).containsExactly(firstHotId, secondHotId, "archived1", "archived2");
+    }
+
+    private List<String> readAll(int size) {
+        List<String> ids = new ArrayList<>();
+        String cursor = null;
+        do {
+            SliceResponse<OrderItemResponse> slice = orderService.getOrderItemsByUserId(user.getId(), cursor, size);
+            assertThat(slice.getContent()).hasSizeLessThanOrEqualTo(size);
+            ids.addAll(slice.getContent().stream().map(OrderItemResponse::getId).collect(Collectors.toList()));
+            cursor = slice.getNextCursor();
+        } while (Objects.nonNull(cursor));
+        return ids;
+    }
+
+    private String persistItem(Product product, Order order, OrderStatus status, OffsetDateTime createdAt) {
+        return entityManager.persist(OrderItem.builder()
+                .price(product.getPrice())
+                .product(product)
+                .productName(product.getName())
+                .category(product.getCategory())
+                .order(order)
+                .userId(user.getId())
+                .status(status)
+                .createdAt(createdAt)
+                .updatedAt(createdAt)
+                .build())
+                .getId();
+    }
+
+    private void persistArchivedOrder(String id, String userId, OffsetDateTime createdAt) {
+        entityManager.persist(ArchivedOrder.builder()
+                .id(id)
+                .clientName("displayName")
+                .userId(userId)
+                .status(OrderStatus.DELIVER)
+                .createdAt(createdAt)
+                .updatedAt(createdAt)
+                .build());
+    }
+
+    private void persistArchivedItem(String id, String orderId, OrderStatus status, OffsetDateTime createdAt) {
+        entityManager.persist(ArchivedOrderItem.builder()
+                .id(id)
+                .price(120)
+                .productId("productId")
+                .orderId(orderId)
+                .productName("Mitch")
+                .status(status)
+                .createdAt(createdAt)
+                .updatedAt(createdAt)
+                .build());
+    }
+
+    @TestConfiguration
+    static class Configuration {
+
+        @Bean
+        public Clock clock() {
+            return Clock.fixed(TestData.INSTANT_1.toInstant(), ZoneOffset.UTC);
+        }
+
+        @Bean
+        public IdempotencyProperties idempotencyProperties() {
+            return new IdempotencyProperties();
+        }
+
+    }
+
+}
@@ -0,0 +1,126 @@
+package fr.polytech.melusine.services;
+
+import fr.polytech.melusine.TestData;
+import fr.polytech.melusine.components.OrderItemReader;
+import fr.polytech.melusine.components.OrderJournal;
+import fr.polytech.melusine.components.OrderRollups;
+import fr.polytech.melusine.components.PendingOrderItems;
+import fr.polytech.melusine.configurations.IdempotencyProperties;
+import fr.polytech.melusine.mappers.OrderItemMapper;
+import fr.polytech.melusine.mappers.OrderMapper;
+import fr.polytech.melusine.models.dtos.requests.OrderRequest;
+import fr.polytech.melusine.models.dtos.responses.OrderResponse;
+import fr.polytech.melusine.models.entities.IdempotencyKey;
+import fr.polytech.melusine.models.entities.Product;
+import fr.polytech.melusine.repositories.IdempotencyKeyRepository;
+import fr.polytech.melusine.repositories.OrderItemRepository;
+import fr.polytech.melusine.repositories.OrderRepository;
+import fr.polytech.melusine.repositories.ProductRepository;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.EntityStatistics;
+import org.hibernate.stat.Statistics;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManagerFactory;
+import java.time.Clock;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@RunWith(SpringRunner.class)
+@DataJpaTest(properties = {
+        "spring.jpa.hibernate.ddl-auto=create",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+@Import({OrderService.class, OrderMapper.class, OrderItemMapper.class, OrderServiceIdempotencyTest.Configuration.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class OrderServiceIdempotencyTest {
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    @Autowired
+    private OrderService orderService;
+    @Autowired
+    private ProductRepository productRepository;
+    @Autowired
+    private OrderRepository orderRepository;
+    @Autowired
+    private OrderItemRepository orderItemRepository;
+    @Autowired
+    private IdempotencyKeyRepository idempotencyKeyRepository;
+    @MockBean
+    private PendingOrderItems pendingOrderItems;
+    @MockBean
+    private OrderItemReader orderItemReader;
+    @MockBean
+    private OrderJournal orderJournal;
+    @MockBean
+    private OrderRollups orderRollups;
+
+    private Product product;
+
+    @Before
+    public void setUp() {
+        product = productRepository.save(TestData.PRODUCT_1.toBuilder().id(null).ingredients(List.of()).build());
+    }
+
+    @After
+    public void tearDown() {
+        idempotencyKeyRepository.deleteAll();
+        orderItemRepository.deleteAll();
+        orderRepository.deleteAll();
+        productRepository.deleteAll();
+    }
+
+    @Test
+    public void createOrder_insertsTheKeyWithoutReadingItAndReturnsTheSameOrderOnRetry() {
+        OrderRequest request = OrderRequest.builder()
+                .name("displayName")
+                .items(List.of(product.getId()))
+                .build();
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        OrderResponse first = orderService.createOrder(request, "key");
+        EntityStatistics keyStatistics = statistics.getEntityStatistics(IdempotencyKey.class.getName());
+        assertThat(keyStatistics.getInsertCount()).isEqualTo(1);
+        assertThat(keyStatistics.getLoadCount()).isZero();
+        OrderResponse retry = orderService.createOrder(request, "key");
+
+        assertThat(retry.getId()).isEqualTo(first.getId());
+        assertThat(orderRepository.count()).isEqualTo(1);
+        assertThat(idempotencyKeyRepository.findById("key")).hasValueSatisfying(key ->
+                assertThat(key.getOrderId()).isEqualTo(first.getId()));
+    }
+
+    @TestConfiguration
+    static class Configuration {
+
+        @Bean
+        public Clock clock() {
+            return Clock.fixed(TestData.INSTANT_1.toInstant(), ZoneOffset.UTC);
+        }
+
+        @Bean
+        public IdempotencyProperties idempotencyProperties() {
+            return new IdempotencyProperties();
+        }
+
+    }
+
+}
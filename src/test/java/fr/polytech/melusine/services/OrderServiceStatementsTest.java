@@ -0,0 +1,128 @@
+package fr.polytech.melusine.services;
+
+import fr.polytech.melusine.TestData;
+import fr.polytech.melusine.components.OrderItemReader;
+import fr.polytech.melusine.components.OrderJournal;
+import fr.polytech.melusine.components.OrderRollups;
+import fr.polytech.melusine.components.PendingOrderItems;
+import fr.polytech.melusine.configurations.IdempotencyProperties;
+import fr.polytech.melusine.mappers.OrderItemMapper;
+import fr.polytech.melusine.mappers.OrderMapper;
+import fr.polytech.melusine.models.dtos.requests.OrderRequest;
+import fr.polytech.melusine.models.entities.Ingredient;
+import fr.polytech.melusine.models.entities.Product;
+import fr.polytech.melusine.models.entities.User;
+import fr.polytech.melusine.models.enums.Category;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import javax.persistence.EntityManagerFactory;
+import java.time.Clock;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Count of the SQL statements prepared by Hibernate for the creation of an order.
+ */
+@RunWith(SpringRunner.class)
+@DataJpaTest(properties = {
+        "spring.jpa.hibernate.ddl-auto=create",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+@Import({OrderService.class, OrderMapper.class, OrderItemMapper.class, OrderServiceStatementsTest.Configuration.class})
+public class OrderServiceStatementsTest {
+
+    @Autowired
+    private TestEntityManager entityManager;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    @Autowired
+    private OrderService orderService;
+    @MockBean
+    private PendingOrderItems pendingOrderItems;
+    @MockBean
+    private OrderItemReader orderItemReader;
+    @MockBean
+    private OrderJournal orderJournal;
+    @MockBean
+    private OrderRollups orderRollups;
+
+    private Statistics statistics;
+    private User user;
+    private Product sandwich;
+    private Product drink;
+
+    @Before
+    public void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        Ingredient cheese = entityManager.persist(TestData.INGREDIENT_CHEESE.toBuilder().id(null).image(null).build());
+        Ingredient sugar = entityManager.persist(TestData.INGREDIENT_CHEESE.toBuilder().id(null).name("sugar").image(null)
+                .build());
+        user = entityManager.persist(TestData.USER_BRUCE_WAYNE.toBuilder().id(null).credit(1_000_000).build());
+        sandwich = entityManager.persist(TestData.PRODUCT_1.toBuilder().id(null).ingredients(List.of(cheese)).build());
+        drink = entityManager.persist(TestData.PRODUCT_1.toBuilder().id(null).name("Coca").category(Category.BOISSON)
+                .ingredients(List.of(sugar)).build());
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    public void createOrder_statementCountDoesNotDependOnBasketSize() {
+        long smallBasket = countCreateOrderStatements(2);
+        long largeBasket = countCreateOrderStatements(40);
+
+        assertThat(largeBasket).isEqualTo(smallBasket);
+        // user, products, debit, order and the batch of items
+        assertThat(smallBasket).isEqualTo(5);
+    }
+
+    private long countCreateOrderStatements(int basketSize) {
+        OrderRequest request = OrderRequest.builder()
+                .name("displayName")
+                .userId(user.getId())
+                .items(IntStream.range(0, basketSize)
+                        .mapToObj(i -> i % 2 == 0 ? sandwich.getId() : drink.getId())
+                        .collect(Collectors.toList()))
+                .build();
+        statistics.clear();
+
+        orderService.createOrder(request);
+        entityManager.flush();
+        entityManager.clear();
+
+        return statistics.getPrepareStatementCount();
+    }
+
+    @TestConfiguration
+    static class Configuration {
+
+        @Bean
+        public Clock clock() {
+            return Clock.fixed(TestData.INSTANT_1.toInstant(), ZoneOffset.UTC);
+        }
+
+        @Bean
+        public IdempotencyProperties idempotencyProperties() {
+            return new IdempotencyProperties();
+        }
+
+    }
+
+}
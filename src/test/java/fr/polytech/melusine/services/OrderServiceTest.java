@@ -1,15 +1,73 @@
 package fr.polytech.melusine.services;
 
+import fr.polytech.melusine.TestData;
+import fr.polytech.melusine.components.OrderItemReader;
+import fr.polytech.melusine.components.OrderJournal;
+import fr.polytech.melusine.components.OrderRollups;
+import fr.polytech.melusine.components.PendingOrderItems;
+import fr.polytech.melusine.configurations.IdempotencyProperties;
+import fr.polytech.melusine.configurations.OrderBatchProperties;
+import fr.polytech.melusine.exceptions.BadRequestException;
+import fr.polytech.melusine.exceptions.ConflictException;
+import fr.polytech.melusine.exceptions.NotFoundException;
+import fr.polytech.melusine.exceptions.errors.ProductError;
 import fr.polytech.melusine.mappers.OrderItemMapper;
 import fr.polytech.melusine.mappers.OrderMapper;
+import fr.polytech.melusine.models.JournaledOrder;
+import fr.polytech.melusine.models.dtos.requests.OrderItemsRequest;
+import fr.polytech.melusine.models.dtos.requests.OrderRequest;
+import fr.polytech.melusine.models.dtos.responses.JournaledOrderResponse;
+import fr.polytech.melusine.models.dtos.responses.OrderBatchResponse;
+import fr.polytech.melusine.models.dtos.responses.OrderResponse;
+import fr.polytech.melusine.models.entities.DeadLetterEvent;
+import fr.polytech.melusine.models.entities.IdempotencyKey;
+import fr.polytech.melusine.models.entities.Order;
+import fr.polytech.melusine.models.entities.OrderItem;
+import fr.polytech.melusine.models.entities.Product;
+import fr.polytech.melusine.models.entities.User;
+import fr.polytech.melusine.models.enums.Category;
+import fr.polytech.melusine.models.enums.JournaledOrderStatus;
+import fr.polytech.melusine.models.enums.OrderItemEventType;
+import fr.polytech.melusine.models.enums.OrderStatus;
+import fr.polytech.melusine.models.events.OrderCreatedEvent;
+import fr.polytech.melusine.models.events.OrderItemChange;
+import fr.polytech.melusine.models.events.OrderItemEvent;
+import fr.polytech.melusine.models.events.OrderItemsStatusChangedEvent;
 import fr.polytech.melusine.repositories.*;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.InOrder;
 import org.mockito.Mock;
+import org.mockito.Mockito;
 import org.mockito.junit.MockitoJUnitRunner;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.PlatformTransactionManager;
 
 import java.time.Clock;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.mockito.AdditionalAnswers.returnsFirstArg;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
 
 @RunWith(MockitoJUnitRunner.class)
 public class OrderServiceTest {
@@ -21,6 +79,8 @@ public class OrderServiceTest {
     @Mock
     private OrderItemRepository orderItemRepository;
     @Mock
+    private ArchivedOrderItemRepository archivedOrderItemRepository;
+    @Mock
     private UserRepository userRepository;
     @Mock
     private OrderMapper orderMapper;
@@ -29,72 +89,535 @@ public class OrderServiceTest {
     @Mock
     private IngredientRepository ingredientRepository;
     @Mock
+    private IdempotencyKeyRepository idempotencyKeyRepository;
+    @Mock
+    private DeadLetterEventRepository deadLetterEventRepository;
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+    @Mock
+    private PendingOrderItems pendingOrderItems;
+    @Mock
+    private OrderItemReader orderItemReader;
+    @Mock
+    private OrderJournal orderJournal;
+    @Mock
+    private OrderRollups orderRollups;
+    @Mock
+    private PlatformTransactionManager transactionManager;
+    @Mock
     private Clock clock;
+    @Captor
+    private ArgumentCaptor<List<OrderItem>> itemsCaptor;
 
     private OrderService orderService;
 
     @Before
     public void setUp() throws Exception {
-        orderService = new OrderService(orderRepository, productRepository, orderItemRepository, userRepository, orderItemMapper, orderMapper, ingredientRepository, clock);
-    }
-
-    /**
-     * TODO
-     *
-     * @Test public void createOrder() {
-     * User user = TestData.USER_BRUCE_WAYNE;
-     * OffsetDateTime now = OffsetDateTime.now();
-     * <p>
-     * OrderRequest request = OrderRequest.builder()
-     * .name("displayName")
-     * .items(List.of(TestData.ITEM_1.getProductId()))
-     * .userId(user.getId())
-     * .build();
-     * <p>
-     * Order orderToSave = Order.builder()
-     * .clientName("Displayname")
-     * .user(user)
-     * .createdAt(TestData.INSTANT_1)
-     * .updatedAt(TestData.INSTANT_1)
-     * .build();
-     * <p>
-     * Product product = TestData.PRODUCT_1;
-     * <p>
-     * when(clock.instant()).thenReturn(now.toInstant());
-     * when(clock.getZone()).thenReturn(ZoneId.of("Europe/Paris"));
-     * <p>
-     * when(userRepository.findById(user.getId())).thenReturn(Optional.of(user));
-     * when(productRepository.findById(product.getId())).thenReturn(Optional.of(product));
-     * when(orderItemRepository.save(any(OrderItem.class))).then(returnsFirstArg());
-     * when(orderRepository.save(any(Order.class))).then(returnsFirstArg());
-     * when(orderMapper.mapToOrderResponse(any(Order.class))).thenCallRealMethod();
-     * <p>
-     * OrderResponse response = orderService.createOrder(request);
-     * <p>
-     * assertThat(response).isNotNull();
-     * assertThat(response.getTotal()).isEqualTo(1.2);
-     * assertThat(response.getCreatedAt()).isEqualTo(now);
-     * assertThat(response.getUpdatedAt()).isEqualTo(now);
-     * <p>
-     * ArgumentCaptor<OrderItem> orderItemCaptor = ArgumentCaptor.forClass(OrderItem.class);
-     * verify(orderItemRepository).save(orderItemCaptor.capture());
-     * <p>
-     * ArgumentCaptor<Order> orderCaptor = ArgumentCaptor.forClass(Order.class);
-     * verify(orderRepository).save(orderCaptor.capture());
-     * <p>
-     * ArgumentCaptor<User> userCaptor = ArgumentCaptor.forClass(User.class);
-     * verify(userRepository).save(userCaptor.capture());
-     * <p>
-     * assertThat(orderItemCaptor.getValue().getPrice()).isEqualTo(120L);
-     * <p>
-     * assertThat(orderCaptor.getValue().getClientName()).isEqualTo(orderToSave.getClientName());
-     * assertThat(orderCaptor.getValue().getUser()).isEqualTo(user);
-     * assertThat(orderCaptor.getValue().getTotal()).isEqualTo(120);
-     * <p>
-     * assertThat(userCaptor.getValue().getId()).isEqualTo(user.getId());
-     * assertThat(userCaptor.getValue().getCredit()).isEqualTo(user.getCredit() - orderCaptor.getValue().getTotal());
-     * }
-     **/
+        orderService = new OrderService(orderRepository, productRepository, orderItemRepository, archivedOrderItemRepository,
+                userRepository, orderItemMapper, orderMapper, ingredientRepository, idempotencyKeyRepository,
+                deadLetterEventRepository, new IdempotencyProperties(), new OrderBatchProperties(), eventPublisher,
+                pendingOrderItems, orderItemReader, orderJournal, orderRollups, transactionManager, clock);
+    }
+
+    @Test
+    public void createOrder() {
+        User user = TestData.USER_BRUCE_WAYNE;
+        Product product = TestData.PRODUCT_1;
+        OrderRequest request = OrderRequest.builder()
+                .name("displayName")
+                .items(List.of(product.getId()))
+                .userId(user.getId())
+                .build();
+
+        when(clock.instant()).thenReturn(TestData.INSTANT_1.toInstant());
+        when(clock.getZone()).thenReturn(ZoneOffset.UTC);
+        when(userRepository.findById(user.getId())).thenReturn(Optional.of(user));
+        when(userRepository.debitCredit(eq(user.getId()), anyLong(), any(OffsetDateTime.class))).thenReturn(1);
+        when(productRepository.findAllWithIngredientsByIdIn(any())).thenReturn(List.of(product));
+        when(orderRepository.save(any(Order.class))).then(returnsFirstArg());
+
+        orderService.createOrder(request);
+
+        ArgumentCaptor<Order> orderCaptor = ArgumentCaptor.forClass(Order.class);
+        verify(orderRepository).save(orderCaptor.capture());
+        verify(orderItemRepository).saveAll(itemsCaptor.capture());
+        assertThat(orderCaptor.getValue().getClientName()).isEqualTo("Batman");
+        assertThat(orderCaptor.getValue().getTotal()).isEqualTo(120L);
+        assertThat(orderCaptor.getValue().getStatus()).isEqualTo(OrderStatus.PENDING);
+        assertThat(orderCaptor.getValue().getPendingCount()).isEqualTo(1);
+        assertThat(orderCaptor.getValue().getDeliveredCount()).isZero();
+        assertThat(itemsCaptor.getValue()).hasSize(1);
+        assertThat(itemsCaptor.getValue().get(0).getPrice()).isEqualTo(120L);
+        assertThat(itemsCaptor.getValue().get(0).getStatus()).isEqualTo(OrderStatus.PENDING);
+        assertThat(itemsCaptor.getValue().get(0).getProductName()).isEqualTo("Mitch");
+        assertThat(itemsCaptor.getValue().get(0).getCategory()).isEqualTo(Category.FROID);
+        assertThat(itemsCaptor.getValue().get(0).getIngredientNames()).containsExactly("cheese");
+        verify(userRepository).debitCredit(eq(user.getId()), eq(120L), any(OffsetDateTime.class));
+    }
+
+    @Test
+    public void createOrder_deliversDrinksAtInsert() {
+        Product drink = TestData.PRODUCT_1.toBuilder()
+                .id("drinkId")
+                .category(Category.BOISSON)
+                .build();
+        OrderRequest request = OrderRequest.builder()
+                .name("displayName")
+                .items(List.of(drink.getId(), drink.getId()))
+                .build();
+
+        when(clock.instant()).thenReturn(TestData.INSTANT_1.toInstant());
+        when(clock.getZone()).thenReturn(ZoneOffset.UTC);
+        when(productRepository.findAllWithIngredientsByIdIn(any())).thenReturn(List.of(drink));
+        when(orderRepository.save(any(Order.class))).then(returnsFirstArg());
+
+        orderService.createOrder(request);
+
+        ArgumentCaptor<Order> orderCaptor = ArgumentCaptor.forClass(Order.class);
+        verify(orderRepository).save(orderCaptor.capture());
+        verify(orderItemRepository).saveAll(itemsCaptor.capture());
+
+        assertThat(orderCaptor.getValue().getStatus()).isEqualTo(OrderStatus.DELIVER);
+        assertThat(itemsCaptor.getValue()).extracting(OrderItem::getStatus)
+                .containsExactly(OrderStatus.DELIVER, OrderStatus.DELIVER);
+        assertThat(getPublishedEvent(OrderCreatedEvent.class).getDeliveredProductIds())
+                .containsExactly(drink.getId(), drink.getId());
+        verify(ingredientRepository, never()).updateQuantityByIdIn(any(), anyLong());
+    }
+
+    @Test
+    public void getJournaledOrder_acceptedWhileInTheJournal() {
+        when(orderJournal.contains("orderId")).thenReturn(true);
+
+        JournaledOrderResponse response = orderService.getJournaledOrder("orderId");
+
+        assertThat(response.getStatus()).isEqualTo(JournaledOrderStatus.ACCEPTED);
+        verifyNoInteractions(orderRepository, deadLetterEventRepository);
+    }
+
+    @Test
+    public void getJournaledOrder_createdOnceWritten() {
+        Order order = TestData.ODER_1;
+        OrderResponse orderResponse = OrderResponse.builder()
+                .id("orderId")
+                .clientName("Bruce")
+                .status(OrderStatus.PENDING)
+                .createdAt(TestData.INSTANT_1)
+                .updatedAt(TestData.INSTANT_1)
+                .build();
+
+        when(orderRepository.findById("orderId")).thenReturn(Optional.of(order));
+        when(orderMapper.mapToOrderResponse(order)).thenReturn(orderResponse);
+
+        JournaledOrderResponse response = orderService.getJournaledOrder("orderId");
+
+        assertThat(response.getStatus()).isEqualTo(JournaledOrderStatus.CREATED);
+        assertThat(response.getOrder()).isEqualTo(orderResponse);
+    }
+
+    @Test
+    public void getJournaledOrder_refusedWithTheErrorOfTheDeadLetter() {
+        when(orderRepository.findById("orderId")).thenReturn(Optional.empty());
+        when(deadLetterEventRepository.findByOrderId("orderId")).thenReturn(Optional.of(DeadLetterEvent.builder()
+                .type("JournaledOrder")
+                .orderId("orderId")
+                .payload("{}")
+                .error("Crédit insuffisant")
+                .createdAt(TestData.INSTANT_1)
+                .build()));
+
+        JournaledOrderResponse response = orderService.getJournaledOrder("orderId");
+
+        assertThat(response.getStatus()).isEqualTo(JournaledOrderStatus.REFUSED);
+        assertThat(response.getError()).isEqualTo("Crédit insuffisant");
+    }
+
+    @Test
+    public void getJournaledOrder_notFound() {
+        when(orderRepository.findById("orderId")).thenReturn(Optional.empty());
+        when(deadLetterEventRepository.findByOrderId("orderId")).thenReturn(Optional.empty());
+
+        assertThatExceptionOfType(NotFoundException.class)
+                .isThrownBy(() -> orderService.getJournaledOrder("orderId"));
+    }
+
+    @Test
+    public void applyOrderCreated_countsTheOrderAndRemovesDeliveredDrinksFromStock() {
+        Product drink = TestData.PRODUCT_1.toBuilder()
+                .id("drinkId")
+                .category(Category.BOISSON)
+                .build();
+
+        when(productRepository.findAllWithIngredientsByIdIn(any())).thenReturn(List.of(drink));
+
+        orderService.applyOrderCreated(OrderCreatedEvent.builder()
+                .orderId("orderId")
+                .createdAt(TestData.INSTANT_1)
+                .deliveredProductIds(List.of(drink.getId(), drink.getId()))
+                .build());
+
+        verify(orderRollups).addCreatedOrder(TestData.INSTANT_1);
+        verify(ingredientRepository).updateQuantityByIdIn(List.of(TestData.INGREDIENT_CHEESE.getId()), -2L);
+    }
+
+    @Test
+    public void createOrder_throwExceptionWhenCreditIsNotUpperThanZero() {
+        User user = TestData.USER_BRUCE_WAYNE;
+        OrderRequest request = OrderRequest.builder()
+                .name("displayName")
+                .items(List.of(TestData.PRODUCT_1.getId()))
+                .userId(user.getId())
+                .build();
+
+        when(clock.instant()).thenReturn(TestData.INSTANT_1.toInstant());
+        when(clock.getZone()).thenReturn(ZoneOffset.UTC);
+        when(userRepository.findById(user.getId())).thenReturn(Optional.of(user));
+        when(productRepository.findAllWithIngredientsByIdIn(any())).thenReturn(List.of(TestData.PRODUCT_1));
+        when(userRepository.debitCredit(eq(user.getId()), eq(120L), any(OffsetDateTime.class))).thenReturn(0);
+
+        assertThatExceptionOfType(BadRequestException.class)
+                .isThrownBy(() -> orderService.createOrder(request));
+        verify(orderRepository, never()).save(any(Order.class));
+    }
+
+    @Test
+    public void createOrder_throwExceptionWhenProductIsMissing() {
+        OrderRequest request = OrderRequest.builder()
+                .name("displayName")
+                .items(List.of(TestData.PRODUCT_1.getId(), "unknownId"))
+                .build();
+
+        when(clock.instant()).thenReturn(TestData.INSTANT_1.toInstant());
+        when(clock.getZone()).thenReturn(ZoneOffset.UTC);
+        when(productRepository.findAllWithIngredientsByIdIn(any())).thenReturn(List.of(TestData.PRODUCT_1));
+
+        assertThatExceptionOfType(NotFoundException.class)
+                .isThrownBy(() -> orderService.createOrder(request));
+        verify(orderRepository, never()).save(any(Order.class));
+    }
+
+    @Test
+    public void replayJournaledOrders_skipsWrittenOrdersAndReturnsRefusedOnes() {
+        JournaledOrder written = buildJournaledOrder("writtenId", List.of(TestData.PRODUCT_1.getId()));
+        JournaledOrder refused = buildJournaledOrder("refusedId", List.of("unknownId"));
+        JournaledOrder accepted = buildJournaledOrder("acceptedId", List.of(TestData.PRODUCT_1.getId()));
+
+        when(orderRepository.findIdsByIdIn(any())).thenReturn(List.of(written.getOrderId()));
+        when(productRepository.findAllWithIngredientsByIdIn(any())).thenReturn(List.of(TestData.PRODUCT_1));
+        when(orderRepository.save(any(Order.class))).then(returnsFirstArg());
+
+        Map<String, String> rejected = orderService.replayJournaledOrders(List.of(written, refused, accepted));
+
+        assertThat(rejected).containsOnlyKeys(refused.getOrderId());
+        ArgumentCaptor<Order> orderCaptor = ArgumentCaptor.forClass(Order.class);
+        verify(orderRepository).save(orderCaptor.capture());
+        assertThat(orderCaptor.getValue().getId()).isEqualTo(accepted.getOrderId());
+        assertThat(orderCaptor.getValue().getCreatedAt()).isEqualTo(TestData.INSTANT_1);
+        assertThat(orderCaptor.getValue().getClientName()).isEqualTo("Displayname");
+    }
+
+    @Test
+    public void createOrders() {
+        User user = TestData.USER_BRUCE_WAYNE;
+        Product product = TestData.PRODUCT_1;
+        OrderRequest first = OrderRequest.builder()
+                .name("displayName")
+                .items(List.of(product.getId()))
+                .userId(user.getId())
+                .build();
+        OrderRequest invalid = OrderRequest.builder()
+                .name("displayName")
+                .items(List.of("unknownId"))
+                .build();
+        OrderRequest second = OrderRequest.builder()
+                .name("displayName")
+                .items(List.of(product.getId()))
+                .userId(user.getId())
+                .build();
+
+        when(clock.instant()).thenReturn(TestData.INSTANT_1.toInstant());
+        when(clock.getZone()).thenReturn(ZoneOffset.UTC);
+        when(userRepository.findAllById(any())).thenReturn(List.of(user));
+        when(userRepository.debitCredit(eq(user.getId()), anyLong(), any(OffsetDateTime.class))).thenReturn(1);
+        when(productRepository.findAllWithIngredientsByIdIn(any())).thenReturn(List.of(product));
+        when(orderRepository.save(any(Order.class))).then(returnsFirstArg());
+        when(orderMapper.mapToOrderResponse(any(Order.class))).thenReturn(OrderResponse.builder()
+                .id("orderId")
+                .clientName("Batman")
+                .status(OrderStatus.PENDING)
+                .createdAt(TestData.INSTANT_1)
+                .updatedAt(TestData.INSTANT_1)
+                .build());
+
+        List<OrderBatchResponse> responses = orderService.createOrders(List.of(first, invalid, second));
+
+        assertThat(responses).hasSize(3);
+        assertThat(responses.get(0).getOrder()).isNotNull();
+        assertThat(responses.get(1).getError().getCode()).isEqualTo(ProductError.INVALID_NAME.getCode());
+        assertThat(responses.get(2).getOrder()).isNotNull();
+        verify(productRepository).findAllWithIngredientsByIdIn(any());
+        verify(userRepository).findAllById(any());
+        verify(userRepository, times(2)).debitCredit(eq(user.getId()), eq(120L), any(OffsetDateTime.class));
+    }
+
+    @Test
+    public void createOrders_refusesBatchLargerThanTheMaximum() {
+        List<OrderRequest> orderRequests = Collections.nCopies(101, OrderRequest.builder()
+                .name("displayName")
+                .items(List.of(TestData.PRODUCT_1.getId()))
+                .build());
+
+        assertThatExceptionOfType(BadRequestException.class)
+                .isThrownBy(() -> orderService.createOrders(orderRequests));
+        verifyNoInteractions(productRepository, orderRepository);
+    }
+
+    @Test
+    public void updateOrderItemsStatus() {
+        Order first = TestData.ODER_1.toBuilder().status(OrderStatus.PENDING).build();
+        Order second = TestData.ODER_1.toBuilder().id("secondOrderId").status(OrderStatus.PENDING).build();
+        OrderItem firstItem = buildPendingItem("firstItemId", first);
+        OrderItem secondItem = buildPendingItem("secondItemId", first);
+        OrderItem thirdItem = buildPendingItem("thirdItemId", second);
+        OrderItemsRequest request = new OrderItemsRequest();
+        request.setItemIds(List.of(firstItem.getId(), secondItem.getId(), thirdItem.getId()));
+        request.setStatus(OrderStatus.CANCEL);
+
+        when(clock.instant()).thenReturn(TestData.INSTANT_2.toInstant());
+        when(clock.getZone()).thenReturn(ZoneOffset.UTC);
+        when(orderItemRepository.findAllWithOrderAndProductByIdIn(any())).thenReturn(List.of(firstItem, secondItem, thirdItem));
+        when(orderItemRepository.updateStatus(Set.of(firstItem.getId(), secondItem.getId(), thirdItem.getId()),
+                OrderStatus.PENDING, OrderStatus.CANCEL, TestData.INSTANT_2)).thenReturn(3);
+
+        orderService.updateOrderItemsStatus(request);
+
+        verify(orderItemRepository, never()).saveAll(any());
+        verify(orderItemRepository, never()).findById(any());
+        verify(orderRepository).addToCounters(first.getId(), -2, 0, 2);
+        verify(orderRepository).addToCounters(second.getId(), -1, 0, 1);
+        verify(orderRepository).updateStatusFromCounters(Set.of(first.getId(), second.getId()), TestData.INSTANT_2);
+        verify(orderRepository, never()).saveAll(any());
+        verify(orderItemRepository, never()).findAllById(any());
+        verify(userRepository, never()).addCredit(any(), anyLong(), any(OffsetDateTime.class));
+
+        OrderItemEvent itemEvent = getPublishedEvent(OrderItemEvent.class);
+        assertThat(itemEvent.getType()).isEqualTo(OrderItemEventType.CANCELLED);
+        assertThat(itemEvent.getItems()).hasSize(3);
+        OrderItemsStatusChangedEvent changedEvent = getPublishedEvent(OrderItemsStatusChangedEvent.class);
+        assertThat(changedEvent.getStatus()).isEqualTo(OrderStatus.CANCEL);
+        assertThat(changedEvent.getChanges()).extracting(OrderItemChange::getPreviousStatus).containsOnly(OrderStatus.PENDING);
+        assertThat(changedEvent.getChanges()).extracting(OrderItemChange::getUserId)
+                .containsOnly(TestData.USER_BRUCE_WAYNE.getId());
+    }
+
+    @Test
+    public void updateOrderItemsStatus_throwConflictWhenAnItemHasChangedMeanwhile() {
+        Order order = TestData.ODER_1.toBuilder().status(OrderStatus.PENDING).build();
+        OrderItem firstItem = buildPendingItem("firstItemId", order);
+        OrderItem secondItem = buildPendingItem("secondItemId", order);
+        OrderItemsRequest request = new OrderItemsRequest();
+        request.setItemIds(List.of(firstItem.getId(), secondItem.getId()));
+        request.setStatus(OrderStatus.DELIVER);
+
+        when(clock.instant()).thenReturn(TestData.INSTANT_2.toInstant());
+        when(clock.getZone()).thenReturn(ZoneOffset.UTC);
+        when(orderItemRepository.findAllWithOrderAndProductByIdIn(any())).thenReturn(List.of(firstItem, secondItem));
+        when(orderItemRepository.updateStatus(any(), eq(OrderStatus.PENDING), eq(OrderStatus.DELIVER), any()))
+                .thenReturn(1);
+
+        assertThatExceptionOfType(ConflictException.class)
+                .isThrownBy(() -> orderService.updateOrderItemsStatus(request));
+        verifyNoInteractions(orderRepository, orderRollups, eventPublisher);
+    }
+
+    @Test
+    public void applyOrderItemsStatusChanged() {
+        Order first = TestData.ODER_1.toBuilder().status(OrderStatus.PENDING).build();
+        Order second = TestData.ODER_1.toBuilder().id("secondOrderId").status(OrderStatus.PENDING).build();
+        OrderItemsStatusChangedEvent event = OrderItemsStatusChangedEvent.builder()
+                .status(OrderStatus.CANCEL)
+                .changes(List.of(
+                        buildPendingChange("firstItemId", first),
+                        buildPendingChange("secondItemId", first),
+                        buildPendingChange("thirdItemId", second)
+                ))
+                .build();
+
+        when(clock.instant()).thenReturn(TestData.INSTANT_2.toInstant());
+        when(clock.getZone()).thenReturn(ZoneOffset.UTC);
+
+        orderService.applyOrderItemsStatusChanged(event);
+
+        verifyNoInteractions(orderRepository, orderItemRepository);
+        verify(userRepository).addCredit(eq(TestData.USER_BRUCE_WAYNE.getId()), eq(360L), any(OffsetDateTime.class));
+        verify(ingredientRepository, never()).updateQuantityByIdIn(any(), anyLong());
+        verify(productRepository, never()).findAllWithIngredientsByIdIn(any());
+    }
+
+    @Test
+    public void updateOrderItemsStatus_throwExceptionWhenTransitionIsInvalid() {
+        OrderItem deliveredItem = buildPendingItem("itemId", TestData.ODER_1).toBuilder()
+                .status(OrderStatus.DELIVER)
+                .build();
+        OrderItemsRequest request = new OrderItemsRequest();
+        request.setItemIds(List.of(deliveredItem.getId()));
+        request.setStatus(OrderStatus.CANCEL);
+
+        when(orderItemRepository.findAllWithOrderAndProductByIdIn(any())).thenReturn(List.of(deliveredItem));
+
+        assertThatExceptionOfType(BadRequestException.class)
+                .isThrownBy(() -> orderService.updateOrderItemsStatus(request));
+        verify(orderItemRepository, never()).saveAll(any());
+        verifyNoInteractions(orderRepository, orderRollups);
+    }
+
+    @Test
+    public void updateOrderItemsStatus_throwExceptionWhenStatusIsPending() {
+        OrderItemsRequest request = new OrderItemsRequest();
+        request.setItemIds(List.of("itemId"));
+        request.setStatus(OrderStatus.PENDING);
+
+        assertThatExceptionOfType(BadRequestException.class)
+                .isThrownBy(() -> orderService.updateOrderItemsStatus(request));
+        verifyNoInteractions(orderItemRepository, orderRepository, orderRollups);
+    }
+
+    @Test
+    public void updateOrderItemsStatus_throwExceptionWhenCancelledItemIsDelivered() {
+        OrderItem cancelledItem = buildPendingItem("itemId", TestData.ODER_1).toBuilder()
+                .status(OrderStatus.CANCEL)
+                .build();
+        OrderItemsRequest request = new OrderItemsRequest();
+        request.setItemIds(List.of(cancelledItem.getId()));
+        request.setStatus(OrderStatus.DELIVER);
+
+        when(orderItemRepository.findAllWithOrderAndProductByIdIn(any())).thenReturn(List.of(cancelledItem));
+
+        assertThatExceptionOfType(BadRequestException.class)
+                .isThrownBy(() -> orderService.updateOrderItemsStatus(request));
+        verify(orderItemRepository, never()).saveAll(any());
+        verifyNoInteractions(orderRepository, orderRollups);
+    }
+
+    @Test
+    public void createOrder_returnsTheOrderOfAnIdempotencyKeyAlreadyClaimed() {
+        Order order = TestData.ODER_1;
+        OrderRequest request = OrderRequest.builder()
+                .name("displayName")
+                .items(List.of(TestData.PRODUCT_1.getId()))
+                .build();
+
+        when(clock.instant()).thenReturn(TestData.INSTANT_1.toInstant());
+        when(clock.getZone()).thenReturn(ZoneOffset.UTC);
+        when(idempotencyKeyRepository.saveAndFlush(any())).thenThrow(new DataIntegrityViolationException("duplicate"));
+        when(idempotencyKeyRepository.findById("key")).thenReturn(Optional.of(IdempotencyKey.builder()
+                .id("key")
+                .orderId(order.getId())
+                .createdAt(TestData.INSTANT_1)
+                .build()));
+        when(orderRepository.findById(order.getId())).thenReturn(Optional.of(order));
+
+        orderService.createOrder(request, "key");
+
+        verify(orderMapper).mapToOrderResponse(order);
+        verify(orderRepository, never()).save(any(Order.class));
+        verify(userRepository, never()).debitCredit(any(), anyLong(), any(OffsetDateTime.class));
+    }
+
+    @Test
+    public void createOrder_claimsTheIdempotencyKeyBeforeCreatingTheOrder() {
+        OrderRequest request = OrderRequest.builder()
+                .name("displayName")
+                .items(List.of(TestData.PRODUCT_1.getId()))
+                .build();
+
+        when(clock.instant()).thenReturn(TestData.INSTANT_1.toInstant());
+        when(clock.getZone()).thenReturn(ZoneOffset.UTC);
+        when(idempotencyKeyRepository.saveAndFlush(any())).then(returnsFirstArg());
+        when(productRepository.findAllWithIngredientsByIdIn(any())).thenReturn(List.of(TestData.PRODUCT_1));
+        when(orderRepository.save(any(Order.class))).then(returnsFirstArg());
+        when(orderMapper.mapToOrderResponse(any(Order.class))).thenReturn(OrderResponse.builder()
+                .id("orderId")
+                .clientName("Displayname")
+                .status(OrderStatus.PENDING)
+                .createdAt(TestData.INSTANT_1)
+                .updatedAt(TestData.INSTANT_1)
+                .build());
+
+        orderService.createOrder(request, "key");
+
+        ArgumentCaptor<IdempotencyKey> keyCaptor = ArgumentCaptor.forClass(IdempotencyKey.class);
+        InOrder inOrder = Mockito.inOrder(idempotencyKeyRepository, orderRepository);
+        inOrder.verify(idempotencyKeyRepository).saveAndFlush(keyCaptor.capture());
+        inOrder.verify(orderRepository).save(any(Order.class));
+        assertThat(keyCaptor.getValue().getId()).isEqualTo("key");
+        assertThat(keyCaptor.getValue().isNew()).isTrue();
+        assertThat(keyCaptor.getValue().getOrderId()).isEqualTo("orderId");
+        verify(idempotencyKeyRepository, never()).findById(any());
+    }
+
+    @Test
+    public void createOrder_throwExceptionWhenIdempotencyKeyHasNoOrder() {
+        OrderRequest request = OrderRequest.builder()
+                .name("displayName")
+                .items(List.of(TestData.PRODUCT_1.getId()))
+                .build();
+
+        when(clock.instant()).thenReturn(TestData.INSTANT_1.toInstant());
+        when(clock.getZone()).thenReturn(ZoneOffset.UTC);
+        when(idempotencyKeyRepository.saveAndFlush(any())).thenThrow(new DataIntegrityViolationException("duplicate"));
+        when(idempotencyKeyRepository.findById("key")).thenReturn(Optional.of(IdempotencyKey.builder()
+                .id("key")
+                .createdAt(TestData.INSTANT_1)
+                .build()));
+
+        assertThatExceptionOfType(ConflictException.class)
+                .isThrownBy(() -> orderService.createOrder(request, "key"));
+        verify(orderRepository, never()).save(any(Order.class));
+    }
+
+    private OrderItem buildPendingItem(String id, Order order) {
+        return OrderItem.builder()
+                .id(id)
+                .order(order)
+                .product(TestData.PRODUCT_1)
+                .price(TestData.PRODUCT_1.getPrice())
+                .status(OrderStatus.PENDING)
+                .createdAt(TestData.INSTANT_1)
+                .updatedAt(TestData.INSTANT_1)
+                .build();
+    }
+
+    private JournaledOrder buildJournaledOrder(String orderId, List<String> items) {
+        return JournaledOrder.builder()
+                .orderId(orderId)
+                .name("displayName")
+                .items(items)
+                .createdAt(TestData.INSTANT_1)
+                .build();
+    }
+
+    private OrderItemChange buildPendingChange(String itemId, Order order) {
+        return OrderItemChange.builder()
+                .itemId(itemId)
+                .orderId(order.getId())
+                .userId(order.getUser().getId())
+                .productId(TestData.PRODUCT_1.getId())
+                .price(TestData.PRODUCT_1.getPrice())
+                .previousStatus(OrderStatus.PENDING)
+                .build();
+    }
+
+    private <T> T getPublishedEvent(Class<T> type) {
+        ArgumentCaptor<Object> eventCaptor = ArgumentCaptor.forClass(Object.class);
+        verify(eventPublisher, Mockito.atLeastOnce()).publishEvent(eventCaptor.capture());
+        List<Object> events = eventCaptor.getAllValues().stream()
+                .filter(type::isInstance)
+                .collect(Collectors.toList());
+        assertThat(events).hasSize(1);
+        return type.cast(events.get(0));
+    }
+
     @Test
     public void cancelOrderItem() {
     }
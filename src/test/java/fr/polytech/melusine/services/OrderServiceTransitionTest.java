@@ -0,0 +1,169 @@
+package fr.polytech.melusine.services;
+
+import fr.polytech.melusine.TestData;
+import fr.polytech.melusine.components.OrderItemReader;
+import fr.polytech.melusine.components.OrderJournal;
+import fr.polytech.melusine.components.OrderRollups;
+import fr.polytech.melusine.components.PendingOrderItems;
+import fr.polytech.melusine.configurations.IdempotencyProperties;
+import fr.polytech.melusine.exceptions.ConflictException;
+import fr.polytech.melusine.mappers.OrderItemMapper;
+import fr.polytech.melusine.mappers.OrderMapper;
+import fr.polytech.melusine.models.dtos.requests.OrderItemRequest;
+import fr.polytech.melusine.models.entities.Order;
+import fr.polytech.melusine.models.entities.OrderItem;
+import fr.polytech.melusine.models.entities.Product;
+import fr.polytech.melusine.models.enums.OrderStatus;
+import fr.polytech.melusine.repositories.OrderItemRepository;
+import fr.polytech.melusine.repositories.OrderRepository;
+import fr.polytech.melusine.repositories.ProductRepository;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Clock;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Two requests delivering the same item at the same time, on committed transactions.
+ */
+@RunWith(SpringRunner.class)
+@DataJpaTest(properties = {
+        "spring.jpa.hibernate.ddl-auto=create",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect"
+})
+@Import({OrderService.class, OrderMapper.class, OrderItemMapper.class, OrderServiceTransitionTest.Configuration.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class OrderServiceTransitionTest {
+
+    @Autowired
+    private OrderService orderService;
+    @Autowired
+    private OrderRepository orderRepository;
+    @Autowired
+    private OrderItemRepository orderItemRepository;
+    @Autowired
+    private ProductRepository productRepository;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    @MockBean
+    private PendingOrderItems pendingOrderItems;
+    @MockBean
+    private OrderItemReader orderItemReader;
+    @MockBean
+    private OrderJournal orderJournal;
+    @MockBean
+    private OrderRollups orderRollups;
+
+    private Order order;
+    private OrderItem orderItem;
+
+    @Before
+    public void setUp() {
+        Product product = productRepository.save(TestData.PRODUCT_1.toBuilder().id(null).ingredients(List.of()).build());
+        order = orderRepository.save(TestData.ODER_1.toBuilder()
+                .id(null)
+                .user(null)
+                .status(OrderStatus.PENDING)
+                .pendingCount(1)
+                .deliveredCount(0)
+                .cancelledCount(0)
+                .build());
+        orderItem = orderItemRepository.save(OrderItem.builder()
+                .price(product.getPrice())
+                .product(product)
+                .productName(product.getName())
+                .category(product.getCategory())
+                .order(order)
+                .status(OrderStatus.PENDING)
+                .createdAt(TestData.INSTANT_1)
+                .updatedAt(TestData.INSTANT_1)
+                .build());
+    }
+
+    @After
+    public void tearDown() {
+        orderItemRepository.deleteAll();
+        orderRepository.deleteAll();
+        productRepository.deleteAll();
+    }
+
+    @Test
+    public void updateOrderStatus_appliesAConcurrentTransitionOnce() throws Exception {
+        OrderItemRequest request = new OrderItemRequest();
+        request.setStatus(OrderStatus.DELIVER);
+        CountDownLatch updated = new CountDownLatch(1);
+        CountDownLatch commit = new CountDownLatch(1);
+
+        CompletableFuture<Void> first = CompletableFuture.runAsync(() -> new TransactionTemplate(transactionManager)
+                .executeWithoutResult(status -> {
+                    orderService.updateOrderStatus(orderItem.getId(), request);
+                    updated.countDown();
+                    await(commit);
+                }));
+        assertThat(updated.await(5, TimeUnit.SECONDS)).isTrue();
+        CompletableFuture<Void> second = CompletableFuture.runAsync(() ->
+                orderService.updateOrderStatus(orderItem.getId(), request));
+        Thread.sleep(200);
+        commit.countDown();
+
+        first.get(5, TimeUnit.SECONDS);
+        assertThatExceptionOfType(ExecutionException.class)
+                .isThrownBy(() -> second.get(5, TimeUnit.SECONDS))
+                .withCauseInstanceOf(ConflictException.class);
+        Order saved = orderRepository.findById(order.getId()).orElseThrow();
+        assertThat(saved.getPendingCount()).isZero();
+        assertThat(saved.getDeliveredCount()).isEqualTo(1);
+        assertThat(saved.getStatus()).isEqualTo(OrderStatus.DELIVER);
+        verify(orderRollups, times(1)).addStatusChanges(any(), eq(OrderStatus.DELIVER));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @TestConfiguration
+    static class Configuration {
+
+        @Bean
+        public Clock clock() {
+            return Clock.fixed(TestData.INSTANT_2.toInstant(), ZoneOffset.UTC);
+        }
+
+        @Bean
+        public IdempotencyProperties idempotencyProperties() {
+            return new IdempotencyProperties();
+        }
+
+    }
+
+}